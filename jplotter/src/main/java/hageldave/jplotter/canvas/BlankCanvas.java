@@ -1,7 +1,9 @@
 package hageldave.jplotter.canvas;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
+import hageldave.jplotter.renderers.AnalyticPicking;
 import hageldave.jplotter.renderers.CoordSysRenderer;
 import hageldave.jplotter.renderers.Renderer;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
@@ -18,6 +20,7 @@ public class BlankCanvas extends FBOCanvas implements JPlotterCanvas {
 	private static final long serialVersionUID = 1L;
 
 	protected Renderer renderer;
+	protected boolean isAnalyticPickingEnabled = false;
 	
 	/**
 	 * Creates a new {@link BlankCanvas} with the specified {@link FBOCanvas}
@@ -74,6 +77,55 @@ public class BlankCanvas extends FBOCanvas implements JPlotterCanvas {
 		return renderer;
 	}
 	
+	/**
+	 * Enables or disables analytic picking.
+	 * When enabled and the renderer implements {@link AnalyticPicking}, picking colors are determined
+	 * by hit testing the renderer's primitives on the CPU ({@link AnalyticPicking#pick(AnalyticPicking, int, int, int, int, int)})
+	 * and the picking pass is skipped when rendering, i.e. the picking color attachment is not drawn to.
+	 * Disabled by default.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvas setAnalyticPickingEnabled(boolean enable) {
+		this.isAnalyticPickingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when analytic picking is enabled (see {@link #setAnalyticPickingEnabled(boolean)})
+	 */
+	public boolean isAnalyticPickingEnabled() {
+		return isAnalyticPickingEnabled;
+	}
+	
+	/**
+	 * @return true when analytic picking is enabled and supported by the current renderer
+	 */
+	protected boolean isAnalyticPickingActive() {
+		return isAnalyticPickingEnabled && renderer instanceof AnalyticPicking;
+	}
+	
+	@Override
+	protected boolean isPickingPassEnabled() {
+		return !isAnalyticPickingActive();
+	}
+	
+	@Override
+	public int getPixel(int x, int y, boolean picking, int areaSize) {
+		if(picking && isAnalyticPickingActive()){
+			return AnalyticPicking.pick((AnalyticPicking)renderer, x, y, areaSize, getWidth(), getHeight());
+		}
+		return super.getPixel(x, y, picking, areaSize);
+	}
+	
+	@Override
+	public CompletableFuture<Integer> getPixelAsync(int x, int y, boolean picking, int areaSize) {
+		if(picking && isAnalyticPickingActive()){
+			return CompletableFuture.completedFuture(getPixel(x, y, picking, areaSize));
+		}
+		return super.getPixelAsync(x, y, picking, areaSize);
+	}
+	
 	@Override
 	public BlankCanvas asComponent() {
 		return this;
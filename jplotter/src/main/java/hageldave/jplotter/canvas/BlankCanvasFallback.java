@@ -1,7 +1,9 @@
 package hageldave.jplotter.canvas;
 
 import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.renderers.AnalyticPicking;
 import hageldave.jplotter.renderers.Renderer;
+import hageldave.jplotter.util.FallbackRaster;
 import hageldave.jplotter.util.Utils;
 import org.apache.batik.svggen.SVGGraphics2D;
 
@@ -12,13 +14,31 @@ import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.image.ImageObserver;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
 
 /**
  * Fallback implementation for {@link BlankCanvas} for systems that do not support OpenGL 3
  * through {@link org.lwjgl.opengl.awt.AWTGLCanvas} (e.g. macOS).
  * <p>
  * This {@link JComponent} uses a single {@link Renderer} to draw its contents.
+ * <p>
+ * The picking image is rendered lazily, i.e. only when {@link #getPixel(int, int, boolean, int)} is
+ * queried for a picking color after the last repaint, and only within a region around the queried location
+ * (see {@link #setPickingRegionMargin(int)}). Further queries within that region are answered from the cached
+ * picking image until the next repaint.
+ * <p>
+ * Rendering can be distributed over multiple cores by splitting the canvas into tiles that are rendered
+ * concurrently (see {@link #setTiledRenderingParallelism(int)}), and it can be moved off the AWT event dispatch thread
+ * to keep the canvas responsive during expensive frames (see {@link #setBackgroundRenderingEnabled(boolean)}).
  * 
  * @author hageldave
  */
@@ -27,12 +47,22 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	private static final ImageObserver obs_allbits = Utils.imageObserver(ImageObserver.ALLBITS);
 
 	protected AtomicBoolean repaintIsSheduled = new AtomicBoolean(false);
-	protected Img mainRenderBuffer = new Img(0,0);
+	protected volatile Img mainRenderBuffer = new Img(0,0);
 	protected Img pickingRenderBuffer = new Img(0,0);
 	protected Img displayBuffer = new Img(0,0);
 	protected Renderer renderer;
 	protected boolean isRenderSvgAsImage = false;
 	protected boolean isRenderPDFAsImage = false;
+	protected boolean isAnalyticPickingEnabled = false;
+	protected Rectangle pickingValidRegion = new Rectangle();
+	protected int pickingRegionMargin = 32;
+	protected int tiledRenderingParallelism = 0;
+	protected ForkJoinPool tilePool;
+	protected Img[] tileBuffers = new Img[0];
+	protected ExecutorService backgroundRenderer;
+	protected final AtomicLong frameGeneration = new AtomicLong();
+	protected final AtomicReference<Img> spareRenderBuffer = new AtomicReference<>();
+	protected int numBackgroundRenderBands = 8;
 	
 	/**
 	 * Creates a new {@link BlankCanvasFallback} instance.
@@ -69,6 +99,11 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 	public void repaint() {
 		if(SwingUtilities.isEventDispatchThread()){
 			repaintIsSheduled.set(false);
+			if(isBackgroundRenderingEnabled()){
+				// super.repaint() is called when the frame is done
+				requestBackgroundFrame();
+				return;
+			}
 			render();
 			super.repaint();
 		} else {
@@ -84,15 +119,24 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 		}
 		if(w==0 && h==0)
 			return;
+		// picking image is outdated, it will be rendered on demand
+		pickingValidRegion = new Rectangle();
+		if(tiledRenderingParallelism > 0 && h > 0){
+			renderTiled(mainRenderBuffer, w, h, null);
+			return;
+		}
 		// clear / fill with clear color
 		mainRenderBuffer.fill(getBackground().getRGB());
-		pickingRenderBuffer.fill(0x00000000);
 		// setup render graphics
 		Graphics2D g=null,p=null;
 		try {
 			g=mainRenderBuffer.createGraphics();
+			FallbackRaster.setRaster(g, mainRenderBuffer);
 			
 			p=pickingRenderBuffer.createGraphics();
+			FallbackRaster.setRaster(p, pickingRenderBuffer);
+			// empty clip, drawing to the picking buffer becomes a no-op
+			p.setClip(0, 0, 0, 0);
 			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
 			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
@@ -111,6 +155,300 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 			if(p!=null)p.dispose();
 		}
 	}
+	
+	/**
+	 * Renders the main image in horizontal tiles, each into its own tile buffer which is then copied into the
+	 * target buffer.
+	 * The first tile is rendered on the calling thread, which lets renderers perform their lazy updates
+	 * (e.g. the layout of a {@link hageldave.jplotter.renderers.CoordSysRenderer}), the remaining tiles are
+	 * rendered concurrently on the tile pool.
+	 * When a cancellation test is specified, it is checked before each tile and the image is rendered in at least
+	 * {@link #numBackgroundRenderBands} tiles to allow for cancellation in between.
+	 * @param target buffer of the canvas' size
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 * @param isCancelled cancellation test, may be null
+	 * @return false when the rendering was cancelled, i.e. the target is incomplete
+	 */
+	protected boolean renderTiled(Img target, int w, int h, BooleanSupplier isCancelled) {
+		BooleanSupplier cancelled = isCancelled == null ? ()->false : isCancelled;
+		int numTiles = tilePool == null ? 1 : tiledRenderingParallelism*2;
+		if(isCancelled != null)
+			numTiles = Math.max(numTiles, numBackgroundRenderBands);
+		numTiles = Math.min(h, numTiles);
+		Img[] tiles = tileBuffers.length == numTiles ? tileBuffers : new Img[numTiles];
+		for(int i=0; i<numTiles; i++){
+			int tileH = tileY(i+1, numTiles, h)-tileY(i, numTiles, h);
+			if(tiles[i] == null || tiles[i].getWidth() != w || tiles[i].getHeight() != tileH)
+				tiles[i] = new Img(w, tileH);
+		}
+		tileBuffers = tiles;
+		int n = numTiles;
+		if(cancelled.getAsBoolean())
+			return false;
+		renderTile(tiles[0], tileY(0, n, h), w, h, target);
+		if(n > 1 && tilePool != null){
+			tilePool.submit(()->IntStream.range(1, n).parallel()
+					.filter(i->!cancelled.getAsBoolean())
+					.forEach(i->renderTile(tiles[i], tileY(i, n, h), w, h, target)))
+			.join();
+		} else {
+			for(int i=1; i<n && !cancelled.getAsBoolean(); i++)
+				renderTile(tiles[i], tileY(i, n, h), w, h, target);
+		}
+		return !cancelled.getAsBoolean();
+	}
+	
+	private static int tileY(int tile, int numTiles, int h) {
+		return (int)((long)h*tile/numTiles);
+	}
+	
+	/**
+	 * Renders the part of the main image that is covered by the specified tile (AWT coordinates)
+	 * and copies it into the target buffer.
+	 * The picking image is not touched.
+	 * @param tile buffer of the tile, spanning the full width of the canvas
+	 * @param ty y coordinate of the tile within the canvas
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 * @param target buffer of the canvas' size
+	 */
+	protected void renderTile(Img tile, int ty, int w, int h, Img target) {
+		tile.fill(getBackground().getRGB());
+		Graphics2D g=null,p=null;
+		try {
+			g=tile.createGraphics();
+			FallbackRaster.setRaster(g, tile);
+			
+			p=tile.createGraphics();
+			// empty clip, drawing to the picking graphics becomes a no-op
+			p.setClip(0, 0, 0, 0);
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_GASP);
+			
+			// canvas coordinates, clipped to the tile
+			g.translate(0, -ty);
+			g.setClip(0, ty, w, tile.getHeight());
+			g.translate(0, h);
+			g.scale(1.0, -1.0);
+			p.translate(0, h);
+			p.scale(1.0, -1.0);
+			render(g,p, w,h);
+		} finally {
+			if(g!=null)g.dispose();
+			if(p!=null)p.dispose();
+		}
+		System.arraycopy(tile.getData(), 0, target.getData(), ty*w, tile.numValues());
+	}
+	
+	/**
+	 * Starts a new frame on the background render thread which renders into a back buffer.
+	 * Frames that are still in flight are cancelled, and queued frames are skipped.
+	 * Called on the AWT event dispatch thread.
+	 */
+	protected void requestBackgroundFrame() {
+		long frame = frameGeneration.incrementAndGet();
+		int w=getWidth(); int h=getHeight();
+		backgroundRenderer.execute(()->renderBackgroundFrame(frame, w, h));
+	}
+	
+	/**
+	 * Renders the specified frame into a back buffer on the background render thread and
+	 * swaps it with the main buffer on the AWT event dispatch thread when done.
+	 * The frame is cancelled as soon as a newer frame has been requested.
+	 * @param frame generation of the frame
+	 * @param w width of the canvas
+	 * @param h height of the canvas
+	 */
+	protected void renderBackgroundFrame(long frame, int w, int h) {
+		BooleanSupplier isStale = ()->frame != frameGeneration.get();
+		if(isStale.getAsBoolean() || w==0 || h==0)
+			return;
+		Img back = spareRenderBuffer.getAndSet(null);
+		if(back == null || back.getWidth() != w || back.getHeight() != h)
+			back = new Img(w, h);
+		boolean complete;
+		try {
+			complete = renderTiled(back, w, h, isStale);
+		} catch (RuntimeException e) {
+			// the renderer may have been modified concurrently, which does not matter for a stale frame
+			complete = false;
+			if(!isStale.getAsBoolean()){
+				// rethrow on the event dispatch thread, like exceptions of frames rendered there
+				SwingUtilities.invokeLater(()->{throw e;});
+			}
+		}
+		if(!complete){
+			spareRenderBuffer.set(back);
+			return;
+		}
+		Img finished = back;
+		SwingUtilities.invokeLater(()->swapBuffers(finished));
+	}
+	
+	/**
+	 * Makes the specified rendered image the main buffer and displays it.
+	 * The previous main buffer is reused as back buffer.
+	 * Called on the AWT event dispatch thread.
+	 * @param finished the rendered image
+	 */
+	protected void swapBuffers(Img finished) {
+		Img front = mainRenderBuffer;
+		mainRenderBuffer = finished;
+		spareRenderBuffer.set(front);
+		if(pickingRenderBuffer.getWidth()!=finished.getWidth() || pickingRenderBuffer.getHeight()!=finished.getHeight())
+			pickingRenderBuffer = new Img(finished.getWidth(), finished.getHeight());
+		// picking image is outdated, it will be rendered on demand
+		pickingValidRegion = new Rectangle();
+		super.repaint();
+	}
+	
+	/**
+	 * Enables or disables background rendering.
+	 * When enabled, {@link #repaint()} does not render on the AWT event dispatch thread but requests a frame
+	 * from a background render thread, which renders into a back buffer while the canvas keeps displaying
+	 * the last completed frame. When the frame is done, the buffers are swapped on the event dispatch thread.
+	 * A frame is cancelled when a newer frame is requested while it is in flight, e.g. when panning or zooming,
+	 * which is checked between horizontal bands of the image (see {@link #setTiledRenderingParallelism(int)}
+	 * for rendering the bands concurrently).
+	 * <p>
+	 * Since the renderer is used from the background thread, changes to the renderer or its renderables
+	 * during a frame may produce an inconsistent frame. Such changes are expected to be followed
+	 * by a repaint, which cancels the frame or replaces it shortly after.
+	 * Exceptions of a frame that was not cancelled are rethrown on the event dispatch thread.
+	 * <p>
+	 * Picking queries ({@link #getPixel(int, int, boolean, int)}) use the renderer as well, which is why they are
+	 * executed on the background render thread, after the frame in flight, and the querying thread waits for them.
+	 * Disabled by default.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback setBackgroundRenderingEnabled(boolean enable) {
+		if(enable == isBackgroundRenderingEnabled())
+			return this;
+		if(enable){
+			backgroundRenderer = Executors.newSingleThreadExecutor(r->{
+				Thread t = new Thread(r, "BlankCanvasFallback render thread");
+				t.setDaemon(true);
+				return t;
+			});
+		} else {
+			// cancel frame in flight
+			frameGeneration.incrementAndGet();
+			backgroundRenderer.shutdown();
+			backgroundRenderer = null;
+			// tile buffers may still be in use by the cancelled frame
+			tileBuffers = new Img[0];
+		}
+		return this;
+	}
+	
+	/**
+	 * @return true when background rendering is enabled (see {@link #setBackgroundRenderingEnabled(boolean)})
+	 */
+	public boolean isBackgroundRenderingEnabled() {
+		return backgroundRenderer != null;
+	}
+	
+	/**
+	 * Enables tiled rendering with the specified number of threads.
+	 * The canvas is split into horizontal tiles (two per thread), which are rendered concurrently
+	 * on a {@link ForkJoinPool} of the specified parallelism and then composited.
+	 * This speeds up rendering on multi core systems without a GPU, as long as the renderer tolerates
+	 * concurrent calls to {@link Renderer#renderFallback(Graphics2D, Graphics2D, int, int)} after it
+	 * has updated its state in the first call of a frame, which is the case for the renderers of this library.
+	 * Primitives outside of a tile are skipped by the renderers (see {@link Utils#getClipBounds(Graphics2D, Graphics2D)}).
+	 * <p>
+	 * A parallelism of 1 renders a single tile on the event dispatch thread, 0 (default) disables tiled rendering.
+	 * @param parallelism number of threads
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback setTiledRenderingParallelism(int parallelism) {
+		parallelism = Math.max(0, parallelism);
+		if(parallelism == tiledRenderingParallelism)
+			return this;
+		if(tilePool != null){
+			tilePool.shutdown();
+			tilePool = null;
+		}
+		this.tiledRenderingParallelism = parallelism;
+		if(parallelism > 1){
+			tilePool = new ForkJoinPool(parallelism);
+		}
+		this.tileBuffers = new Img[0];
+		return this;
+	}
+	
+	/**
+	 * @return the number of threads used for tiled rendering, 0 if disabled (see {@link #setTiledRenderingParallelism(int)})
+	 */
+	public int getTiledRenderingParallelism() {
+		return tiledRenderingParallelism;
+	}
+	
+	/**
+	 * Renders the picking image within the specified region (AWT coordinates).
+	 * The main image is not touched.
+	 * Afterwards the region is the valid region of the picking image until the next repaint.
+	 * @param region to render the picking image in
+	 */
+	protected void renderPicking(Rectangle region) {
+		int w=pickingRenderBuffer.getWidth(); int h=pickingRenderBuffer.getHeight();
+		region = region.intersection(new Rectangle(w, h));
+		if(region.isEmpty())
+			return;
+		// clear region
+		int[] data = pickingRenderBuffer.getData();
+		for(int y=region.y; y<region.y+region.height; y++){
+			Arrays.fill(data, y*w+region.x, y*w+region.x+region.width, 0x00000000);
+		}
+		Graphics2D g=null,p=null;
+		try {
+			g=mainRenderBuffer.createGraphics();
+			// empty clip, drawing to the main buffer becomes a no-op
+			g.setClip(0, 0, 0, 0);
+			
+			p=pickingRenderBuffer.createGraphics();
+			FallbackRaster.setRaster(p, pickingRenderBuffer);
+			p.setClip(region);
+			p.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+			p.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_NORMALIZE);
+			p.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+			
+			g.translate(0, h);
+			g.scale(1.0, -1.0);
+			p.translate(0, h);
+			p.scale(1.0, -1.0);
+			render(g,p, w,h);
+		} finally {
+			if(g!=null)g.dispose();
+			if(p!=null)p.dispose();
+		}
+		pickingValidRegion = region;
+	}
+	
+	/**
+	 * Sets the margin around a queried area by which the region is extended in which the picking image 
+	 * is rendered on demand (see {@link #getPixel(int, int, boolean, int)}).
+	 * A larger margin means that more subsequent queries, e.g. when hovering, are answered from the cached picking image,
+	 * but the rendering of the region takes longer.
+	 * Default is 32 pixels.
+	 * @param margin in pixels
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback setPickingRegionMargin(int margin) {
+		this.pickingRegionMargin = Math.max(0, margin);
+		return this;
+	}
+	
+	/**
+	 * @return the margin around a queried area in which the picking image is rendered on demand 
+	 * (see {@link #setPickingRegionMargin(int)})
+	 */
+	public int getPickingRegionMargin() {
+		return pickingRegionMargin;
+	}
 
 	protected void render(Graphics2D g, Graphics2D p, int w, int h) {
 		if(renderer != null)
@@ -160,13 +498,80 @@ public class BlankCanvasFallback extends JComponent implements JPlotterCanvas {
 		return isRenderPDFAsImage;
 	}
 
+	/**
+	 * Enables or disables analytic picking.
+	 * When enabled and the renderer implements {@link AnalyticPicking}, picking colors are determined
+	 * by hit testing the renderer's primitives on the CPU ({@link AnalyticPicking#pick(AnalyticPicking, int, int, int, int, int)})
+	 * instead of rendering the picking image on demand.
+	 * Disabled by default.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public BlankCanvasFallback setAnalyticPickingEnabled(boolean enable) {
+		this.isAnalyticPickingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when analytic picking is enabled (see {@link #setAnalyticPickingEnabled(boolean)})
+	 */
+	public boolean isAnalyticPickingEnabled() {
+		return isAnalyticPickingEnabled;
+	}
+	
+	/**
+	 * @return true when analytic picking is enabled and supported by the current renderer
+	 */
+	protected boolean isAnalyticPickingActive() {
+		return isAnalyticPickingEnabled && renderer instanceof AnalyticPicking;
+	}
+
 	@Override
 	public Img toImg() {
 		return mainRenderBuffer.copy();
 	}
 
+	/**
+	 * Runs the specified task on the event dispatch thread and, when background rendering is enabled, 
+	 * on the background render thread after the frame in flight, so that the task does not use the renderer
+	 * concurrently with a frame. The calling thread waits for the task.
+	 * The event dispatch thread is blocked meanwhile, so that the buffers are not swapped during the task.
+	 * @param task to run
+	 */
+	protected void execExclusively(Runnable task) {
+		Utils.execOnAWTEventDispatch(()->{
+			if(!isBackgroundRenderingEnabled()){
+				task.run();
+				return;
+			}
+			try {
+				backgroundRenderer.submit(task).get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException(cause);
+			}
+		});
+	}
+
 	@Override
 	public int getPixel(int x, int y, boolean picking, int areaSize) {
+		if(picking && isAnalyticPickingActive()){
+			int[] pickColor = {0};
+			execExclusively(()->{
+				pickColor[0] = AnalyticPicking.pick((AnalyticPicking)renderer, x, y, areaSize, mainRenderBuffer.getWidth(), mainRenderBuffer.getHeight());
+			});
+			return pickColor[0];
+		}
+		if(picking){
+			Rectangle area = new Rectangle(x-areaSize/2, y-areaSize/2, areaSize, areaSize)
+					.intersection(new Rectangle(pickingRenderBuffer.getWidth(), pickingRenderBuffer.getHeight()));
+			if(!area.isEmpty() && !pickingValidRegion.contains(area)){
+				area.grow(pickingRegionMargin, pickingRegionMargin);
+				execExclusively(()->renderPicking(area));
+			}
+		}
 		Img img = picking ? pickingRenderBuffer:mainRenderBuffer;
 		Img area = new Img(areaSize, areaSize);
 		area.forEach(px->{
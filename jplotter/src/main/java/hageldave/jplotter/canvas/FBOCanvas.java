@@ -4,6 +4,7 @@ import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D;
 import hageldave.imagingkit.core.Img;
 import hageldave.jplotter.font.CharacterAtlas;
 import hageldave.jplotter.gl.FBO;
+import hageldave.jplotter.gl.PixelReadback;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.gl.VertexArray;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
@@ -24,8 +25,10 @@ import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
 
 /**
  * The FBOCanvas is an {@link AWTGLCanvas} which uses a FrameBufferObject ({@link FBO}) 
@@ -41,6 +44,10 @@ import java.util.concurrent.atomic.AtomicInteger;
  * call.
  * This way the object id can be queried for a specific mouse location, allowing for easy
  * interaction.
+ * Reading pixels synchronously stalls until the GPU has finished rendering, which is why
+ * {@link #getPixelAsync(int, int, boolean, int)} and {@link #toImgAsync()} are provided.
+ * These read through a ring of pixel buffer objects ({@link PixelReadback}) and complete
+ * once the transfer has finished, usually one frame later.
  * <p>
  * If the system supports multisampled FBOs (and {@link #useMSAA} is true) this Canvas will use
  * a multisampled FBO on top of a regular FBO for anti aliasing (MSAA).
@@ -167,6 +174,8 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 	public final int canvasID;
 	protected final FBOCanvas parentCanvas;
 	protected AtomicBoolean repaintIsSheduled = new AtomicBoolean(false);
+	protected PixelReadback pixelReadback=null;
+	protected AtomicBoolean readbackPollIsScheduled = new AtomicBoolean(false);
 	protected Img frontBufferBackup = new Img(0, 0);
 	protected boolean isRenderSvgAsImage = false;
 	protected boolean isRenderPDFAsImage = false;
@@ -314,6 +323,7 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 				0,1,
 				1,1
 		});
+		this.pixelReadback = new PixelReadback(3);
 	}
 	
 	protected Img toImg(Img img, boolean picking){
@@ -356,6 +366,26 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 		Img img = new Img(getWidth(), getHeight());
 		return toImg(img, false);
 	}
+	
+	/**
+	 * Fetches the current contents of the framebuffer asynchronously without stalling the
+	 * GL pipeline (see {@link PixelReadback}).
+	 * The returned future is completed on the AWT event dispatch thread once the transfer
+	 * has finished, which is usually after the next frame.
+	 * @return future image of the current framebuffer.
+	 */
+	public CompletableFuture<Img> toImgAsync() {
+		int imgW = getWidth();
+		int imgH = getHeight();
+		return requestPixels(GL30.GL_COLOR_ATTACHMENT0, 0, fbo->0, imgW, imgH).thenApply(pixels->{
+			Img img = new Img(imgW, imgH);
+			// flip Y axis
+			for(int y=0; y<imgH; y++){
+				System.arraycopy(pixels, y*imgW, img.getData(), (imgH-1-y)*imgW, imgW);
+			}
+			return img;
+		});
+	}
 
 	/**
 	 * Reads the color value of the pixel at the specified location if areaSize == 1.
@@ -399,6 +429,95 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 		});
 		return JPlotterCanvas.mostProminentColor(colors, areaSize*sx, areaSize*sy);
 	}
+	
+	/**
+	 * Same as {@link #getPixel(int, int, boolean, int)} but without stalling the GL pipeline.
+	 * The area is read into a pixel buffer object (see {@link PixelReadback}) and the returned
+	 * future is completed on the AWT event dispatch thread once the transfer has finished, 
+	 * which is usually after the next frame.
+	 * This is intended for frequent queries such as hover picking on mouse move events.
+	 * @param x coordinate of the pixels location
+	 * @param y coordinate of the pixels location
+	 * @param picking whether the picking color or the visible color should be retrieved.
+	 * @param areaSize width and height of the area around the specified location.
+	 * @return future of the most prominent color in the area as integer packed ARGB value.
+	 */
+	public CompletableFuture<Integer> getPixelAsync(int x, int y, boolean picking, int areaSize){
+		int sx = getDpiScalingXceil();
+		int sy = getDpiScalingYceil();
+		int attachment = picking ? GL30.GL_COLOR_ATTACHMENT1:GL30.GL_COLOR_ATTACHMENT0;
+		return requestPixels(attachment, 
+				(x-areaSize/2)*sx, 
+				fbo->fbo.height-1-(y-areaSize/2)*sy, 
+				areaSize*sx, areaSize*sy)
+				.thenApply(colors->JPlotterCanvas.mostProminentColor(colors, areaSize*sx, areaSize*sy));
+	}
+	
+	/**
+	 * Requests an asynchronous read of a region of the specified color attachment of the {@link #fbo}.
+	 * The read is issued on the AWT event dispatch thread and the returned future is completed
+	 * on the AWT event dispatch thread as well, outside of the GL context.
+	 * When there is no FBO yet, the future is completed with zeros.
+	 * @param attachment color attachment to read
+	 * @param x coordinate of the region
+	 * @param y function of the FBO that computes the y coordinate of the region (since it depends on the FBO height)
+	 * @param w width of the region
+	 * @param h height of the region
+	 * @return future pixels of the region in bottom up row order
+	 */
+	protected CompletableFuture<int[]> requestPixels(int attachment, int x, ToIntFunction<FBO> y, int w, int h) {
+		CompletableFuture<int[]> result = new CompletableFuture<>();
+		Runnable request = ()->{
+			if(fbo == null || pixelReadback == null){
+				result.complete(new int[w*h]);
+				return;
+			}
+			runInContext(()->{
+				pixelReadback.request(fbo.getFBOid(), attachment, x, y.applyAsInt(fbo), w, h)
+				.whenComplete((pixels,ex)->SwingUtilities.invokeLater(()->{
+					if(ex != null)
+						result.completeExceptionally(ex);
+					else
+						result.complete(pixels);
+				}));
+			});
+			scheduleReadbackPoll();
+		};
+		if(SwingUtilities.isEventDispatchThread()){
+			request.run();
+		} else {
+			SwingUtilities.invokeLater(request);
+		}
+		return result;
+	}
+	
+	/**
+	 * Schedules polling of the {@link #pixelReadback} on the AWT event dispatch thread
+	 * which reschedules itself until no readback is pending anymore.
+	 * This ensures completion of readbacks even when no frame is rendered.
+	 */
+	protected void scheduleReadbackPoll() {
+		if(readbackPollIsScheduled.compareAndSet(false, true)){
+			SwingUtilities.invokeLater(()->{
+				readbackPollIsScheduled.set(false);
+				if(Objects.nonNull(pixelReadback) && pixelReadback.hasPending()){
+					runInContext(pixelReadback::poll);
+					if(pixelReadback.hasPending())
+						scheduleReadbackPoll();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Returns the pixel buffer object ring used by {@link #getPixelAsync(int, int, boolean, int)} and 
+	 * {@link #toImgAsync()}, which records the readback latencies 
+	 * (e.g. {@link PixelReadback#getMeanLatencyNanos()}).
+	 * @return the pixel readback or null when the GL context has not been initialized yet (or was closed)
+	 */
+	public PixelReadback getPixelReadback() {
+		return pixelReadback;
+	}
 
 	/**
 	 * Clears the FBO and sets it as render target before calling {@link #paintToFBO(int, int)}.
@@ -420,7 +539,10 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 				}
 			}
 			// offscreen
-			setRenderTargetsColorAndPicking(w*sx, h*sy);
+			if(isPickingPassEnabled())
+				setRenderTargetsColorAndPicking(w*sx, h*sy);
+			else
+				setRenderTargetsColorOnly(w*sx, h*sy);
 			GL11.glClearColor(0, 0, 0, 0);
 			GL11.glClear( GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT );
 			/* we need to first draw a viewport filling quad that fills the buffer with the clear color
@@ -428,13 +550,9 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 			 */
 			{
 				fillShader.bind();
-				int loc;
-				loc = GL20.glGetUniformLocation(fillShader.getShaderProgID(), "colorFill");
-				GL20.glUniform4f(loc, getBackground().getRed()/255f, getBackground().getGreen()/255f, getBackground().getBlue()/255f, getBackground().getAlpha()/255f);
-				loc = GL20.glGetUniformLocation(fillShader.getShaderProgID(), "pickFill");
-				GL20.glUniform4f(loc, 0,0,0,0);
-				loc = GL20.glGetUniformLocation(fillShader.getShaderProgID(), "projMX");
-				GL20.glUniformMatrix4fv(loc, false, orthoMX);
+				fillShader.setUniform4f("colorFill", getBackground().getRed()/255f, getBackground().getGreen()/255f, getBackground().getBlue()/255f, getBackground().getAlpha()/255f);
+				fillShader.setUniform4f("pickFill", 0,0,0,0);
+				fillShader.setUniformMatrix4f("projMX", orthoMX);
 				vertexArray.bindAndEnableAttributes(0);
 				GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
 				vertexArray.releaseAndDisableAttributes(0);
@@ -452,26 +570,20 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 				{
 					blitShader.bind();
 					vertexArray.bindAndEnableAttributes(0);
-					int loc;
 					// set texture in shader
 					GL13.glActiveTexture(GL13.GL_TEXTURE0);
 					GL13.glBindTexture(GL32.GL_TEXTURE_2D_MULTISAMPLE, fboMS.getMainColorTexId());
-					loc = GL20.glGetUniformLocation(blitShader.getShaderProgID(), "colorTex");
-					GL20.glUniform1i(loc, 0);
+					blitShader.setUniform1i("colorTex", 0);
 
 					GL13.glActiveTexture(GL13.GL_TEXTURE1);
 					GL13.glBindTexture(GL32.GL_TEXTURE_2D_MULTISAMPLE, fboMS.getPickingColorTexId());
-					loc = GL20.glGetUniformLocation(blitShader.getShaderProgID(), "pickTex");
-					GL20.glUniform1i(loc, 1);
+					blitShader.setUniform1i("pickTex", 1);
 
-					loc = GL20.glGetUniformLocation(blitShader.getShaderProgID(), "screensize");
-					GL20.glUniform2f(loc, w*sx, h*sy);
+					blitShader.setUniform2f("screensize", w*sx, h*sy);
 
-					loc = GL20.glGetUniformLocation(blitShader.getShaderProgID(), "numSamples");
-					GL20.glUniform1i(loc, fboMS.numMultisamples);
+					blitShader.setUniform1i("numSamples", fboMS.numMultisamples);
 
-					loc = GL20.glGetUniformLocation(blitShader.getShaderProgID(), "projMX");
-					GL20.glUniformMatrix4fv(loc, false, orthoMX);
+					blitShader.setUniformMatrix4f("projMX", orthoMX);
 
 					GL11.glDrawArrays(GL11.GL_TRIANGLE_STRIP, 0, 4);
 					// done
@@ -492,6 +604,10 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 				GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, 0);
 			}
 		}
+		// complete readbacks that were requested during previous frames
+		if(Objects.nonNull(pixelReadback) && pixelReadback.hasPending()){
+			pixelReadback.poll();
+		}
 	}
 
 	/**
@@ -524,6 +640,10 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 			vertexArray.close();
 			vertexArray = null;
 		}
+		if(Objects.nonNull(pixelReadback)){
+			pixelReadback.close();
+			pixelReadback = null;
+		}
 	}
 	
 	public void disposePlatformCanvas() {
@@ -564,6 +684,17 @@ public abstract class FBOCanvas extends AWTGLCanvas implements AutoCloseable {
 		GL11.glViewport(0, 0, width, height);
 	}
 
+	/**
+	 * Whether the picking color attachment is drawn to by {@link #paintToFBO(int, int)}.
+	 * Subclasses that determine picking colors differently (e.g. through 
+	 * {@link hageldave.jplotter.renderers.AnalyticPicking}) can skip the picking pass by returning false,
+	 * in which case the picking attachment is not updated.
+	 * @return true by default
+	 */
+	protected boolean isPickingPassEnabled() {
+		return true;
+	}
+
 	/**
 	 * Binds this {@link FBOCanvas} {@link FBO} 
 	 * (if {@link #fboMS} is non null it will be bound instead of {@link #fbo})
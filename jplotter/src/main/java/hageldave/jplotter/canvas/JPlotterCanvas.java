@@ -19,6 +19,7 @@ import java.awt.event.WindowListener;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface defines the methods required by an implementation of a 
@@ -115,6 +116,15 @@ public interface JPlotterCanvas {
 	 */
 	public Img toImg();
 	
+	/**
+	 * Fetches the current contents of the framebuffer without blocking (if supported by the implementation).
+	 * The default implementation returns an already completed future of {@link #toImg()}.
+	 * @return future image of the current framebuffer.
+	 */
+	public default CompletableFuture<Img> toImgAsync() {
+		return CompletableFuture.completedFuture(toImg());
+	}
+	
 	/**
 	 * Reads the color value of the pixel at the specified location if areaSize == 1.
 	 * This can be used to get the color or picking color under the mouse cursor.
@@ -134,6 +144,20 @@ public interface JPlotterCanvas {
 	 */
 	public int getPixel(int x, int y, boolean picking, int areaSize);
 	
+	/**
+	 * Reads the color value of the pixel at the specified location without blocking (if supported
+	 * by the implementation), see {@link #getPixel(int, int, boolean, int)}.
+	 * The default implementation returns an already completed future of {@link #getPixel(int, int, boolean, int)}.
+	 * @param x coordinate of the pixels location
+	 * @param y coordinate of the pixels location
+	 * @param picking whether the picking color or the visible color should be retrieved.
+	 * @param areaSize width and height of the area around the specified location.
+	 * @return future of the most prominent color in the area as integer packed ARGB value.
+	 */
+	public default CompletableFuture<Integer> getPixelAsync(int x, int y, boolean picking, int areaSize) {
+		return CompletableFuture.completedFuture(getPixel(x, y, picking, areaSize));
+	}
+	
 	/**
 	 * Creates a new SVG {@link Document} and renders this canvas as SVG elements.
 	 * Will call {@link #paintToSVG(Document, Element, int, int)} after setting up
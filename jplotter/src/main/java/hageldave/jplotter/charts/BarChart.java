@@ -19,7 +19,6 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.LinkedList;
-import java.util.TreeSet;
 
 /**
  * The BarChart class is a convenience class to quickly create barcharts.
@@ -45,7 +44,6 @@ public class BarChart {
     final protected PickingRegistry<Object> pickingRegistry = new PickingRegistry<>();
 
     final protected Legend legend = new Legend();
-    final protected TreeSet<Integer> freedPickIds = new TreeSet<>();
     final protected ArrayList<Integer> legendElementPickIds = new ArrayList<>();
     final protected LinkedList<BarChartMouseEventListener> mouseEventListeners = new LinkedList<>();
 
@@ -157,9 +155,7 @@ public class BarChart {
      * @return the objects' id in the picking registry
      */
     protected synchronized int registerInPickingRegistry(Object obj) {
-        int id = freedPickIds.isEmpty() ? pickingRegistry.getNewID() : freedPickIds.pollFirst();
-        pickingRegistry.register(obj, id);
-        return id;
+        return pickingRegistry.register(obj);
     }
 
     /**
@@ -169,10 +165,7 @@ public class BarChart {
      * @return the object deregistered
      */
     protected synchronized Object deregisterFromPickingRegistry(int id) {
-        Object old = pickingRegistry.lookup(id);
-        pickingRegistry.register(null, id);
-        freedPickIds.add(id);
-        return old;
+        return pickingRegistry.deregister(id);
     }
 
     /**
@@ -283,7 +276,34 @@ public class BarChart {
             public void mouseDragged(MouseEvent e) { mouseAction(BarChartMouseEventListener.MOUSE_EVENT_TYPE_DRAGGED, e); }
 
 
+            /* sequence number of the latest event, and of the latest event that was delivered to the listeners */
+            private long eventSequence = 0, deliveredSequence = 0;
+
             private void mouseAction(String eventType, MouseEvent e) {
+                long sequence = ++eventSequence;
+                if(BarChartMouseEventListener.MOUSE_EVENT_TYPE_MOVED.equals(eventType)) {
+                    // hover picking happens frequently, read picking color without stalling the GL pipeline
+                    canvas.getPixelAsync(e.getX(), e.getY(), true, 3)
+                        .thenAccept(pixel->deliverMouseAction(sequence, eventType, e, pixel))
+                        .whenComplete((v,ex)->{
+                            // exceptions of listeners would otherwise be captured by the future
+                            if(ex != null)
+                                Utils.rethrowOnAWTEventDispatch(ex);
+                        });
+                } else {
+                    deliverMouseAction(sequence, eventType, e, canvas.getPixel(e.getX(), e.getY(), true, 3));
+                }
+            }
+
+            private void deliverMouseAction(long sequence, String eventType, MouseEvent e, int pixel) {
+                // an asynchronous hover result is stale when a later event was already delivered
+                if(sequence < deliveredSequence)
+                    return;
+                deliveredSequence = sequence;
+                mouseAction(eventType, e, pixel);
+            }
+
+            private void mouseAction(String eventType, MouseEvent e, int pixel) {
                 /* TODO: check key mask listeners of panning, zooming, and rectangular point selection
                  * to figure out if the mouse event is being handled by them. If not handled by any of them
                  * then go on with the following.
@@ -291,8 +311,6 @@ public class BarChart {
                 if(Utils.swapYAxis(barRenderer.getCoordSysArea(),canvas.asComponent().getHeight()).contains(e.getPoint())) {
                     /* mouse inside coordinate area */
                     Point2D coordsysPoint = barRenderer.transformAWT2CoordSys(e.getPoint(), canvas.asComponent().getHeight());
-                    // get pick color under cursor
-                    int pixel = canvas.getPixel(e.getX(), e.getY(), true, 3);
                     if((pixel & 0x00ffffff) == 0) {
                         notifyInsideMouseEventNone(eventType, e, coordsysPoint);
                     } else {
@@ -303,8 +321,6 @@ public class BarChart {
                     }
                 } else {
                     /* mouse outside coordinate area */
-                    // get pick color under cursor
-                    int pixel = canvas.getPixel(e.getX(), e.getY(), true, 3);
                     if((pixel & 0x00ffffff) == 0) {
                         notifyOutsideMouseEventNone(eventType, e);
                     } else {
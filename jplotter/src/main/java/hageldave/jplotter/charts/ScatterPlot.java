@@ -18,6 +18,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -88,7 +89,7 @@ public class ScatterPlot {
     final protected ScatterPlotDataModel dataModel = new ScatterPlotDataModel();
     final protected ArrayList<Points> pointsPerDataChunk = new ArrayList<>();
     final protected ArrayList<Integer> legendElementPickIds = new ArrayList<>();
-    final protected TreeSet<Integer> freedPickIds = new TreeSet<>();
+    final protected ArrayList<Integer> pointPickIdRangePerChunk = new ArrayList<>();
     final protected Legend legend = new Legend();
     protected ScatterPlotVisualMapping visualMapping = new ScatterPlotVisualMapping(){};
     final protected LinkedList<ScatterPlotMouseEventListener> mouseEventListeners = new LinkedList<>();
@@ -224,28 +225,38 @@ public class ScatterPlot {
 	}
 
 	protected synchronized int registerInPickingRegistry(Object obj) {
-    	int id = freedPickIds.isEmpty() ? pickingRegistry.getNewID() : freedPickIds.pollFirst();
-    	pickingRegistry.register(obj, id);
-    	return id;
+    	return pickingRegistry.register(obj);
     }
     
     protected synchronized Object deregisterFromPickingRegistry(int id) {
-    	Object old = pickingRegistry.lookup(id);
-    	pickingRegistry.register(null, id);
-    	freedPickIds.add(id);
-    	return old;
+    	return pickingRegistry.deregister(id);
+    }
+    
+    /**
+     * Registers a contiguous block of picking IDs for the points of a data chunk
+     * (see {@link PickingRegistry#registerRange(int, IntFunction)}).
+     * @param chunkIdx index of the data chunk
+     * @param numPoints number of points in the chunk
+     * @return first ID of the block or 0 when the chunk is empty
+     */
+    protected synchronized int registerPointsInPickingRegistry(int chunkIdx, int numPoints) {
+    	if(numPoints == 0)
+    		return 0;
+    	return pickingRegistry.registerRange(numPoints, i->new int[]{chunkIdx,i});
     }
     
     protected synchronized void onDataAdded(int chunkIdx, double[][] dataChunk, String chunkDescription, int xIdx, int yIdx) {
     	Points points = new Points(getVisualMapping().getGlyphForChunk(chunkIdx, chunkDescription));
     	pointsPerDataChunk.add(points);
     	contentLayer0.addItemToRender(points);
+    	int firstPickId = registerPointsInPickingRegistry(chunkIdx, dataChunk.length);
+    	pointPickIdRangePerChunk.add(firstPickId);
     	for(int i=0; i<dataChunk.length; i++) {
     		int i_=i;
     		double[] datapoint = dataChunk[i];
     		PointDetails pointDetails = points.addPoint(datapoint[xIdx], datapoint[yIdx]);
     		pointDetails.setColor(()->getVisualMapping().getColorForDataPoint(chunkIdx, chunkDescription, dataChunk, i_));
-    		pointDetails.setPickColor(registerInPickingRegistry(new int[]{chunkIdx,i}));
+    		pointDetails.setPickColor(firstPickId+i);
     	}
     	// create a picking ID for use in legend for this data chunk
     	this.legendElementPickIds.add(registerInPickingRegistry(chunkIdx));
@@ -255,21 +266,21 @@ public class ScatterPlot {
     
     protected synchronized void onDataChanged(int chunkIdx, double[][] dataChunk) {
     	Points points = pointsPerDataChunk.get(chunkIdx);
-    	// collect pick id's from current points for later reuse
-    	for(PointDetails pd:points.getPointDetails()) {
-    		int pickId = pd.pickColor;
-    		if(pickId != 0) {
-    			deregisterFromPickingRegistry(pickId);
-    		}
+    	// release pick id's of current points for reuse
+    	int oldFirstPickId = pointPickIdRangePerChunk.get(chunkIdx);
+    	if(oldFirstPickId != 0) {
+    		pickingRegistry.deregisterRange(oldFirstPickId);
     	}
     	points.removeAllPoints();
     	// add changed data
+    	int firstPickId = registerPointsInPickingRegistry(chunkIdx, dataChunk.length);
+    	pointPickIdRangePerChunk.set(chunkIdx, firstPickId);
     	for(int i=0; i<dataChunk.length; i++) {
     		int i_=i;
     		double[] datapoint = dataChunk[i];
     		PointDetails pointDetails = points.addPoint(datapoint[dataModel.getXIdx(chunkIdx)], datapoint[dataModel.getYIdx(chunkIdx)]);
     		pointDetails.setColor(()->getVisualMapping().getColorForDataPoint(chunkIdx, dataModel.getChunkDescription(chunkIdx), dataChunk, i_));
-    		pointDetails.setPickColor(registerInPickingRegistry(new int[]{chunkIdx,i}));
+    		pointDetails.setPickColor(firstPickId+i);
     	}
     	// update cues (which may have been in place before)
     	for(String cueType : Arrays.asList(CUE_ACCENTUATE, CUE_EMPHASIZE, CUE_HIGHLIGHT)) {
@@ -786,7 +797,34 @@ public class ScatterPlot {
     		public void mouseDragged(MouseEvent e) { mouseAction(ScatterPlotMouseEventListener.MOUSE_EVENT_TYPE_DRAGGED, e); }
     		
     		
+    		/* sequence number of the latest event, and of the latest event that was delivered to the listeners */
+    		private long eventSequence = 0, deliveredSequence = 0;
+
     		private void mouseAction(String eventType, MouseEvent e) {
+    			long sequence = ++eventSequence;
+    			if(ScatterPlotMouseEventListener.MOUSE_EVENT_TYPE_MOVED.equals(eventType)) {
+    				// hover picking happens frequently, read picking color without stalling the GL pipeline
+    				canvas.getPixelAsync(e.getX(), e.getY(), true, 3)
+    					.thenAccept(pixel->deliverMouseAction(sequence, eventType, e, pixel))
+    					.whenComplete((v,ex)->{
+    						// exceptions of listeners would otherwise be captured by the future
+    						if(ex != null)
+    							Utils.rethrowOnAWTEventDispatch(ex);
+    					});
+    			} else {
+    				deliverMouseAction(sequence, eventType, e, canvas.getPixel(e.getX(), e.getY(), true, 3));
+    			}
+    		}
+
+    		private void deliverMouseAction(long sequence, String eventType, MouseEvent e, int pixel) {
+    			// an asynchronous hover result is stale when a later event was already delivered
+    			if(sequence < deliveredSequence)
+    				return;
+    			deliveredSequence = sequence;
+    			mouseAction(eventType, e, pixel);
+    		}
+
+    		private void mouseAction(String eventType, MouseEvent e, int pixel) {
     			/* TODO: check key mask listeners of panning, zooming, and rectangular point selection
     			 * to figure out if the mouse event is being handled by them. If not handled by any of them
     			 * then go on with the following.
@@ -794,8 +832,6 @@ public class ScatterPlot {
     			if(Utils.swapYAxis(coordsys.getCoordSysArea(),canvas.asComponent().getHeight()).contains(e.getPoint())) {
     				/* mouse inside coordinate area */
     				Point2D coordsysPoint = coordsys.transformAWT2CoordSys(e.getPoint(), canvas.asComponent().getHeight());
-    				// get pick color under cursor
-    				int pixel = canvas.getPixel(e.getX(), e.getY(), true, 3);
     				if((pixel & 0x00ffffff) == 0) {
     					notifyInsideMouseEventNone(eventType, e, coordsysPoint);
     				} else {
@@ -808,8 +844,6 @@ public class ScatterPlot {
     				}
     			} else {
     				/* mouse outside coordinate area */
-    				// get pick color under cursor
-    				int pixel = canvas.getPixel(e.getX(), e.getY(), true, 3);
     				if((pixel & 0x00ffffff) == 0) {
     					notifyOutsideMouseEventeNone(eventType, e);
     				} else {
@@ -187,7 +187,7 @@ public class CharacterAtlas implements AutoCloseable {
 	 * @param c char to search for
 	 * @return index or negative number if not contained
 	 */
-	protected static int indexForChar(char c){
+	public static int indexForChar(char c){
 		return Arrays.binarySearch(CHARACTERS, c);
 	}
 
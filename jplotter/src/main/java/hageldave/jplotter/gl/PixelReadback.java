@@ -0,0 +1,229 @@
+package hageldave.jplotter.gl;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL21;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.GLUtils;
+
+/**
+ * The PixelReadback class performs asynchronous reads of framebuffer regions through a ring of
+ * <a href="https://www.khronos.org/opengl/wiki/Pixel_Buffer_Object">pixel buffer objects</a> (PBOs).
+ * <p>
+ * Unlike {@link GLUtils#fetchPixels(int, int, int, int, int, int, int[])} which stalls until the GPU
+ * has finished rendering and the pixels have been transferred, {@link #request(int, int, int, int, int, int)}
+ * only enqueues the transfer into a PBO and returns immediately.
+ * The pixels are copied to client memory by a later {@link #poll()} (typically after the next frame)
+ * once the GPU signaled the completion of the transfer, which completes the returned future.
+ * When all PBOs of the ring are in use, the oldest pending request is completed blocking before its PBO is reused.
+ * <p>
+ * The latency of each readback, i.e. the time from request to completion, is recorded
+ * (see {@link #getLastLatencyNanos()}, {@link #getMeanLatencyNanos()}, {@link #getMaxLatencyNanos()}).
+ *
+ * @author hageldave
+ */
+public class PixelReadback implements AutoCloseable {
+
+	protected static class Slot {
+		int pbo;
+		long capacityBytes;
+		long fence;
+		int numValues;
+		long requestTime;
+		CompletableFuture<int[]> future;
+	}
+
+	protected final Slot[] slots;
+	protected int nextSlot = 0;
+	protected final ArrayDeque<Slot> pending = new ArrayDeque<>();
+
+	protected long lastLatencyNanos = 0;
+	protected long maxLatencyNanos = 0;
+	protected long totalLatencyNanos = 0;
+	protected long numCompleted = 0;
+
+	/**
+	 * Creates a new readback with a ring of the specified number of PBOs.
+	 * The PBOs are allocated on first use.
+	 * @param numBuffers number of PBOs, i.e. maximum number of readbacks in flight
+	 */
+	@GLContextRequired
+	public PixelReadback(int numBuffers) {
+		if(numBuffers < 1)
+			throw new IllegalArgumentException("Need at least 1 buffer, got " + numBuffers);
+		this.slots = new Slot[numBuffers];
+		for(int i = 0; i < numBuffers; i++){
+			slots[i] = new Slot();
+			slots[i].pbo = GL15.glGenBuffers();
+		}
+	}
+
+	/**
+	 * Enqueues the transfer of the specified region of the specified color attachment into a PBO.
+	 * The pixels are packed ARGB values (same as {@link GLUtils#fetchPixels(int, int, int, int, int, int, int[])})
+	 * in bottom up row order.
+	 * @param fboID framebuffer to read from
+	 * @param attachment color attachment to read from, e.g. {@link GL30#GL_COLOR_ATTACHMENT0}
+	 * @param x coordinate of the region
+	 * @param y coordinate of the region (bottom up)
+	 * @param w width of the region
+	 * @param h height of the region
+	 * @return future that is completed with the w*h pixel values by a later {@link #poll()}
+	 */
+	@GLContextRequired
+	public CompletableFuture<int[]> request(int fboID, int attachment, int x, int y, int w, int h) {
+		Slot slot = slots[nextSlot];
+		nextSlot = (nextSlot+1) % slots.length;
+		if(Objects.nonNull(slot.future)){
+			// ring is exhausted, complete oldest requests up to this slot
+			while(Objects.nonNull(slot.future)){
+				complete(pending.poll(), true);
+			}
+		}
+		long bytes = (long)w*h*Integer.BYTES;
+		GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, slot.pbo);
+		if(slot.capacityBytes < bytes){
+			GL15.glBufferData(GL21.GL_PIXEL_PACK_BUFFER, bytes, GL15.GL_STREAM_READ);
+			slot.capacityBytes = bytes;
+		}
+		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, fboID);
+		GL11.glReadBuffer(attachment);
+		GL11.glReadPixels(x, y, w, h, GL12.GL_BGRA, GL11.GL_UNSIGNED_BYTE, 0L);
+		GL30.glBindFramebuffer(GL30.GL_READ_FRAMEBUFFER, 0);
+		GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+		slot.fence = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+		slot.numValues = w*h;
+		slot.requestTime = System.nanoTime();
+		slot.future = new CompletableFuture<>();
+		pending.add(slot);
+		return slot.future;
+	}
+
+	/**
+	 * Completes all pending requests whose transfer has finished (in request order).
+	 * This does not block.
+	 * @return number of completed requests
+	 */
+	@GLContextRequired
+	public int poll() {
+		int n = 0;
+		while(!pending.isEmpty()){
+			Slot slot = pending.peek();
+			int status = GL32.glClientWaitSync(slot.fence, 0, 0);
+			if(status != GL32.GL_ALREADY_SIGNALED && status != GL32.GL_CONDITION_SATISFIED)
+				break;
+			complete(pending.poll(), false);
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Completes all pending requests, blocking until their transfers have finished.
+	 */
+	@GLContextRequired
+	public void finish() {
+		while(!pending.isEmpty()){
+			complete(pending.poll(), true);
+		}
+	}
+
+	/**
+	 * @return true when there are requests that have not been completed yet
+	 */
+	public boolean hasPending() {
+		return !pending.isEmpty();
+	}
+
+	@GLContextRequired
+	protected void complete(Slot slot, boolean wait) {
+		if(wait){
+			GL32.glClientWaitSync(slot.fence, GL32.GL_SYNC_FLUSH_COMMANDS_BIT, Long.MAX_VALUE);
+		}
+		GL32.glDeleteSync(slot.fence);
+		int[] pixels = new int[slot.numValues];
+		GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, slot.pbo);
+		GL15.glGetBufferSubData(GL21.GL_PIXEL_PACK_BUFFER, 0, pixels);
+		GL15.glBindBuffer(GL21.GL_PIXEL_PACK_BUFFER, 0);
+		CompletableFuture<int[]> future = slot.future;
+		slot.future = null;
+		slot.fence = 0;
+		recordLatency(System.nanoTime()-slot.requestTime);
+		future.complete(pixels);
+	}
+
+	/**
+	 * Adds a readback latency to the recorded metrics.
+	 * @param nanos latency in nanoseconds
+	 */
+	protected void recordLatency(long nanos) {
+		lastLatencyNanos = nanos;
+		maxLatencyNanos = Math.max(maxLatencyNanos, nanos);
+		totalLatencyNanos += nanos;
+		numCompleted++;
+	}
+
+	/**
+	 * @return latency of the most recently completed readback in nanoseconds
+	 */
+	public long getLastLatencyNanos() {
+		return lastLatencyNanos;
+	}
+
+	/**
+	 * @return maximum latency of all completed readbacks (since last {@link #resetMetrics()}) in nanoseconds
+	 */
+	public long getMaxLatencyNanos() {
+		return maxLatencyNanos;
+	}
+
+	/**
+	 * @return mean latency of all completed readbacks (since last {@link #resetMetrics()}) in nanoseconds
+	 */
+	public double getMeanLatencyNanos() {
+		return numCompleted == 0 ? 0 : totalLatencyNanos/(double)numCompleted;
+	}
+
+	/**
+	 * @return number of completed readbacks (since last {@link #resetMetrics()})
+	 */
+	public long getNumCompleted() {
+		return numCompleted;
+	}
+
+	/**
+	 * Resets the recorded latency metrics.
+	 */
+	public void resetMetrics() {
+		lastLatencyNanos = maxLatencyNanos = totalLatencyNanos = numCompleted = 0;
+	}
+
+	/**
+	 * Deletes the PBOs. Pending requests are completed exceptionally.
+	 */
+	@Override
+	@GLContextRequired
+	public void close() {
+		for(Slot slot: pending){
+			GL32.glDeleteSync(slot.fence);
+			slot.future.completeExceptionally(new IllegalStateException("Pixel readback was closed"));
+			slot.future = null;
+		}
+		pending.clear();
+		for(Slot slot: slots){
+			if(slot.pbo != 0){
+				GL15.glDeleteBuffers(slot.pbo);
+				slot.pbo = 0;
+			}
+		}
+	}
+
+}
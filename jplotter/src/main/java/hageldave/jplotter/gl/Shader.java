@@ -1,8 +1,14 @@
 package hageldave.jplotter.gl;
 
 import java.io.PrintStream;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Objects;
 
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL40;
+
 import hageldave.jplotter.util.GLUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
 import hageldave.jplotter.util.GLUtils.GLRuntimeException;
@@ -14,6 +20,13 @@ import static org.lwjgl.opengl.GL32.*;
  * The Shader class encapsulates GL shader objects and the corresponding GL program object.
  * In this implementation a shader program may consist of a vertex shader, optional geometry shader
  * and fragment shader. Tesselation shaders are not supported.
+ * <p>
+ * The locations of the program's active uniforms are resolved once after linking
+ * and can be set through the typed setters (e.g. {@link #setUniform4f(String, float, float, float, float)}).
+ * These remember the last uploaded value of each uniform and skip the upload when the
+ * value did not change. Since uniform values are program state, the remembered values are only
+ * valid as long as all uploads to this program go through these setters
+ * (see {@link #invalidateUniformCache()} otherwise).
  * 
  * @author hageldave
  */
@@ -25,6 +38,8 @@ public class Shader implements AutoCloseable {
 	int fragmentShaderID;
 	int shaderProgID;
 	
+	private final HashMap<String, Uniform> uniforms = new HashMap<>();
+	
 	/**
 	 * Creates a Shader program that consists of a vertex, an optional geometry and 
 	 * a fragment shader which are specified in passed {@link CharSequence}s.
@@ -106,6 +121,7 @@ public class Shader implements AutoCloseable {
 			if(alwaysPrintInfoLogsAndShaders)
 				printInfoLogAndShader(System.out, programInfoLog, "");
 		}
+		resolveActiveUniforms();
 	}
 	
 	/**
@@ -134,6 +150,184 @@ public class Shader implements AutoCloseable {
 		glUseProgram(0);
 	}
 	
+	@GLContextRequired
+	private void resolveActiveUniforms() {
+		int numUniforms = glGetProgrami(shaderProgID, GL_ACTIVE_UNIFORMS);
+		IntBuffer size = BufferUtils.createIntBuffer(1);
+		IntBuffer type = BufferUtils.createIntBuffer(1);
+		for(int i = 0; i < numUniforms; i++){
+			String name = glGetActiveUniform(shaderProgID, i, size, type);
+			// arrays are reported as name[0]
+			if(name.endsWith("[0]"))
+				name = name.substring(0, name.length()-3);
+			uniforms.put(name, new Uniform(glGetUniformLocation(shaderProgID, name)));
+		}
+	}
+	
+	private Uniform uniform(String name) {
+		Uniform u = uniforms.get(name);
+		if(Objects.isNull(u)){
+			// not an active uniform (or an array element), resolve once
+			u = new Uniform(glGetUniformLocation(shaderProgID, name));
+			uniforms.put(name, u);
+		}
+		return u;
+	}
+	
+	/**
+	 * Returns the location of the specified uniform from the cache of locations
+	 * that were resolved after linking. 
+	 * @param name of the uniform
+	 * @return location of the uniform or -1 if there is no active uniform of that name
+	 */
+	@GLContextRequired
+	public int getUniformLocation(String name) {
+		return uniform(name).location;
+	}
+	
+	/**
+	 * Forgets the remembered values of all uniforms, so that the next call to a setter
+	 * uploads its value regardless of the previous value.
+	 * This is necessary when uniforms of this program were set without using the setters of this class.
+	 */
+	public void invalidateUniformCache() {
+		uniforms.values().forEach(Uniform::invalidate);
+	}
+	
+	/**
+	 * Sets an int (or bool or sampler) uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param x value
+	 */
+	@GLContextRequired
+	public void setUniform1i(String name, int x) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(x, 0, 0, 0, 1)){
+			glUniform1i(u.location, x);
+		}
+	}
+	
+	/**
+	 * Sets a float uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param x value
+	 */
+	@GLContextRequired
+	public void setUniform1f(String name, float x) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(x, 0, 0, 0, 1)){
+			glUniform1f(u.location, x);
+		}
+	}
+	
+	/**
+	 * Sets a vec2 uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param x first component
+	 * @param y second component
+	 */
+	@GLContextRequired
+	public void setUniform2f(String name, float x, float y) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(x, y, 0, 0, 2)){
+			glUniform2f(u.location, x, y);
+		}
+	}
+	
+	/**
+	 * Sets a vec4 uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param x first component
+	 * @param y second component
+	 * @param z third component
+	 * @param w fourth component
+	 */
+	@GLContextRequired
+	public void setUniform4f(String name, float x, float y, float z, float w) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(x, y, z, w, 4)){
+			glUniform4f(u.location, x, y, z, w);
+		}
+	}
+	
+	/**
+	 * Sets a dvec2 uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param x first component
+	 * @param y second component
+	 */
+	@GLContextRequired
+	public void setUniform2d(String name, double x, double y) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(x, y, 0, 0, 2)){
+			GL40.glUniform2d(u.location, x, y);
+		}
+	}
+	
+	/**
+	 * Sets a dvec4 uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param x first component
+	 * @param y second component
+	 * @param z third component
+	 * @param w fourth component
+	 */
+	@GLContextRequired
+	public void setUniform4d(String name, double x, double y, double z, double w) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(x, y, z, w, 4)){
+			GL40.glUniform4d(u.location, x, y, z, w);
+		}
+	}
+	
+	/**
+	 * Sets a mat4 uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified value.
+	 * @param name of the uniform
+	 * @param mx 16 values of the matrix in column major order
+	 */
+	@GLContextRequired
+	public void setUniformMatrix4f(String name, float[] mx) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(mx)){
+			glUniformMatrix4fv(u.location, false, mx);
+		}
+	}
+	
+	/**
+	 * Sets a vec4 array uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified values.
+	 * @param name of the uniform
+	 * @param values 4 values per array element
+	 */
+	@GLContextRequired
+	public void setUniform4fv(String name, float[] values) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(values)){
+			glUniform4fv(u.location, values);
+		}
+	}
+	
+	/**
+	 * Sets an int array uniform of this shader, which has to be bound.
+	 * The upload is skipped when the uniform already has the specified values.
+	 * @param name of the uniform
+	 * @param values of the array elements
+	 */
+	@GLContextRequired
+	public void setUniform1iv(String name, int[] values) {
+		Uniform u = uniform(name);
+		if(u.location >= 0 && u.changed(values)){
+			glUniform1iv(u.location, values);
+		}
+	}
+	
 	/**
 	 * @return the GL object name of the shader program
 	 */
@@ -173,6 +367,59 @@ public class Shader implements AutoCloseable {
 		glDeleteShader(fragmentShaderID);
 		glDeleteProgram(shaderProgID);
 		shaderProgID = vertexShaderID = geometryShaderID = fragmentShaderID = 0;
+		uniforms.clear();
+	}
+	
+	/**
+	 * Location of a uniform and its last uploaded value.
+	 * Scalars and vectors (up to 4 components) are remembered as doubles, which represent
+	 * int and float values exactly; arrays and matrices are remembered as copies.
+	 */
+	private static final class Uniform {
+		final int location;
+		int numComponents = -1;
+		final double[] components = new double[4];
+		float[] floats;
+		int[] ints;
+		
+		Uniform(int location) {
+			this.location = location;
+		}
+		
+		boolean changed(double x, double y, double z, double w, int n) {
+			if(numComponents == n && components[0]==x && components[1]==y && components[2]==z && components[3]==w){
+				return false;
+			}
+			numComponents = n;
+			components[0]=x; components[1]=y; components[2]=z; components[3]=w;
+			return true;
+		}
+		
+		boolean changed(float[] values) {
+			if(Arrays.equals(floats, values))
+				return false;
+			if(Objects.isNull(floats) || floats.length != values.length)
+				floats = values.clone();
+			else
+				System.arraycopy(values, 0, floats, 0, values.length);
+			return true;
+		}
+		
+		boolean changed(int[] values) {
+			if(Arrays.equals(ints, values))
+				return false;
+			if(Objects.isNull(ints) || ints.length != values.length)
+				ints = values.clone();
+			else
+				System.arraycopy(values, 0, ints, 0, values.length);
+			return true;
+		}
+		
+		void invalidate() {
+			numComponents = -1;
+			floats = null;
+			ints = null;
+		}
 	}
 	
 	private static void printInfoLogAndShader(PrintStream ps, String infolog, CharSequence shader){
@@ -9,6 +9,7 @@ import static org.lwjgl.opengl.GL15.GL_ELEMENT_ARRAY_BUFFER;
 import static org.lwjgl.opengl.GL15.GL_STATIC_DRAW;
 import static org.lwjgl.opengl.GL15.glBindBuffer;
 import static org.lwjgl.opengl.GL15.glBufferData;
+import static org.lwjgl.opengl.GL15.glBufferSubData;
 import static org.lwjgl.opengl.GL15.glDeleteBuffers;
 import static org.lwjgl.opengl.GL15.glGenBuffers;
 import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
@@ -19,6 +20,12 @@ import static org.lwjgl.opengl.GL30.glDeleteVertexArrays;
 import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 import static org.lwjgl.opengl.GL30.glVertexAttribIPointer;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
 import org.lwjgl.opengl.GL41;
 
 import hageldave.jplotter.util.Annotations.GLContextRequired;
@@ -36,9 +43,13 @@ public class VertexArray implements AutoCloseable {
 	int va; // vertex array object
 	int ibo; // indices (optional element array buffer)
 	int[] vbos; // vertex buffer objects
+	boolean[] sharedVbos; // vbos owned by another vertex array
+	boolean sharedIbo;
 	// for debugging
 	int dims[];
 	int numValues[];
+	int types[];
+	int usages[];
 	public final int numAttributes;
 	int numIndices;
 
@@ -51,8 +62,12 @@ public class VertexArray implements AutoCloseable {
 		this.numAttributes = n;
 		this.va = glGenVertexArrays();
 		this.vbos = new int[n];
+		this.sharedVbos = new boolean[n];
 		this.dims = new int[n];
 		this.numValues = new int[n];
+		this.types = new int[n];
+		this.usages = new int[n];
+		Arrays.fill(usages, GL_STATIC_DRAW);
 		glBindVertexArray(va);
 		glBindVertexArray(0);
 	}
@@ -68,13 +83,14 @@ public class VertexArray implements AutoCloseable {
 	public VertexArray setBuffer(int i, int dim, float ... buffercontent){
 		glBindVertexArray(va);
 		{
-			if(vbos[i] == 0){
+			if(vbos[i] == 0 || sharedVbos[i]){
 				vbos[i] = glGenBuffers();
+				sharedVbos[i] = false;
 			}
 			glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
 			{
 				// put vertices into vbo
-				glBufferData(GL_ARRAY_BUFFER, buffercontent, GL_STATIC_DRAW);
+				glBufferData(GL_ARRAY_BUFFER, buffercontent, usages[i]);
 				// put vbo into va
 				glVertexAttribPointer(i, dim, GL_FLOAT, false, 0, 0);
 			}
@@ -83,6 +99,7 @@ public class VertexArray implements AutoCloseable {
 		glBindVertexArray(0);
 		dims[i] = dim;
 		numValues[i] = buffercontent.length;
+		types[i] = GL_FLOAT;
 		return this;
 	}
 	
@@ -98,13 +115,14 @@ public class VertexArray implements AutoCloseable {
 	public VertexArray setBuffer(int i, int dim, double[] buffercontent){
 		glBindVertexArray(va);
 		{
-			if(vbos[i] == 0){
+			if(vbos[i] == 0 || sharedVbos[i]){
 				vbos[i] = glGenBuffers();
+				sharedVbos[i] = false;
 			}
 			glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
 			{
 				// put vertices into vbo
-				glBufferData(GL_ARRAY_BUFFER, buffercontent, GL_STATIC_DRAW);
+				glBufferData(GL_ARRAY_BUFFER, buffercontent, usages[i]);
 				// put vbo into va. Special call needed for doubles
 				GL41.glVertexAttribLPointer(i, dim, GL_DOUBLE, 0, 0);
 			}
@@ -113,6 +131,7 @@ public class VertexArray implements AutoCloseable {
 		glBindVertexArray(0);
 		dims[i] = dim;
 		numValues[i] = buffercontent.length;
+		types[i] = GL_DOUBLE;
 		return this;
 	}
 
@@ -131,13 +150,14 @@ public class VertexArray implements AutoCloseable {
 	public VertexArray setBuffer(int i, int dim, boolean signed, int ... buffercontent){
 		glBindVertexArray(va);
 		{
-			if(vbos[i] == 0){
+			if(vbos[i] == 0 || sharedVbos[i]){
 				vbos[i] = glGenBuffers();
+				sharedVbos[i] = false;
 			}
 			glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
 			{
 				// put vertices into vbo
-				glBufferData(GL_ARRAY_BUFFER, buffercontent, GL_STATIC_DRAW);
+				glBufferData(GL_ARRAY_BUFFER, buffercontent, usages[i]);
 				// put vbo into va
 				glVertexAttribIPointer(i, dim, signed ? GL_INT:GL_UNSIGNED_INT, 0, 0);
 			}
@@ -146,9 +166,243 @@ public class VertexArray implements AutoCloseable {
 		glBindVertexArray(0);
 		dims[i] = dim;
 		numValues[i] = buffercontent.length;
+		types[i] = signed ? GL_INT:GL_UNSIGNED_INT;
+		return this;
+	}
+	
+	/**
+	 * Sets the GL_ARRAY_BUFFER of the ith vertex attribute from the remaining values of
+	 * the specified NIO buffer. When the buffer is direct (e.g. a view on a memory mapped file),
+	 * its contents are handed to GL without being copied to a Java array.
+	 * The buffer's byte order has to be the native order.
+	 * @param i index of attribute
+	 * @param dim dimension of a single vertex
+	 * @param buffercontent the values of the vertices
+	 * @return this for chaining
+	 */
+	@GLContextRequired
+	public VertexArray setBuffer(int i, int dim, FloatBuffer buffercontent){
+		glBindVertexArray(va);
+		{
+			if(vbos[i] == 0 || sharedVbos[i]){
+				vbos[i] = glGenBuffers();
+				sharedVbos[i] = false;
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+			{
+				glBufferData(GL_ARRAY_BUFFER, buffercontent, usages[i]);
+				glVertexAttribPointer(i, dim, GL_FLOAT, false, 0, 0);
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, 0);
+		}
+		glBindVertexArray(0);
+		dims[i] = dim;
+		numValues[i] = buffercontent.remaining();
+		types[i] = GL_FLOAT;
+		return this;
+	}
+	
+	/**
+	 * Allocates the GL_ARRAY_BUFFER of the ith vertex attribute with undefined contents,
+	 * which are to be filled using the updateBufferRange methods 
+	 * (e.g. {@link #updateBufferRange(int, int, FloatBuffer)}).
+	 * This allows for filling huge buffers in chunks.
+	 * @param i index of attribute
+	 * @param dim dimension of a single vertex
+	 * @param type one of {@code GL_FLOAT, GL_DOUBLE, GL_INT, GL_UNSIGNED_INT} 
+	 * (see the corresponding setBuffer methods)
+	 * @param numValues number of values in the buffer (number of vertices times dim)
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when an unsupported type is specified
+	 */
+	@GLContextRequired
+	public VertexArray allocateBuffer(int i, int dim, int type, int numValues){
+		int bytes;
+		switch (type) {
+		case GL_FLOAT: bytes = Float.BYTES; break;
+		case GL_DOUBLE: bytes = Double.BYTES; break;
+		case GL_INT: 
+		case GL_UNSIGNED_INT: bytes = Integer.BYTES; break;
+		default: throw new IllegalArgumentException("Unsupported buffer type " + type);
+		}
+		glBindVertexArray(va);
+		{
+			if(vbos[i] == 0 || sharedVbos[i]){
+				vbos[i] = glGenBuffers();
+				sharedVbos[i] = false;
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+			{
+				glBufferData(GL_ARRAY_BUFFER, numValues*(long)bytes, usages[i]);
+				if(type == GL_FLOAT)
+					glVertexAttribPointer(i, dim, GL_FLOAT, false, 0, 0);
+				else if(type == GL_DOUBLE)
+					GL41.glVertexAttribLPointer(i, dim, GL_DOUBLE, 0, 0);
+				else
+					glVertexAttribIPointer(i, dim, type, 0, 0);
+			}
+			glBindBuffer(GL_ARRAY_BUFFER, 0);
+		}
+		glBindVertexArray(0);
+		dims[i] = dim;
+		this.numValues[i] = numValues;
+		types[i] = type;
+		return this;
+	}
+	
+	/**
+	 * Updates a range of the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * ({@code glBufferSubData}) without reallocating the buffer.
+	 * The buffer has to be allocated by {@link #setBuffer(int, int, float...)} beforehand
+	 * and the range has to lie within the buffer.
+	 * @param i index of attribute
+	 * @param offset index of the first value to replace (in number of values, not bytes)
+	 * @param data the values to write into the buffer starting at offset
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set as float buffer or the range exceeds the buffer
+	 */
+	@GLContextRequired
+	public VertexArray updateBufferRange(int i, int offset, float... data){
+		checkBufferRange(i, offset, data.length, GL_FLOAT);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*(long)Float.BYTES, data);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+	
+	/**
+	 * Updates a range of the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * ({@code glBufferSubData}) without reallocating the buffer.
+	 * The buffer has to be allocated by {@link #setBuffer(int, int, double[])} beforehand
+	 * and the range has to lie within the buffer.
+	 * @param i index of attribute
+	 * @param offset index of the first value to replace (in number of values, not bytes)
+	 * @param data the values to write into the buffer starting at offset
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set as double buffer or the range exceeds the buffer
+	 */
+	@GLContextRequired
+	public VertexArray updateBufferRange(int i, int offset, double[] data){
+		checkBufferRange(i, offset, data.length, GL_DOUBLE);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*(long)Double.BYTES, data);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+	
+	/**
+	 * Updates a range of the GL_ARRAY_BUFFER of the ith vertex attribute
+	 * ({@code glBufferSubData}) without reallocating the buffer.
+	 * The buffer has to be allocated by {@link #setBuffer(int, int, boolean, int...)} beforehand
+	 * and the range has to lie within the buffer.
+	 * @param i index of attribute
+	 * @param offset index of the first value to replace (in number of values, not bytes)
+	 * @param data the values to write into the buffer starting at offset
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set as integer buffer or the range exceeds the buffer
+	 */
+	@GLContextRequired
+	public VertexArray updateBufferRange(int i, int offset, int[] data){
+		checkBufferRange(i, offset, data.length, types[i] == GL_INT ? GL_INT:GL_UNSIGNED_INT);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*(long)Integer.BYTES, data);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
 		return this;
 	}
 	
+	/**
+	 * Updates a range of the GL_ARRAY_BUFFER of the ith vertex attribute with the remaining
+	 * values of the specified NIO buffer (native byte order).
+	 * @param i index of attribute
+	 * @param offset index of the first value to replace (in number of values, not bytes)
+	 * @param data the values to write into the buffer starting at offset
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set as float buffer or the range exceeds the buffer
+	 * @see #allocateBuffer(int, int, int, int)
+	 */
+	@GLContextRequired
+	public VertexArray updateBufferRange(int i, int offset, FloatBuffer data){
+		checkBufferRange(i, offset, data.remaining(), GL_FLOAT);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*(long)Float.BYTES, data);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+	
+	/**
+	 * Updates a range of the GL_ARRAY_BUFFER of the ith vertex attribute with the remaining
+	 * values of the specified NIO buffer (native byte order).
+	 * @param i index of attribute
+	 * @param offset index of the first value to replace (in number of values, not bytes)
+	 * @param data the values to write into the buffer starting at offset
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set as double buffer or the range exceeds the buffer
+	 * @see #allocateBuffer(int, int, int, int)
+	 */
+	@GLContextRequired
+	public VertexArray updateBufferRange(int i, int offset, DoubleBuffer data){
+		checkBufferRange(i, offset, data.remaining(), GL_DOUBLE);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*(long)Double.BYTES, data);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+	
+	/**
+	 * Updates a range of the GL_ARRAY_BUFFER of the ith vertex attribute with the remaining
+	 * values of the specified NIO buffer (native byte order).
+	 * @param i index of attribute
+	 * @param offset index of the first value to replace (in number of values, not bytes)
+	 * @param data the values to write into the buffer starting at offset
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the buffer was not set as integer buffer or the range exceeds the buffer
+	 * @see #allocateBuffer(int, int, int, int)
+	 */
+	@GLContextRequired
+	public VertexArray updateBufferRange(int i, int offset, IntBuffer data){
+		checkBufferRange(i, offset, data.remaining(), types[i] == GL_INT ? GL_INT:GL_UNSIGNED_INT);
+		glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+		glBufferSubData(GL_ARRAY_BUFFER, offset*(long)Integer.BYTES, data);
+		glBindBuffer(GL_ARRAY_BUFFER, 0);
+		return this;
+	}
+	
+	protected void checkBufferRange(int i, int offset, int length, int type) {
+		if(vbos[i] == 0 || types[i] != type){
+			throw new IllegalArgumentException("Buffer of attribute " + i + " has not been set with matching type.");
+		}
+		if(sharedVbos[i]){
+			throw new IllegalStateException("Buffer of attribute " + i + " is shared with another vertex array and cannot be updated through this one.");
+		}
+		if(offset < 0 || offset+length > numValues[i]){
+			throw new IllegalArgumentException("Range ["+offset+","+(offset+length)+") exceeds buffer of attribute " + i + " with " + numValues[i] + " values.");
+		}
+	}
+	
+	/**
+	 * Sets the usage hint (e.g. {@code GL_STATIC_DRAW} or {@code GL_DYNAMIC_DRAW}) of the GL_ARRAY_BUFFER
+	 * of the ith vertex attribute. The hint is used when the buffer is (re)allocated by the next setBuffer call.
+	 * Default is {@code GL_STATIC_DRAW}, buffers that are frequently updated using 
+	 * {@link #updateBufferRange(int, int, float...)} should use {@code GL_DYNAMIC_DRAW}.
+	 * @param i index of attribute
+	 * @param usage usage hint
+	 * @return this for chaining
+	 */
+	public VertexArray setBufferUsage(int i, int usage){
+		usages[i] = usage;
+		return this;
+	}
+	
+	/**
+	 * Returns the number of values in the GL_ARRAY_BUFFER of the ith vertex attribute,
+	 * i.e. the number of vertices times the dimension of a single vertex.
+	 * @param i index of attribute
+	 * @return number of values in buffer, 0 if buffer was not set yet
+	 */
+	public int getBufferLength(int i){
+		return numValues[i];
+	}
+	
 	/**
 	 * Sets the GL_ELEMENT_ARRAY_BUFFER of this vertex array, i.e. the vertex indices
 	 * that describe which vertices form a GL primitive.
@@ -157,8 +411,9 @@ public class VertexArray implements AutoCloseable {
 	 */
 	@GLContextRequired
 	public VertexArray setIndices(int... indices){
-		if(ibo == 0){
+		if(ibo == 0 || sharedIbo){
 			ibo = glGenBuffers();
+			sharedIbo = false;
 		}
 		numIndices = indices.length;
 		glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, ibo);
@@ -167,6 +422,71 @@ public class VertexArray implements AutoCloseable {
 		return this;
 	}
 
+	/**
+	 * Lets the ith vertex attribute of this vertex array use the GL_ARRAY_BUFFER of an attribute of
+	 * another vertex array, so that the same data (e.g. the geometry of a glyph) can be used by
+	 * multiple vertex arrays without being uploaded multiple times.
+	 * The buffer remains owned by the source vertex array, i.e. it is not deleted when this vertex array
+	 * is closed, and has to outlive this vertex array's use of it.
+	 * A shared buffer cannot be updated through this vertex array, setting the buffer of the ith attribute
+	 * (e.g. {@link #setBuffer(int, int, float...)}) replaces the shared buffer with an own buffer.
+	 * @param i index of attribute of this vertex array
+	 * @param source vertex array owning the buffer
+	 * @param sourceIdx index of attribute of the source vertex array
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the source attribute has no buffer
+	 */
+	@GLContextRequired
+	public VertexArray setSharedBuffer(int i, VertexArray source, int sourceIdx){
+		if(source.vbos[sourceIdx] == 0){
+			throw new IllegalArgumentException("Attribute " + sourceIdx + " of source vertex array has no buffer.");
+		}
+		if(vbos[i] != 0 && !sharedVbos[i]){
+			glDeleteBuffers(vbos[i]);
+		}
+		vbos[i] = source.vbos[sourceIdx];
+		sharedVbos[i] = true;
+		dims[i] = source.dims[sourceIdx];
+		numValues[i] = source.numValues[sourceIdx];
+		types[i] = source.types[sourceIdx];
+		glBindVertexArray(va);
+		{
+			glBindBuffer(GL_ARRAY_BUFFER, vbos[i]);
+			if(types[i] == GL_FLOAT)
+				glVertexAttribPointer(i, dims[i], GL_FLOAT, false, 0, 0);
+			else if(types[i] == GL_DOUBLE)
+				GL41.glVertexAttribLPointer(i, dims[i], GL_DOUBLE, 0, 0);
+			else
+				glVertexAttribIPointer(i, dims[i], types[i], 0, 0);
+			glBindBuffer(GL_ARRAY_BUFFER, 0);
+		}
+		glBindVertexArray(0);
+		return this;
+	}
+	
+	/**
+	 * Lets this vertex array use the GL_ELEMENT_ARRAY_BUFFER of another vertex array
+	 * (see {@link #setSharedBuffer(int, VertexArray, int)}).
+	 * Calling {@link #setIndices(int...)} afterwards replaces the shared buffer with an own buffer.
+	 * @param source vertex array owning the element array buffer, or null to remove the 
+	 * element array buffer from this vertex array
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the source has no element array buffer
+	 */
+	@GLContextRequired
+	public VertexArray setSharedIndices(VertexArray source){
+		if(Objects.nonNull(source) && source.ibo == 0){
+			throw new IllegalArgumentException("Source vertex array has no element array buffer.");
+		}
+		if(ibo != 0 && !sharedIbo){
+			glDeleteBuffers(ibo);
+		}
+		ibo = Objects.isNull(source) ? 0:source.ibo;
+		sharedIbo = ibo != 0;
+		numIndices = Objects.isNull(source) ? 0:source.numIndices;
+		return this;
+	}
+	
 	/**
 	 * Binds this vertex array and enables the specified vertex attributes.
 	 * If this VA has an element array buffer (indexed VA) then this buffer
@@ -215,10 +535,14 @@ public class VertexArray implements AutoCloseable {
 	@GLContextRequired
 	public void close() {
 		for(int i = 0; i < vbos.length; i++){
-			glDeleteBuffers(vbos[i]);
+			if(!sharedVbos[i])
+				glDeleteBuffers(vbos[i]);
 			vbos[i] = 0;
+			sharedVbos[i] = false;
 		}
-		glDeleteBuffers(ibo);
+		if(!sharedIbo)
+			glDeleteBuffers(ibo);
+		sharedIbo = false;
 		glDeleteVertexArrays(va);
 		ibo = va = 0;
 	}
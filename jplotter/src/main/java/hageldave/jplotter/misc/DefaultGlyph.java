@@ -119,6 +119,13 @@ public enum DefaultGlyph implements Glyph {
 		return name();
 	}
 	
+	@Override
+	public boolean contains(double x, double y) {
+		if(this == CIRCLE || this == CIRCLE_F)
+			return x*x+y*y <= 0.25;
+		return Glyph.super.contains(x, y);
+	}
+	
 	@Override
 	public void drawFallback(Graphics2D g, float scaling) {
 		this.fallbackDraw.draw(g, pixelSize, scaling);
@@ -2,6 +2,7 @@ package hageldave.jplotter.misc;
 
 import hageldave.jplotter.gl.VertexArray;
 import hageldave.jplotter.renderers.PointsRenderer;
+import hageldave.jplotter.util.GlyphRegistry;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL31;
@@ -32,6 +33,10 @@ public interface Glyph {
 	 * The glyphs vertices should be centered around the origin (0,0), 
 	 * it is also recommended that the vertices are within unit object coordinates
 	 * i.e. {@code (x,y) in [-0.5, 0.5]}.
+	 * <p>
+	 * The geometry is filled only once per GL context and shared by all objects using
+	 * this glyph (see {@link GlyphRegistry}), so it must not change over the lifetime of the glyph.
+	 * Glyphs that are equal (with respect to {@link Object#equals(Object)}) share the same geometry.
 	 * 
 	 * @param va the VertexArray to fill
 	 */
@@ -103,4 +108,17 @@ public interface Glyph {
 	 * @return whether this glyph is filled or not, e.g. a cross is not filled but a circle can.
 	 */
 	public boolean isFilled();
+	
+	/**
+	 * Tests whether the specified location is covered by this glyph, used for picking without
+	 * a picking image (see {@link hageldave.jplotter.renderers.AnalyticPicking}).
+	 * The location is in unit object coordinates (same as the vertices of {@link #fillVertexArray(VertexArray)}).
+	 * By default the square {@code [-0.5, 0.5]} is tested.
+	 * @param x coordinate relative to the glyph's center
+	 * @param y coordinate relative to the glyph's center
+	 * @return true when the location is covered
+	 */
+	public default boolean contains(double x, double y) {
+		return Math.abs(x) <= 0.5 && Math.abs(y) <= 0.5;
+	}
 }
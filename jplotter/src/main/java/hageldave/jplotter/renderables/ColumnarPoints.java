@@ -0,0 +1,501 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.misc.Glyph;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+
+/**
+ * The ColumnarPoints class is a {@link Points} implementation that stores its
+ * points in parallel primitive arrays (columns) instead of a list of {@link PointDetails}
+ * objects. This avoids the per point object overhead (a {@link Point2D} and three supplier
+ * lambdas per point) which matters for millions of points.
+ * <p>
+ * The columns hold plain values, which is why suppliers that are passed to the
+ * {@link PointDetails} setters are evaluated once when set instead of during each
+ * GL update.
+ * {@link PointDetails} objects returned by this class (e.g. by {@link #addPoint(double, double)}
+ * or {@link #getPoint(int)}) are views on the columns. Using their setters or the setters of their
+ * {@link PointDetails#location} will write through to the columns. Assigning their public fields directly
+ * has no effect on the columns though. Also structural changes to the list returned by {@link #getPointDetails()}
+ * are not reflected.
+ * <p>
+ * Changing a single point through the index based setters (e.g. {@link #setPointColor(int, int)})
+ * only marks that point as dirty (see {@link #setDirty(int, int)}) so that only the changed range
+ * is uploaded to GL.
+ *
+ * @author hageldave
+ */
+public class ColumnarPoints extends Points {
+
+	protected static final int DEFAULT_COLOR = 0xff555555;
+
+	protected double[] xs;
+	protected double[] ys;
+	protected float[] rots;
+	protected float[] scales;
+	protected int[] colors;
+	protected int[] pickColors;
+	protected int size = 0;
+
+	/**
+	 * Creates a new {@link ColumnarPoints} object which uses {@link DefaultGlyph#CIRCLE_F} for displaying its points.
+	 */
+	public ColumnarPoints() {
+		this(DefaultGlyph.CIRCLE_F);
+	}
+
+	/**
+	 * Creates a new {@link ColumnarPoints} object which uses the specified {@link Glyph} for displaying its points.
+	 * @param glyph to be used for rendering single points
+	 */
+	public ColumnarPoints(Glyph glyph) {
+		this(glyph, 16);
+	}
+
+	/**
+	 * Creates a new {@link ColumnarPoints} object which uses the specified {@link Glyph} for displaying its points.
+	 * @param glyph to be used for rendering single points
+	 * @param initialCapacity the initial length of the columns
+	 */
+	public ColumnarPoints(Glyph glyph, int initialCapacity) {
+		super(glyph);
+		initialCapacity = Math.max(1, initialCapacity);
+		xs = new double[initialCapacity];
+		ys = new double[initialCapacity];
+		rots = new float[initialCapacity];
+		scales = new float[initialCapacity];
+		colors = new int[initialCapacity];
+		pickColors = new int[initialCapacity];
+	}
+
+	/**
+	 * Makes sure that the columns can hold the specified number of points.
+	 * @param capacity number of points
+	 * @return this for chaining
+	 */
+	public ColumnarPoints ensureCapacity(int capacity) {
+		if(capacity > xs.length){
+			int newCapacity = Math.max(capacity, xs.length + (xs.length >> 1));
+			xs = Arrays.copyOf(xs, newCapacity);
+			ys = Arrays.copyOf(ys, newCapacity);
+			rots = Arrays.copyOf(rots, newCapacity);
+			scales = Arrays.copyOf(scales, newCapacity);
+			colors = Arrays.copyOf(colors, newCapacity);
+			pickColors = Arrays.copyOf(pickColors, newCapacity);
+		}
+		return this;
+	}
+
+	/**
+	 * Adds a point to this {@link ColumnarPoints} object.
+	 * This sets the {@link #isDirty()} state to true.
+	 * <p>
+	 * Other than with {@link Points} no reference to the specified location is kept,
+	 * its coordinates are copied into the columns.
+	 * @param p point location
+	 * @return view on the added point
+	 */
+	@Override
+	public PointDetails addPoint(Point2D p) {
+		return addPoint(p.getX(), p.getY());
+	}
+
+	/**
+	 * Adds a point to this {@link ColumnarPoints} object.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param x coordinate of point
+	 * @param y coordinate of point
+	 * @return view on the added point
+	 */
+	@Override
+	public PointDetails addPoint(double x, double y) {
+		ensureCapacity(size+1);
+		int idx = size++;
+		xs[idx] = x;
+		ys[idx] = y;
+		rots[idx] = 0f;
+		scales[idx] = 1f;
+		colors[idx] = DEFAULT_COLOR;
+		pickColors[idx] = 0;
+		isDirty = true;
+		bounds.include(x, y);
+		invalidateCaches();
+		return new ColumnPointDetails(idx);
+	}
+
+	/**
+	 * Adds the specified points to this {@link ColumnarPoints} object in bulk by
+	 * copying the arrays into the columns.
+	 * This sets the {@link #isDirty()} state to true once for all added points.
+	 * @param xs x coordinates of the points
+	 * @param ys y coordinates of the points
+	 * @param argb integer packed ARGB colors of the points, or null for default color
+	 * @param scale glyph scalings of the points, or null for default scaling
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	@Override
+	public ColumnarPoints addPoints(double[] xs, double[] ys, int[] argb, float[] scale) {
+		final int n = checkBulkArrays(xs, ys, argb, scale);
+		ensureCapacity(size+n);
+		System.arraycopy(xs, 0, this.xs, size, n);
+		System.arraycopy(ys, 0, this.ys, size, n);
+		if(argb != null)
+			System.arraycopy(argb, 0, this.colors, size, n);
+		else
+			Arrays.fill(this.colors, size, size+n, DEFAULT_COLOR);
+		if(scale != null)
+			System.arraycopy(scale, 0, this.scales, size, n);
+		else
+			Arrays.fill(this.scales, size, size+n, 1f);
+		Arrays.fill(this.rots, size, size+n, 0f);
+		Arrays.fill(this.pickColors, size, size+n, 0);
+		for(int i=0; i<n; i++)
+			bounds.include(xs[i], ys[i]);
+		size += n;
+		isDirty = true;
+		invalidateCaches();
+		return this;
+	}
+
+	@Override
+	public ColumnarPoints addPoints(double[] xs, double[] ys) {
+		return addPoints(xs, ys, null, null);
+	}
+
+	/**
+	 * Replaces the contents of this {@link ColumnarPoints} object by the specified arrays
+	 * without copying them, i.e. the arrays are used as columns.
+	 * Changes to the arrays will be reflected by this object after calling {@link #setDirty()}.
+	 * Columns for which null is specified are allocated and filled with default values.
+	 * <p>
+	 * When points are added later on and the capacity of the arrays is exhausted,
+	 * the columns are copied to larger arrays, which decouples them from the wrapped arrays.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates of the points
+	 * @param ys y coordinates of the points
+	 * @param argb integer packed ARGB colors of the points, or null for default color
+	 * @param scale glyph scalings of the points, or null for default scaling
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	public ColumnarPoints wrap(double[] xs, double[] ys, int[] argb, float[] scale) {
+		final int n = checkBulkArrays(xs, ys, argb, scale);
+		this.xs = xs;
+		this.ys = ys;
+		if(argb == null){
+			argb = new int[n];
+			Arrays.fill(argb, DEFAULT_COLOR);
+		}
+		this.colors = argb;
+		if(scale == null){
+			scale = new float[n];
+			Arrays.fill(scale, 1f);
+		}
+		this.scales = scale;
+		this.rots = new float[n];
+		this.pickColors = new int[n];
+		this.size = n;
+		setDirty();
+		return this;
+	}
+
+	@Override
+	public ColumnarPoints removeAllPoints() {
+		size = 0;
+		isDirty = true;
+		bounds.reset();
+		invalidateCaches();
+		return this;
+	}
+
+	@Override
+	public int numPoints() {
+		return size;
+	}
+
+	@Override
+	public PointDetails getPoint(int idx) {
+		checkIndex(idx);
+		return new ColumnPointDetails(idx);
+	}
+
+	@Override
+	public double getPointX(int idx) {
+		return xs[slot(idx)];
+	}
+
+	@Override
+	public double getPointY(int idx) {
+		return ys[slot(idx)];
+	}
+
+	@Override
+	public double getPointRotation(int idx) {
+		return rots[slot(idx)];
+	}
+
+	@Override
+	public double getPointScaling(int idx) {
+		return scales[slot(idx)];
+	}
+
+	@Override
+	public int getPointColor(int idx) {
+		return colors[slot(idx)];
+	}
+
+	@Override
+	public int getPointPickColor(int idx) {
+		return pickColors[slot(idx)];
+	}
+
+	/**
+	 * Sets the location of the point at the specified index.
+	 * This marks the point as dirty ({@link #setDirty(int, int)}).
+	 * @param idx index of the point
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setPointLocation(int idx, double x, double y) {
+		checkIndex(idx);
+		int slot = slot(idx);
+		bounds.exclude(xs[slot], ys[slot]);
+		xs[slot] = x;
+		ys[slot] = y;
+		bounds.include(x, y);
+		invalidateCaches();
+		markDirtyRange(idx, idx+1);
+		return this;
+	}
+
+	/**
+	 * Sets the glyph rotation of the point at the specified index.
+	 * This marks the point as dirty ({@link #setDirty(int, int)}).
+	 * @param idx index of the point
+	 * @param rot rotation in radian
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setPointRotation(int idx, double rot) {
+		checkIndex(idx);
+		rots[slot(idx)] = (float)rot;
+		markDirtyRange(idx, idx+1);
+		return this;
+	}
+
+	/**
+	 * Sets the glyph scaling of the point at the specified index.
+	 * This marks the point as dirty ({@link #setDirty(int, int)}).
+	 * @param idx index of the point
+	 * @param scale scaling
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setPointScaling(int idx, double scale) {
+		checkIndex(idx);
+		scales[slot(idx)] = (float)scale;
+		invalidateCaches();
+		markDirtyRange(idx, idx+1);
+		return this;
+	}
+
+	/**
+	 * Sets the color of the point at the specified index.
+	 * This marks the point as dirty ({@link #setDirty(int, int)}).
+	 * @param idx index of the point
+	 * @param color integer packed ARGB color value (e.g. 0xff00ff00 = opaque green)
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setPointColor(int idx, int color) {
+		checkIndex(idx);
+		colors[slot(idx)] = color;
+		markDirtyRange(idx, idx+1);
+		return this;
+	}
+
+	/**
+	 * Sets the picking color of the point at the specified index.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * This marks the point as dirty ({@link #setDirty(int, int)}).
+	 * @param idx index of the point
+	 * @param pickID picking color of the point (see {@link Points} for details)
+	 * @return this for chaining
+	 */
+	public ColumnarPoints setPointPickColor(int idx, int pickID) {
+		checkIndex(idx);
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		pickColors[slot(idx)] = pickID;
+		markDirtyRange(idx, idx+1);
+		return this;
+	}
+
+	@Override
+	protected void recomputeBounds() {
+		bounds.reset();
+		// all column indices in [0,size) are occupied (see slot)
+		for(int i=0; i<size; i++){
+			bounds.include(xs[i], ys[i]);
+		}
+	}
+
+	@Override
+	public boolean intersects(Rectangle2D rect) {
+		if(useSpatialIndex)
+			return getSpatialIndex().containsAny(rect);
+		for(int i=0; i<size; i++){
+			if(rect.contains(xs[i], ys[i]))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the points that are contained in the specified rectangle.
+	 * @param rect rectangle to test intersection
+	 * @return list of views on the contained points
+	 */
+	@Override
+	public List<PointDetails> getIntersectingPoints(Rectangle2D rect) {
+		if(useSpatialIndex)
+			return super.getIntersectingPoints(rect);
+		ArrayList<PointDetails> intersecting = new ArrayList<>();
+		for(int i=0; i<size; i++){
+			int slot = slot(i);
+			if(rect.contains(xs[slot], ys[slot]))
+				intersecting.add(new ColumnPointDetails(i));
+		}
+		return intersecting;
+	}
+
+	/**
+	 * Returns a newly created list of views on all points of this object.
+	 * Modifying the views will write through to the columns, but structural
+	 * modifications of the list (e.g. clear, sort) will not be reflected.
+	 * Prefer the index based accessors (e.g. {@link #getPointX(int)}) when possible.
+	 * @return list of point views
+	 */
+	@Override
+	public ArrayList<PointDetails> getPointDetails() {
+		ArrayList<PointDetails> views = new ArrayList<>(size);
+		for(int i=0; i<size; i++){
+			views.add(new ColumnPointDetails(i));
+		}
+		return views;
+	}
+
+	/**
+	 * Maps the index of a point to its position in the columns.
+	 * This is the identity for {@link ColumnarPoints}, but allows subclasses to
+	 * store the points in a different order (e.g. circular in {@link StreamingPoints}).
+	 * All slots in [0, {@link #numPoints()}) have to be occupied.
+	 * @param idx index of the point
+	 * @return index into the columns
+	 */
+	protected int slot(int idx) {
+		return idx;
+	}
+
+	protected void checkIndex(int idx) {
+		if(idx < 0 || idx >= size)
+			throw new IndexOutOfBoundsException("Index: "+idx+", Size: "+size);
+	}
+
+	/**
+	 * {@link PointDetails} view on a single point of the columns of a {@link ColumnarPoints} object.
+	 * Setters write through to the columns, suppliers are evaluated once when set.
+	 */
+	protected class ColumnPointDetails extends PointDetails {
+		protected final int idx;
+
+		protected ColumnPointDetails(int idx) {
+			super(null);
+			this.idx = idx;
+			this.location = new ColumnLocation(idx);
+			this.rot = ()->getPointRotation(idx);
+			this.scale = ()->getPointScaling(idx);
+			this.color = ()->getPointColor(idx);
+			this.pickColor = getPointPickColor(idx);
+		}
+
+		@Override
+		public PointDetails copy() {
+			// detached copy with plain values
+			PointDetails copy = new PointDetails(new Point2D.Double(getPointX(idx), getPointY(idx)));
+			copy.setRotation(getPointRotation(idx));
+			copy.setScaling(getPointScaling(idx));
+			copy.setColor(getPointColor(idx));
+			copy.pickColor = getPointPickColor(idx);
+			return copy;
+		}
+
+		@Override
+		public PointDetails setRotation(DoubleSupplier rotation) {
+			setPointRotation(idx, rotation.getAsDouble());
+			return this;
+		}
+
+		@Override
+		public PointDetails setScaling(DoubleSupplier scale) {
+			setPointScaling(idx, scale.getAsDouble());
+			return this;
+		}
+
+		@Override
+		public PointDetails setColor(IntSupplier color) {
+			setPointColor(idx, color.getAsInt());
+			return this;
+		}
+
+		@Override
+		public PointDetails setPickColor(int pickID) {
+			setPointPickColor(idx, pickID);
+			this.pickColor = getPointPickColor(idx);
+			return this;
+		}
+	}
+
+	/**
+	 * {@link Point2D} view on the x and y columns at a specific index.
+	 */
+	protected class ColumnLocation extends Point2D {
+		protected final int idx;
+
+		protected ColumnLocation(int idx) {
+			this.idx = idx;
+		}
+
+		@Override
+		public double getX() {
+			return xs[slot(idx)];
+		}
+
+		@Override
+		public double getY() {
+			return ys[slot(idx)];
+		}
+
+		@Override
+		public void setLocation(double x, double y) {
+			setPointLocation(idx, x, y);
+		}
+
+		@Override
+		public Object clone() {
+			return new Point2D.Double(getX(), getY());
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName()+"["+getX()+", "+getY()+"]";
+		}
+	}
+
+}
@@ -48,6 +48,7 @@ public class Curves implements Renderable {
 	protected short strokePattern = (short)0xffff;
 	protected float strokeLength = 16;
 	protected boolean isDirty = true;
+	protected volatile long modCount = 0;
 
 	protected boolean hidden = false;
 	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
@@ -65,6 +66,18 @@ public class Curves implements Renderable {
 	public boolean isDirty() {
 		return isDirty;
 	}
+
+	/**
+	 * Returns the number of changes made to this object through its methods.
+	 * Changes made through {@link CurveDetails} are only counted after calling {@link #setDirty()}
+	 * as is required for GL updates.
+	 * In contrast to {@link #isDirty()}, this is not reset when GL resources are updated.
+	 * @return modification count
+	 */
+	@Override
+	public long getModificationCount() {
+		return modCount;
+	}
 	
 	/**
 	 * Sets the {@link #isDirty()} state of this renderable to true.
@@ -73,6 +86,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setDirty() {
 		this.isDirty = true;
+		this.modCount++;
 		return this;
 	}
 	
@@ -493,6 +507,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setGlobalThicknessMultiplier(DoubleSupplier thickness) {
 		this.globalThicknessMultiplier = thickness;
+		this.modCount++;
 		return this;
 	}
 
@@ -517,6 +532,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setGlobalAlphaMultiplier(DoubleSupplier globalAlphaMultiplier) {
 		this.globalAlphaMultiplier = globalAlphaMultiplier;
+		this.modCount++;
 		return this;
 	}
 	
@@ -549,6 +565,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setGlobalSaturationMultiplier(DoubleSupplier saturation) {
 		this.globalSaturationMultiplier = saturation;
+		this.modCount++;
 		return this;
 	}
 
@@ -593,6 +610,7 @@ public class Curves implements Renderable {
 			System.err.println("specified stroke pattern should only be 16 bits but is " + Integer.toBinaryString(strokePattern));
 		}
 		this.strokePattern = (short)strokePattern;
+		this.modCount++;
 		return this;
 	}
 
@@ -620,6 +638,7 @@ public class Curves implements Renderable {
 	 */
 	public Curves setStrokeLength(double strokeLength) {
 		this.strokeLength = (float) Math.max(0, strokeLength);
+		this.modCount++;
 		return this;
 	}
 	
@@ -867,6 +886,7 @@ public class Curves implements Renderable {
 	@DebugSetter(ID = "hidden", creator = ButtonCreator.class)
 	public Curves hide(boolean hide) {
 		this.hidden = hide;
+		this.modCount++;
 		return this;
 	}
 
@@ -0,0 +1,468 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.renderers.LinesRenderer;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The DecimatedLineStrip class is a {@link Lines} implementation for dense time series, i.e.
+ * a single line strip through a (potentially huge) sequence of samples with non decreasing x coordinates.
+ * Instead of one segment per sample pair, it only holds the segments that are visible at the current
+ * resolution, which is determined by the {@link LinesRenderer} (see {@link #decimate(Rectangle2D, int)})
+ * from its view and view port width before each rendering (GL, fallback, SVG and PDF).
+ * <p>
+ * The decimation is the min/max (M4) aggregation: the x axis is divided into columns of at most one pixel
+ * width and of each column only the first, minimum, maximum and last sample are kept.
+ * Connecting these samples in order draws the same vertical extent per column as the complete line strip,
+ * so the result is visually identical while the number of segments is bound by four times the number of
+ * columns (e.g. 6000 instead of 10 million segments for a plot of 1500 pixels width).
+ * <p>
+ * The column width is the largest power of 2 that does not exceed the width of a pixel in data coordinates,
+ * and columns are aligned to multiples of that width.
+ * The per column aggregates are cached, so that panning only aggregates the samples of newly visible
+ * columns, and zooming within the same power of 2 reuses the cache as well.
+ * Appending samples ({@link #appendSamples(double[], double[], int[])}) only invalidates the columns from the
+ * previously last sample on.
+ * <p>
+ * Segments added through the methods of {@link Lines} (e.g. {@link #addSegment(Point2D, Point2D)})
+ * append their end points as samples.
+ * {@link #getSegments()} returns the decimated segments of the last {@link #decimate(Rectangle2D, int)} call,
+ * which are also the ones used for picking related queries like {@link #getIntersectingSegments(Rectangle2D)}.
+ * The bounds ({@link #getBounds()}) enclose all samples.
+ * All segments share the same thickness ({@link #setThickness(double)}) and picking color
+ * ({@link #setPickColor(int)}).
+ *
+ * @author hageldave
+ */
+public class DecimatedLineStrip extends Lines {
+
+	protected static final int DEFAULT_COLOR = 0xff555555;
+
+	protected double[] xs = new double[0];
+	protected double[] ys = new double[0];
+	/** per sample colors or null for uniform color */
+	protected int[] colors = null;
+	protected int color = DEFAULT_COLOR;
+	protected int size = 0;
+
+	protected float thickness = 1f;
+	protected int pickColor = 0;
+
+	/* column cache: exponent of the column width, first cached column and 4 sample indices per column (-1 when empty) */
+	protected int cacheExponent = Integer.MIN_VALUE;
+	protected long cacheFirstColumn = 0;
+	protected int[] cache = new int[0];
+	/** index of the first sample whose column is not yet reflected by the cache */
+	protected int firstStaleSample = 0;
+	/* visible column range of the current segments */
+	protected long segmentsFirstColumn = 0, segmentsLastColumn = -1;
+
+	/**
+	 * Sets the samples of this line strip.
+	 * The specified arrays are referenced, not copied, so that no additional memory is required
+	 * for huge time series. Changes to the arrays need to be signaled by calling this method again.
+	 * @param xs x coordinates of the samples in non decreasing order
+	 * @param ys y coordinates of the samples
+	 * @param argb integer packed ARGB colors of the samples, or null for uniform color (see {@link #setColor(int)})
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ or x coordinates decrease
+	 */
+	public DecimatedLineStrip setSamples(double[] xs, double[] ys, int[] argb) {
+		final int n = xs.length;
+		if(ys.length != n || (argb != null && argb.length != n)){
+			throw new IllegalArgumentException("specified arrays differ in length, need "+n+" elements in each.");
+		}
+		checkNonDecreasing(xs, 0, n, Double.NEGATIVE_INFINITY);
+		this.xs = xs;
+		this.ys = ys;
+		this.colors = argb;
+		this.size = n;
+		this.bounds.invalidate();
+		invalidateCache();
+		this.modCount++;
+		return this;
+	}
+
+	/**
+	 * Appends the specified samples to this line strip.
+	 * Only the cached aggregates of the columns from the previously last sample on are invalidated.
+	 * @param xs x coordinates of the samples in non decreasing order, not smaller than the last sample's
+	 * @param ys y coordinates of the samples
+	 * @param argb integer packed ARGB colors of the samples, or null for uniform color.
+	 * Per sample colors require that all samples have colors.
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ, x coordinates decrease
+	 * or the presence of per sample colors does not match
+	 */
+	public DecimatedLineStrip appendSamples(double[] xs, double[] ys, int[] argb) {
+		final int n = xs.length;
+		if(ys.length != n || (argb != null && argb.length != n)){
+			throw new IllegalArgumentException("specified arrays differ in length, need "+n+" elements in each.");
+		}
+		if(size > 0 && (argb != null) != (colors != null)){
+			throw new IllegalArgumentException("per sample colors have to be specified either for all or for no samples.");
+		}
+		checkNonDecreasing(xs, 0, n, size > 0 ? this.xs[size-1] : Double.NEGATIVE_INFINITY);
+		ensureCapacity(size+n, argb != null);
+		System.arraycopy(xs, 0, this.xs, size, n);
+		System.arraycopy(ys, 0, this.ys, size, n);
+		if(argb != null)
+			System.arraycopy(argb, 0, this.colors, size, n);
+		for(int i=0; i<n; i++){
+			bounds.include(xs[i], ys[i]);
+		}
+		// the previously last sample may not be the last in its column anymore
+		firstStaleSample = Math.max(0, Math.min(firstStaleSample, size-1));
+		size += n;
+		this.modCount++;
+		segmentsLastColumn = segmentsFirstColumn-1;
+		return this;
+	}
+
+	protected void ensureCapacity(int capacity, boolean withColors) {
+		if(xs.length < capacity){
+			int newCapacity = Math.max(capacity, xs.length + (xs.length>>1));
+			xs = Arrays.copyOf(xs, newCapacity);
+			ys = Arrays.copyOf(ys, newCapacity);
+		}
+		if(withColors && (colors == null || colors.length < xs.length)){
+			colors = colors == null ? new int[xs.length] : Arrays.copyOf(colors, xs.length);
+		}
+	}
+
+	protected static void checkNonDecreasing(double[] xs, int from, int to, double previous) {
+		for(int i=from; i<to; i++){
+			if(xs[i] < previous){
+				throw new IllegalArgumentException("x coordinates need to be non decreasing, but x["+i+"]="+xs[i]+" < "+previous);
+			}
+			previous = xs[i];
+		}
+	}
+
+	/**
+	 * @return the number of samples of this line strip
+	 */
+	public int numSamples() {
+		return size;
+	}
+
+	/**
+	 * @param idx index of the sample
+	 * @return x coordinate of the sample
+	 */
+	public double getSampleX(int idx) {
+		checkIndex(idx);
+		return xs[idx];
+	}
+
+	/**
+	 * @param idx index of the sample
+	 * @return y coordinate of the sample
+	 */
+	public double getSampleY(int idx) {
+		checkIndex(idx);
+		return ys[idx];
+	}
+
+	/**
+	 * @param idx index of the sample
+	 * @return integer packed ARGB color of the sample
+	 */
+	public int getSampleColor(int idx) {
+		checkIndex(idx);
+		return colors != null ? colors[idx] : color;
+	}
+
+	protected void checkIndex(int idx) {
+		if(idx < 0 || idx >= size)
+			throw new IndexOutOfBoundsException("Index: "+idx+", Size: "+size);
+	}
+
+	/**
+	 * Sets the color of the line strip, which is used when no per sample colors were specified.
+	 * @param argb integer packed ARGB color
+	 * @return this for chaining
+	 */
+	public DecimatedLineStrip setColor(int argb) {
+		this.color = argb;
+		this.modCount++;
+		segmentsLastColumn = segmentsFirstColumn-1;
+		return this;
+	}
+
+	/**
+	 * Sets the thickness of all segments of this line strip.
+	 * @param thickness of the segments, default is 1
+	 * @return this for chaining
+	 */
+	public DecimatedLineStrip setThickness(double thickness) {
+		this.thickness = (float)thickness;
+		this.modCount++;
+		segmentsLastColumn = segmentsFirstColumn-1;
+		return this;
+	}
+
+	/**
+	 * @return thickness of the segments of this line strip
+	 */
+	public float getThickness() {
+		return thickness;
+	}
+
+	/**
+	 * Sets the picking color of all segments of this line strip.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * @param pickID picking color (see {@link Lines} for details)
+	 * @return this for chaining
+	 */
+	public DecimatedLineStrip setPickColor(int pickID) {
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		this.pickColor = pickID;
+		this.modCount++;
+		segmentsLastColumn = segmentsFirstColumn-1;
+		return this;
+	}
+
+	/**
+	 * @return picking color of the segments of this line strip
+	 */
+	public int getPickColor() {
+		return pickColor;
+	}
+
+	/**
+	 * Appends the end points of the specified segment as samples (see {@link #appendSamples(double[], double[], int[])}).
+	 * When the start point coincides with the last sample, only the end point is appended, 
+	 * which extends the strip by the specified segment (e.g. when adding consecutive segments through
+	 * {@link #addLineStrip(double[], double[])}). Otherwise both points are appended, which also connects 
+	 * the last sample to the start point since the strip is contiguous.
+	 * @param p1 start point
+	 * @param p2 end point
+	 * @return a detached segment between the specified points, the rendered segments are determined by
+	 * {@link #decimate(Rectangle2D, int)}
+	 * @throws IllegalArgumentException when the x coordinates decrease or the strip has per sample colors
+	 */
+	@Override
+	public SegmentDetails addSegment(Point2D p1, Point2D p2) {
+		addSegments(new double[]{p1.getX(), p1.getY(), p2.getX(), p2.getY()}, null);
+		SegmentDetails seg = new SegmentDetails(new Point2D.Double(p1.getX(), p1.getY()), new Point2D.Double(p2.getX(), p2.getY()));
+		seg.setColor(color).setThickness(thickness);
+		seg.pickColor = pickColor;
+		return seg;
+	}
+
+	/**
+	 * Appends the end points of the specified segments as samples in a single call to
+	 * {@link #appendSamples(double[], double[], int[])}, see {@link #addSegment(Point2D, Point2D)}.
+	 * Start points that coincide with the preceding sample are skipped, they keep the color of that sample.
+	 * @param coords (x1,y1,x2,y2) quadruples of the segments
+	 * @param colors integer packed ARGB colors of the segments (per segment or per vertex), or null for uniform color
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the number of coordinate values is not a multiple of 4,
+	 * the number of colors does not match the number of segments or vertices, 
+	 * the x coordinates decrease or the presence of per sample colors does not match
+	 */
+	@Override
+	public DecimatedLineStrip addSegments(double[] coords, int[] colors) {
+		final int n = checkSegmentArrays(coords, colors);
+		final boolean perVertexColor = colors != null && colors.length == n*2;
+		double[] sx = new double[n*2], sy = new double[n*2];
+		int[] sc = colors == null ? null : new int[n*2];
+		int m = 0;
+		for(int i=0; i<n; i++){
+			double x1 = coords[i*4+0], y1 = coords[i*4+1];
+			boolean connected = m > 0 ? sx[m-1] == x1 && sy[m-1] == y1 : size > 0 && xs[size-1] == x1 && ys[size-1] == y1;
+			if(!connected){
+				sx[m] = x1; sy[m] = y1;
+				if(sc != null) sc[m] = colors[perVertexColor ? i*2:i];
+				m++;
+			}
+			sx[m] = coords[i*4+2]; sy[m] = coords[i*4+3];
+			if(sc != null) sc[m] = colors[perVertexColor ? i*2+1:i];
+			m++;
+		}
+		return appendSamples(Arrays.copyOf(sx, m), Arrays.copyOf(sy, m), sc == null ? null : Arrays.copyOf(sc, m));
+	}
+
+	/**
+	 * Removes all samples of this line strip.
+	 * Sets the {@link #isDirty()} state to true.
+	 * @return this for chaining
+	 */
+	@Override
+	public DecimatedLineStrip removeAllSegments() {
+		super.removeAllSegments();
+		xs = new double[0];
+		ys = new double[0];
+		colors = null;
+		size = 0;
+		invalidateCache();
+		return this;
+	}
+
+	protected void invalidateCache() {
+		cacheExponent = Integer.MIN_VALUE;
+		cache = new int[0];
+		firstStaleSample = size;
+		segmentsLastColumn = segmentsFirstColumn-1;
+	}
+
+	/**
+	 * Computes the segments for the specified view, which is called by the {@link LinesRenderer}
+	 * before rendering.
+	 * Sets the {@link #isDirty()} state to true when the segments changed, which is not the case when
+	 * neither the samples, nor the visible columns changed since the last call (e.g. when only zooming
+	 * vertically or zooming within the same power of 2 of the column width).
+	 * Synchronized since renderers may call this concurrently (e.g. tiled fallback rendering),
+	 * each caller sees the segments of the completed decimation.
+	 * @param view visible area in data coordinates
+	 * @param pixelWidth width of the view port in pixels
+	 * @return true when the segments changed
+	 */
+	public synchronized boolean decimate(Rectangle2D view, int pixelWidth) {
+		if(pixelWidth < 1 || !(view.getWidth() > 0) || !Double.isFinite(view.getWidth()))
+			return false;
+		int exponent = Math.getExponent(view.getWidth()/pixelWidth);
+		double columnWidth = Math.scalb(1.0, exponent);
+		long c0 = column(view.getMinX(), columnWidth);
+		long c1 = column(view.getMaxX(), columnWidth);
+		if(exponent == cacheExponent && c0 == segmentsFirstColumn && c1 == segmentsLastColumn && firstStaleSample >= size)
+			return false;
+		updateCache(exponent, c0, c1);
+		buildSegments(columnWidth, c0, c1);
+		segmentsFirstColumn = c0;
+		segmentsLastColumn = c1;
+		return true;
+	}
+
+	protected static long column(double x, double columnWidth) {
+		return (long)Math.floor(x/columnWidth);
+	}
+
+	/**
+	 * Ensures that the cache holds the aggregates of the columns [c0, c1] for the specified column width,
+	 * reusing cached columns where possible.
+	 * @param exponent exponent of the power of 2 column width
+	 * @param c0 first column
+	 * @param c1 last column
+	 */
+	protected void updateCache(int exponent, long c0, long c1) {
+		double columnWidth = Math.scalb(1.0, exponent);
+		int numColumns = (int)(c1-c0+1);
+		int[] newCache = new int[numColumns*4];
+		Arrays.fill(newCache, -1);
+		// columns to be (re)computed are those not cached and those of stale samples
+		long validFrom = c0, validTo = c0-1;
+		if(exponent == cacheExponent){
+			long cacheLast = cacheFirstColumn + cache.length/4 - 1;
+			if(firstStaleSample < size)
+				cacheLast = Math.min(cacheLast, column(xs[firstStaleSample], columnWidth)-1);
+			validFrom = Math.max(c0, cacheFirstColumn);
+			validTo = Math.min(c1, cacheLast);
+			if(validFrom <= validTo){
+				System.arraycopy(cache, (int)(validFrom-cacheFirstColumn)*4, newCache, (int)(validFrom-c0)*4, (int)(validTo-validFrom+1)*4);
+			}
+		}
+		if(validFrom > validTo){
+			aggregate(columnWidth, c0, c1, newCache, c0);
+		} else {
+			if(validFrom > c0)
+				aggregate(columnWidth, c0, validFrom-1, newCache, c0);
+			if(validTo < c1)
+				aggregate(columnWidth, validTo+1, c1, newCache, c0);
+		}
+		cacheExponent = exponent;
+		cacheFirstColumn = c0;
+		cache = newCache;
+		firstStaleSample = size;
+	}
+
+	/**
+	 * Computes first, minimum, maximum and last sample index of the columns [from, to]
+	 * in a single scan over the samples of these columns.
+	 */
+	protected void aggregate(double columnWidth, long from, long to, int[] dest, long destFirstColumn) {
+		for(int i=firstSampleOfColumn(from, columnWidth); i<size; i++){
+			long c = column(xs[i], columnWidth);
+			if(c > to)
+				break;
+			int k = (int)(c-destFirstColumn)*4;
+			if(dest[k] < 0){
+				dest[k+0] = dest[k+1] = dest[k+2] = dest[k+3] = i;
+			} else {
+				if(ys[i] < ys[dest[k+1]]) dest[k+1] = i;
+				if(ys[i] > ys[dest[k+2]]) dest[k+2] = i;
+				dest[k+3] = i;
+			}
+		}
+	}
+
+	/**
+	 * @return index of the first sample with column greater or equal to the specified one (binary search)
+	 */
+	protected int firstSampleOfColumn(long c, double columnWidth) {
+		int lo = 0, hi = size;
+		while(lo < hi){
+			int mid = (lo+hi)>>>1;
+			if(column(xs[mid], columnWidth) < c)
+				lo = mid+1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Builds the segments connecting the cached samples of the columns [c0, c1] in order,
+	 * including the samples right before and after these columns so that the strip extends beyond the view.
+	 */
+	protected void buildSegments(double columnWidth, long c0, long c1) {
+		int[] retained = new int[cache.length+2];
+		int n = 0;
+		int before = firstSampleOfColumn(c0, columnWidth)-1;
+		if(before >= 0)
+			retained[n++] = before;
+		for(int k=0; k<cache.length; k+=4){
+			if(cache[k] < 0)
+				continue;
+			int min = cache[k+1], max = cache[k+2];
+			int[] candidates = {cache[k], Math.min(min, max), Math.max(min, max), cache[k+3]};
+			for(int i : candidates){
+				if(n == 0 || retained[n-1] != i)
+					retained[n++] = i;
+			}
+		}
+		int after = firstSampleOfColumn(c1+1, columnWidth);
+		if(after < size && (n == 0 || retained[n-1] != after))
+			retained[n++] = after;
+
+		ArrayList<SegmentDetails> decimated = new ArrayList<>(Math.max(0, n-1));
+		for(int j=0; j+1<n; j++){
+			int a = retained[j], b = retained[j+1];
+			SegmentDetails seg = new SegmentDetails(new Point2D.Double(xs[a], ys[a]), new Point2D.Double(xs[b], ys[b]));
+			seg.setColor0(getSampleColor(a)).setColor1(getSampleColor(b)).setThickness(thickness);
+			seg.pickColor = pickColor;
+			decimated.add(seg);
+		}
+		segments = decimated;
+		isDirty = true;
+	}
+
+	@Override
+	protected boolean isBoundsValid() {
+		return bounds.isValid() && bounds.getCount() == size;
+	}
+
+	@Override
+	protected void recomputeBounds() {
+		bounds.reset();
+		for(int i=0; i<size; i++){
+			bounds.include(xs[i], ys[i]);
+		}
+	}
+
+}
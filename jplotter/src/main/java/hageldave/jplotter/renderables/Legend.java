@@ -9,6 +9,7 @@ import hageldave.jplotter.misc.DefaultGlyph;
 import hageldave.jplotter.misc.Glyph;
 import hageldave.jplotter.renderables.Lines.SegmentDetails;
 import hageldave.jplotter.renderables.Points.PointDetails;
+import hageldave.jplotter.renderers.AnalyticPicking;
 import hageldave.jplotter.renderers.CompleteRenderer;
 import hageldave.jplotter.renderers.Renderer;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
@@ -42,7 +43,7 @@ import java.util.function.Supplier;
  * 
  * @author hageldave
  */
-public class Legend implements Renderable, Renderer {
+public class Legend implements Renderable, Renderer, AnalyticPicking {
 
 	protected ArrayList<GlyphLabel> glyphLabels = new ArrayList<>(0);
 
@@ -823,6 +824,22 @@ public class Legend implements Renderable, Renderer {
 		delegate.renderFallback(g, p, w, h);
 	}
 
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		if(w == 0 || h == 0){
+			return;
+		}
+		if(isDirty() || viewPortWidth != w || viewPortHeight != h){
+			viewPortWidth = w;
+			viewPortHeight = h;
+			update();
+		}
+		delegate.pickArea(x, y, areaW, areaH, w, h, pickColors);
+	}
+
 	@Override
 	public void renderSVG(Document doc, Element parent, int w, int h) {
 		if(!isEnabled()){
@@ -10,15 +10,18 @@ import hageldave.jplotter.debugging.panelcreators.control.StrokePatternCreator;
 import hageldave.jplotter.debugging.panelcreators.display.RenderableDetailsCreator;
 import hageldave.jplotter.gl.FBO;
 import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderers.LinesBatch;
 import hageldave.jplotter.renderers.LinesRenderer;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.DirtyRange;
+import hageldave.jplotter.util.IncrementalBounds;
 import hageldave.jplotter.util.Utils;
+import org.lwjgl.opengl.GL15;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.DoubleSupplier;
@@ -61,6 +64,14 @@ public class Lines implements Renderable {
 
 	protected boolean isDirty = true;
 
+	protected volatile long modCount = 0;
+
+	protected DirtyRange dirtyRange = new DirtyRange();
+
+	protected IncrementalBounds bounds = new IncrementalBounds();
+
+	protected boolean pathLengthsStale = false;
+
 	protected DoubleSupplier globalAlphaMultiplier = () -> 1.0;
 
 	protected boolean useVertexRounding=false;
@@ -76,16 +87,48 @@ public class Lines implements Renderable {
 	/**
 	 * Sets the {@link #isDirty()} state of this renderable to true.
 	 * This indicates that an {@link #updateGL(boolean, double, double)} call is necessary to sync GL resources.
+	 * This also invalidates the bounds (see {@link #getBounds()}) since segments may have changed.
 	 * @return this for chaining
 	 */
 	public Lines setDirty() {
 		this.isDirty = true;
+		this.modCount++;
+		this.bounds.invalidate();
+		return this;
+	}
+
+	/**
+	 * Marks the segments in the range [from, to) as dirty, which sets the {@link #isDirty()}
+	 * state to true.
+	 * Unless {@link #setDirty()} is called as well, only this range of segments will be
+	 * uploaded to the GL resources on the next update.
+	 * @param from index of first changed segment (inclusive)
+	 * @param to index after the last changed segment (exclusive)
+	 * @return this for chaining
+	 */
+	public Lines setDirty(int from, int to) {
+		this.dirtyRange.mark(from, to);
+		this.modCount++;
+		this.bounds.invalidate();
 		return this;
 	}
 
 	@Override
 	public boolean isDirty() {
-		return isDirty;
+		// path lengths are not updated by partial updates, but are required by stroke patterns
+		return isDirty || !dirtyRange.isEmpty() || (pathLengthsStale && hasStrokePattern());
+	}
+
+	/**
+	 * Returns the number of changes made to this object through its methods.
+	 * Changes made through {@link SegmentDetails} are only counted after calling {@link #setDirty()}
+	 * as is required for GL updates.
+	 * In contrast to {@link #isDirty()}, this is not reset when GL resources are updated.
+	 * @return modification count
+	 */
+	@Override
+	public long getModificationCount() {
+		return modCount;
 	}
 
 	/**
@@ -95,6 +138,17 @@ public class Lines implements Renderable {
 		return segments.size();
 	}
 
+	/**
+	 * Returns the number of segments stored in the vertex array, which is the number of
+	 * vertex pairs the {@link LinesRenderer} draws.
+	 * This is {@link #numSegments()} unless a subclass keeps invisible segments in its
+	 * buffers (e.g. the seam of the ring buffer of {@link StreamingLineStrip}).
+	 * @return number of segments in the vertex array
+	 */
+	public int numGLSegments() {
+		return numSegments();
+	}
+
 	/**
 	 * Adds a new line segment to this object.
 	 * Sets the {@link #isDirty()} state to true.
@@ -105,7 +159,9 @@ public class Lines implements Renderable {
 	public SegmentDetails addSegment(Point2D p1, Point2D p2){
 		SegmentDetails seg = new SegmentDetails(p1, p2);
 		segments.add(seg);
-		setDirty();
+		this.isDirty = true;
+		this.modCount++;
+		this.bounds.include(p1.getX(), p1.getY()).include(p2.getX(), p2.getY());
 		return seg;
 	}
 
@@ -122,6 +178,63 @@ public class Lines implements Renderable {
 		return addSegment(new Point2D.Double(x1, y1), new Point2D.Double(x2, y2));
 	}
 
+	/**
+	 * Adds line segments in bulk.
+	 * The segments are specified as interleaved coordinates, i.e. 4 values per segment
+	 * {@code x1,y1,x2,y2}. Colors may be specified per segment (one color for each segment) or
+	 * per vertex (two colors for each segment, start and end color).
+	 * Sets the {@link #isDirty()} state to true once for all added segments.
+	 * <p>
+	 * The segments are still stored as {@link SegmentDetails}, i.e. details and points are allocated per segment
+	 * as with {@link #addSegment(double, double, double, double)}, and the arrays are not retained.
+	 * Array backed storage is only available for line strips, see {@link StreamingLineStrip}
+	 * and {@link DecimatedLineStrip}.
+	 * @param coords (x1,y1,x2,y2) quadruples of the segments
+	 * @param colors integer packed ARGB colors of the segments (per segment or per vertex), or null for default color
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the number of coordinate values is not a multiple of 4 or
+	 * the number of colors does not match the number of segments or vertices.
+	 */
+	public Lines addSegments(double[] coords, int[] colors){
+		final int n = checkSegmentArrays(coords, colors);
+		final boolean perVertexColor = colors != null && colors.length == n*2;
+		this.segments.ensureCapacity(this.segments.size()+n);
+		for(int i=0; i<n; i++){
+			SegmentDetails seg = new SegmentDetails(
+					new Point2D.Double(coords[i*4+0], coords[i*4+1]), 
+					new Point2D.Double(coords[i*4+2], coords[i*4+3]));
+			if(perVertexColor){
+				seg.setColor0(colors[i*2+0]).setColor1(colors[i*2+1]);
+			} else if(colors != null){
+				seg.setColor(colors[i]);
+			}
+			this.segments.add(seg);
+			this.bounds.include(coords[i*4+0], coords[i*4+1]).include(coords[i*4+2], coords[i*4+3]);
+		}
+		this.isDirty = true;
+		this.modCount++;
+		return this;
+	}
+
+	/**
+	 * Checks the arrays of {@link #addSegments(double[], int[])}.
+	 * @param coords (x1,y1,x2,y2) quadruples of the segments
+	 * @param colors colors of the segments (per segment or per vertex), or null
+	 * @return number of segments
+	 * @throws IllegalArgumentException when the number of coordinate values is not a multiple of 4 or
+	 * the number of colors does not match the number of segments or vertices.
+	 */
+	protected static int checkSegmentArrays(double[] coords, int[] colors){
+		if(coords.length%4 != 0){
+			throw new IllegalArgumentException("number of coordinate values needs to be a multiple of 4 (x1,y1,x2,y2), but got " + coords.length);
+		}
+		final int n = coords.length/4;
+		if(colors != null && colors.length != n && colors.length != n*2){
+			throw new IllegalArgumentException("need a color per segment ("+n+") or per vertex ("+(n*2)+"), but got " + colors.length);
+		}
+		return n;
+	}
+
 	/**
 	 * Adds a strip of line segments that connect the specified
 	 * points.
@@ -203,6 +316,7 @@ public class Lines implements Renderable {
 	 */
 	public Lines setGlobalAlphaMultiplier(DoubleSupplier globalAlphaMultiplier) {
 		this.globalAlphaMultiplier = globalAlphaMultiplier;
+		this.modCount++;
 		return this;
 	}
 	
@@ -234,7 +348,10 @@ public class Lines implements Renderable {
 	 */
 	public Lines removeAllSegments() {
 		this.segments.clear();
-		return setDirty();
+		this.isDirty = true;
+		this.modCount++;
+		this.bounds.reset();
+		return this;
 	}
 
 	/**
@@ -255,6 +372,7 @@ public class Lines implements Renderable {
 	 */
 	public Lines setGlobalThicknessMultiplier(DoubleSupplier thickness) {
 		this.globalThicknessMultiplier = thickness;
+		this.modCount++;
 		return this;
 	}
 
@@ -287,6 +405,7 @@ public class Lines implements Renderable {
 	 */
 	public Lines setGlobalSaturationMultiplier(DoubleSupplier saturation) {
 		this.globalSaturationMultiplier = saturation;
+		this.modCount++;
 		return this;
 	}
 
@@ -336,34 +455,40 @@ public class Lines implements Renderable {
 	@DebugSetter(ID = "useVertexRounding", creator = ButtonCreator.class)
 	public Lines setVertexRoundingEnabled(boolean useVertexRounding) {
 		this.useVertexRounding = useVertexRounding;
+		this.modCount++;
 		return this;
 	}
 
 	/**
+	 * Returns the bounding rectangle that encloses all line segments in this {@link Lines} object.
+	 * The bounds are maintained incrementally when adding segments, so this is cheap to call
+	 * e.g. for fitting the view to the data on every data update.
+	 * After {@link #setDirty()} (which indicates that segments may have been changed or removed)
+	 * the bounds are recomputed once in a single pass on the next call.
 	 * @return the bounding rectangle that encloses all line segments in this {@link Lines} object.
 	 */
 	public Rectangle2D getBounds(){
-		if(numSegments() < 1)
-			return new Rectangle2D.Double();
-		
-		boolean useParallelStreaming = numSegments() > 1000;
-		double minX = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getX)
-				.min().getAsDouble();
-		double maxX = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getX)
-				.max().getAsDouble();
-		double minY = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getY)
-				.min().getAsDouble();
-		double maxY = Utils.parallelize(getSegments().stream(), useParallelStreaming)
-				.flatMap(seg->Arrays.asList(seg.p0,seg.p1).stream())
-				.mapToDouble(Point2D::getY)
-				.max().getAsDouble();
-		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+		if(!isBoundsValid()){
+			recomputeBounds();
+		}
+		return bounds.toRect();
+	}
+
+	/**
+	 * @return true when the bounds are valid and account for all segment end points
+	 */
+	protected boolean isBoundsValid() {
+		return bounds.isValid() && bounds.getCount() == numSegments()*2;
+	}
+
+	/**
+	 * Recomputes the bounds (see {@link #getBounds()}) in a single pass over all segments.
+	 */
+	protected void recomputeBounds() {
+		bounds.reset();
+		for(SegmentDetails seg : segments){
+			bounds.include(seg.p0.getX(), seg.p0.getY()).include(seg.p1.getX(), seg.p1.getY());
+		}
 	}
 	
 	@Override
@@ -428,6 +553,7 @@ public class Lines implements Renderable {
 			System.err.println("specified stroke pattern should only be 16 bits but is " + Integer.toBinaryString(strokePattern));
 		}
 		this.strokePattern = (short)strokePattern;
+		this.modCount++;
 		return this;
 	}
 	
@@ -449,6 +575,7 @@ public class Lines implements Renderable {
 	@DebugSetter(ID = "strokeLength", creator = DecimalSpinnerCreator.class)
 	public Lines setStrokeLength(double strokeLength) {
 		this.strokeLength = (float) Math.max(0, strokeLength);
+		this.modCount++;
 		return this;
 	}
 	
@@ -469,6 +596,7 @@ public class Lines implements Renderable {
 	@DebugSetter(ID = "hidden", creator = ButtonCreator.class)
 	public Lines hide(boolean hide) {
 		this.hidden = hide;
+		this.modCount++;
 		return this;
 	}
 
@@ -664,6 +792,8 @@ public class Lines implements Renderable {
 	public void initGL(){
 		if(Objects.isNull(va)){
 			va = new VertexArray(5);
+			for(int i=0; i<4; i++)
+				va.setBufferUsage(i, GL15.GL_DYNAMIC_DRAW);
 			updateGL(false);
 		}
 	}
@@ -710,6 +840,10 @@ public class Lines implements Renderable {
 	 * the scaling parameters of the respective view transformation need
 	 * to be specified in order to realize view invariant stroke patterns.
 	 * <p>
+	 * When only a range of segments is dirty (see {@link #setDirty(int, int)}), the number
+	 * of segments did not change and there is no stroke pattern, only that range of the
+	 * buffers is updated.
+	 * <p>
 	 * If {@link #initGL()} has not been called yet or this object has
 	 * already been closed, nothing happens.
 	 * @param scaleX scaling of the x coordinate of the current view transform
@@ -718,101 +852,198 @@ public class Lines implements Renderable {
 	@GLContextRequired
 	public void updateGLFloat(double scaleX, double scaleY){
 		if(Objects.nonNull(va)){
-			float[] segmentCoordBuffer = new float[segments.size()*2*2];
-			int[] colorBuffer = new int[segments.size()*2];
-			int[] pickBuffer = new int[segments.size()*2];
-			float[] thicknessBuffer = new float[segments.size()*2];
-			float[] pathLengthBuffer = new float[segments.size()*2];
+			boolean partial = isPartialUpdatePossible(false);
+			final int from = partial ? dirtyRange.getFrom():0;
+			final int to = partial ? dirtyRange.getTo():segments.size();
+			float[] segmentCoordBuffer = new float[(to-from)*2*2];
+			int[] colorBuffer = new int[(to-from)*2];
+			int[] pickBuffer = new int[(to-from)*2];
+			float[] thicknessBuffer = new float[(to-from)*2];
+			float[] pathLengthBuffer = partial ? null:new float[(to-from)*2];
 	
-			double xprev = 0, yprev=0, pathLen = 0;
-			for(int i=0; i<segments.size(); i++){
-				SegmentDetails seg = segments.get(i);
-				double x0 = seg.p0.getX();
-				double y0 = seg.p0.getY();
-				double x1 = seg.p1.getX();
-				double y1 = seg.p1.getY();
-	
-				segmentCoordBuffer[i*4+0] = (float) x0;
-				segmentCoordBuffer[i*4+1] = (float) y0;
-				segmentCoordBuffer[i*4+2] = (float) x1;
-				segmentCoordBuffer[i*4+3] = (float) y1;
-	
-				colorBuffer[i*2+0] = seg.color0.getAsInt();
-				colorBuffer[i*2+1] = seg.color1.getAsInt();
-	
-				pickBuffer[i*2+0] = pickBuffer[i*2+1] = seg.pickColor;
-	
-				thicknessBuffer[i*2+0] = (float)seg.thickness0.getAsDouble();
-				thicknessBuffer[i*2+1] = (float)seg.thickness1.getAsDouble();
-	
-				if(xprev != x0 || yprev != y0){
-					pathLen = 0;
-				}
-				double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
-				pathLengthBuffer[i*2+0] = (float)pathLen;
-				pathLengthBuffer[i*2+1] = (float)(pathLen += segLen);
-				pathLen = pathLen % strokeLength;
-				xprev = x1; yprev = y1;
+			fillGLBuffers(from, to, segmentCoordBuffer, colorBuffer, pickBuffer, thicknessBuffer, pathLengthBuffer, 0, scaleX, scaleY);
+			if(partial){
+				va.updateBufferRange(0, from*4, segmentCoordBuffer);
+				va.updateBufferRange(1, from*2, colorBuffer);
+				va.updateBufferRange(2, from*2, pickBuffer);
+				va.updateBufferRange(3, from*2, thicknessBuffer);
+				pathLengthsStale = true;
+			} else {
+				va.setBuffer(0, 2, segmentCoordBuffer);
+				va.setBuffer(1, 1, false, colorBuffer);
+				va.setBuffer(2, 1, false, pickBuffer);
+				va.setBuffer(3, 1, thicknessBuffer);
+				va.setBuffer(4, 1, pathLengthBuffer);
+				pathLengthsStale = false;
 			}
-			va.setBuffer(0, 2, segmentCoordBuffer);
-			va.setBuffer(1, 1, false, colorBuffer);
-			va.setBuffer(2, 1, false, pickBuffer);
-			va.setBuffer(3, 1, thicknessBuffer);
-			va.setBuffer(4, 1, pathLengthBuffer);
 			isDirty = false;
+			dirtyRange.clear();
 			isGLDoublePrecision = false;
 		}
 	}
 
+	/**
+	 * Writes the single precision vertex attribute values of the segments in range [from,to)
+	 * into the specified arrays, starting at the specified segment offset.
+	 * These are the values of the vertex array's attributes 0 (coordinates, 4 values per segment),
+	 * 1 (colors), 2 (picking colors), 3 (thicknesses) and 4 (path lengths) with 2 values per segment each.
+	 * Path lengths start at 0 for segment 'from' and are only computed when the path length array is non null.
+	 * @param from index of first segment (inclusive)
+	 * @param to index of last segment (exclusive)
+	 * @param segmentCoordBuffer array for the coordinates
+	 * @param colorBuffer array for the packed colors
+	 * @param pickBuffer array for the picking colors
+	 * @param thicknessBuffer array for the thicknesses
+	 * @param pathLengthBuffer array for the screen space path lengths or null
+	 * @param offset index of the segment in the arrays to which segment 'from' is written
+	 * @param scaleX scaling of the x coordinate of the current view transform
+	 * @param scaleY scaling of the y coordinate of the current view transform
+	 */
+	public void fillGLBuffers(int from, int to, float[] segmentCoordBuffer, int[] colorBuffer, int[] pickBuffer, 
+			float[] thicknessBuffer, float[] pathLengthBuffer, int offset, double scaleX, double scaleY)
+	{
+		double xprev = 0, yprev=0, pathLen = 0;
+		for(int i=from; i<to; i++){
+			SegmentDetails seg = segments.get(i);
+			int j = i-from+offset;
+			double x0 = seg.p0.getX();
+			double y0 = seg.p0.getY();
+			double x1 = seg.p1.getX();
+			double y1 = seg.p1.getY();
+
+			segmentCoordBuffer[j*4+0] = (float) x0;
+			segmentCoordBuffer[j*4+1] = (float) y0;
+			segmentCoordBuffer[j*4+2] = (float) x1;
+			segmentCoordBuffer[j*4+3] = (float) y1;
+
+			colorBuffer[j*2+0] = seg.color0.getAsInt();
+			colorBuffer[j*2+1] = seg.color1.getAsInt();
+
+			pickBuffer[j*2+0] = pickBuffer[j*2+1] = seg.pickColor;
+
+			thicknessBuffer[j*2+0] = (float)seg.thickness0.getAsDouble();
+			thicknessBuffer[j*2+1] = (float)seg.thickness1.getAsDouble();
+
+			if(Objects.isNull(pathLengthBuffer)){
+				// path lengths are only relevant for stroke patterns (see isPartialUpdatePossible)
+				continue;
+			}
+			if(xprev != x0 || yprev != y0){
+				pathLen = 0;
+			}
+			double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
+			pathLengthBuffer[j*2+0] = (float)pathLen;
+			pathLengthBuffer[j*2+1] = (float)(pathLen += segLen);
+			pathLen = pathLen % strokeLength;
+			xprev = x1; yprev = y1;
+		}
+	}
+	
+	/**
+	 * Sets the {@link #isDirty()} state to false without updating the vertex array.
+	 * This is used when the contents of this object were synced to GL resources other than its own
+	 * vertex array (e.g. a {@link LinesBatch}), in which case the vertex array has to be closed 
+	 * beforehand since it is out of sync.
+	 */
+	public void clearDirty() {
+		isDirty = false;
+		dirtyRange.clear();
+		pathLengthsStale = false;
+	}
+	
+	/**
+	 * Tells whether this object can be drawn as part of a {@link LinesBatch}, which requires
+	 * that the segments of {@link #getSegments()} are the segments to draw and can be
+	 * written using {@link #fillGLBuffers(int, int, float[], int[], int[], float[], float[], int, double, double)}.
+	 * @return true for plain {@link Lines}, subclasses with their own buffer layout return false
+	 */
+	public boolean isBatchable() {
+		return true;
+	}
+
 	@GLContextRequired
 	public void updateGLDouble(double scaleX, double scaleY){
 		if(Objects.nonNull(va)){
-			double[] segmentCoordBuffer = new double[segments.size()*2*2];  // SFM key line
-			int[] colorBuffer = new int[segments.size()*2];
-			int[] pickBuffer = new int[segments.size()*2];
-			float[] thicknessBuffer = new float[segments.size()*2];
-			float[] pathLengthBuffer = new float[segments.size()*2];
-			
+			boolean partial = isPartialUpdatePossible(true);
+			final int from = partial ? dirtyRange.getFrom():0;
+			final int to = partial ? dirtyRange.getTo():segments.size();
+			double[] segmentCoordBuffer = new double[(to-from)*2*2];  // SFM key line
+			int[] colorBuffer = new int[(to-from)*2];
+			int[] pickBuffer = new int[(to-from)*2];
+			float[] thicknessBuffer = new float[(to-from)*2];
+			float[] pathLengthBuffer = partial ? null:new float[(to-from)*2];
+	
 			double xprev = 0, yprev=0, pathLen = 0;
-			for(int i=0; i<segments.size(); i++){
+			for(int i=from; i<to; i++){
 				SegmentDetails seg = segments.get(i);
+				int j = i-from;
 				double x0 = seg.p0.getX();
 				double y0 = seg.p0.getY();
 				double x1 = seg.p1.getX();
 				double y1 = seg.p1.getY();
-				
-				segmentCoordBuffer[i*4+0] = x0;
-				segmentCoordBuffer[i*4+1] = y0;
-				segmentCoordBuffer[i*4+2] = x1;
-				segmentCoordBuffer[i*4+3] = y1;
-
-				colorBuffer[i*2+0] = seg.color0.getAsInt();
-				colorBuffer[i*2+1] = seg.color1.getAsInt();
-
-				pickBuffer[i*2+0] = pickBuffer[i*2+1] = seg.pickColor;
-				
-				thicknessBuffer[i*2+0] = (float)seg.thickness0.getAsDouble();
-				thicknessBuffer[i*2+1] = (float)seg.thickness1.getAsDouble();
-				
+	
+				segmentCoordBuffer[j*4+0] = x0;
+				segmentCoordBuffer[j*4+1] = y0;
+				segmentCoordBuffer[j*4+2] = x1;
+				segmentCoordBuffer[j*4+3] = y1;
+	
+				colorBuffer[j*2+0] = seg.color0.getAsInt();
+				colorBuffer[j*2+1] = seg.color1.getAsInt();
+	
+				pickBuffer[j*2+0] = pickBuffer[j*2+1] = seg.pickColor;
+	
+				thicknessBuffer[j*2+0] = (float)seg.thickness0.getAsDouble();
+				thicknessBuffer[j*2+1] = (float)seg.thickness1.getAsDouble();
+	
+				if(partial){
+					// path lengths are only relevant for stroke patterns (see isPartialUpdatePossible)
+					continue;
+				}
 				if(xprev != x0 || yprev != y0){
 					pathLen = 0;
 				}
 				double segLen = Utils.hypot((x1-x0)*scaleX, (y1-y0)*scaleY);
-				pathLengthBuffer[i*2+0] = (float)pathLen;
-				pathLengthBuffer[i*2+1] = (float)(pathLen += segLen);
+				pathLengthBuffer[j*2+0] = (float)pathLen;
+				pathLengthBuffer[j*2+1] = (float)(pathLen += segLen);
 				pathLen = pathLen % strokeLength;
 				xprev = x1; yprev = y1;
 			}
-			va.setBuffer(0, 2, segmentCoordBuffer);
-			va.setBuffer(1, 1, false, colorBuffer);
-			va.setBuffer(2, 1, false, pickBuffer);
-			va.setBuffer(3, 1, thicknessBuffer);
-			va.setBuffer(4, 1, pathLengthBuffer);
+			if(partial){
+				va.updateBufferRange(0, from*4, segmentCoordBuffer);
+				va.updateBufferRange(1, from*2, colorBuffer);
+				va.updateBufferRange(2, from*2, pickBuffer);
+				va.updateBufferRange(3, from*2, thicknessBuffer);
+				pathLengthsStale = true;
+			} else {
+				va.setBuffer(0, 2, segmentCoordBuffer);
+				va.setBuffer(1, 1, false, colorBuffer);
+				va.setBuffer(2, 1, false, pickBuffer);
+				va.setBuffer(3, 1, thicknessBuffer);
+				va.setBuffer(4, 1, pathLengthBuffer);
+				pathLengthsStale = false;
+			}
 			isDirty = false;
+			dirtyRange.clear();
 			isGLDoublePrecision = true;
 		}
 	}
 
+	/**
+	 * Tests whether the GL resources can be synced by only updating the dirty range,
+	 * which requires that not everything is dirty, the precision did not change,
+	 * the buffers are of matching size and there is no stroke pattern (since a changed segment
+	 * changes the path lengths of all subsequent segments).
+	 * @param useGLDoublePrecision requested precision
+	 * @return true when a partial update suffices
+	 */
+	protected boolean isPartialUpdatePossible(boolean useGLDoublePrecision) {
+		return !isDirty
+				&& !hasStrokePattern()
+				&& isGLDoublePrecision == useGLDoublePrecision
+				&& dirtyRange.isWithin(numSegments())
+				&& va.getBufferLength(0) == numSegments()*4;
+	}
+
 
 	/**
 	 * Returns the vertex array of this lines object.
@@ -0,0 +1,349 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import org.lwjgl.opengl.GL11;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The MappedPoints class is a read only {@link Points} implementation for out of core datasets,
+ * which reads its points from off heap memory, i.e. a memory mapped file (see {@link #map(Path, long, long, int, ByteOrder)})
+ * or a direct {@link ByteBuffer}. The Java heap only holds a few buffer objects regardless of the number of points.
+ * <p>
+ * The data consists of a position column of interleaved 32 bit float coordinates (x0,y0,x1,y1,...)
+ * and an optional color column of 32 bit integer packed ARGB colors.
+ * All points share the same rotation (0), scaling (1, see {@link #setGlobalScaling(double)}) and
+ * picking color ({@link #setPickColor(int)}).
+ * <p>
+ * When the position column is in native byte order, the GL update hands it to GL directly from the mapping,
+ * otherwise (and for double precision) positions are converted through a small off heap staging buffer in chunks,
+ * which is also used for the other vertex attributes. No Java arrays proportional to the number of points are allocated.
+ * The fallback rendering reads the points sequentially through the index based accessors, so that
+ * the operating system pages the mapping in and out as needed.
+ * <p>
+ * Points cannot be added or removed ({@link #addPoint(double, double)} throws an {@link UnsupportedOperationException}).
+ * {@link PointDetails} returned by this class (e.g. by {@link #getPoint(int)}) are detached copies,
+ * changes to them are not reflected. Note that {@link #getPointDetails()} creates a copy of every point,
+ * which defeats the purpose of this class for huge datasets, prefer the index based accessors
+ * (e.g. {@link #getPointX(int)}) and {@link #getIntersectingPointIndices(Rectangle2D)}.
+ *
+ * @author hageldave
+ */
+public class MappedPoints extends Points {
+
+	protected static final int DEFAULT_COLOR = 0xff555555;
+	/** number of points per chunk of the GL upload */
+	protected static final int CHUNK_SIZE = 1<<16;
+
+	protected final ByteBuffer positionData;
+	protected final FloatBuffer positions;
+	protected final IntBuffer colors;
+	protected final int size;
+	protected int pickColor = 0;
+
+	/**
+	 * Creates a new {@link MappedPoints} object with {@link DefaultGlyph#CIRCLE_F} glyph.
+	 * @param positions interleaved x,y float coordinates from position 0 to the limit of the buffer
+	 * (the buffer's byte order is used)
+	 * @param argb integer packed ARGB colors from position 0 to the limit of the buffer, one per point,
+	 * or null for default color
+	 * @throws IllegalArgumentException when the sizes of the buffers do not match
+	 */
+	public MappedPoints(ByteBuffer positions, ByteBuffer argb) {
+		this(DefaultGlyph.CIRCLE_F, positions, argb);
+	}
+
+	/**
+	 * Creates a new {@link MappedPoints} object.
+	 * @param glyph to be used for rendering the points
+	 * @param positions interleaved x,y float coordinates from position 0 to the limit of the buffer
+	 * (the buffer's byte order is used)
+	 * @param argb integer packed ARGB colors from position 0 to the limit of the buffer, one per point,
+	 * or null for default color
+	 * @throws IllegalArgumentException when the sizes of the buffers do not match
+	 */
+	public MappedPoints(Glyph glyph, ByteBuffer positions, ByteBuffer argb) {
+		super(glyph);
+		this.positionData = positions.duplicate().order(positions.order());
+		this.positionData.position(0);
+		this.positions = this.positionData.asFloatBuffer();
+		this.size = this.positions.capacity()/2;
+		if(argb != null){
+			ByteBuffer colorData = argb.duplicate().order(argb.order());
+			colorData.position(0);
+			this.colors = colorData.asIntBuffer();
+			if(this.colors.capacity() != size){
+				throw new IllegalArgumentException("color buffer holds "+this.colors.capacity()+" colors, but there are "+size+" points.");
+			}
+		} else {
+			this.colors = null;
+		}
+	}
+
+	/**
+	 * Maps the columns of the specified file into memory (read only) and creates a {@link MappedPoints} object on them.
+	 * The file is closed after mapping, the mapping remains valid until the object is garbage collected.
+	 * @param file file containing the columns
+	 * @param positionOffset byte offset of the position column (numPoints*2 floats)
+	 * @param colorOffset byte offset of the color column (numPoints ints), or negative when there is none
+	 * @param numPoints number of points
+	 * @param order byte order of the file's columns
+	 * @return points of the file
+	 * @throws IOException when the file cannot be mapped
+	 * @throws IllegalArgumentException when a column exceeds 2GB (the limit of a single mapping)
+	 */
+	public static MappedPoints map(Path file, long positionOffset, long colorOffset, int numPoints, ByteOrder order) throws IOException {
+		if(numPoints*8L > Integer.MAX_VALUE){
+			throw new IllegalArgumentException("position column of "+numPoints+" points exceeds the maximum mapping size");
+		}
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+			ByteBuffer positions = channel.map(MapMode.READ_ONLY, positionOffset, numPoints*8L).order(order);
+			ByteBuffer colors = colorOffset < 0 ? null : channel.map(MapMode.READ_ONLY, colorOffset, numPoints*4L).order(order);
+			return new MappedPoints(positions, colors);
+		}
+	}
+
+	@Override
+	public int numPoints() {
+		return size;
+	}
+
+	protected void checkIndex(int idx) {
+		if(idx < 0 || idx >= size)
+			throw new IndexOutOfBoundsException("Index: "+idx+", Size: "+size);
+	}
+
+	/**
+	 * Returns a detached copy of the specified point, changes to it are not reflected.
+	 * @param idx index of the point
+	 * @return copy of point details
+	 */
+	@Override
+	public PointDetails getPoint(int idx) {
+		checkIndex(idx);
+		PointDetails pd = new PointDetails(new Point2D.Float(positions.get(idx*2), positions.get(idx*2+1)));
+		int color = getPointColor(idx);
+		pd.color = ()->color;
+		pd.pickColor = pickColor;
+		return pd;
+	}
+
+	@Override
+	public double getPointX(int idx) {
+		return positions.get(idx*2);
+	}
+
+	@Override
+	public double getPointY(int idx) {
+		return positions.get(idx*2+1);
+	}
+
+	@Override
+	public double getPointRotation(int idx) {
+		return 0;
+	}
+
+	@Override
+	public double getPointScaling(int idx) {
+		return 1;
+	}
+
+	@Override
+	public int getPointColor(int idx) {
+		return colors != null ? colors.get(idx) : DEFAULT_COLOR;
+	}
+
+	@Override
+	public int getPointPickColor(int idx) {
+		return pickColor;
+	}
+
+	/**
+	 * Sets the picking color of all points.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * Sets the {@link #isDirty()} state to true.
+	 * @param pickID picking color (see {@link Points} for details)
+	 * @return this for chaining
+	 */
+	public MappedPoints setPickColor(int pickID) {
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		this.pickColor = pickID;
+		this.isDirty = true;
+		this.modCount++;
+		return this;
+	}
+
+	/**
+	 * @return picking color of the points
+	 */
+	public int getPickColor() {
+		return pickColor;
+	}
+
+	/**
+	 * Not supported, points are read only.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public PointDetails addPoint(Point2D p) {
+		throw new UnsupportedOperationException("MappedPoints is read only.");
+	}
+
+	/**
+	 * Not supported, points are read only.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public PointDetails addPoint(double x, double y) {
+		throw new UnsupportedOperationException("MappedPoints is read only.");
+	}
+
+	/**
+	 * Not supported, points are read only.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Points addPoints(double[] xs, double[] ys, int[] argb, float[] scale) {
+		throw new UnsupportedOperationException("MappedPoints is read only.");
+	}
+
+	/**
+	 * Not supported, points are read only.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public Points removeAllPoints() {
+		throw new UnsupportedOperationException("MappedPoints is read only.");
+	}
+
+	/**
+	 * Returns a newly created list of detached copies of all points (see {@link #getPoint(int)}).
+	 * This allocates objects for every point, prefer index based access for huge datasets.
+	 * @return list of point copies
+	 */
+	@Override
+	public ArrayList<PointDetails> getPointDetails() {
+		ArrayList<PointDetails> list = new ArrayList<>(size);
+		for(int i=0; i<size; i++)
+			list.add(getPoint(i));
+		return list;
+	}
+
+	@Override
+	public boolean intersects(Rectangle2D rect) {
+		if(useSpatialIndex)
+			return getSpatialIndex().containsAny(rect);
+		for(int i=0; i<size; i++){
+			if(rect.contains(positions.get(i*2), positions.get(i*2+1)))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public List<PointDetails> getIntersectingPoints(Rectangle2D rect) {
+		int[] indices = getIntersectingPointIndices(rect);
+		ArrayList<PointDetails> intersecting = new ArrayList<>(indices.length);
+		for(int i : indices)
+			intersecting.add(getPoint(i));
+		return intersecting;
+	}
+
+	/**
+	 * Uploads all points to GL, the dirty range is ignored since points cannot change
+	 * (apart from the picking color which affects all points).
+	 */
+	@Override
+	@GLContextRequired
+	public void updateGLFloat() {
+		if(Objects.nonNull(va)){
+			if(positionData.order() == ByteOrder.nativeOrder()){
+				// straight from off heap memory
+				va.setBuffer(1, 2, positions.duplicate());
+			} else {
+				va.allocateBuffer(1, 2, GL11.GL_FLOAT, size*2);
+				FloatBuffer staging = ByteBuffer.allocateDirect(CHUNK_SIZE*2*Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+				for(int from=0; from<size; from+=CHUNK_SIZE){
+					int to = Math.min(size, from+CHUNK_SIZE);
+					staging.clear();
+					for(int k=from*2; k<to*2; k++)
+						staging.put(positions.get(k));
+					staging.flip();
+					va.updateBufferRange(1, from*2, staging);
+				}
+			}
+			uploadAttributes();
+			isDirty = false;
+			dirtyRange.clear();
+			isGLDoublePrecision = false;
+		}
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLDouble() {
+		if(Objects.nonNull(va)){
+			va.allocateBuffer(1, 2, GL11.GL_DOUBLE, size*2);
+			DoubleBuffer staging = ByteBuffer.allocateDirect(CHUNK_SIZE*2*Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+			for(int from=0; from<size; from+=CHUNK_SIZE){
+				int to = Math.min(size, from+CHUNK_SIZE);
+				staging.clear();
+				for(int k=from*2; k<to*2; k++)
+					staging.put(positions.get(k));
+				staging.flip();
+				va.updateBufferRange(1, from*2, staging);
+			}
+			uploadAttributes();
+			isDirty = false;
+			dirtyRange.clear();
+			isGLDoublePrecision = true;
+		}
+	}
+
+	/**
+	 * Uploads rotation and scaling (constant) and color and picking color in chunks
+	 * through off heap staging buffers.
+	 */
+	@GLContextRequired
+	protected void uploadAttributes() {
+		va.allocateBuffer(2, 2, GL11.GL_FLOAT, size*2);
+		va.allocateBuffer(3, 2, GL11.GL_UNSIGNED_INT, size*2);
+		FloatBuffer rotAndScale = ByteBuffer.allocateDirect(CHUNK_SIZE*2*Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+		for(int k=0; k<CHUNK_SIZE; k++)
+			rotAndScale.put(0f).put(1f);
+		IntBuffer colorAndPick = ByteBuffer.allocateDirect(CHUNK_SIZE*2*Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+		for(int from=0; from<size; from+=CHUNK_SIZE){
+			int to = Math.min(size, from+CHUNK_SIZE);
+			rotAndScale.position(0).limit((to-from)*2);
+			va.updateBufferRange(2, from*2, rotAndScale);
+			colorAndPick.clear();
+			for(int i=from; i<to; i++)
+				colorAndPick.put(getPointColor(i)).put(pickColor);
+			colorAndPick.flip();
+			va.updateBufferRange(3, from*2, colorAndPick);
+		}
+	}
+
+	@Override
+	protected boolean isPartialUpdatePossible(boolean useGLDoublePrecision) {
+		return false;
+	}
+
+}
@@ -12,9 +12,15 @@ import hageldave.jplotter.gl.FBO;
 import hageldave.jplotter.gl.VertexArray;
 import hageldave.jplotter.misc.DefaultGlyph;
 import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.renderers.PointsBatch;
 import hageldave.jplotter.renderers.PointsRenderer;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.DirtyRange;
+import hageldave.jplotter.util.GlyphRegistry;
+import hageldave.jplotter.util.IncrementalBounds;
+import hageldave.jplotter.util.PointGridIndex;
 import hageldave.jplotter.util.Utils;
+import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL33;
 
 import java.awt.*;
@@ -26,6 +32,7 @@ import java.util.Objects;
 import java.util.function.DoubleSupplier;
 import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The Points class is a collection of 2D points that are to be represented
@@ -45,6 +52,9 @@ import java.util.stream.Collectors;
  * point instances of this collection will be scaled at rendering ({@link #setGlobalScaling(double)}).
  * Also a global alpha multiplier which scales every points color alpha value, which can be used to introduce transparency
  * for all points of this collection, which may come in handy to visualize density when plotting a huge amount of points.
+ * <p>
+ * For a huge amount of points consider using {@link ColumnarPoints} which stores the point attributes
+ * in primitive arrays instead of {@link PointDetails} objects.
  * 
  * @author hageldave
  */
@@ -52,7 +62,14 @@ public class Points implements Renderable {
 
 	public Glyph glyph;
 	protected VertexArray va;
+	protected Glyph glyphInVA;
 	protected boolean isDirty;
+	protected DirtyRange dirtyRange = new DirtyRange();
+	protected volatile long modCount = 0;
+	protected IncrementalBounds bounds = new IncrementalBounds();
+	protected boolean useSpatialIndex = false;
+	protected PointGridIndex spatialIndex;
+	protected double maxPointScaling = Double.NaN;
 	protected DoubleSupplier globalScaling = ()->1.0;
 	protected DoubleSupplier globalAlphaMultiplier = ()->1.0;
 	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
@@ -88,6 +105,10 @@ public class Points implements Renderable {
 			va.close();
 			va = null;
 		}
+		if(Objects.nonNull(glyphInVA)){
+			GlyphRegistry.handbackGlyphGeometry(glyphInVA);
+			glyphInVA = null;
+		}
 	}
 
 	/**
@@ -100,9 +121,34 @@ public class Points implements Renderable {
 	public void initGL() {
 		if(Objects.isNull(va)){
 			va = new VertexArray(4);
+			va.setBufferUsage(1, GL15.GL_DYNAMIC_DRAW);
+			va.setBufferUsage(2, GL15.GL_DYNAMIC_DRAW);
+			va.setBufferUsage(3, GL15.GL_DYNAMIC_DRAW);
+			updateGlyphGeometry();
 			updateGL(false);		
 		}
 	}
+	
+	/**
+	 * Lets the vertex array reference the geometry of the current glyph (attribute 0 and indices),
+	 * which is shared with all other objects using the same glyph in the current GL context
+	 * (see {@link GlyphRegistry}). The geometry is thus only uploaded once per glyph and context.
+	 * Nothing happens when the glyph did not change since the last call or if {@link #initGL()} 
+	 * has not been called yet.
+	 */
+	@GLContextRequired
+	public void updateGlyphGeometry() {
+		if(Objects.isNull(va) || glyph == glyphInVA){
+			return;
+		}
+		VertexArray geometry = GlyphRegistry.getOrCreateGlyphGeometry(glyph);
+		if(Objects.nonNull(glyphInVA)){
+			GlyphRegistry.handbackGlyphGeometry(glyphInVA);
+		}
+		va.setSharedBuffer(0, geometry, 0);
+		va.setSharedIndices(glyph.useElementsDrawCall() ? geometry:null);
+		glyphInVA = glyph;
+	}
 
 	@Override
 	public void updateGL(boolean useGLDoublePrecision)
@@ -120,74 +166,194 @@ public class Points implements Renderable {
 	/**
 	 * Updates GL resources, i.e. fills the vertex array (if non null) according to
 	 * the state of this points object.
+	 * When only a range of points is dirty (see {@link #setDirty(int, int)}) and the
+	 * number of points did not change, only that range of the vertex array's buffers is updated.
 	 * This will set the {@link #isDirty()} state to false.
 	 */
 	@GLContextRequired
 	public void updateGLFloat() {
 		if(Objects.nonNull(va)){
-			final int numPoints = points.size();
-			float[] position = new float[numPoints*2];
-			float[] rotAndScale = new float[numPoints*2];
-			int[] colors = new int[numPoints*2];
-			for(int i=0; i<numPoints; i++){
-				PointDetails pd = points.get(i);
-				position[i*2+0] = (float)pd.location.getX();
-				position[i*2+1] = (float)pd.location.getY();
-				rotAndScale[i*2+0] = (float) pd.rot.getAsDouble();
-				rotAndScale[i*2+1] = (float) pd.scale.getAsDouble();
-				colors[i*2+0] = pd.color.getAsInt();
-				colors[i*2+1] = pd.pickColor;
+			boolean partial = isPartialUpdatePossible(false);
+			final int from = partial ? dirtyRange.getFrom():0;
+			final int to = partial ? dirtyRange.getTo():numPoints();
+			float[] position = new float[(to-from)*2];
+			float[] rotAndScale = new float[(to-from)*2];
+			int[] colors = new int[(to-from)*2];
+			fillGLBuffers(from, to, position, rotAndScale, colors, 0);
+			if(partial){
+				va.updateBufferRange(1, from*2, position);
+				va.updateBufferRange(2, from*2, rotAndScale);
+				va.updateBufferRange(3, from*2, colors);
+			} else {
+				va.setBuffer(1, 2, position);
+				va.setBuffer(2, 2, rotAndScale);
+				va.setBuffer(3, 2, false, colors);
 			}
-			va.setBuffer(1, 2, position);
-			va.setBuffer(2, 2, rotAndScale);
-			va.setBuffer(3, 2, false, colors);
 			isDirty = false;
+			dirtyRange.clear();
 			isGLDoublePrecision = false;
 		}
 	}
 
+	/**
+	 * Writes the single precision vertex attribute values of the points in range [from,to)
+	 * into the specified arrays (2 values per point each), starting at the specified point offset.
+	 * These are the values of the vertex array's attributes 1 (position), 2 (rotation and scaling) 
+	 * and 3 (color and picking color), see {@link #getVertexArray()}.
+	 * @param from index of first point (inclusive)
+	 * @param to index of last point (exclusive)
+	 * @param position array for the 2D locations
+	 * @param rotAndScale array for the rotations and scalings
+	 * @param colors array for the packed colors and picking colors
+	 * @param offset index of the point in the arrays to which point 'from' is written
+	 */
+	public void fillGLBuffers(int from, int to, float[] position, float[] rotAndScale, int[] colors, int offset) {
+		for(int i=from; i<to; i++){
+			int j = i-from+offset;
+			position[j*2+0] = (float)getPointX(i);
+			position[j*2+1] = (float)getPointY(i);
+			rotAndScale[j*2+0] = (float)getPointRotation(i);
+			rotAndScale[j*2+1] = (float)getPointScaling(i);
+			colors[j*2+0] = getPointColor(i);
+			colors[j*2+1] = getPointPickColor(i);
+		}
+	}
+	
+	/**
+	 * Sets the {@link #isDirty()} state to false without updating the vertex array.
+	 * This is used when the contents of this object were synced to GL resources other than its own
+	 * vertex array (e.g. a {@link PointsBatch}), in which case the vertex array has to be closed 
+	 * beforehand since it is out of sync.
+	 */
+	public void clearDirty() {
+		isDirty = false;
+		dirtyRange.clear();
+	}
+
 	/**
 	 * Updates GL resources, i.e. fills the vertex array (if non null) according to
 	 * the state of this points object.
+	 * When only a range of points is dirty (see {@link #setDirty(int, int)}) and the
+	 * number of points did not change, only that range of the vertex array's buffers is updated.
 	 * This will set the {@link #isDirty()} state to false.
 	 */
 	@GLContextRequired
 	public void updateGLDouble() {
 		if(Objects.nonNull(va)){
-			final int numPoints = points.size();
-			double[] position = new double[numPoints*2];
-			float[] rotAndScale = new float[numPoints*2];
-			int[] colors = new int[numPoints*2];
-			for(int i=0; i<numPoints; i++){
-				PointDetails pd = points.get(i);
-				position[i*2+0] = pd.location.getX();
-				position[i*2+1] = pd.location.getY();
-				rotAndScale[i*2+0] = (float) pd.rot.getAsDouble();
-				rotAndScale[i*2+1] = (float) pd.scale.getAsDouble();
-				colors[i*2+0] = pd.color.getAsInt();
-				colors[i*2+1] = pd.pickColor;
+			boolean partial = isPartialUpdatePossible(true);
+			final int from = partial ? dirtyRange.getFrom():0;
+			final int to = partial ? dirtyRange.getTo():numPoints();
+			double[] position = new double[(to-from)*2];
+			float[] rotAndScale = new float[(to-from)*2];
+			int[] colors = new int[(to-from)*2];
+			for(int i=from; i<to; i++){
+				int j = i-from;
+				position[j*2+0] = getPointX(i);
+				position[j*2+1] = getPointY(i);
+				rotAndScale[j*2+0] = (float)getPointRotation(i);
+				rotAndScale[j*2+1] = (float)getPointScaling(i);
+				colors[j*2+0] = getPointColor(i);
+				colors[j*2+1] = getPointPickColor(i);
+			}
+			if(partial){
+				va.updateBufferRange(1, from*2, position);
+				va.updateBufferRange(2, from*2, rotAndScale);
+				va.updateBufferRange(3, from*2, colors);
+			} else {
+				va.setBuffer(1, 2, position);
+				va.setBuffer(2, 2, rotAndScale);
+				va.setBuffer(3, 2, false, colors);
 			}
-			va.setBuffer(1, 2, position);
-			va.setBuffer(2, 2, rotAndScale);
-			va.setBuffer(3, 2, false, colors);
 			isDirty = false;
+			dirtyRange.clear();
 			isGLDoublePrecision = true;
 		}
 	}
+
+	/**
+	 * Tests whether the GL resources can be synced by only updating the dirty range,
+	 * which requires that not everything is dirty, the precision did not change and
+	 * the buffers are of matching size.
+	 * @param useGLDoublePrecision requested precision
+	 * @return true when a partial update suffices
+	 */
+	protected boolean isPartialUpdatePossible(boolean useGLDoublePrecision) {
+		return !isDirty
+				&& isGLDoublePrecision == useGLDoublePrecision
+				&& dirtyRange.isWithin(numPoints())
+				&& va.getBufferLength(1) == numPoints()*2;
+	}
 	
 	@Override
 	public boolean isDirty() {
-		return isDirty;
+		return isDirty || !dirtyRange.isEmpty();
 	}
 
 	/**
 	 * Sets the {@link #isDirty()} state to true.
+	 * This also invalidates the bounds (see {@link #getBounds()}) since the
+	 * locations of the points may have changed.
 	 * @return this for chaining
 	 */
 	public Points setDirty() {
 		this.isDirty = true;
+		this.bounds.invalidate();
+		invalidateCaches();
 		return this;
 	}
+
+	/**
+	 * Marks the points in the range [from, to) as dirty, which sets the {@link #isDirty()}
+	 * state to true.
+	 * Unless {@link #setDirty()} is called as well, only this range of points will be
+	 * uploaded to the GL resources on the next update.
+	 * Use this when only few points have been changed, e.g. when recoloring a single point.
+	 * @param from index of first changed point (inclusive)
+	 * @param to index after the last changed point (exclusive)
+	 * @return this for chaining
+	 */
+	public Points setDirty(int from, int to) {
+		markDirtyRange(from, to);
+		this.bounds.invalidate();
+		invalidateCaches();
+		return this;
+	}
+
+	/**
+	 * Marks the points in the range [from, to) for the next partial GL update
+	 * without invalidating the bounds.
+	 * Used by subclasses which maintain the bounds when changing points.
+	 * @param from index of first changed point (inclusive)
+	 * @param to index after the last changed point (exclusive)
+	 */
+	protected void markDirtyRange(int from, int to) {
+		this.dirtyRange.mark(from, to);
+		this.modCount++;
+	}
+
+	/**
+	 * Discards the data that is derived from the points and cached for queries,
+	 * i.e. the spatial index ({@link #getSpatialIndex()}) and the maximum point scaling
+	 * ({@link #getMaxPointScaling()}).
+	 * Needs to be called by every method that changes point locations or scalings.
+	 */
+	protected synchronized void invalidateCaches() {
+		this.spatialIndex = null;
+		this.maxPointScaling = Double.NaN;
+		this.modCount++;
+	}
+
+	/**
+	 * Returns the number of changes made to this object through its methods.
+	 * Changes made through {@link PointDetails} are only counted after calling
+	 * {@link #setDirty()} (or {@link #setDirty(int, int)}) as is required for GL updates.
+	 * In contrast to {@link #isDirty()}, this is not reset when GL resources are updated.
+	 * @return modification count
+	 */
+	@Override
+	public long getModificationCount() {
+		return modCount;
+	}
 	
 	/**
 	 * Adds a point to this {@link Points} object.
@@ -202,7 +368,9 @@ public class Points implements Renderable {
 	public PointDetails addPoint(Point2D p){
 		PointDetails pd = new PointDetails(p);
 		this.points.add(pd);
-		setDirty();
+		this.isDirty = true;
+		this.bounds.include(p.getX(), p.getY());
+		invalidateCaches();
 		return pd;
 	}
 	
@@ -221,6 +389,58 @@ public class Points implements Renderable {
 		return addPoint(new Point2D.Double(x, y));
 	}
 
+	/**
+	 * Adds the specified points to this {@link Points} object in bulk.
+	 * This sets the {@link #isDirty()} state to true once for all added points.
+	 * @param xs x coordinates of the points
+	 * @param ys y coordinates of the points
+	 * @param argb integer packed ARGB colors of the points, or null for default color
+	 * @param scale glyph scalings of the points, or null for default scaling
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	public Points addPoints(double[] xs, double[] ys, int[] argb, float[] scale){
+		final int n = checkBulkArrays(xs, ys, argb, scale);
+		this.points.ensureCapacity(this.points.size()+n);
+		for(int i=0; i<n; i++){
+			PointDetails pd = new PointDetails(new Point2D.Double(xs[i], ys[i]));
+			if(argb != null)
+				pd.setColor(argb[i]);
+			if(scale != null)
+				pd.setScaling(scale[i]);
+			this.points.add(pd);
+			this.bounds.include(xs[i], ys[i]);
+		}
+		this.isDirty = true;
+		invalidateCaches();
+		return this;
+	}
+
+	/**
+	 * Adds the specified points to this {@link Points} object in bulk.
+	 * This sets the {@link #isDirty()} state to true once for all added points.
+	 * @param xs x coordinates of the points
+	 * @param ys y coordinates of the points
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	public Points addPoints(double[] xs, double[] ys){
+		return addPoints(xs, ys, null, null);
+	}
+
+	/**
+	 * Checks that the specified arrays (of which argb and scale may be null) are of the same length.
+	 * @return the length of the arrays
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	protected static int checkBulkArrays(double[] xs, double[] ys, int[] argb, float[] scale){
+		final int n = xs.length;
+		if(ys.length != n || (argb != null && argb.length != n) || (scale != null && scale.length != n)){
+			throw new IllegalArgumentException("specified arrays differ in length, need "+n+" elements in each.");
+		}
+		return n;
+	}
+
 	/**
 	 * Clears this collection of points.
 	 * This set the {@link #isDirty()} to true.
@@ -228,7 +448,10 @@ public class Points implements Renderable {
 	 */
 	public Points removeAllPoints(){
 		this.points.clear();
-		return setDirty();
+		this.isDirty = true;
+		this.bounds.reset();
+		invalidateCaches();
+		return this;
 	}
 
 	/**
@@ -238,6 +461,88 @@ public class Points implements Renderable {
 		return points.size();
 	}
 
+	/**
+	 * Returns the details of the point at the specified index.
+	 * @param idx index of the point
+	 * @return point details
+	 */
+	public PointDetails getPoint(int idx){
+		return points.get(idx);
+	}
+
+	/**
+	 * Index based access to the x coordinate of a point.
+	 * Renderers use the index based accessors of this class to read the point data
+	 * so that subclasses can provide a different storage (e.g. {@link ColumnarPoints}).
+	 * @param idx index of the point
+	 * @return x coordinate of the point
+	 */
+	public double getPointX(int idx){
+		return points.get(idx).location.getX();
+	}
+
+	/**
+	 * @param idx index of the point
+	 * @return y coordinate of the point
+	 * @see #getPointX(int)
+	 */
+	public double getPointY(int idx){
+		return points.get(idx).location.getY();
+	}
+
+	/**
+	 * @param idx index of the point
+	 * @return rotation of the point's glyph in radian
+	 * @see #getPointX(int)
+	 */
+	public double getPointRotation(int idx){
+		return points.get(idx).rot.getAsDouble();
+	}
+
+	/**
+	 * @param idx index of the point
+	 * @return scaling of the point's glyph
+	 * @see #getPointX(int)
+	 */
+	public double getPointScaling(int idx){
+		return points.get(idx).scale.getAsDouble();
+	}
+
+	/**
+	 * Returns the largest scaling of all points (without global scaling), e.g. for bounding the
+	 * extent of the glyphs around the point locations.
+	 * The value is cached until points are added, removed, rescaled (through the setters of this object) or marked dirty.
+	 * @return maximum point scaling or 0 when there are no points
+	 * @see #getPointScaling(int)
+	 */
+	public synchronized double getMaxPointScaling() {
+		if(Double.isNaN(maxPointScaling)){
+			double max = 0;
+			for(int i=0; i<numPoints(); i++)
+				max = Math.max(max, Math.abs(getPointScaling(i)));
+			maxPointScaling = max;
+		}
+		return maxPointScaling;
+	}
+
+	/**
+	 * @param idx index of the point
+	 * @return integer packed ARGB color of the point
+	 * @see #getPointX(int)
+	 */
+	public int getPointColor(int idx){
+		return points.get(idx).color.getAsInt();
+	}
+
+	/**
+	 * @param idx index of the point
+	 * @return picking color of the point
+	 * @see #getPointX(int)
+	 */
+	public int getPointPickColor(int idx){
+		return points.get(idx).pickColor;
+	}
+
 	/**
 	 * Sets the global scaling parameter of this {@link Points} object.
 	 * The value will be multiplied with each point instance's scaling parameter when rendering.
@@ -259,6 +564,7 @@ public class Points implements Renderable {
 	 */
 	public Points setGlobalScaling(DoubleSupplier globalScaling) {
 		this.globalScaling = globalScaling;
+		this.modCount++;
 		return this;
 	}
 
@@ -291,6 +597,7 @@ public class Points implements Renderable {
 	 */
 	public Points setGlobalAlphaMultiplier(DoubleSupplier globalAlphaMultiplier) {
 		this.globalAlphaMultiplier = globalAlphaMultiplier;
+		this.modCount++;
 		return this;
 	}
 
@@ -311,6 +618,7 @@ public class Points implements Renderable {
 	 */
 	public Points setGlobalSaturationMultiplier(DoubleSupplier saturation) {
 		this.globalSaturationMultiplier = saturation;
+		this.modCount++;
 		return this;
 	}
 
@@ -333,34 +641,71 @@ public class Points implements Renderable {
 	}
 	
 	/**
+	 * Returns the bounding rectangle that encloses all points in this {@link Points} object.
+	 * The bounds are maintained incrementally when adding points, so this is cheap to call
+	 * e.g. for fitting the view to the data on every data update.
+	 * After {@link #setDirty()} (which indicates that points may have been changed or removed)
+	 * the bounds are recomputed once in a single pass on the next call.
 	 * @return the bounding rectangle that encloses all points in this {@link Points} object.
 	 */
 	public Rectangle2D getBounds(){
-		if(numPoints() < 1)
-			return new Rectangle2D.Double();
-		
-		boolean useParallelStreaming = numPoints() > 1000;
-		double minX = Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
-				.map(pd->pd.location)
-				.mapToDouble(Point2D::getX)
-				.min().getAsDouble();
-		double maxX = Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
-				.map(pd->pd.location)
-				.mapToDouble(Point2D::getX)
-				.max().getAsDouble();
-		double minY = Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
-				.map(pd->pd.location)
-				.mapToDouble(Point2D::getY)
-				.min().getAsDouble();
-		double maxY = Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
-				.map(pd->pd.location)
-				.mapToDouble(Point2D::getY)
-				.max().getAsDouble();
-		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+		if(!bounds.isValid() || bounds.getCount() != numPoints()){
+			recomputeBounds();
+		}
+		return bounds.toRect();
+	}
+
+	/**
+	 * Recomputes the bounds (see {@link #getBounds()}) in a single pass over all points.
+	 */
+	protected void recomputeBounds() {
+		bounds.reset();
+		for(int i=0; i<numPoints(); i++){
+			bounds.include(getPointX(i), getPointY(i));
+		}
 	}
 	
+	/**
+	 * Enables or disables the use of a spatial index for rectangle queries ({@link #intersects(Rectangle2D)},
+	 * {@link #getIntersectingPoints(Rectangle2D)}, {@link #getIntersectingPointIndices(Rectangle2D)}).
+	 * The index ({@link PointGridIndex}) is built lazily on the first query and discarded whenever points are
+	 * added, removed or marked dirty. It pays off when many queries are made between changes,
+	 * e.g. when brushing with a {@link hageldave.jplotter.interaction.CoordSysViewSelector}.
+	 * Disabled by default.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public Points setSpatialIndexEnabled(boolean enable) {
+		this.useSpatialIndex = enable;
+		if(!enable)
+			invalidateCaches();
+		return this;
+	}
+
+	/**
+	 * @return true when a spatial index is used for rectangle queries (see {@link #setSpatialIndexEnabled(boolean)}).
+	 */
+	public boolean isSpatialIndexEnabled() {
+		return useSpatialIndex;
+	}
+
+	/**
+	 * Returns the spatial index of this {@link Points} object, which is built when
+	 * it does not exist yet or has been discarded due to changes.
+	 * Synchronized since renderers may query concurrently (e.g. tiled fallback rendering).
+	 * @return the spatial index
+	 */
+	public synchronized PointGridIndex getSpatialIndex() {
+		if(spatialIndex == null || spatialIndex.numPoints() != numPoints()){
+			spatialIndex = new PointGridIndex(numPoints(), this::getPointX, this::getPointY);
+		}
+		return spatialIndex;
+	}
+
 	@Override
 	public boolean intersects(Rectangle2D rect) {
+		if(useSpatialIndex)
+			return getSpatialIndex().containsAny(rect);
 		boolean useParallelStreaming = numPoints() > 10000;
 		return Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
 				.filter(p->rect.contains(p.location))
@@ -374,11 +719,32 @@ public class Points implements Renderable {
 	 * @return list of contained points
 	 */
 	public List<PointDetails> getIntersectingPoints(Rectangle2D rect) {
+		if(useSpatialIndex){
+			int[] indices = getSpatialIndex().getContained(rect);
+			ArrayList<PointDetails> intersecting = new ArrayList<>(indices.length);
+			for(int i : indices)
+				intersecting.add(getPoint(i));
+			return intersecting;
+		}
 		boolean useParallelStreaming = numPoints() > 10000;
 		return Utils.parallelize(getPointDetails().stream(), useParallelStreaming)
 				.filter(p->rect.contains(p.location))
 				.collect(Collectors.toList());
 	}
+
+	/**
+	 * Returns the indices of the points that are contained in the specified rectangle.
+	 * This avoids creating a list of {@link PointDetails} which matters for large selections.
+	 * @param rect rectangle to test intersection
+	 * @return indices of contained points in ascending order
+	 */
+	public int[] getIntersectingPointIndices(Rectangle2D rect) {
+		if(useSpatialIndex)
+			return getSpatialIndex().getContained(rect);
+		return IntStream.range(0, numPoints())
+				.filter(i->rect.contains(getPointX(i), getPointY(i)))
+				.toArray();
+	}
 	
 	@Override
 	@DebugGetter(ID = "hidden")
@@ -397,6 +763,7 @@ public class Points implements Renderable {
 	@DebugSetter(ID = "hidden", creator = ButtonCreator.class)
 	public Points hide(boolean hide) {
 		this.hidden = hide;
+		this.modCount++;
 		return this;
 	}
 	
@@ -613,6 +980,7 @@ public class Points implements Renderable {
 	@DebugSetter(ID = "useVertexRounding", creator = ButtonCreator.class)
 	public Points setVertexRoundingEnabled(boolean useVertexRounding) {
 		this.useVertexRounding = useVertexRounding;
+		this.modCount++;
 		return this;
 	}
 
@@ -629,6 +997,7 @@ public class Points implements Renderable {
 	@DebugSetter(ID = "glyph", creator = GlyphSelector.class)
 	public Points setGlyph(Glyph glyph) {
 		this.glyph = glyph;
+		this.modCount++;
 		return this;
 	}
 
@@ -72,5 +72,16 @@ public interface Renderable extends AutoCloseable {
 	 * @return true when hidden
 	 */
 	public default boolean isHidden() {return false;}
+	
+	/**
+	 * Returns a counter of changes to this Renderable that is incremented whenever
+	 * its appearance changes. Unlike {@link #isDirty()} it is not reset by {@link #updateGL(boolean)},
+	 * so that renderers can detect changes independently of GL resources, e.g. for
+	 * caching images of the fallback rendering.
+	 * A negative value means that changes are not tracked, in which case the Renderable
+	 * has to be considered changed at any time.
+	 * @return modification count, or -1 when changes are not tracked (default)
+	 */
+	public default long getModificationCount() {return -1;}
 
 }
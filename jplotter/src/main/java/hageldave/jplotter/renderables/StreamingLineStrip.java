@@ -0,0 +1,516 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.renderers.LinesRenderer;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.Utils;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The StreamingLineStrip class is a {@link Lines} implementation of fixed capacity
+ * that represents a single line strip through a sequence of samples, e.g. a live time series
+ * where new samples arrive continuously and the oldest ones are dropped.
+ * The samples are stored in primitive arrays that are used as a ring buffer, i.e. appending a
+ * sample when the capacity is exhausted overwrites the oldest sample in O(1).
+ * <p>
+ * The GL buffers mirror the ring buffer (one segment per storage slot, connecting the sample
+ * of that slot to the next one), so that an update of the GL resources only uploads the segments
+ * that are affected by the samples appended since the last update.
+ * The segment that would connect the newest to the oldest sample (the seam of the ring) is kept
+ * in the buffers as an invisible segment of zero thickness, which is why
+ * {@link #numGLSegments()} may differ from {@link #numSegments()}.
+ * With a stroke pattern ({@link #setStrokePattern(int)}) the path lengths depend on all samples
+ * so that every update is a full update.
+ * <p>
+ * Segments added through the methods of {@link Lines} (e.g. {@link #addSegment(Point2D, Point2D)})
+ * append their end points as samples, {@link #appendSample(double, double, int)} is the direct way.
+ * {@link #getSegments()} returns a newly created list of segments in chronological order that
+ * is used by the fallback and export rendering of the {@link LinesRenderer},
+ * changes to that list or its segments are not reflected by this object.
+ * All segments share the same thickness ({@link #setThickness(double)}) and picking color
+ * ({@link #setPickColor(int)}).
+ *
+ * @author hageldave
+ */
+public class StreamingLineStrip extends Lines {
+
+	protected static final int DEFAULT_COLOR = 0xff555555;
+
+	protected final int capacity;
+	protected final double[] xs;
+	protected final double[] ys;
+	protected final int[] colors;
+	protected int size = 0;
+	/** storage index of the oldest sample */
+	protected int head = 0;
+	/** number of samples appended since the last GL update */
+	protected int numAppended = 0;
+
+	protected float thickness = 1f;
+	protected int pickColor = 0;
+
+	/**
+	 * Creates a new {@link StreamingLineStrip} of specified capacity.
+	 * @param capacity maximum number of samples, when exceeded the oldest samples are evicted
+	 * @throws IllegalArgumentException when capacity is smaller than 2
+	 */
+	public StreamingLineStrip(int capacity) {
+		if(capacity < 2){
+			throw new IllegalArgumentException("capacity needs to be at least 2, but got " + capacity);
+		}
+		this.capacity = capacity;
+		this.xs = new double[capacity];
+		this.ys = new double[capacity];
+		this.colors = new int[capacity];
+	}
+
+	/**
+	 * @return the maximum number of samples this line strip holds
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return true when the capacity is exhausted, i.e. appending a sample will evict the oldest one
+	 */
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * @return the number of samples of this line strip
+	 */
+	public int numSamples() {
+		return size;
+	}
+
+	@Override
+	public int numSegments() {
+		return Math.max(0, size-1);
+	}
+
+	@Override
+	public int numGLSegments() {
+		return size == capacity ? capacity : numSegments();
+	}
+	
+	/**
+	 * @return false since the segments are kept in a ring buffer instead of the segment list
+	 */
+	@Override
+	public boolean isBatchable() {
+		return false;
+	}
+
+	/**
+	 * Maps the chronological index of a sample (0 is the oldest) to its storage index.
+	 * @param idx index of the sample
+	 * @return storage index
+	 */
+	protected int slot(int idx) {
+		int slot = head+idx;
+		return slot >= capacity ? slot-capacity : slot;
+	}
+
+	protected void checkIndex(int idx) {
+		if(idx < 0 || idx >= size)
+			throw new IndexOutOfBoundsException("Index: "+idx+", Size: "+size);
+	}
+
+	/**
+	 * @param idx chronological index of the sample (0 is the oldest)
+	 * @return x coordinate of the sample
+	 */
+	public double getSampleX(int idx) {
+		checkIndex(idx);
+		return xs[slot(idx)];
+	}
+
+	/**
+	 * @param idx chronological index of the sample (0 is the oldest)
+	 * @return y coordinate of the sample
+	 */
+	public double getSampleY(int idx) {
+		checkIndex(idx);
+		return ys[slot(idx)];
+	}
+
+	/**
+	 * @param idx chronological index of the sample (0 is the oldest)
+	 * @return integer packed ARGB color of the sample
+	 */
+	public int getSampleColor(int idx) {
+		checkIndex(idx);
+		return colors[slot(idx)];
+	}
+
+	/**
+	 * Appends a sample with default color to this line strip.
+	 * @param x coordinate of the sample
+	 * @param y coordinate of the sample
+	 * @return this for chaining
+	 * @see #appendSample(double, double, int)
+	 */
+	public StreamingLineStrip appendSample(double x, double y) {
+		return appendSample(x, y, DEFAULT_COLOR);
+	}
+
+	/**
+	 * Appends a sample to this line strip, which connects it to the previously appended sample.
+	 * When the capacity is exhausted, the oldest sample is evicted.
+	 * This sets the {@link #isDirty()} state to true, but only the affected segments
+	 * will be uploaded on the next GL update.
+	 * @param x coordinate of the sample
+	 * @param y coordinate of the sample
+	 * @param argb integer packed ARGB color of the sample
+	 * @return this for chaining
+	 */
+	public StreamingLineStrip appendSample(double x, double y, int argb) {
+		int slot;
+		if(size < capacity){
+			slot = slot(size++);
+		} else {
+			slot = head;
+			head = head+1 == capacity ? 0 : head+1;
+			bounds.exclude(xs[slot], ys[slot]);
+		}
+		xs[slot] = x;
+		ys[slot] = y;
+		colors[slot] = argb;
+		bounds.include(x, y);
+		numAppended = Math.min(numAppended+1, capacity);
+		this.modCount++;
+		return this;
+	}
+
+	/**
+	 * Appends the specified samples in bulk.
+	 * When more samples than the capacity are specified, only the last ones are kept.
+	 * @param xs x coordinates of the samples
+	 * @param ys y coordinates of the samples
+	 * @param argb integer packed ARGB colors of the samples, or null for default color
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 * @see #appendSample(double, double, int)
+	 */
+	public StreamingLineStrip appendSamples(double[] xs, double[] ys, int[] argb) {
+		final int n = xs.length;
+		if(ys.length != n || (argb != null && argb.length != n)){
+			throw new IllegalArgumentException("specified arrays differ in length, need "+n+" elements in each.");
+		}
+		for(int i=Math.max(0, n-capacity); i<n; i++){
+			appendSample(xs[i], ys[i], argb != null ? argb[i] : DEFAULT_COLOR);
+		}
+		return this;
+	}
+
+	/**
+	 * Appends the end points of the specified segment as samples.
+	 * When the start point coincides with the newest sample, only the end point is appended, 
+	 * which extends the strip by the specified segment (e.g. when adding consecutive segments through
+	 * {@link #addLineStrip(double[], double[])}). Otherwise both points are appended, which also connects 
+	 * the newest sample to the start point since the strip is contiguous.
+	 * The appended samples have the default color.
+	 * @param p1 start point
+	 * @param p2 end point
+	 * @return a detached copy of the added segment (see {@link #getSegments()})
+	 * @see #appendSample(double, double, int)
+	 */
+	@Override
+	public SegmentDetails addSegment(Point2D p1, Point2D p2) {
+		appendSegment(p1.getX(), p1.getY(), p2.getX(), p2.getY(), DEFAULT_COLOR, DEFAULT_COLOR);
+		return createSegment(numSegments()-1);
+	}
+
+	/**
+	 * Appends the end points of the specified segments as samples, 
+	 * see {@link #addSegment(Point2D, Point2D)} and {@link Lines#addSegments(double[], int[])}.
+	 * @param coords (x1,y1,x2,y2) quadruples of the segments
+	 * @param colors integer packed ARGB colors of the segments (per segment or per vertex), or null for default color
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the number of coordinate values is not a multiple of 4 or
+	 * the number of colors does not match the number of segments or vertices.
+	 */
+	@Override
+	public StreamingLineStrip addSegments(double[] coords, int[] colors) {
+		final int n = checkSegmentArrays(coords, colors);
+		final boolean perVertexColor = colors != null && colors.length == n*2;
+		for(int i=0; i<n; i++){
+			int c1 = colors == null ? DEFAULT_COLOR : colors[perVertexColor ? i*2:i];
+			int c2 = colors == null ? DEFAULT_COLOR : colors[perVertexColor ? i*2+1:i];
+			appendSegment(coords[i*4+0], coords[i*4+1], coords[i*4+2], coords[i*4+3], c1, c2);
+		}
+		return this;
+	}
+
+	/**
+	 * Appends the start point (unless it coincides with the newest sample, which keeps its color)
+	 * and the end point of a segment.
+	 */
+	protected void appendSegment(double x1, double y1, double x2, double y2, int argb1, int argb2) {
+		int newest = size > 0 ? slot(size-1) : -1;
+		if(newest < 0 || xs[newest] != x1 || ys[newest] != y1)
+			appendSample(x1, y1, argb1);
+		appendSample(x2, y2, argb2);
+	}
+
+	/**
+	 * Removes all samples of this line strip.
+	 * Sets the {@link #isDirty()} state to true.
+	 * @return this for chaining
+	 */
+	@Override
+	public StreamingLineStrip removeAllSegments() {
+		size = 0;
+		head = 0;
+		numAppended = 0;
+		isDirty = true;
+		this.modCount++;
+		bounds.reset();
+		return this;
+	}
+
+	/**
+	 * Sets the thickness of all segments of this line strip.
+	 * Sets the {@link #isDirty()} state to true.
+	 * @param thickness of the segments, default is 1
+	 * @return this for chaining
+	 */
+	public StreamingLineStrip setThickness(double thickness) {
+		this.thickness = (float)thickness;
+		this.isDirty = true;
+		this.modCount++;
+		return this;
+	}
+
+	/**
+	 * @return thickness of the segments of this line strip
+	 */
+	public float getThickness() {
+		return thickness;
+	}
+
+	/**
+	 * Sets the picking color of all segments of this line strip.
+	 * When a non 0 transparent color is specified its alpha channel will be set to 0xff to make it opaque.
+	 * Sets the {@link #isDirty()} state to true.
+	 * @param pickID picking color (see {@link Lines} for details)
+	 * @return this for chaining
+	 */
+	public StreamingLineStrip setPickColor(int pickID) {
+		if(pickID != 0)
+			pickID = pickID | 0xff000000;
+		this.pickColor = pickID;
+		this.isDirty = true;
+		this.modCount++;
+		return this;
+	}
+
+	/**
+	 * @return picking color of the segments of this line strip
+	 */
+	public int getPickColor() {
+		return pickColor;
+	}
+
+	/**
+	 * Returns a newly created list of the segments in chronological order.
+	 * Changes to the list or its segments are not reflected by this object.
+	 * @return list of segments
+	 */
+	@Override
+	public ArrayList<SegmentDetails> getSegments() {
+		ArrayList<SegmentDetails> segments = new ArrayList<>(numSegments());
+		for(int i=0; i<numSegments(); i++){
+			segments.add(createSegment(i));
+		}
+		return segments;
+	}
+
+	/**
+	 * Creates a detached segment connecting the samples idx and idx+1.
+	 * @param idx chronological index of the start sample
+	 * @return segment
+	 */
+	protected SegmentDetails createSegment(int idx) {
+		int a = slot(idx), b = slot(idx+1);
+		SegmentDetails seg = new SegmentDetails(new Point2D.Double(xs[a], ys[a]), new Point2D.Double(xs[b], ys[b]));
+		seg.setColor0(colors[a]).setColor1(colors[b]).setThickness(thickness);
+		seg.pickColor = pickColor;
+		return seg;
+	}
+
+	@Override
+	protected boolean isBoundsValid() {
+		return bounds.isValid() && bounds.getCount() == size;
+	}
+
+	@Override
+	protected void recomputeBounds() {
+		bounds.reset();
+		// all storage slots in [0,size) are occupied
+		for(int i=0; i<size; i++){
+			bounds.include(xs[i], ys[i]);
+		}
+	}
+
+	@Override
+	public boolean intersects(Rectangle2D rect) {
+		for(int i=0; i<numSegments(); i++){
+			int a = slot(i), b = slot(i+1);
+			if(rect.intersectsLine(xs[a], ys[a], xs[b], ys[b]))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public List<SegmentDetails> getIntersectingSegments(Rectangle2D rect) {
+		ArrayList<SegmentDetails> intersecting = new ArrayList<>();
+		for(int i=0; i<numSegments(); i++){
+			int a = slot(i), b = slot(i+1);
+			if(rect.intersectsLine(xs[a], ys[a], xs[b], ys[b]))
+				intersecting.add(createSegment(i));
+		}
+		return intersecting;
+	}
+
+	@Override
+	public boolean isDirty() {
+		return super.isDirty() || numAppended > 0;
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLFloat(double scaleX, double scaleY) {
+		updateGLRing(false, scaleX, scaleY);
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLDouble(double scaleX, double scaleY) {
+		updateGLRing(true, scaleX, scaleY);
+	}
+
+	/**
+	 * Updates the GL resources according to the ring buffer.
+	 * The vertex array's buffers are allocated for one segment per storage slot, so that
+	 * the segments affected by appended samples can be written to their storage position.
+	 * @param useGLDoublePrecision requested precision
+	 * @param scaleX scaling of the x coordinate of the current view transform
+	 * @param scaleY scaling of the y coordinate of the current view transform
+	 */
+	@GLContextRequired
+	protected void updateGLRing(boolean useGLDoublePrecision, double scaleX, double scaleY) {
+		if(Objects.nonNull(va)){
+			// samples cannot be changed other than by appending, a dirty range is treated as fully dirty
+			boolean partial = isPartialUpdatePossible(useGLDoublePrecision) && dirtyRange.isEmpty();
+			if(partial && numAppended > 0){
+				// segment preceding the first appended sample changes its end point,
+				// segment of the last appended sample becomes the seam
+				int first = Math.max(0, size-1-numAppended);
+				int count = Math.min(capacity, size-first);
+				int from = slot(first);
+				int to = from+count;
+				if(to <= capacity){
+					uploadSegmentSlots(from, to, useGLDoublePrecision, null);
+				} else {
+					uploadSegmentSlots(from, capacity, useGLDoublePrecision, null);
+					uploadSegmentSlots(0, to-capacity, useGLDoublePrecision, null);
+				}
+				pathLengthsStale = true;
+			} else if(!partial){
+				float[] pathLengths = new float[capacity*2];
+				double pathLen = 0;
+				for(int i=0; i<numSegments(); i++){
+					int a = slot(i), b = slot(i+1);
+					double segLen = Utils.hypot((xs[b]-xs[a])*scaleX, (ys[b]-ys[a])*scaleY);
+					pathLengths[a*2+0] = (float)pathLen;
+					pathLengths[a*2+1] = (float)(pathLen += segLen);
+					pathLen = pathLen % strokeLength;
+				}
+				uploadSegmentSlots(0, capacity, useGLDoublePrecision, pathLengths);
+				pathLengthsStale = false;
+			}
+			isDirty = false;
+			dirtyRange.clear();
+			numAppended = 0;
+			isGLDoublePrecision = useGLDoublePrecision;
+		}
+	}
+
+	/**
+	 * Uploads the segments of the storage range [from, to) to the vertex array.
+	 * Segments that do not connect two samples (unoccupied slots and the seam) are uploaded
+	 * as invisible segments of zero thickness.
+	 * @param from first storage index (inclusive)
+	 * @param to last storage index (exclusive)
+	 * @param useGLDoublePrecision whether to use double precision positions
+	 * @param pathLengths path lengths for a full update which reallocates the buffers,
+	 * or null to update only the range of the existing buffers
+	 */
+	@GLContextRequired
+	protected void uploadSegmentSlots(int from, int to, boolean useGLDoublePrecision, float[] pathLengths) {
+		final int n = to-from;
+		final int newest = size > 0 ? slot(size-1) : -1;
+		double[] coords = new double[n*4];
+		int[] colorBuffer = new int[n*2];
+		int[] pickBuffer = new int[n*2];
+		float[] thicknessBuffer = new float[n*2];
+		for(int j=0; j<n; j++){
+			int a = from+j;
+			if(a >= size || a == newest){
+				// invisible segment, coordinates are not relevant
+				continue;
+			}
+			int b = a+1 == capacity ? 0 : a+1;
+			coords[j*4+0] = xs[a];
+			coords[j*4+1] = ys[a];
+			coords[j*4+2] = xs[b];
+			coords[j*4+3] = ys[b];
+			colorBuffer[j*2+0] = colors[a];
+			colorBuffer[j*2+1] = colors[b];
+			pickBuffer[j*2+0] = pickBuffer[j*2+1] = pickColor;
+			thicknessBuffer[j*2+0] = thicknessBuffer[j*2+1] = thickness;
+		}
+		boolean partial = pathLengths == null;
+		if(useGLDoublePrecision){
+			if(partial)
+				va.updateBufferRange(0, from*4, coords);
+			else
+				va.setBuffer(0, 2, coords);
+		} else {
+			float[] coordsF = new float[n*4];
+			for(int k=0; k<coordsF.length; k++)
+				coordsF[k] = (float)coords[k];
+			if(partial)
+				va.updateBufferRange(0, from*4, coordsF);
+			else
+				va.setBuffer(0, 2, coordsF);
+		}
+		if(partial){
+			va.updateBufferRange(1, from*2, colorBuffer);
+			va.updateBufferRange(2, from*2, pickBuffer);
+			va.updateBufferRange(3, from*2, thicknessBuffer);
+		} else {
+			va.setBuffer(1, 1, false, colorBuffer);
+			va.setBuffer(2, 1, false, pickBuffer);
+			va.setBuffer(3, 1, thicknessBuffer);
+			va.setBuffer(4, 1, pathLengths);
+		}
+	}
+
+	@Override
+	protected boolean isPartialUpdatePossible(boolean useGLDoublePrecision) {
+		return !isDirty
+				&& !hasStrokePattern()
+				&& isGLDoublePrecision == useGLDoublePrecision
+				&& va.getBufferLength(0) == capacity*4;
+	}
+
+}
@@ -0,0 +1,392 @@
+package hageldave.jplotter.renderables;
+
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The StreamingPoints class is a {@link ColumnarPoints} implementation of fixed capacity
+ * that is meant for live data, e.g. a time series where new samples arrive continuously
+ * and the oldest ones are dropped.
+ * The columns are used as a ring buffer, i.e. appending a point when the capacity is exhausted
+ * overwrites the oldest point in O(1) instead of shifting all points.
+ * <p>
+ * The GL buffers mirror the ring buffer, so that an update of the GL resources only uploads the
+ * points that have been appended since the last update (as well as points changed through the index based
+ * setters). In contrast to {@link ColumnarPoints}, appending points does not set the full {@link #isDirty()} state.
+ * <p>
+ * Index based access (e.g. {@link #getPointX(int)}) is in chronological order, index 0 refers to the oldest point.
+ * Consequently the index of a point decreases when older points are evicted, which also applies to the
+ * {@link PointDetails} views returned by this object.
+ * On the GPU the points are drawn in storage order, which differs from the chronological order once the
+ * ring buffer has wrapped around. Fallback and export rendering use the chronological order.
+ *
+ * @author hageldave
+ */
+public class StreamingPoints extends ColumnarPoints {
+
+	protected final int capacity;
+	/** storage index of the oldest point */
+	protected int head = 0;
+	/** number of points appended since the last GL update */
+	protected int numAppended = 0;
+
+	/**
+	 * Creates a new {@link StreamingPoints} object which uses {@link DefaultGlyph#CIRCLE_F} for displaying its points.
+	 * @param capacity maximum number of points, when exceeded the oldest points are evicted
+	 */
+	public StreamingPoints(int capacity) {
+		this(DefaultGlyph.CIRCLE_F, capacity);
+	}
+
+	/**
+	 * Creates a new {@link StreamingPoints} object which uses the specified {@link Glyph} for displaying its points.
+	 * @param glyph to be used for rendering single points
+	 * @param capacity maximum number of points, when exceeded the oldest points are evicted
+	 * @throws IllegalArgumentException when capacity is not positive
+	 */
+	public StreamingPoints(Glyph glyph, int capacity) {
+		super(glyph, checkCapacity(capacity));
+		this.capacity = capacity;
+	}
+
+	private static int checkCapacity(int capacity) {
+		if(capacity < 1){
+			throw new IllegalArgumentException("capacity needs to be positive, but got " + capacity);
+		}
+		return capacity;
+	}
+
+	/**
+	 * @return the maximum number of points this object holds
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return true when the capacity is exhausted, i.e. appending a point will evict the oldest one
+	 */
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * The capacity of {@link StreamingPoints} is fixed, this does nothing.
+	 * @param capacity ignored
+	 * @return this for chaining
+	 */
+	@Override
+	public StreamingPoints ensureCapacity(int capacity) {
+		return this;
+	}
+
+	@Override
+	protected int slot(int idx) {
+		int slot = head+idx;
+		return slot >= capacity ? slot-capacity : slot;
+	}
+
+	/**
+	 * Reserves the storage slot for a new point, evicting the oldest point when full.
+	 * @return storage index for the new point
+	 */
+	protected int appendSlot() {
+		int slot;
+		if(size < capacity){
+			slot = slot(size++);
+		} else {
+			slot = head;
+			head = head+1 == capacity ? 0 : head+1;
+		}
+		numAppended = Math.min(numAppended+1, capacity);
+		return slot;
+	}
+
+	/**
+	 * Appends a point to this {@link StreamingPoints} object.
+	 * When the capacity is exhausted, the oldest point is evicted.
+	 * This sets the {@link #isDirty()} state to true, but only the appended point will
+	 * be uploaded on the next GL update.
+	 * @param p point location
+	 * @return view on the added point
+	 */
+	@Override
+	public PointDetails addPoint(Point2D p) {
+		return addPoint(p.getX(), p.getY());
+	}
+
+	/**
+	 * Appends a point to this {@link StreamingPoints} object.
+	 * When the capacity is exhausted, the oldest point is evicted.
+	 * This sets the {@link #isDirty()} state to true, but only the appended point will
+	 * be uploaded on the next GL update.
+	 * @param x coordinate of point
+	 * @param y coordinate of point
+	 * @return view on the added point
+	 */
+	@Override
+	public PointDetails addPoint(double x, double y) {
+		appendPoint(x, y, DEFAULT_COLOR, 1f);
+		return new ColumnPointDetails(size-1);
+	}
+
+	/**
+	 * Appends a point to this {@link StreamingPoints} object without creating a view on it.
+	 * When the capacity is exhausted, the oldest point is evicted.
+	 * This sets the {@link #isDirty()} state to true, but only the appended point will
+	 * be uploaded on the next GL update.
+	 * @param x coordinate of point
+	 * @param y coordinate of point
+	 * @param argb integer packed ARGB color of the point
+	 * @param scale glyph scaling of the point
+	 * @return this for chaining
+	 */
+	public StreamingPoints appendPoint(double x, double y, int argb, float scale) {
+		if(size == capacity)
+			bounds.exclude(xs[head], ys[head]);
+		int slot = appendSlot();
+		xs[slot] = x;
+		ys[slot] = y;
+		rots[slot] = 0f;
+		scales[slot] = scale;
+		colors[slot] = argb;
+		pickColors[slot] = 0;
+		bounds.include(x, y);
+		invalidateCaches();
+		return this;
+	}
+
+	/**
+	 * Appends the specified points in bulk.
+	 * When the capacity is exhausted, the oldest points are evicted.
+	 * When more points than the capacity are specified, only the last ones are kept.
+	 * This sets the {@link #isDirty()} state to true, but only the appended points will
+	 * be uploaded on the next GL update.
+	 * @param xs x coordinates of the points
+	 * @param ys y coordinates of the points
+	 * @param argb integer packed ARGB colors of the points, or null for default color
+	 * @param scale glyph scalings of the points, or null for default scaling
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	@Override
+	public StreamingPoints addPoints(double[] xs, double[] ys, int[] argb, float[] scale) {
+		final int n = checkBulkArrays(xs, ys, argb, scale);
+		// points that would be evicted right away are skipped
+		int i = Math.max(0, n-capacity);
+		while(i < n){
+			// copy contiguous chunk up to the end of the columns
+			int slot = size < capacity ? slot(size) : head;
+			int len = Math.min(n-i, capacity-slot);
+			if(size == capacity){
+				// chunk overwrites the oldest points
+				for(int k=slot; k<slot+len; k++)
+					bounds.exclude(this.xs[k], this.ys[k]);
+			}
+			for(int k=i; k<i+len; k++)
+				bounds.include(xs[k], ys[k]);
+			invalidateCaches();
+			System.arraycopy(xs, i, this.xs, slot, len);
+			System.arraycopy(ys, i, this.ys, slot, len);
+			if(argb != null)
+				System.arraycopy(argb, i, this.colors, slot, len);
+			else
+				Arrays.fill(this.colors, slot, slot+len, DEFAULT_COLOR);
+			if(scale != null)
+				System.arraycopy(scale, i, this.scales, slot, len);
+			else
+				Arrays.fill(this.scales, slot, slot+len, 1f);
+			Arrays.fill(this.rots, slot, slot+len, 0f);
+			Arrays.fill(this.pickColors, slot, slot+len, 0);
+			int added = Math.min(len, capacity-size);
+			int evicted = len-added;
+			size += added;
+			head = (head+evicted)%capacity;
+			numAppended = Math.min(numAppended+len, capacity);
+			i += len;
+		}
+		return this;
+	}
+
+	@Override
+	public StreamingPoints addPoints(double[] xs, double[] ys) {
+		return addPoints(xs, ys, null, null);
+	}
+
+	/**
+	 * Replaces the contents of this {@link StreamingPoints} object by the specified points.
+	 * Since the capacity is fixed, the arrays are copied into the columns instead of being used as columns
+	 * (see {@link ColumnarPoints#wrap(double[], double[], int[], float[])}), and only the last points are kept when
+	 * more points than the capacity are specified.
+	 * This sets the {@link #isDirty()} state to true.
+	 * @param xs x coordinates of the points
+	 * @param ys y coordinates of the points
+	 * @param argb integer packed ARGB colors of the points, or null for default color
+	 * @param scale glyph scalings of the points, or null for default scaling
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the lengths of the specified arrays differ
+	 */
+	@Override
+	public StreamingPoints wrap(double[] xs, double[] ys, int[] argb, float[] scale) {
+		checkBulkArrays(xs, ys, argb, scale);
+		removeAllPoints();
+		return addPoints(xs, ys, argb, scale);
+	}
+
+	@Override
+	public StreamingPoints removeAllPoints() {
+		size = 0;
+		head = 0;
+		numAppended = 0;
+		isDirty = true;
+		bounds.reset();
+		invalidateCaches();
+		return this;
+	}
+
+	/**
+	 * Marks the points in the range [from, to) for the next partial GL update.
+	 * The indices are chronological (see {@link StreamingPoints}) and are
+	 * translated to the corresponding storage range.
+	 */
+	@Override
+	protected void markDirtyRange(int from, int to) {
+		if(from < 0 || to < from || to > size){
+			throw new IllegalArgumentException("invalid range ["+from+","+to+") for size " + size);
+		}
+		if(from == to)
+			return;
+		modCount++;
+		int slotFrom = slot(from);
+		int slotTo = slot(to-1)+1;
+		if(slotFrom < slotTo){
+			dirtyRange.mark(slotFrom, slotTo);
+		} else {
+			dirtyRange.mark(slotFrom, capacity);
+			dirtyRange.mark(0, slotTo);
+		}
+	}
+
+	@Override
+	public boolean isDirty() {
+		return super.isDirty() || numAppended > 0;
+	}
+
+	/**
+	 * Also discards the record of appended points, which would otherwise keep this object dirty.
+	 */
+	@Override
+	public void clearDirty() {
+		super.clearDirty();
+		numAppended = 0;
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLFloat() {
+		updateGLRing(false);
+	}
+
+	@Override
+	@GLContextRequired
+	public void updateGLDouble() {
+		updateGLRing(true);
+	}
+
+	/**
+	 * Updates the GL resources according to the ring buffer.
+	 * The vertex array's buffers are allocated for the full capacity, so that appended
+	 * points (and points of the dirty range) can be written to their storage position.
+	 * Since the occupied storage indices are always [0, {@link #numPoints()}) the renderer
+	 * only needs to draw the first {@link #numPoints()} instances.
+	 * @param useGLDoublePrecision requested precision
+	 */
+	@GLContextRequired
+	protected void updateGLRing(boolean useGLDoublePrecision) {
+		if(Objects.nonNull(va)){
+			if(isPartialUpdatePossible(useGLDoublePrecision)){
+				if(numAppended > 0){
+					// appended points are the last ones in chronological order
+					int from = slot(size-numAppended);
+					int to = from+numAppended;
+					if(to <= capacity){
+						uploadSlots(from, to, useGLDoublePrecision, true);
+					} else {
+						uploadSlots(from, capacity, useGLDoublePrecision, true);
+						uploadSlots(0, to-capacity, useGLDoublePrecision, true);
+					}
+				}
+				if(!dirtyRange.isEmpty()){
+					uploadSlots(dirtyRange.getFrom(), dirtyRange.getTo(), useGLDoublePrecision, true);
+				}
+			} else {
+				uploadSlots(0, capacity, useGLDoublePrecision, false);
+			}
+			isDirty = false;
+			dirtyRange.clear();
+			numAppended = 0;
+			isGLDoublePrecision = useGLDoublePrecision;
+		}
+	}
+
+	/**
+	 * Uploads the storage range [from, to) to the vertex array.
+	 * @param from first storage index (inclusive)
+	 * @param to last storage index (exclusive)
+	 * @param useGLDoublePrecision whether to use double precision positions
+	 * @param partial true to update only the range of the existing buffers, false to reallocate the buffers
+	 */
+	@GLContextRequired
+	protected void uploadSlots(int from, int to, boolean useGLDoublePrecision, boolean partial) {
+		final int n = to-from;
+		float[] rotAndScale = new float[n*2];
+		int[] colors = new int[n*2];
+		for(int j=0; j<n; j++){
+			rotAndScale[j*2+0] = rots[from+j];
+			rotAndScale[j*2+1] = scales[from+j];
+			colors[j*2+0] = this.colors[from+j];
+			colors[j*2+1] = pickColors[from+j];
+		}
+		if(useGLDoublePrecision){
+			double[] position = new double[n*2];
+			for(int j=0; j<n; j++){
+				position[j*2+0] = xs[from+j];
+				position[j*2+1] = ys[from+j];
+			}
+			if(partial)
+				va.updateBufferRange(1, from*2, position);
+			else
+				va.setBuffer(1, 2, position);
+		} else {
+			float[] position = new float[n*2];
+			for(int j=0; j<n; j++){
+				position[j*2+0] = (float)xs[from+j];
+				position[j*2+1] = (float)ys[from+j];
+			}
+			if(partial)
+				va.updateBufferRange(1, from*2, position);
+			else
+				va.setBuffer(1, 2, position);
+		}
+		if(partial){
+			va.updateBufferRange(2, from*2, rotAndScale);
+			va.updateBufferRange(3, from*2, colors);
+		} else {
+			va.setBuffer(2, 2, rotAndScale);
+			va.setBuffer(3, 2, false, colors);
+		}
+	}
+
+	@Override
+	protected boolean isPartialUpdatePossible(boolean useGLDoublePrecision) {
+		return !isDirty
+				&& isGLDoublePrecision == useGLDoublePrecision
+				&& va.getBufferLength(1) == capacity*2;
+	}
+
+}
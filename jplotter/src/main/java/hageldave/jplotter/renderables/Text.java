@@ -47,6 +47,7 @@ public class Text implements Renderable {
 	protected float angle=0;
 	protected String txtStr;
 	protected boolean isDirty=true;
+	protected volatile long modCount = 0;
 	protected boolean hidden=false;
 	
 	/**
@@ -97,6 +98,7 @@ public class Text implements Renderable {
 	@DebugSetter(ID = "color", creator = ColorPicker.class)
 	public Text setColor(Color color) {
 		this.color = color;
+		this.modCount++;
 		return this;
 	}
 
@@ -126,6 +128,7 @@ public class Text implements Renderable {
 	@DebugSetter(ID = "background", creator = ColorPicker.class)
 	public void setBackground(Color background) {
 		this.background = background;
+		this.modCount++;
 	}
 
 	/**
@@ -135,6 +138,7 @@ public class Text implements Renderable {
 	 */
 	public void setBackground(int argb) {
 		this.background = new Color(argb, true);
+		this.modCount++;
 	}
 
 	@DebugGetter(ID = "background")
@@ -185,6 +189,7 @@ public class Text implements Renderable {
 		// can only use opaque colors cause transparent colors will not work on overlaps
 		if(pickID != 0)
 			this.pickColor = pickID | 0xff000000;
+		this.modCount++;
 		return this;
 	}
 
@@ -265,6 +270,7 @@ public class Text implements Renderable {
 	 */
 	public Text setOrigin(Point2D origin) {
 		this.origin = origin;
+		this.modCount++;
 		return this;
 	}
 
@@ -296,6 +302,7 @@ public class Text implements Renderable {
 	@DebugSetter(ID = "angle", creator = AngleSliderCreator.class)
 	public Text setAngle(double angle) {
 		this.angle = (float)angle;
+		this.modCount++;
 		return this;
 	}
 	
@@ -314,6 +321,7 @@ public class Text implements Renderable {
 	@DebugSetter(ID = "hidden", creator = ButtonCreator.class)
 	public Text hide(boolean hide) {
 		this.hidden = hide;
+		this.modCount++;
 		return this;
 	}
 	
@@ -367,6 +375,18 @@ public class Text implements Renderable {
 	public boolean isDirty() {
 		return isDirty;
 	}
+
+	/**
+	 * Returns the number of changes made to this object through its methods.
+	 * Changes made through the mutable origin ({@link #getOrigin()}) are only counted after calling {@link #setDirty()}
+	 * as is required for GL updates.
+	 * In contrast to {@link #isDirty()}, this is not reset when GL resources are updated.
+	 * @return modification count
+	 */
+	@Override
+	public long getModificationCount() {
+		return modCount;
+	}
 	
 	/**
 	 * Sets the {@link #isDirty()} state of this renderable to true.
@@ -375,6 +395,7 @@ public class Text implements Renderable {
 	 */
 	public Text setDirty() {
 		this.isDirty = true;
+		this.modCount++;
 		return this;
 	}
 	
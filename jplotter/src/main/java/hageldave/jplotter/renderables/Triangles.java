@@ -9,13 +9,16 @@ import hageldave.jplotter.debugging.panelcreators.display.RenderableDetailsCreat
 import hageldave.jplotter.gl.FBO;
 import hageldave.jplotter.gl.VertexArray;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.BoundingVolumeHierarchy;
+import hageldave.jplotter.util.DirtyRange;
+import hageldave.jplotter.util.IncrementalBounds;
 import hageldave.jplotter.util.Utils;
+import org.lwjgl.opengl.GL15;
 
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.DoubleSupplier;
@@ -44,6 +47,12 @@ public class Triangles implements Renderable {
 
 	protected VertexArray va;
 	protected boolean isDirty = true;
+	protected volatile long modCount = 0;
+	protected DirtyRange dirtyRange = new DirtyRange();
+	protected IncrementalBounds bounds = new IncrementalBounds();
+	protected boolean useSpatialIndex = false;
+	protected BoundingVolumeHierarchy spatialIndex;
+	protected int queriesSinceChange = 0;
 	protected DoubleSupplier globalAlphaMultiplier = ()->1.0;
 	protected DoubleSupplier globalSaturationMultiplier = () -> 1.0;
 	protected ArrayList<TriangleDetails> triangles = new ArrayList<>();
@@ -77,7 +86,10 @@ public class Triangles implements Renderable {
 	){
 		TriangleDetails tri = new TriangleDetails(x0, y0, x1, y1, x2, y2);
 		this.triangles.add(tri);
-		setDirty();
+		this.isDirty = true;
+		this.modCount++;
+		this.bounds.include(x0, y0).include(x1, y1).include(x2, y2);
+		invalidateSpatialIndex();
 		return tri;
 	}
 	
@@ -92,10 +104,57 @@ public class Triangles implements Renderable {
 	public TriangleDetails addTriangle(Point2D p0, Point2D p1, Point2D p2){
 		TriangleDetails tri = new TriangleDetails(p0,p1,p2);
 		this.triangles.add(tri);
-		setDirty();
+		this.isDirty = true;
+		this.modCount++;
+		this.bounds.include(p0.getX(), p0.getY()).include(p1.getX(), p1.getY()).include(p2.getX(), p2.getY());
+		invalidateSpatialIndex();
 		return tri;
 	}
 	
+	/**
+	 * Adds triangles in bulk.
+	 * The triangles are specified as interleaved coordinates, i.e. 6 values per triangle
+	 * {@code x0,y0,x1,y1,x2,y2}. Colors may be specified per triangle (one color for each triangle) or
+	 * per vertex (three colors for each triangle).
+	 * Sets the {@link #isDirty()} state to true once for all added triangles.
+	 * <p>
+	 * The triangles are still stored as {@link TriangleDetails}, i.e. details are allocated per triangle
+	 * as with {@link #addTriangle(double, double, double, double, double, double)}, and the arrays are not retained.
+	 * @param coords (x0,y0,x1,y1,x2,y2) sextuples of the triangles
+	 * @param colors integer packed ARGB colors of the triangles (per triangle or per vertex), or null for default color
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when the number of coordinate values is not a multiple of 6 or
+	 * the number of colors does not match the number of triangles or vertices.
+	 */
+	public Triangles addTriangles(double[] coords, int[] colors){
+		if(coords.length%6 != 0){
+			throw new IllegalArgumentException("number of coordinate values needs to be a multiple of 6 (x0,y0,x1,y1,x2,y2), but got " + coords.length);
+		}
+		final int n = coords.length/6;
+		if(colors != null && colors.length != n && colors.length != n*3){
+			throw new IllegalArgumentException("need a color per triangle ("+n+") or per vertex ("+(n*3)+"), but got " + colors.length);
+		}
+		final boolean perVertexColor = colors != null && colors.length == n*3;
+		this.triangles.ensureCapacity(this.triangles.size()+n);
+		for(int i=0; i<n; i++){
+			TriangleDetails tri = new TriangleDetails(
+					coords[i*6+0], coords[i*6+1], 
+					coords[i*6+2], coords[i*6+3], 
+					coords[i*6+4], coords[i*6+5]);
+			if(perVertexColor){
+				tri.setColor0(colors[i*3+0]).setColor1(colors[i*3+1]).setColor2(colors[i*3+2]);
+			} else if(colors != null){
+				tri.setColor(colors[i]);
+			}
+			this.triangles.add(tri);
+			this.bounds.include(coords[i*6+0], coords[i*6+1]).include(coords[i*6+2], coords[i*6+3]).include(coords[i*6+4], coords[i*6+5]);
+		}
+		this.isDirty = true;
+		this.modCount++;
+		invalidateSpatialIndex();
+		return this;
+	}
+	
 	/**
 	 * Adds two triangles that form the specified quad.
 	 * Sets the {@link #isDirty()} state to true.
@@ -206,7 +265,10 @@ public class Triangles implements Renderable {
 	 */
 	public Triangles removeAllTriangles() {
 		triangles.clear();
-		setDirty();
+		this.isDirty = true;
+		this.modCount++;
+		this.bounds.reset();
+		invalidateSpatialIndex();
 		return this;
 	}
 	
@@ -231,6 +293,7 @@ public class Triangles implements Renderable {
 	@DebugSetter(ID = "globalAlphaMultiplier", creator = PercentageFloatSliderCreator.class)
 	public Triangles setGlobalAlphaMultiplier(DoubleSupplier globalAlphaMultiplier) {
 		this.globalAlphaMultiplier = globalAlphaMultiplier;
+		this.modCount++;
 		return this;
 	}
 
@@ -251,6 +314,7 @@ public class Triangles implements Renderable {
 	 */
 	public Triangles setGlobalSaturationMultiplier(DoubleSupplier saturation) {
 		this.globalSaturationMultiplier = saturation;
+		this.modCount++;
 		return this;
 	}
 
@@ -287,6 +351,7 @@ public class Triangles implements Renderable {
 	@DebugSetter(ID = "hidden", creator = ButtonCreator.class)
 	public Triangles hide(boolean hide) {
 		this.hidden = hide;
+		this.modCount++;
 		return this;
 	}
 	
@@ -311,6 +376,8 @@ public class Triangles implements Renderable {
 	public void initGL() {
 		if(Objects.isNull(va)){
 			va = new VertexArray(2);
+			va.setBufferUsage(0, GL15.GL_DYNAMIC_DRAW);
+			va.setBufferUsage(1, GL15.GL_DYNAMIC_DRAW);
 			updateGL(false);
 		}
 	}
@@ -318,6 +385,8 @@ public class Triangles implements Renderable {
 	/**
 	 * Updates GL resources, i.e. fills the vertex array with the triangles contained
 	 * in this {@link Triangles} object as well as their color and picking color attributes.
+	 * When only a range of triangles is dirty (see {@link #setDirty(int, int)}) and the
+	 * number of triangles did not change, only that range of the buffers is updated.
 	 * Sets the {@link #isDirty()} state to false.
 	 */
 	@Override
@@ -331,65 +400,108 @@ public class Triangles implements Renderable {
 	
 	protected void updateGLFloat() {
 		if(Objects.nonNull(va)){
-			final int numTris = triangles.size();
-			float[] vertices = new float[numTris*2*3];
-			int[] vColors = new int[numTris*2*3];
-			for(int i=0; i<numTris; i++){
+			boolean partial = isPartialUpdatePossible(false);
+			final int from = partial ? dirtyRange.getFrom():0;
+			final int to = partial ? dirtyRange.getTo():numTriangles();
+			float[] vertices = new float[(to-from)*2*3];
+			int[] vColors = new int[(to-from)*2*3];
+			for(int i=from; i<to; i++){
 				TriangleDetails tri = triangles.get(i);
+				int j = i-from;
+
+				vertices[j*6+0] = (float) tri.p0.getX();
+				vertices[j*6+1] = (float) tri.p0.getY();
+				vertices[j*6+2] = (float) tri.p1.getX();
+				vertices[j*6+3] = (float) tri.p1.getY();
+				vertices[j*6+4] = (float) tri.p2.getX();
+				vertices[j*6+5] = (float) tri.p2.getY();
 
-				vertices[i*6+0] = (float) tri.p0.getX();
-				vertices[i*6+1] = (float) tri.p0.getY();
-				vertices[i*6+2] = (float) tri.p1.getX();
-				vertices[i*6+3] = (float) tri.p1.getY();
-				vertices[i*6+4] = (float) tri.p2.getX();
-				vertices[i*6+5] = (float) tri.p2.getY();
-
-				vColors[i*6+0] = tri.c0.getAsInt();
-				vColors[i*6+1] = tri.pickColor;
-				vColors[i*6+2] = tri.c1.getAsInt();
-				vColors[i*6+3] = tri.pickColor;
-				vColors[i*6+4] = tri.c2.getAsInt();
-				vColors[i*6+5] = tri.pickColor;
+				fillColors(tri, vColors, j);
+			}
+			if(partial){
+				va.updateBufferRange(0, from*6, vertices);
+				va.updateBufferRange(1, from*6, vColors);
+			} else {
+				va.setBuffer(0, 2, vertices);
+				va.setBuffer(1, 2, false, vColors);
 			}
-			va.setBuffer(0, 2, vertices);
-			va.setBuffer(1, 2, false, vColors);
 			isDirty = false;
+			dirtyRange.clear();
 			isGLDoublePrecision = false;
 		}
 	}
 	
 	protected void updateGLDouble() {
 		if(Objects.nonNull(va)){
-			final int numTris = triangles.size();
-			double[] vertices = new double[numTris*2*3];
-			int[] vColors = new int[numTris*2*3];
-			for(int i=0; i<numTris; i++){
+			boolean partial = isPartialUpdatePossible(true);
+			final int from = partial ? dirtyRange.getFrom():0;
+			final int to = partial ? dirtyRange.getTo():numTriangles();
+			double[] vertices = new double[(to-from)*2*3];
+			int[] vColors = new int[(to-from)*2*3];
+			for(int i=from; i<to; i++){
 				TriangleDetails tri = triangles.get(i);
+				int j = i-from;
+
+				vertices[j*6+0] = tri.p0.getX();
+				vertices[j*6+1] = tri.p0.getY();
+				vertices[j*6+2] = tri.p1.getX();
+				vertices[j*6+3] = tri.p1.getY();
+				vertices[j*6+4] = tri.p2.getX();
+				vertices[j*6+5] = tri.p2.getY();
 
-				vertices[i*6+0] = tri.p0.getX();
-				vertices[i*6+1] = tri.p0.getY();
-				vertices[i*6+2] = tri.p1.getX();
-				vertices[i*6+3] = tri.p1.getY();
-				vertices[i*6+4] = tri.p2.getX();
-				vertices[i*6+5] = tri.p2.getY();
-
-				vColors[i*6+0] = tri.c0.getAsInt();
-				vColors[i*6+1] = tri.pickColor;
-				vColors[i*6+2] = tri.c1.getAsInt();
-				vColors[i*6+3] = tri.pickColor;
-				vColors[i*6+4] = tri.c2.getAsInt();
-				vColors[i*6+5] = tri.pickColor;
+				fillColors(tri, vColors, j);
+			}
+			if(partial){
+				va.updateBufferRange(0, from*6, vertices);
+				va.updateBufferRange(1, from*6, vColors);
+			} else {
+				va.setBuffer(0, 2, vertices);
+				va.setBuffer(1, 2, false, vColors);
 			}
-			va.setBuffer(0, 2, vertices);
-			va.setBuffer(1, 2, false, vColors);
 			isDirty = false;
+			dirtyRange.clear();
 			isGLDoublePrecision = true;
 		}
 	}
+	
+	private static void fillColors(TriangleDetails tri, int[] vColors, int j) {
+		vColors[j*6+0] = tri.c0.getAsInt();
+		vColors[j*6+1] = tri.pickColor;
+		vColors[j*6+2] = tri.c1.getAsInt();
+		vColors[j*6+3] = tri.pickColor;
+		vColors[j*6+4] = tri.c2.getAsInt();
+		vColors[j*6+5] = tri.pickColor;
+	}
+	
+	/**
+	 * Tests whether the GL resources can be synced by only updating the dirty range,
+	 * which requires that not everything is dirty, the precision did not change and
+	 * the buffers are of matching size.
+	 * @param useGLDoublePrecision requested precision
+	 * @return true when a partial update suffices
+	 */
+	protected boolean isPartialUpdatePossible(boolean useGLDoublePrecision) {
+		return !isDirty
+				&& isGLDoublePrecision == useGLDoublePrecision
+				&& dirtyRange.isWithin(numTriangles())
+				&& va.getBufferLength(0) == numTriangles()*6;
+	}
 
 	@Override
 	public boolean isDirty() {
-		return isDirty;
+		return isDirty || !dirtyRange.isEmpty();
+	}
+
+	/**
+	 * Returns the number of changes made to this object through its methods.
+	 * Changes made through {@link TriangleDetails} are only counted after calling {@link #setDirty()}
+	 * as is required for GL updates.
+	 * In contrast to {@link #isDirty()}, this is not reset when GL resources are updated.
+	 * @return modification count
+	 */
+	@Override
+	public long getModificationCount() {
+		return modCount;
 	}
 	
 	@Override
@@ -399,43 +511,143 @@ public class Triangles implements Renderable {
 	
 	/**
 	 * Sets the {@link #isDirty()} state of this {@link Triangles} object to true.
+	 * This also invalidates the bounds (see {@link #getBounds()}) since triangles may have changed.
 	 * @return this for chaining
 	 */
 	public Triangles setDirty() {
 		this.isDirty = true;
+		this.modCount++;
+		this.bounds.invalidate();
+		invalidateSpatialIndex();
+		return this;
+	}
+	
+	/**
+	 * Marks the triangles in the range [from, to) as dirty, which sets the {@link #isDirty()}
+	 * state to true.
+	 * Unless {@link #setDirty()} is called as well, only this range of triangles will be
+	 * uploaded to the GL resources on the next update.
+	 * @param from index of first changed triangle (inclusive)
+	 * @param to index after the last changed triangle (exclusive)
+	 * @return this for chaining
+	 */
+	public Triangles setDirty(int from, int to) {
+		this.dirtyRange.mark(from, to);
+		this.modCount++;
+		this.bounds.invalidate();
+		invalidateSpatialIndex();
 		return this;
 	}
 	
 	/**
-	 * @return the bounding rectangle that encloses all line segments in this {@link Lines} object.
+	 * Returns the bounding rectangle that encloses all triangles in this {@link Triangles} object.
+	 * The bounds are maintained incrementally when adding triangles, so this is cheap to call
+	 * e.g. for fitting the view to the data on every data update.
+	 * After {@link #setDirty()} (which indicates that triangles may have been changed or removed)
+	 * the bounds are recomputed once in a single pass on the next call.
+	 * @return the bounding rectangle that encloses all triangles in this {@link Triangles} object.
 	 */
 	public Rectangle2D getBounds(){
-		if(numTriangles() < 1)
-			return new Rectangle2D.Double();
-		
-		boolean useParallelStreaming = numTriangles() > 1000;
-		double minX = Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
-				.flatMap(tri->Arrays.asList(tri.p0.getX(),tri.p1.getX(),tri.p2.getX()).stream())
-				.mapToDouble(Double::floatValue)
-				.min().getAsDouble();
-		double maxX = Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
-				.flatMap(tri->Arrays.asList(tri.p0.getX(),tri.p1.getX(),tri.p2.getX()).stream())
-				.mapToDouble(Double::floatValue)
-				.max().getAsDouble();
-		double minY = Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
-				.flatMap(tri->Arrays.asList(tri.p0.getY(),tri.p1.getY(),tri.p2.getY()).stream())
-				.mapToDouble(Double::floatValue)
-				.min().getAsDouble();
-		double maxY = Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
-				.flatMap(tri->Arrays.asList(tri.p0.getY(),tri.p1.getY(),tri.p2.getY()).stream())
-				.mapToDouble(Double::floatValue)
-				.max().getAsDouble();
-		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+		if(!bounds.isValid() || bounds.getCount() != numTriangles()*3){
+			recomputeBounds();
+		}
+		return bounds.toRect();
+	}
+
+	/**
+	 * Recomputes the bounds (see {@link #getBounds()}) in a single pass over all triangles.
+	 */
+	protected void recomputeBounds() {
+		bounds.reset();
+		for(TriangleDetails tri : triangles){
+			bounds.include(tri.p0.getX(), tri.p0.getY())
+				.include(tri.p1.getX(), tri.p1.getY())
+				.include(tri.p2.getX(), tri.p2.getY());
+		}
 	}
 	
 	
+	/**
+	 * Enables or disables the use of a spatial index for rectangle queries ({@link #intersects(Rectangle2D)},
+	 * {@link #getIntersectingTriangles(Rectangle2D)}), which are e.g. used for view frustum culling by the
+	 * fallback rendering of the {@link hageldave.jplotter.renderers.TrianglesRenderer}.
+	 * The index ({@link BoundingVolumeHierarchy}) is built on the second query after a change
+	 * (a single query is cheaper as linear scan) for collections of at least
+	 * {@link #SPATIAL_INDEX_MIN_TRIANGLES} triangles, and is discarded whenever triangles are added,
+	 * removed or marked dirty. It pays off when many queries are made between changes,
+	 * e.g. when large meshes are culled for every frame of a panning or zooming view.
+	 * Disabled by default.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public Triangles setSpatialIndexEnabled(boolean enable) {
+		this.useSpatialIndex = enable;
+		if(!enable)
+			invalidateSpatialIndex();
+		return this;
+	}
+
+	/**
+	 * @return true when a spatial index is used for rectangle queries (see {@link #setSpatialIndexEnabled(boolean)})
+	 */
+	public boolean isSpatialIndexEnabled() {
+		return useSpatialIndex;
+	}
+
+	/** minimum number of triangles for which a spatial index is built */
+	public static final int SPATIAL_INDEX_MIN_TRIANGLES = 1024;
+
+	protected synchronized void invalidateSpatialIndex() {
+		this.spatialIndex = null;
+		this.queriesSinceChange = 0;
+	}
+
+	/**
+	 * Returns the spatial index to be used for the next query, building it if necessary.
+	 * Synchronized since renderers may query concurrently (e.g. tiled fallback rendering),
+	 * so that the index is built only once and safely published.
+	 * @return spatial index or null when a linear scan is to be used
+	 */
+	protected synchronized BoundingVolumeHierarchy getSpatialIndexForQuery() {
+		if(!useSpatialIndex || numTriangles() < SPATIAL_INDEX_MIN_TRIANGLES)
+			return null;
+		if(spatialIndex != null && spatialIndex.numPrimitives() != numTriangles()){
+			// triangles were changed without notification
+			invalidateSpatialIndex();
+		}
+		if(spatialIndex == null && ++queriesSinceChange > 1){
+			spatialIndex = new BoundingVolumeHierarchy(numTriangles(), (i, box, off)->{
+				TriangleDetails tri = triangles.get(i);
+				double x0=tri.p0.getX(), y0=tri.p0.getY(), x1=tri.p1.getX(), y1=tri.p1.getY(), x2=tri.p2.getX(), y2=tri.p2.getY();
+				box[off+0] = Math.min(x0, Math.min(x1, x2));
+				box[off+1] = Math.min(y0, Math.min(y1, y2));
+				box[off+2] = Math.max(x0, Math.max(x1, x2));
+				box[off+3] = Math.max(y0, Math.max(y1, y2));
+			});
+		}
+		return spatialIndex;
+	}
+
+	/**
+	 * Exact test of a triangle against a rectangle.
+	 * @param i index of the triangle
+	 * @param rect rectangle
+	 * @return true when intersecting
+	 */
+	protected boolean intersects(int i, Rectangle2D rect) {
+		TriangleDetails tri = triangles.get(i);
+		return Utils.rectIntersectsOrIsContainedInTri(
+				rect, 
+				tri.p0.getX(), tri.p0.getY(), 
+				tri.p1.getX(), tri.p1.getY(), 
+				tri.p2.getX(), tri.p2.getY());
+	}
+	
 	@Override
 	public boolean intersects(Rectangle2D rect) {
+		BoundingVolumeHierarchy index = getSpatialIndexForQuery();
+		if(index != null)
+			return index.anyIntersecting(rect, i->intersects(i, rect));
 		boolean useParallelStreaming = numTriangles() > 1000;
 		return Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
 				.filter(tri->Utils.rectIntersectsOrIsContainedInTri(
@@ -450,10 +662,19 @@ public class Triangles implements Renderable {
 	
 	/**
 	 * Returns the triangles that intersect or contain the specified rectangle.
+	 * The triangles are in the same order as in this collection.
 	 * @param rect rectangle to test intersection
 	 * @return list of intersecting triangles
 	 */
 	public List<TriangleDetails> getIntersectingTriangles(Rectangle2D rect){
+		BoundingVolumeHierarchy index = getSpatialIndexForQuery();
+		if(index != null){
+			int[] indices = index.getIntersecting(rect, i->intersects(i, rect));
+			ArrayList<TriangleDetails> intersecting = new ArrayList<>(indices.length);
+			for(int i : indices)
+				intersecting.add(triangles.get(i));
+			return intersecting;
+		}
 		boolean useParallelStreaming = numTriangles() > 1000;
 		return Utils.parallelize(getTriangleDetails().stream(), useParallelStreaming)
 				.filter(tri->Utils.rectIntersectsOrIsContainedInTri(
@@ -726,6 +947,7 @@ public class Triangles implements Renderable {
 	@DebugSetter(ID ="useAAinFallback", creator = ButtonCreator.class)
 	public Triangles enableAAinFallback(boolean enable) {
 		this.useAAinFallback = enable;
+		this.modCount++;
 		return this;
 	}
 	
@@ -0,0 +1,107 @@
+package hageldave.jplotter.renderers;
+
+import hageldave.jplotter.canvas.JPlotterCanvas;
+
+/**
+ * The AnalyticPicking interface is implemented by {@link Renderer}s that can determine
+ * the picking colors of an area of their viewport by hit testing their primitives on the CPU
+ * (using the spatial indices of the renderables where available) instead of rasterizing a picking image.
+ * <p>
+ * A canvas whose renderer implements this interface can skip the picking pass when rendering
+ * and answer picking queries ({@link JPlotterCanvas#getPixel(int, int, boolean, int)} with {@code picking=true})
+ * through {@link #pick(AnalyticPicking, int, int, int, int, int)} instead
+ * (see {@link hageldave.jplotter.canvas.BlankCanvasFallback#setAnalyticPickingEnabled(boolean)} and
+ * {@link hageldave.jplotter.canvas.BlankCanvas#setAnalyticPickingEnabled(boolean)}).
+ * <p>
+ * Implementations follow the semantics of the picking pass, i.e. primitives are tested in drawing order and
+ * a primitive overwrites the picking color of every pixel whose center it covers.
+ * Primitives without picking color (0) or of hidden renderables are skipped.
+ * The hit tests are analytic approximations of the rasterized primitives:
+ * glyphs are tested through {@link hageldave.jplotter.misc.Glyph#contains(double, double)}, lines as segments of their thickness
+ * (ignoring stroke patterns), texts as their (rotated) bounding rectangles.
+ * Composite renderers only forward to children that implement this interface,
+ * other children (e.g. {@link CurvesRenderer}) do not contribute picking colors.
+ *
+ * @author hageldave
+ */
+public interface AnalyticPicking {
+
+	/**
+	 * Writes the picking colors of the primitives covering the pixels of the specified area
+	 * into the specified array.
+	 * Pixels that are not covered by a primitive of this renderer are left untouched.
+	 * The pixel (x+i, y+j) of the area corresponds to the array index {@code j*areaW+i} and
+	 * its center (x+i+0.5, y+j+0.5) is used for testing.
+	 * @param x coordinate of the area's origin (in viewport pixels, bottom up)
+	 * @param y coordinate of the area's origin (in viewport pixels, bottom up)
+	 * @param areaW width of the area
+	 * @param areaH height of the area
+	 * @param w width of the viewport in pixels
+	 * @param h height of the viewport in pixels
+	 * @param pickColors array of size areaW*areaH holding integer packed ARGB picking colors (bottom up row order)
+	 */
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors);
+
+	/**
+	 * Determines the picking color at the specified location of a viewport the same way as
+	 * {@link JPlotterCanvas#getPixel(int, int, boolean, int)} does for a rasterized picking image.
+	 * @param picking renderer to query
+	 * @param x coordinate of the location (AWT coordinates, i.e. top down)
+	 * @param y coordinate of the location (AWT coordinates, i.e. top down)
+	 * @param areaSize width and height of the area around the specified location
+	 * @param w width of the viewport in pixels
+	 * @param h height of the viewport in pixels
+	 * @return the most prominent picking color in the area as integer packed ARGB value
+	 */
+	public static int pick(AnalyticPicking picking, int x, int y, int areaSize, int w, int h) {
+		int[] colors = new int[areaSize*areaSize];
+		int x0 = x-areaSize/2;
+		int y0 = h-(y-areaSize/2)-areaSize;
+		pickClipped(picking, 0, 0, w, h, x0, y0, areaSize, areaSize, colors);
+		// flip rows to top down order which is the order of picking images read from AWT images
+		int[] row = new int[areaSize];
+		for(int j=0; j<areaSize/2; j++){
+			int other = areaSize-1-j;
+			System.arraycopy(colors, j*areaSize, row, 0, areaSize);
+			System.arraycopy(colors, other*areaSize, colors, j*areaSize, areaSize);
+			System.arraycopy(row, 0, colors, other*areaSize, areaSize);
+		}
+		return JPlotterCanvas.mostProminentColor(colors, areaSize);
+	}
+
+	/**
+	 * Calls {@link #pickArea(int, int, int, int, int, int, int[])} of the specified renderer
+	 * for the part of the specified area that lies inside of the specified sub viewport,
+	 * which is how composite renderers forward queries to renderers of sub viewports.
+	 * @param picking renderer of the sub viewport
+	 * @param vx x coordinate of the sub viewport's origin
+	 * @param vy y coordinate of the sub viewport's origin
+	 * @param vw width of the sub viewport
+	 * @param vh height of the sub viewport
+	 * @param x coordinate of the area's origin
+	 * @param y coordinate of the area's origin
+	 * @param areaW width of the area
+	 * @param areaH height of the area
+	 * @param pickColors array of size areaW*areaH (bottom up row order)
+	 */
+	public static void pickClipped(AnalyticPicking picking, int vx, int vy, int vw, int vh, int x, int y, int areaW, int areaH, int[] pickColors) {
+		int ix0 = Math.max(x, vx);
+		int iy0 = Math.max(y, vy);
+		int ix1 = Math.min(x+areaW, vx+vw);
+		int iy1 = Math.min(y+areaH, vy+vh);
+		if(ix1 <= ix0 || iy1 <= iy0)
+			return;
+		if(ix0 == x && iy0 == y && ix1 == x+areaW && iy1 == y+areaH){
+			picking.pickArea(x-vx, y-vy, areaW, areaH, vw, vh, pickColors);
+			return;
+		}
+		int iw = ix1-ix0, ih = iy1-iy0;
+		int[] clipped = new int[iw*ih];
+		for(int j=0; j<ih; j++)
+			System.arraycopy(pickColors, (iy0-y+j)*areaW+(ix0-x), clipped, j*iw, iw);
+		picking.pickArea(ix0-vx, iy0-vy, iw, ih, vw, vh, clipped);
+		for(int j=0; j<ih; j++)
+			System.arraycopy(clipped, j*iw, pickColors, (iy0-y+j)*areaW+(ix0-x), iw);
+	}
+
+}
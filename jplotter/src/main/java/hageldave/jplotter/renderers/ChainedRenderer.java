@@ -17,7 +17,7 @@ import java.awt.geom.Rectangle2D;
  * 
  * @author hageldave
  */
-public class ChainedRenderer implements Renderer, AdaptableView, GLDoublePrecisionSupport {
+public class ChainedRenderer implements Renderer, AdaptableView, GLDoublePrecisionSupport, AnalyticPicking {
 
 	protected Renderer r1,r2;
 	protected boolean isEnabled=true;
@@ -61,6 +61,17 @@ public class ChainedRenderer implements Renderer, AdaptableView, GLDoublePrecisi
 		r2.renderFallback(g,p, w, h);
 	}
 
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		if(r1 instanceof AnalyticPicking)
+			((AnalyticPicking) r1).pickArea(x, y, areaW, areaH, w, h, pickColors);
+		if(r2 instanceof AnalyticPicking)
+			((AnalyticPicking) r2).pickArea(x, y, areaW, areaH, w, h, pickColors);
+	}
+
 	@Override
 	@GLContextRequired
 	public void close() {
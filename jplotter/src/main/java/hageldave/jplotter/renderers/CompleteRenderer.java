@@ -11,6 +11,8 @@ import org.w3c.dom.Element;
 
 import java.awt.*;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Objects;
 
 /**
  * The {@link CompleteRenderer} comprises a {@link LinesRenderer},
@@ -39,18 +41,42 @@ import java.awt.geom.Rectangle2D;
  * 
  * @author hageldave
  */
-public class CompleteRenderer implements Renderer, AdaptableView, GLDoublePrecisionSupport {
+public class CompleteRenderer implements Renderer, AdaptableView, GLDoublePrecisionSupport, AnalyticPicking {
 	
 	public final LinesRenderer lines = new LinesRenderer();
-	public final PointsRenderer points = new PointsRenderer();
+	public final PointsRenderer points;
 	public final TextRenderer text = new TextRenderer();
 	public final TrianglesRenderer triangles = new TrianglesRenderer();
 	public final CurvesRenderer curves = new CurvesRenderer();
 
-	private final Renderer[] rendererLUT = {triangles,lines,curves,points,text};
+	private final Renderer[] rendererLUT;
 	public static final int TRI = 0, LIN = 1, PNT = 2, TXT = 3, CRV = 4;
 	private final int[] renderOrder = {TRI,LIN,CRV,PNT,TXT};
 	boolean isEnabled = true;
+	protected Rectangle2D view = null;
+	protected boolean isFallbackLayerCachingEnabled = false;
+	/** retained bitmaps per render order slot */
+	protected final FallbackLayerCache[] fallbackLayers = {
+			new FallbackLayerCache(), new FallbackLayerCache(), new FallbackLayerCache(), 
+			new FallbackLayerCache(), new FallbackLayerCache()
+	};
+	
+	/**
+	 * Creates a new {@link CompleteRenderer} with a {@link PointsRenderer}.
+	 */
+	public CompleteRenderer() {
+		this(new PointsRenderer());
+	}
+	
+	/**
+	 * Creates a new {@link CompleteRenderer} that uses the specified renderer for {@link Points},
+	 * e.g. a {@link DensityRenderer} for huge scatter plots.
+	 * @param points renderer for points
+	 */
+	public CompleteRenderer(PointsRenderer points) {
+		this.points = Objects.requireNonNull(points);
+		this.rendererLUT = new Renderer[]{triangles,lines,curves,points,text};
+	}
 	
 	/**
 	 * Sets the order of the renderers. 
@@ -89,6 +115,7 @@ public class CompleteRenderer implements Renderer, AdaptableView, GLDoublePrecis
 	 */
 	@Override
 	public void setView(Rectangle2D rect) {
+		this.view = rect == null ? null : new Rectangle2D.Double(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight());
 		triangles.setView(rect);
 		lines.setView(rect);
 		points.setView(rect);
@@ -124,16 +151,118 @@ public class CompleteRenderer implements Renderer, AdaptableView, GLDoublePrecis
 		rendererLUT[renderOrder[4]].render(vpx,vpy,w, h);
 	}
 	
+	/**
+	 * Renders according to the set render order.<br>
+	 * When fallback layer caching is enabled ({@link #setFallbackLayerCachingEnabled(boolean)}), 
+	 * each slot of the render order is composited from its retained bitmap if possible.
+	 */
 	@Override
 	public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
 		if(!isEnabled()){
 			return;
 		}
-		rendererLUT[renderOrder[0]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[1]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[2]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[3]].renderFallback(g, p, w, h);
-		rendererLUT[renderOrder[4]].renderFallback(g, p, w, h);
+		if(!isFallbackLayerCachingEnabled || !FallbackLayerCache.isCachingPossible(g, p)){
+			rendererLUT[renderOrder[0]].renderFallback(g, p, w, h);
+			rendererLUT[renderOrder[1]].renderFallback(g, p, w, h);
+			rendererLUT[renderOrder[2]].renderFallback(g, p, w, h);
+			rendererLUT[renderOrder[3]].renderFallback(g, p, w, h);
+			rendererLUT[renderOrder[4]].renderFallback(g, p, w, h);
+			return;
+		}
+		for(int slot=0; slot<renderOrder.length; slot++){
+			Renderer r = rendererLUT[renderOrder[slot]];
+			if(!r.isEnabled()){
+				continue;
+			}
+			fallbackLayers[slot].render(g, p, w, h, fallbackLayerSignature(slot), r::renderFallback);
+		}
+	}
+
+	/**
+	 * Determines the signature of the fallback layer of the specified render order slot
+	 * (see {@link FallbackLayerCache}), which comprises the renderer, the view 
+	 * and the items of the renderer with their visibility and modification count
+	 * (see {@link FallbackLayerCache#appendItemStates(java.util.List, Renderer)}).
+	 * @param slot render order slot
+	 * @return signature
+	 */
+	protected Object fallbackLayerSignature(int slot) {
+		Renderer r = rendererLUT[renderOrder[slot]];
+		ArrayList<Object> signature = new ArrayList<>();
+		signature.add(r);
+		signature.add(view);
+		return FallbackLayerCache.appendItemStates(signature, r);
+	}
+
+	/**
+	 * Enables or disables the caching of layers in fallback rendering.
+	 * When enabled, the result of each slot of the render order (see {@link #setRenderOrder(int, int, int, int, int)})
+	 * is retained in a bitmap ({@link FallbackLayerCache}) that is composited into subsequent frames instead of
+	 * rendering the slot again, as long as the view, viewport size, the slot's renderer and its items 
+	 * do not change.
+	 * Items are considered changed when added, removed, hidden or modified, which is detected by their
+	 * {@link Renderable#getModificationCount()}. Modifications through point, segment or triangle details
+	 * are detected once {@code setDirty()} is called on the item, which GL rendering requires as well.
+	 * Items that do not track their modifications are rendered on every frame.
+	 * Layers can also be invalidated explicitly ({@link #invalidateFallbackLayer(Renderer)}, 
+	 * {@link #invalidateFallbackLayers()}), e.g. when colors are supplied by functions that change.
+	 * Default is false.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public CompleteRenderer setFallbackLayerCachingEnabled(boolean enable) {
+		this.isFallbackLayerCachingEnabled = enable;
+		if(!enable){
+			for(FallbackLayerCache layer : fallbackLayers)
+				layer.clear();
+		}
+		return this;
+	}
+
+	/**
+	 * @return true when fallback layer caching is enabled, see {@link #setFallbackLayerCachingEnabled(boolean)}
+	 */
+	public boolean isFallbackLayerCachingEnabled() {
+		return isFallbackLayerCachingEnabled;
+	}
+
+	/**
+	 * Invalidates the fallback layers of the specified renderer, so that its items are rendered again on the next frame
+	 * (see {@link #setFallbackLayerCachingEnabled(boolean)}).
+	 * @param renderer one of {@link #triangles}, {@link #lines}, {@link #curves}, {@link #points}, {@link #text}
+	 * @return this for chaining
+	 */
+	public CompleteRenderer invalidateFallbackLayer(Renderer renderer) {
+		for(int slot=0; slot<renderOrder.length; slot++){
+			if(rendererLUT[renderOrder[slot]] == renderer)
+				fallbackLayers[slot].invalidate();
+		}
+		return this;
+	}
+
+	/**
+	 * Invalidates all fallback layers, see {@link #invalidateFallbackLayer(Renderer)}.
+	 * @return this for chaining
+	 */
+	public CompleteRenderer invalidateFallbackLayers() {
+		for(FallbackLayerCache layer : fallbackLayers)
+			layer.invalidate();
+		return this;
+	}
+
+	/**
+	 * Forwards to each of the renderers in render order.
+	 * The {@link CurvesRenderer} does not support analytic picking and contributes nothing.
+	 */
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		for(int i : renderOrder){
+			if(rendererLUT[i] instanceof AnalyticPicking)
+				((AnalyticPicking)rendererLUT[i]).pickArea(x, y, areaW, areaH, w, h, pickColors);
+		}
 	}
 
 	/**
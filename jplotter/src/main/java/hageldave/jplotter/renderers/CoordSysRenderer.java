@@ -9,6 +9,8 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Objects;
@@ -83,7 +85,7 @@ import hageldave.jplotter.util.Utils;
  * 
  * @author hageldave
  */
-public class CoordSysRenderer implements Renderer {
+public class CoordSysRenderer implements Renderer, AnalyticPicking {
 	protected LinesRenderer preContentLinesR = new LinesRenderer();
 	protected TextRenderer preContentTextR = new TextRenderer();
 	protected LinesRenderer postContentLinesR = new LinesRenderer();
@@ -125,6 +127,14 @@ public class CoordSysRenderer implements Renderer {
 	protected int viewportwidth=0;
 	protected int viewportheight=0;
 	protected boolean isDirty = true;
+	/** incremented on every {@link #setupAndLayout()} */
+	protected long layoutGeneration = 0;
+
+	protected boolean isFallbackLayerCachingEnabled = false;
+	protected FallbackLayerCache preContentLayer = new FallbackLayerCache();
+	protected FallbackLayerCache postContentLayer = new FallbackLayerCache();
+	protected FallbackLayerCache legendRightLayer = new FallbackLayerCache();
+	protected FallbackLayerCache legendBottomLayer = new FallbackLayerCache();
 
 	protected IntSupplier tickColor;
 	protected IntSupplier guideColor;
@@ -478,6 +488,7 @@ public class CoordSysRenderer implements Renderer {
 	 * </ul>
 	 */
 	protected void setupAndLayout() {
+		layoutGeneration++;
 		Pair<double[],String[]> xticksAndLabels = tickMarkGeneratorX.genTicksAndLabels(
 				coordinateView.getMinX(), 
 				coordinateView.getMaxX(), 
@@ -801,8 +812,15 @@ public class CoordSysRenderer implements Renderer {
 			setupAndLayout();
 			isDirty = false;
 		}
-		preContentLinesR.renderFallback(g, p, w, h);
-		preContentTextR.renderFallback(g, p, w, h);
+		if(isFallbackLayerCachingEnabled){
+			preContentLayer.render(g, p, w, h, guidesLayerSignature(preContentLinesR, preContentTextR), (lg,lp,lw,lh)->{
+				preContentLinesR.renderFallback(lg, lp, lw, lh);
+				preContentTextR.renderFallback(lg, lp, lw, lh);
+			});
+		} else {
+			preContentLinesR.renderFallback(g, p, w, h);
+			preContentTextR.renderFallback(g, p, w, h);
+		}
 		if(content != null){
 			int viewPortX = (int)coordsysAreaLB.getX();
 			int viewPortY = (int)coordsysAreaLB.getY();
@@ -824,20 +842,137 @@ public class CoordSysRenderer implements Renderer {
 				overlay.renderFallback(g_, p_, viewPortW, viewPortH);
 			}
 		}
-		postContentLinesR.renderFallback(g, p, w, h);
-		postContentTextR.renderFallback(g, p, w, h);
+		if(isFallbackLayerCachingEnabled){
+			postContentLayer.render(g, p, w, h, guidesLayerSignature(postContentLinesR, postContentTextR), (lg,lp,lw,lh)->{
+				postContentLinesR.renderFallback(lg, lp, lw, lh);
+				postContentTextR.renderFallback(lg, lp, lw, lh);
+			});
+		} else {
+			postContentLinesR.renderFallback(g, p, w, h);
+			postContentTextR.renderFallback(g, p, w, h);
+		}
 		// draw legends
 		if(Objects.nonNull(legendRight)){
 			// create viewport graphics
 			Graphics2D g_ = (Graphics2D)g.create(legendRightViewPort.x, legendRightViewPort.y, legendRightViewPort.width, legendRightViewPort.height);
 			Graphics2D p_ = (Graphics2D)p.create(legendRightViewPort.x, legendRightViewPort.y, legendRightViewPort.width, legendRightViewPort.height);
-			legendRight.renderFallback(g_, p_, legendRightViewPort.width, legendRightViewPort.height);
+			renderLegendFallback(legendRight, legendRightLayer, g_, p_, legendRightViewPort.width, legendRightViewPort.height);
 		}
 		if(Objects.nonNull(legendBottom)){
 			// create viewport graphics
 			Graphics2D g_ = (Graphics2D)g.create(legendBottomViewPort.x, legendBottomViewPort.y, legendBottomViewPort.width, legendBottomViewPort.height);
 			Graphics2D p_ = (Graphics2D)p.create(legendBottomViewPort.x, legendBottomViewPort.y, legendBottomViewPort.width, legendBottomViewPort.height);
-			legendBottom.renderFallback(g_, p_, legendBottomViewPort.width, legendBottomViewPort.height);
+			renderLegendFallback(legendBottom, legendBottomLayer, g_, p_, legendBottomViewPort.width, legendBottomViewPort.height);
+		}
+	}
+
+	/**
+	 * Determines the signature of a cached layer of axes, guides and labels,
+	 * which comprises the layout generation and the states of the renderers' items
+	 * (see {@link FallbackLayerCache#appendItemStates(java.util.List, Renderer)}).
+	 */
+	protected Object guidesLayerSignature(Renderer linesR, Renderer textR) {
+		ArrayList<Object> signature = new ArrayList<>();
+		signature.add(layoutGeneration);
+		FallbackLayerCache.appendItemStates(signature, linesR);
+		return FallbackLayerCache.appendItemStates(signature, textR);
+	}
+
+	/**
+	 * Renders the specified legend, which is composited from the specified layer when
+	 * fallback layer caching is enabled and the legend is a {@link Legend}.
+	 * The layer is rendered again when the layout changed or the legend is dirty.
+	 */
+	protected void renderLegendFallback(Renderer legend, FallbackLayerCache layer, Graphics2D g, Graphics2D p, int w, int h) {
+		if(isFallbackLayerCachingEnabled && legend instanceof Legend){
+			Object signature = Arrays.asList(layoutGeneration, legend, ((Legend)legend).isDirty() ? new Object():null);
+			layer.render(g, p, w, h, signature, legend::renderFallback);
+		} else {
+			legend.renderFallback(g, p, w, h);
+		}
+	}
+
+	/**
+	 * Enables or disables the caching of layers in fallback rendering.
+	 * When enabled, the axes, guides and labels (rendered before and after the content) and the legends 
+	 * are each retained in a bitmap ({@link FallbackLayerCache}) that is composited into subsequent frames
+	 * as long as the layout of this coordinate system (see {@link #setDirty()}) and the axes, guides and labels
+	 * (see {@link hageldave.jplotter.renderables.Renderable#getModificationCount()}) do not change,
+	 * e.g. when only the overlay changes.
+	 * Content and overlay are rendered on every frame, a {@link CompleteRenderer} content can cache
+	 * its layers as well ({@link CompleteRenderer#setFallbackLayerCachingEnabled(boolean)}).
+	 * Default is false.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public CoordSysRenderer setFallbackLayerCachingEnabled(boolean enable) {
+		this.isFallbackLayerCachingEnabled = enable;
+		if(!enable){
+			preContentLayer.clear();
+			postContentLayer.clear();
+			legendRightLayer.clear();
+			legendBottomLayer.clear();
+		}
+		return this;
+	}
+
+	/**
+	 * @return true when fallback layer caching is enabled, see {@link #setFallbackLayerCachingEnabled(boolean)}
+	 */
+	public boolean isFallbackLayerCachingEnabled() {
+		return isFallbackLayerCachingEnabled;
+	}
+
+	/**
+	 * Forwards to the axes and labels, the content and overlay (within the coordinate system area)
+	 * and the legends (within their viewports) in the same order as they are rendered.
+	 * Content, overlay or legends that do not implement {@link AnalyticPicking} contribute nothing.
+	 */
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		currentViewPort.setRect(0, 0, w, h);
+		if(isDirty || viewportwidth != w || viewportheight != h){
+			// update axes
+			axes.setDirty();
+			viewportwidth = w;
+			viewportheight = h;
+			setupAndLayout();
+			isDirty = false;
+		}
+		preContentLinesR.pickArea(x, y, areaW, areaH, w, h, pickColors);
+		preContentTextR.pickArea(x, y, areaW, areaH, w, h, pickColors);
+		if(content != null){
+			int viewPortX = (int)coordsysAreaLB.getX();
+			int viewPortY = (int)coordsysAreaLB.getY();
+			int viewPortW = (int)coordsysAreaLB.distance(coordsysAreaRB);
+			int viewPortH = (int)coordsysAreaLB.distance(coordsysAreaLT);
+			if(content instanceof AdaptableView){
+				((AdaptableView) content).setView(coordinateView);
+			}
+			if(content instanceof AnalyticPicking){
+				AnalyticPicking.pickClipped((AnalyticPicking)content, viewPortX, viewPortY, viewPortW, viewPortH, x, y, areaW, areaH, pickColors);
+			}
+			if(overlay instanceof AnalyticPicking){
+				if(overlay instanceof AdaptableView){
+					((AdaptableView) overlay).setView(coordinateView);
+				}
+				AnalyticPicking.pickClipped((AnalyticPicking)overlay, viewPortX, viewPortY, viewPortW, viewPortH, x, y, areaW, areaH, pickColors);
+			}
+		}
+		postContentLinesR.pickArea(x, y, areaW, areaH, w, h, pickColors);
+		postContentTextR.pickArea(x, y, areaW, areaH, w, h, pickColors);
+		if(legendRight instanceof AnalyticPicking){
+			AnalyticPicking.pickClipped((AnalyticPicking)legendRight, 
+					legendRightViewPort.x, legendRightViewPort.y, legendRightViewPort.width, legendRightViewPort.height, 
+					x, y, areaW, areaH, pickColors);
+		}
+		if(legendBottom instanceof AnalyticPicking){
+			AnalyticPicking.pickClipped((AnalyticPicking)legendBottom, 
+					legendBottomViewPort.x, legendBottomViewPort.y, legendBottomViewPort.width, legendBottomViewPort.height, 
+					x, y, areaW, areaH, pickColors);
 		}
 	}
 
@@ -17,8 +17,6 @@ import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL40;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -467,17 +465,15 @@ public class CurvesRenderer extends GenericRenderer<Curves> {
 		double translateY = Objects.isNull(view) ? 0:view.getY();
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
-		int loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "viewTransform");
 		if (shader == shaderD /* double precision shader */)
 		{
-			GL40.glUniform4d(loc, translateX, translateY, scaleX, scaleY);
+			shader.setUniform4d("viewTransform", translateX, translateY, scaleX, scaleY);
 		}
 		else
 		{
-			GL20.glUniform4f(loc, (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
+			shader.setUniform4f("viewTransform", (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
 		}
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "projMX");
-		GL20.glUniformMatrix4fv(loc, false, orthoMX);
+		shader.setUniformMatrix4f("projMX", orthoMX);
 	}
 
 	@Override
@@ -486,17 +482,11 @@ public class CurvesRenderer extends GenericRenderer<Curves> {
 		if(curves.numCurves() < 1) {
 			return;
 		}
-		int loc;
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "linewidthMultiplier");
-		GL20.glUniform1f(loc, curves.getGlobalThicknessMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "saturationScaling");
-		GL20.glUniform1f(loc, curves.getGlobalSaturationMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "alphaMultiplier");
-		GL20.glUniform1f(loc, curves.getGlobalAlphaMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "strokePattern");
-		GL20.glUniform1iv(loc, transferBits(curves.getStrokePattern(), strokePattern));
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "strokeLength");
-		GL20.glUniform1f(loc, curves.hasStrokePattern() ? curves.getStrokeLength():0);
+		shader.setUniform1f("linewidthMultiplier", curves.getGlobalThicknessMultiplier());
+		shader.setUniform1f("saturationScaling", curves.getGlobalSaturationMultiplier());
+		shader.setUniform1f("alphaMultiplier", curves.getGlobalAlphaMultiplier());
+		shader.setUniform1iv("strokePattern", transferBits(curves.getStrokePattern(), strokePattern));
+		shader.setUniform1f("strokeLength", curves.hasStrokePattern() ? curves.getStrokeLength():0);
 		// draw things
 		curves.bindVertexArray();
 		GL11.glDrawArrays(GL11.GL_LINES, 0, curves.getNumEffectiveSegments()*2);
@@ -0,0 +1,528 @@
+package hageldave.jplotter.renderers;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.color.ColorMap;
+import hageldave.jplotter.color.DefaultColorMap;
+import hageldave.jplotter.gl.Shader;
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Renderable;
+import hageldave.jplotter.svg.SVGUtils;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.GLUtils;
+import hageldave.jplotter.util.ShaderRegistry;
+import hageldave.jplotter.util.Utils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL12;
+import org.lwjgl.opengl.GL13;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The DensityRenderer is a {@link PointsRenderer} that switches to an aggregation mode for
+ * huge numbers of points, where drawing individual glyphs only results in overplotting.
+ * In aggregation mode the points of all items are binned into a 2D grid of view port resolution
+ * (one bin per pixel) on multiple cores, which counts the points per pixel or sums up their weights
+ * (see {@link #setPointWeight(PointWeight)}).
+ * The grid is then normalized ({@link Normalization}) and colored through a {@link ColorMap}
+ * (bins without points are transparent), resulting in a single image that replaces the glyphs
+ * in all rendering backends, i.e. GL, fallback, SVG and PDF (where it is embedded as image).
+ * <p>
+ * The aggregation mode is used when the number of points per pixel of the view port exceeds the
+ * {@link #setDensityThreshold(double)}, otherwise points are rendered as glyphs like
+ * the {@link PointsRenderer} does.
+ * In aggregation mode, glyphs, colors and scalings of the points are ignored and points are not pickable.
+ * <p>
+ * To use it in a {@link CompleteRenderer}, construct it with {@link CompleteRenderer#CompleteRenderer(PointsRenderer)}.
+ *
+ * @author hageldave
+ */
+public class DensityRenderer extends PointsRenderer {
+
+	/**
+	 * Normalization of the aggregated bin values to the unit interval before color mapping.
+	 */
+	public static enum Normalization {
+		/** value divided by the maximum value */
+		LINEAR,
+		/** logarithm of (1+value) divided by logarithm of (1+maximum value) */
+		LOG,
+		/** histogram equalization, i.e. the fraction of non empty bins with value less or equal to the bin's value */
+		EQ_HIST,
+	}
+
+	/**
+	 * Weight of a point for aggregation by sum.
+	 */
+	public static interface PointWeight {
+		/**
+		 * @param points the {@link Points} object the point belongs to
+		 * @param index index of the point
+		 * @return weight of the point
+		 */
+		public double weight(Points points, int index);
+	}
+
+	protected static final int LUT_SIZE = 1024;
+
+	protected static final char NL = '\n';
+
+	protected static final String densityVertexShaderSrc = ""
+			+ "" + "#version 330"
+			+ NL + "layout(location = 0) in vec2 in_position;"
+			+ NL + "uniform mat4 projMX;"
+			+ NL + "uniform vec2 viewportSize;"
+			+ NL + "out vec2 tex_Coords;"
+			+ NL + "void main() {"
+			+ NL + "   gl_Position = projMX*vec4(in_position*viewportSize, 0, 1);"
+			+ NL + "   tex_Coords = in_position;"
+			+ NL + "}"
+			+ NL
+			;
+	protected static final String densityFragmentShaderSrc = ""
+			+ "" + "#version 330"
+			+ NL + "layout(location = 0) out vec4 frag_color;"
+			+ NL + "layout(location = 1) out vec4 pick_color;"
+			+ NL + "uniform sampler2D tex;"
+			+ NL + "in vec2 tex_Coords;"
+			+ NL + "void main() {"
+			+ NL + "   vec4 color = texture(tex, tex_Coords);"
+			+ NL + "   if(color.a == 0)"
+			+ NL + "      discard;"
+			+ NL + "   frag_color = color;"
+			+ NL + "   pick_color = vec4(0);"
+			+ NL + "}"
+			;
+
+	protected double densityThreshold = 1.0;
+	protected ColorMap colorMap = DefaultColorMap.S_VIRIDIS;
+	protected Normalization normalization = Normalization.EQ_HIST;
+	protected PointWeight pointWeight = null;
+
+	protected Shader densityShader;
+	protected VertexArray vaQuad;
+	protected int densityTexID = 0;
+	protected int densityTexW = 0, densityTexH = 0;
+	protected Img fallbackDensityImage;
+	protected List<Object> fallbackDensityImageKey;
+
+	/**
+	 * Sets the number of points per pixel of the view port above which the aggregation mode is used.
+	 * Use 0 to always aggregate and {@link Double#POSITIVE_INFINITY} to never aggregate.
+	 * @param pointsPerPixel threshold, default is 1
+	 * @return this for chaining
+	 */
+	public DensityRenderer setDensityThreshold(double pointsPerPixel) {
+		this.densityThreshold = pointsPerPixel;
+		return this;
+	}
+
+	/**
+	 * @return the number of points per pixel above which the aggregation mode is used
+	 */
+	public double getDensityThreshold() {
+		return densityThreshold;
+	}
+
+	/**
+	 * Sets the color map for coloring the normalized bin values.
+	 * @param colorMap color map, default is {@link DefaultColorMap#S_VIRIDIS}
+	 * @return this for chaining
+	 */
+	public DensityRenderer setColorMap(ColorMap colorMap) {
+		this.colorMap = Objects.requireNonNull(colorMap);
+		return this;
+	}
+
+	/**
+	 * @return the color map used for coloring the normalized bin values
+	 */
+	public ColorMap getColorMap() {
+		return colorMap;
+	}
+
+	/**
+	 * Sets the normalization of the bin values.
+	 * @param normalization normalization, default is {@link Normalization#EQ_HIST}
+	 * @return this for chaining
+	 */
+	public DensityRenderer setNormalization(Normalization normalization) {
+		this.normalization = Objects.requireNonNull(normalization);
+		return this;
+	}
+
+	/**
+	 * @return the normalization of the bin values
+	 */
+	public Normalization getNormalization() {
+		return normalization;
+	}
+
+	/**
+	 * Sets the weight of points, which makes the aggregation a sum of weights instead of a count.
+	 * Bins with a sum less or equal to 0 are transparent.
+	 * @param pointWeight weight function or null for counting points (default)
+	 * @return this for chaining
+	 */
+	public DensityRenderer setPointWeight(PointWeight pointWeight) {
+		this.pointWeight = pointWeight;
+		return this;
+	}
+
+	/**
+	 * @return the weight function of points or null when points are counted
+	 */
+	public PointWeight getPointWeight() {
+		return pointWeight;
+	}
+
+	/**
+	 * Whether the aggregation mode is used for a view port of specified size,
+	 * i.e. the number of points of non hidden items per pixel exceeds the density threshold.
+	 * @param w width of the view port
+	 * @param h height of the view port
+	 * @return true when points are aggregated
+	 */
+	public boolean isAggregating(int w, int h) {
+		long numPoints = 0;
+		for(Points points : getItemsToRender()){
+			if(!points.isHidden())
+				numPoints += points.numPoints();
+		}
+		return numPoints > 0 && numPoints > densityThreshold*w*h;
+	}
+
+	/**
+	 * Aggregates the points of all non hidden items into a grid of the specified size (one bin per pixel)
+	 * according to the current view. Points are split into chunks that are aggregated in parallel
+	 * into separate grids which are summed up afterwards.
+	 * @param w width of the grid
+	 * @param h height of the grid
+	 * @return grid of bin values in row major order, with the first row being the bottom row of the view port
+	 */
+	public double[] aggregate(int w, int h) {
+		final double translateX = Objects.isNull(view) ? 0:view.getX();
+		final double translateY = Objects.isNull(view) ? 0:view.getY();
+		final double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
+		final double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
+		final Points[] items = getItemsToRender().stream().filter(p->!p.isHidden()).toArray(Points[]::new);
+		long numPoints = Arrays.stream(items).mapToLong(Points::numPoints).sum();
+		// one chunk per core, but at least 64k points per chunk so that summing up grids pays off
+		final int numChunks = (int)Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), numPoints>>16));
+		final PointWeight weight = pointWeight;
+		double[][] grids = IntStream.range(0, numChunks).parallel().mapToObj(chunk->{
+			double[] grid = new double[w*h];
+			for(Points points : items){
+				int n = points.numPoints();
+				int from = (int)((long)n*chunk/numChunks), to = (int)((long)n*(chunk+1)/numChunks);
+				for(int i=from; i<to; i++){
+					double x = (points.getPointX(i)-translateX)*scaleX;
+					double y = (points.getPointY(i)-translateY)*scaleY;
+					// negated comparisons also reject NaN
+					if(!(x >= 0 && x < w && y >= 0 && y < h))
+						continue;
+					grid[((int)y)*w+(int)x] += weight == null ? 1 : weight.weight(points, i);
+				}
+			}
+			return grid;
+		}).toArray(double[][]::new);
+		double[] sum = grids[0];
+		if(numChunks > 1){
+			IntStream.range(0, h).parallel().forEach(row->{
+				for(int g=1; g<numChunks; g++){
+					double[] grid = grids[g];
+					for(int k=row*w; k<(row+1)*w; k++)
+						sum[k] += grid[k];
+				}
+			});
+		}
+		return sum;
+	}
+
+	/**
+	 * Normalizes the specified grid of bin values to the unit interval according to the current
+	 * {@link Normalization}. Bins with values less or equal to 0 are mapped to a negative value.
+	 * @param grid bin values
+	 * @return normalized values
+	 */
+	public double[] normalize(double[] grid) {
+		double max = 0;
+		int numNonEmpty = 0;
+		for(double v : grid){
+			if(v > 0){
+				max = Math.max(max, v);
+				numNonEmpty++;
+			}
+		}
+		double[] normalized = new double[grid.length];
+		switch (normalization) {
+		case LINEAR:{
+			final double m = max;
+			Arrays.parallelSetAll(normalized, k->grid[k] > 0 ? grid[k]/m : -1);
+			break;
+		}
+		case LOG:{
+			final double logMax = Math.log1p(max);
+			Arrays.parallelSetAll(normalized, k->grid[k] > 0 ? Math.log1p(grid[k])/logMax : -1);
+			break;
+		}
+		case EQ_HIST:{
+			double[] sorted = new double[numNonEmpty];
+			int j = 0;
+			for(double v : grid){
+				if(v > 0)
+					sorted[j++] = v;
+			}
+			Arrays.parallelSort(sorted);
+			final int n = numNonEmpty;
+			Arrays.parallelSetAll(normalized, k->grid[k] > 0 ? upperBound(sorted, grid[k])/(double)n : -1);
+			break;
+		}
+		default:
+			throw new IllegalStateException("unhandled normalization " + normalization);
+		}
+		return normalized;
+	}
+
+	/* index of the first element greater than v */
+	private static int upperBound(double[] sorted, double v) {
+		int lo = 0, hi = sorted.length;
+		while(lo < hi){
+			int mid = (lo+hi)>>>1;
+			if(sorted[mid] <= v)
+				lo = mid+1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Aggregates, normalizes and colors the points of this renderer for a view port of specified size.
+	 * @param w width of the view port
+	 * @param h height of the view port
+	 * @return image of the aggregated points, with the first row being the bottom row of the view port
+	 * (which is the orientation of the fallback, GL and SVG coordinate systems)
+	 */
+	public Img createDensityImage(int w, int h) {
+		double[] normalized = normalize(aggregate(w, h));
+		int[] lut = new int[LUT_SIZE];
+		for(int i=0; i<LUT_SIZE; i++){
+			lut[i] = colorMap.interpolate(i/(LUT_SIZE-1.0));
+		}
+		Img img = new Img(w, h);
+		int[] data = img.getData();
+		Arrays.parallelSetAll(data, k->normalized[k] < 0 ? 0 : lut[(int)(normalized[k]*(LUT_SIZE-1))]);
+		return img;
+	}
+
+	@Override
+	@GLContextRequired
+	public void glInit() {
+		super.glInit();
+		if(Objects.isNull(densityShader)){
+			densityShader = ShaderRegistry.getOrCreateShader(this.getClass().getName()+"#density",()->new Shader(densityVertexShaderSrc, densityFragmentShaderSrc));
+		}
+		if(Objects.isNull(vaQuad)){
+			vaQuad = new VertexArray(1);
+			vaQuad.setBuffer(0, 2, 0f,0f, 0f,1f, 1f,1f, 1f,0f);
+			vaQuad.setIndices(0,1,2, 0,2,3);
+		}
+	}
+
+	@Override
+	@GLContextRequired
+	public void render(int vpx, int vpy, int w, int h) {
+		if(!isEnabled()){
+			return;
+		}
+		if(!isAggregating(w, h)){
+			super.render(vpx, vpy, w, h);
+			return;
+		}
+		if(Objects.isNull(densityShader) || w <= 0 || h <= 0){
+			return;
+		}
+		Img img = createDensityImage(w, h);
+		GL13.glActiveTexture(GL13.GL_TEXTURE0);
+		if(densityTexID == 0 || densityTexW != w || densityTexH != h){
+			if(densityTexID != 0)
+				GL11.glDeleteTextures(densityTexID);
+			densityTexID = GLUtils.create2DTexture(w, h, GL11.GL_RGBA8, GL11.GL_RGBA, GL11.GL_NEAREST, GL12.GL_CLAMP_TO_EDGE);
+			densityTexW = w;
+			densityTexH = h;
+		}
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, densityTexID);
+		// integer packed ARGB matches BGRA byte order of little endian 8_8_8_8_REV
+		GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, 0, 0, w, h, GL12.GL_BGRA, GL12.GL_UNSIGNED_INT_8_8_8_8_REV, img.getData());
+
+		densityShader.bind();
+		GL11.glDisable(GL11.GL_DEPTH_TEST);
+		GL11.glEnable(GL11.GL_BLEND);
+		GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+		orthoMX = GLUtils.orthoMX(orthoMX, 0, w, 0, h);
+		densityShader.setUniformMatrix4f("projMX", orthoMX);
+		densityShader.setUniform2f("viewportSize", w, h);
+		densityShader.setUniform1i("tex", 0);
+		vaQuad.bindAndEnableAttributes(0);
+		GL11.glDrawElements(GL11.GL_TRIANGLES, vaQuad.getNumIndices(), GL11.GL_UNSIGNED_INT, 0);
+		vaQuad.releaseAndDisableAttributes(0);
+		GL11.glBindTexture(GL11.GL_TEXTURE_2D, 0);
+		GL11.glDisable(GL11.GL_BLEND);
+		GL11.glEnable(GL11.GL_DEPTH_TEST);
+		densityShader.release();
+	}
+
+	@Override
+	@GLContextRequired
+	public void close() {
+		if(Objects.nonNull(densityShader))
+			ShaderRegistry.handbackShader(densityShader);
+		densityShader = null;
+		if(Objects.nonNull(vaQuad))
+			vaQuad.close();
+		vaQuad = null;
+		if(densityTexID != 0)
+			GL11.glDeleteTextures(densityTexID);
+		densityTexID = 0;
+		super.close();
+	}
+
+	@Override
+	public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
+		if(!isEnabled()){
+			return;
+		}
+		if(!isAggregating(w, h)){
+			super.renderFallback(g, p, w, h);
+			return;
+		}
+		// nothing to draw in a picking only pass, aggregated points are not pickable
+		if(w <= 0 || h <= 0 || Utils.isClippedAway(g))
+			return;
+		// graphics is flipped vertically, which matches the bottom up row order of the image
+		g.drawImage(getFallbackDensityImage(w, h).getRemoteBufferedImage(), 0, 0, null);
+	}
+
+	/**
+	 * Returns the density image ({@link #createDensityImage(int, int)}) for fallback rendering.
+	 * The image is cached until the view, view port size, settings of this renderer or the
+	 * items to render change, so that it is not aggregated again for each tile of a tiled
+	 * rendering or for repaints of the same content.
+	 * Changes of items are detected by their {@link Renderable#getModificationCount()},
+	 * items that do not track their changes prevent caching.
+	 * A {@link PointWeight} is expected to only depend on the points, otherwise it has to be set
+	 * again when the weights change.
+	 * <p>
+	 * Synchronized since tiles of the fallback rendering request the image concurrently.
+	 * @param w width of the view port
+	 * @param h height of the view port
+	 * @return image of the aggregated points
+	 */
+	protected synchronized Img getFallbackDensityImage(int w, int h) {
+		List<Object> key = new ArrayList<>(Arrays.asList(w, h, view, densityThreshold, colorMap, normalization, pointWeight));
+		for(Points points : getItemsToRender()){
+			long modCount = points.getModificationCount();
+			if(modCount < 0){
+				fallbackDensityImage = null;
+				fallbackDensityImageKey = null;
+				return createDensityImage(w, h);
+			}
+			key.add(points);
+			key.add(points.isHidden());
+			key.add(modCount);
+		}
+		if(fallbackDensityImage == null || !key.equals(fallbackDensityImageKey)){
+			fallbackDensityImage = createDensityImage(w, h);
+			fallbackDensityImageKey = key;
+		}
+		return fallbackDensityImage;
+	}
+
+	/**
+	 * Aggregated points are not pickable (there is no picking color for a density image),
+	 * otherwise the points are hit tested as by the {@link PointsRenderer}.
+	 */
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled() || isAggregating(w, h)){
+			return;
+		}
+		super.pickArea(x, y, areaW, areaH, w, h, pickColors);
+	}
+
+	@Override
+	public void renderSVG(Document doc, Element parent, int w, int h) {
+		if(!isEnabled()){
+			return;
+		}
+		if(!isAggregating(w, h)){
+			super.renderSVG(doc, parent, w, h);
+			return;
+		}
+		if(w <= 0 || h <= 0)
+			return;
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		try {
+			ImageIO.write(createDensityImage(w, h).getRemoteBufferedImage(), "png", png);
+		} catch (IOException e) {
+			throw new RuntimeException("Error occurred when encoding density image.", e);
+		}
+		// SVG root is flipped vertically, which matches the bottom up row order of the image
+		Element image = SVGUtils.createSVGElement(doc, "image");
+		parent.appendChild(image);
+		image.setAttributeNS(null, "x", "0");
+		image.setAttributeNS(null, "y", "0");
+		image.setAttributeNS(null, "width", ""+w);
+		image.setAttributeNS(null, "height", ""+h);
+		image.setAttributeNS(null, "preserveAspectRatio", "none");
+		image.setAttributeNS(null, "image-rendering", "optimizeSpeed");
+		image.setAttributeNS(null, "xlink:href", "data:image/png;base64,"+Base64.getEncoder().encodeToString(png.toByteArray()));
+	}
+
+	@Override
+	public void renderPDF(PDDocument doc, PDPage page, int x, int y, int w, int h) {
+		if(!isEnabled()){
+			return;
+		}
+		if(!isAggregating(w, h)){
+			super.renderPDF(doc, page, x, y, w, h);
+			return;
+		}
+		if(w <= 0 || h <= 0)
+			return;
+		// PDF images are top down
+		Img img = createDensityImage(w, h);
+		Img flipped = new Img(w, h);
+		for(int row=0; row<h; row++){
+			System.arraycopy(img.getData(), row*w, flipped.getData(), (h-1-row)*w, w);
+		}
+		try {
+			PDImageXObject pdImage = LosslessFactory.createFromImage(doc, flipped.getRemoteBufferedImage());
+			PDPageContentStream contentStream = new PDPageContentStream(doc, page,
+					PDPageContentStream.AppendMode.APPEND, false);
+			contentStream.drawImage(pdImage, x, y, w, h);
+			contentStream.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error occurred!", e);
+		}
+	}
+
+}
@@ -0,0 +1,214 @@
+package hageldave.jplotter.renderers;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.util.List;
+import java.util.Objects;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.renderables.Renderable;
+import hageldave.jplotter.util.FallbackRaster;
+import hageldave.jplotter.util.Utils;
+
+/**
+ * The FallbackLayerCache class retains the bitmap of a layer in fallback rendering, i.e. of what one or several
+ * renderers draw into a viewport, so that the layer can be composited into subsequent frames instead of being
+ * rendered again.
+ * <p>
+ * A layer is rendered into a transparent buffer of the viewport's size and is rendered again only when it was
+ * invalidated ({@link #invalidate()}) or when its signature changes. The signature is an object
+ * (compared by {@link Objects#equals(Object, Object)}) that is specified on every frame and should capture
+ * the state the layer depends on, e.g. view, viewport size, layout or the state of the items
+ * ({@link #appendItemStates(List, Renderer)}).
+ * <p>
+ * Caching only applies to graphics that draw into a raster ({@link FallbackRaster}) with the bottom up
+ * transform of a canvas, while the picking graphics is clipped away (as is the case when a
+ * {@link hageldave.jplotter.canvas.BlankCanvasFallback} renders its main image).
+ * Otherwise, e.g. when rendering the picking image or when exporting, the layer is painted directly.
+ * The cache is thread safe, so that tiles of a frame can be rendered concurrently
+ * (see {@link hageldave.jplotter.canvas.BlankCanvasFallback#setTiledRenderingParallelism(int)}).
+ *
+ * @author hageldave
+ */
+public class FallbackLayerCache {
+
+	/**
+	 * Paints the layer, see {@link Renderer#renderFallback(Graphics2D, Graphics2D, int, int)}.
+	 */
+	public static interface LayerPainter {
+		public void paint(Graphics2D g, Graphics2D p, int w, int h);
+	}
+
+	protected Img buffer;
+	protected Object signature;
+	protected boolean isValid = false;
+	/** bounds of the non transparent pixels of the buffer (image coordinates) */
+	protected Rectangle contentBounds = new Rectangle();
+	protected int numRenderings = 0;
+
+	/**
+	 * Tests whether layers can be cached for the specified graphics.
+	 * @param g graphics
+	 * @param p picking graphics
+	 * @return true when g draws into a raster with a bottom up transform of integer translation
+	 * and p is clipped away
+	 */
+	public static boolean isCachingPossible(Graphics2D g, Graphics2D p) {
+		if(!Utils.isClippedAway(p) || FallbackRaster.getRaster(g) == null)
+			return false;
+		AffineTransform xform = g.getTransform();
+		return xform.getScaleX() == 1 && xform.getScaleY() == -1
+				&& xform.getTranslateX() == Math.rint(xform.getTranslateX())
+				&& xform.getTranslateY() == Math.rint(xform.getTranslateY());
+	}
+
+	/**
+	 * Appends the state of the items of the specified renderer to a signature, i.e. each item,
+	 * its visibility and its modification count ({@link Renderable#getModificationCount()}).
+	 * Items that do not track their modifications append a new object instead, so that the
+	 * signature never equals a previous one and the layer is rendered on every frame.
+	 * Nothing is appended for renderers that are not a {@link GenericRenderer}.
+	 * @param signature to append to
+	 * @param r renderer of the layer
+	 * @return the signature for chaining
+	 */
+	public static List<Object> appendItemStates(List<Object> signature, Renderer r) {
+		if(r instanceof GenericRenderer){
+			for(Renderable item : ((GenericRenderer<?>)r).getItemsToRender()){
+				long modCount = item.getModificationCount();
+				signature.add(item);
+				signature.add(item.isHidden());
+				signature.add(modCount < 0 ? new Object() : modCount);
+			}
+		}
+		return signature;
+	}
+
+	/**
+	 * Draws the layer into the specified graphics, from cache if possible.
+	 * @param g graphics of the layer's viewport
+	 * @param p picking graphics of the layer's viewport
+	 * @param w width of the viewport
+	 * @param h height of the viewport
+	 * @param signature state the layer depends on, the layer is rendered again when the signature changes
+	 * @param painter paints the layer
+	 */
+	public void render(Graphics2D g, Graphics2D p, int w, int h, Object signature, LayerPainter painter) {
+		if(w <= 0 || h <= 0 || !isCachingPossible(g, p)){
+			painter.paint(g, p, w, h);
+			return;
+		}
+		Img raster = FallbackRaster.getRaster(g);
+		synchronized (this) {
+			if(!isValid || buffer.getWidth() != w || buffer.getHeight() != h || !Objects.equals(signature, this.signature)){
+				update(g, w, h, painter);
+				this.signature = signature;
+				this.isValid = true;
+			}
+			composite(g, raster);
+		}
+	}
+
+	/**
+	 * Marks the layer for rendering on the next frame.
+	 */
+	public synchronized void invalidate() {
+		this.isValid = false;
+	}
+
+	/**
+	 * @return true when the layer is cached and its signature did not change since
+	 */
+	public synchronized boolean isValid() {
+		return isValid;
+	}
+
+	/**
+	 * @return number of times the layer was rendered into the cache
+	 */
+	public synchronized int getNumRenderings() {
+		return numRenderings;
+	}
+
+	/**
+	 * Releases the buffer.
+	 */
+	public synchronized void clear() {
+		buffer = null;
+		isValid = false;
+		signature = null;
+	}
+
+	protected void update(Graphics2D g, int w, int h, LayerPainter painter) {
+		if(buffer == null || buffer.getWidth() != w || buffer.getHeight() != h)
+			buffer = new Img(w, h);
+		else
+			buffer.fill(0);
+		Graphics2D lg=null, lp=null;
+		try {
+			lg = buffer.createGraphics();
+			lg.setRenderingHints(g.getRenderingHints());
+			FallbackRaster.setRaster(lg, buffer);
+			lp = buffer.createGraphics();
+			// empty clip, drawing to the picking graphics becomes a no-op
+			lp.setClip(0, 0, 0, 0);
+			lg.translate(0, h);
+			lg.scale(1.0, -1.0);
+			lp.translate(0, h);
+			lp.scale(1.0, -1.0);
+			painter.paint(lg, lp, w, h);
+		} finally {
+			if(lg!=null)lg.dispose();
+			if(lp!=null)lp.dispose();
+		}
+		numRenderings++;
+		// determine bounds of non transparent pixels to skip empty areas when compositing
+		int[] data = buffer.getData();
+		int minX=w, minY=h, maxX=-1, maxY=-1;
+		for(int y=0; y<h; y++){
+			int row = y*w;
+			int x0 = 0;
+			while(x0 < w && (data[row+x0]>>>24) == 0) x0++;
+			if(x0 == w)
+				continue;
+			int x1 = w-1;
+			while((data[row+x1]>>>24) == 0) x1--;
+			minX = Math.min(minX, x0); maxX = Math.max(maxX, x1);
+			minY = Math.min(minY, y); maxY = y;
+		}
+		contentBounds = maxX < 0 ? new Rectangle() : new Rectangle(minX, minY, maxX-minX+1, maxY-minY+1);
+	}
+
+	/**
+	 * Blends the buffer into the raster, the way {@link java.awt.AlphaComposite#SrcOver} does, within the clip of g.
+	 */
+	protected void composite(Graphics2D g, Img raster) {
+		if(contentBounds.isEmpty())
+			return;
+		AffineTransform xform = g.getTransform();
+		int w = buffer.getWidth(), h = buffer.getHeight();
+		// device location of the buffer's top left corner (user space point (0,h))
+		int ox = (int)xform.getTranslateX();
+		int oy = (int)xform.getTranslateY()-h;
+		Rectangle area = FallbackRaster.getDeviceClip(g, raster).intersection(
+				new Rectangle(ox+contentBounds.x, oy+contentBounds.y, contentBounds.width, contentBounds.height));
+		if(area.isEmpty())
+			return;
+		int[] src = buffer.getData();
+		int[] dst = raster.getData();
+		int rw = raster.getWidth();
+		for(int y=area.y; y<area.y+area.height; y++){
+			int s = (y-oy)*w-ox;
+			int d = y*rw;
+			for(int x=area.x; x<area.x+area.width; x++){
+				int argb = src[s+x];
+				int a = argb>>>24;
+				if(a == 0)
+					continue;
+				dst[d+x] = a == 255 ? argb : FallbackRaster.blendSrcOver(dst[d+x], argb&0x00ffffff, a);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+package hageldave.jplotter.renderers;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.util.FallbackRaster;
+
+/**
+ * The GlyphSpriteCache class rasterizes glyphs into alpha mask sprites through
+ * {@link Glyph#drawFallback(Graphics2D, float)} once and stamps them into an integer ARGB raster
+ * (see {@link FallbackRaster}) afterwards.
+ * This is used by the {@link PointsRenderer} for fallback rendering, where drawing each point through
+ * Java2D is expensive.
+ * <p>
+ * A sprite is created per glyph, scaling (in steps of 1/{@value #SCALING_STEPS}), rotation (in {@value #ROTATION_STEPS} steps
+ * per full turn), sub pixel position (in steps of 1/{@value #SUBPIXEL_STEPS} pixel) and axis flips of the device transform.
+ * Rotation and position are thus approximated, apart from that the sprites are identical
+ * to drawing the antialiased glyph through Java2D with a {@link BasicStroke} of width 1.
+ * Since approximated positions change which pixels are covered by aliased glyphs, sprites are not suited for picking colors.
+ * The cache is thread safe and cleared for a glyph once it holds more than {@value #MAX_SPRITES_PER_GLYPH} sprites.
+ *
+ * @author hageldave
+ */
+public class GlyphSpriteCache {
+
+	public static final int SCALING_STEPS = 32;
+	public static final int ROTATION_STEPS = 256;
+	public static final int SUBPIXEL_STEPS = 8;
+	public static final int MAX_SPRITES_PER_GLYPH = 1<<14;
+	/** sprites larger than this (in pixels) are not cached, the glyph should be drawn through Java2D instead */
+	public static final int MAX_SPRITE_SIZE = 256;
+
+	protected final ConcurrentHashMap<Glyph, ConcurrentHashMap<Long, Sprite>> sprites = new ConcurrentHashMap<>();
+
+	/**
+	 * Alpha mask of a glyph.
+	 * The glyph's center is located at pixel coordinate ({@link #center}+subpixel offset) of the sprite.
+	 */
+	public static class Sprite {
+		public final int size;
+		public final int center;
+		/** coverage in [0,255], row major */
+		public final byte[] mask;
+		/** bounds of the non zero coverage */
+		public final int x0,y0,x1,y1;
+
+		protected Sprite(int size, int center, byte[] mask) {
+			this.size = size;
+			this.center = center;
+			this.mask = mask;
+			int minX=size, minY=size, maxX=-1, maxY=-1;
+			for(int y=0; y<size; y++){
+				for(int x=0; x<size; x++){
+					if(mask[y*size+x] != 0){
+						minX = Math.min(minX, x); maxX = Math.max(maxX, x);
+						minY = Math.min(minY, y); maxY = Math.max(maxY, y);
+					}
+				}
+			}
+			this.x0 = minX; this.y0 = minY; this.x1 = maxX+1; this.y1 = maxY+1;
+		}
+	}
+
+	/**
+	 * Tests whether a glyph of the specified scaling can be stamped, i.e. its sprite would not be too large.
+	 * @param glyph the glyph
+	 * @param scaling scaling of the glyph
+	 * @return true when sprites are used for the glyph
+	 */
+	public boolean isStampable(Glyph glyph, float scaling) {
+		return spriteSize(glyph, Math.round(scaling*SCALING_STEPS)) <= MAX_SPRITE_SIZE;
+	}
+
+	/**
+	 * Stamps the glyph centered at the specified device coordinates into the raster.
+	 * @param raster to draw into
+	 * @param clip device space clip, needs to lie within the raster
+	 * @param glyph to draw
+	 * @param scaling glyph scaling as passed to {@link Glyph#drawFallback(Graphics2D, float)}
+	 * @param rotation rotation of the glyph in radians (user space)
+	 * @param dx device x coordinate of the glyph's center
+	 * @param dy device y coordinate of the glyph's center
+	 * @param flipX whether the device transform flips the x axis
+	 * @param flipY whether the device transform flips the y axis
+	 * @param argb color
+	 */
+	public void stamp(Img raster, Rectangle clip, Glyph glyph, float scaling, double rotation, double dx, double dy,
+			boolean flipX, boolean flipY, int argb)
+	{
+		int ix = (int)Math.floor(dx);
+		int iy = (int)Math.floor(dy);
+		int phaseX = (int)Math.round((dx-ix)*SUBPIXEL_STEPS);
+		int phaseY = (int)Math.round((dy-iy)*SUBPIXEL_STEPS);
+		if(phaseX == SUBPIXEL_STEPS){ ix++; phaseX=0; }
+		if(phaseY == SUBPIXEL_STEPS){ iy++; phaseY=0; }
+		int rot = (int)Math.round(rotation*ROTATION_STEPS/(2*Math.PI)) % ROTATION_STEPS;
+		if(rot < 0) rot += ROTATION_STEPS;
+		int scale = Math.round(scaling*SCALING_STEPS);
+		long key = ((long)scale<<20) | (rot<<8) | (phaseX<<5) | (phaseY<<2) | ((flipX?1:0)<<1) | (flipY?1:0);
+
+		ConcurrentHashMap<Long, Sprite> glyphSprites = sprites.computeIfAbsent(glyph, g->new ConcurrentHashMap<>());
+		Sprite sprite = glyphSprites.get(key);
+		if(sprite == null){
+			if(glyphSprites.size() >= MAX_SPRITES_PER_GLYPH)
+				glyphSprites.clear();
+			sprite = createSprite(glyph, scale, rot, phaseX, phaseY, flipX, flipY);
+			glyphSprites.put(key, sprite);
+		}
+
+		// sprite origin in device space
+		int ox = ix-sprite.center;
+		int oy = iy-sprite.center;
+		int x0 = Math.max(ox+sprite.x0, clip.x);
+		int y0 = Math.max(oy+sprite.y0, clip.y);
+		int x1 = Math.min(ox+sprite.x1, clip.x+clip.width);
+		int y1 = Math.min(oy+sprite.y1, clip.y+clip.height);
+		if(x1 <= x0 || y1 <= y0)
+			return;
+		int[] data = raster.getData();
+		int rw = raster.getWidth();
+		byte[] mask = sprite.mask;
+		int size = sprite.size;
+		int alpha = argb>>>24;
+		if(alpha == 0)
+			return;
+		int rgb = argb & 0x00ffffff;
+		for(int y=y0; y<y1; y++){
+			int m = (y-oy)*size-ox;
+			int d = y*rw;
+			for(int x=x0; x<x1; x++){
+				int coverage = mask[m+x]&0xff;
+				if(coverage == 0)
+					continue;
+				int a = coverage == 255 ? alpha : (coverage*alpha+127)/255;
+				data[d+x] = FallbackRaster.blendSrcOver(data[d+x], rgb, a);
+			}
+		}
+	}
+
+	protected static int spriteSize(Glyph glyph, int scale) {
+		// diagonal of the glyph plus margin for strokes and sub pixel offset
+		double extent = glyph.pixelSize()*(scale/(double)SCALING_STEPS)*Math.sqrt(2);
+		return 2*((int)Math.ceil(extent/2)+3);
+	}
+
+	protected Sprite createSprite(Glyph glyph, int scale, int rot, int phaseX, int phaseY, boolean flipX, boolean flipY) {
+		int size = spriteSize(glyph, scale);
+		int center = size/2;
+		BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+			g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+			g.translate(center+phaseX/(double)SUBPIXEL_STEPS, center+phaseY/(double)SUBPIXEL_STEPS);
+			g.scale(flipX ? -1:1, flipY ? -1:1);
+			if(rot != 0)
+				g.rotate(rot*2*Math.PI/ROTATION_STEPS);
+			g.setStroke(new BasicStroke());
+			g.setColor(Color.WHITE);
+			glyph.drawFallback(g, scale/(float)SCALING_STEPS);
+		} finally {
+			g.dispose();
+		}
+		int[] argb = ((java.awt.image.DataBufferInt)img.getRaster().getDataBuffer()).getData();
+		byte[] mask = new byte[size*size];
+		for(int i=0; i<mask.length; i++)
+			mask[i] = (byte)(argb[i]>>>24);
+		return new Sprite(size, center, mask);
+	}
+
+	/**
+	 * Removes all sprites.
+	 */
+	public void clear() {
+		sprites.clear();
+	}
+
+}
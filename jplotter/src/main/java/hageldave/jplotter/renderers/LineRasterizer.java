@@ -0,0 +1,165 @@
+package hageldave.jplotter.renderers;
+
+import java.awt.Rectangle;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.util.FallbackRaster;
+
+/**
+ * The LineRasterizer class draws antialiased thin line segments directly into an integer ARGB raster
+ * (see {@link FallbackRaster}), which is used by the {@link LinesRenderer} for fallback rendering
+ * instead of stroking each segment through Java2D.
+ * <p>
+ * Segments are rasterized in the manner of Xiaolin Wu's algorithm: for each pixel column (or row for steep segments)
+ * along the major axis, the segment's extent along the minor axis is intersected with the pixels of that column
+ * and the overlap is used as coverage. Unlike the original algorithm the extent is the thickness of the segment
+ * divided by the cosine of its slope, so that diagonal segments are not thinner than axis aligned ones.
+ * End columns are covered proportionally (butt caps).
+ * For color gradients and stroke patterns, pixels are projected onto the segment: colors are interpolated linearly
+ * between the end points like {@link java.awt.GradientPaint} does, and the coverage of a pixel is reduced by the transparent
+ * fraction of the pattern interval covered by its projection.
+ * The rasterizer does not allocate memory.
+ *
+ * @author hageldave
+ */
+public class LineRasterizer {
+
+	/** segments thicker than this (in pixels) should be drawn through Java2D */
+	public static final float MAX_THICKNESS = 2f;
+
+	private LineRasterizer() {}
+
+	/**
+	 * Converts a dash pattern as used by {@link java.awt.BasicStroke} into a look up table with
+	 * one entry per bit of a stroke pattern.
+	 * A dash pattern of odd length alternates between opaque and transparent sections on repetition, 
+	 * the table then covers two repetitions (32 entries) instead of one (16 entries).
+	 * @param dash dash pattern with lengths that are multiples of strokeLength/16
+	 * @param strokeLength length of the pattern
+	 * @return table which is true for opaque pattern sections
+	 */
+	public static boolean[] dashPattern2LUT(float[] dash, float strokeLength) {
+		boolean[] lut = new boolean[dash.length%2 == 0 ? 16:32];
+		float unit = strokeLength/16f;
+		int bit = 0;
+		for(int i=0; bit < lut.length; i++){
+			int n = Math.max(1, Math.round(dash[i%dash.length]/unit));
+			for(int j=0; j<n && bit < lut.length; j++)
+				lut[bit++] = (i%2)==0;
+		}
+		return lut;
+	}
+
+	/**
+	 * Draws the line segment between the specified device coordinates into the raster.
+	 * @param raster to draw into
+	 * @param clip device space clip, needs to lie within the raster
+	 * @param x1 x coordinate of the start point
+	 * @param y1 y coordinate of the start point
+	 * @param x2 x coordinate of the end point
+	 * @param y2 y coordinate of the end point
+	 * @param thickness in pixels
+	 * @param argb1 color at the start point
+	 * @param argb2 color at the end point
+	 * @param pattern stroke pattern look up table (see {@link #dashPattern2LUT(float[], float)}), null for solid lines
+	 * @param strokeLength length of the stroke pattern in pixels (16 table entries)
+	 * @param patternOffset position within the stroke pattern at the start point
+	 */
+	public static void drawLine(Img raster, Rectangle clip,
+			double x1, double y1, double x2, double y2,
+			float thickness, int argb1, int argb2,
+			boolean[] pattern, double strokeLength, double patternOffset)
+	{
+		double dx = x2-x1, dy = y2-y1;
+		double len = Math.sqrt(dx*dx+dy*dy);
+		if(len == 0 || thickness <= 0)
+			return;
+		boolean steep = Math.abs(dy) > Math.abs(dx);
+		// major (a) and minor (b) axis coordinates, pixel centers are at +0.5
+		double a1 = steep ? y1:x1, b1 = steep ? x1:y1;
+		double a2 = steep ? y2:x2, b2 = steep ? x2:y2;
+		double da = a2-a1;
+		double slope = (b2-b1)/da;
+		double halfSpan = 0.5*thickness*len/Math.abs(da);
+		double aMin = Math.min(a1, a2), aMax = Math.max(a1, a2);
+
+		int clipA0 = steep ? clip.y:clip.x, clipA1 = steep ? clip.y+clip.height:clip.x+clip.width;
+		int clipB0 = steep ? clip.x:clip.y, clipB1 = steep ? clip.x+clip.width:clip.y+clip.height;
+		int col0 = Math.max(clipA0, (int)Math.floor(aMin));
+		int col1 = Math.min(clipA1-1, (int)Math.ceil(aMax)-1);
+
+		int[] data = raster.getData();
+		int rw = raster.getWidth();
+		int aA = argb1>>>24, rA = (argb1>>16)&0xff, gA = (argb1>>8)&0xff, bA = argb1&0xff;
+		int aB = argb2>>>24, rB = (argb2>>16)&0xff, gB = (argb2>>8)&0xff, bB = argb2&0xff;
+		boolean gradient = argb1 != argb2;
+		double unit = strokeLength/16;
+		double period = pattern == null ? 0 : unit*pattern.length;
+		int lastBit = pattern == null ? 0 : pattern.length-1;
+
+		// pixels are projected onto the segment for gradients and stroke patterns (path distance of the center +- halfFootprint)
+		boolean perPixel = gradient || pattern != null;
+		double db = b2-b1;
+		double halfFootprint = 0.5*(Math.abs(da)+Math.abs(db))/len;
+
+		for(int col=col0; col<=col1; col++){
+			// coverage along major axis (end columns are partially covered)
+			double lo = Math.max(col, aMin), hi = Math.min(col+1, aMax);
+			double coverageA = hi-lo;
+			if(coverageA <= 0)
+				continue;
+			double am = (lo+hi)*0.5;
+			double bc = b1 + (am-a1)*slope;
+			double bLo = bc-halfSpan, bHi = bc+halfSpan;
+			int row0 = Math.max(clipB0, (int)Math.floor(bLo));
+			int row1 = Math.min(clipB1-1, (int)Math.floor(bHi));
+			int a = aA, rgb = argb1 & 0x00ffffff;
+			for(int row=row0; row<=row1; row++){
+				double coverage = coverageA*(Math.min(row+1, bHi) - Math.max(row, bLo));
+				if(coverage <= 0)
+					continue;
+				if(perPixel){
+					double u = ((col+0.5-a1)*da + (row+0.5-b1)*db)/len;
+					if(pattern != null){
+						double pos = (patternOffset + u - halfFootprint) % period;
+						if(pos < 0) pos += period;
+						coverage *= opaqueFraction(pattern, unit, lastBit, pos, 2*halfFootprint);
+						if(coverage <= 0)
+							continue;
+					}
+					if(gradient){
+						double t = Math.max(0, Math.min(1, u/len));
+						a = (int)(aA + (aB-aA)*t + 0.5);
+						int r = (int)(rA + (rB-rA)*t + 0.5);
+						int g = (int)(gA + (gB-gA)*t + 0.5);
+						int b = (int)(bA + (bB-bA)*t + 0.5);
+						rgb = (r<<16)|(g<<8)|b;
+					}
+				}
+				int alpha = (int)(a*coverage + 0.5);
+				int idx = steep ? row+col*rw : col+row*rw;
+				data[idx] = FallbackRaster.blendSrcOver(data[idx], rgb, alpha);
+			}
+		}
+	}
+
+	/**
+	 * @return the fraction of the pattern interval [pos, pos+length] that is opaque, pos needs to be within the pattern period
+	 */
+	protected static double opaqueFraction(boolean[] pattern, double unit, int lastBit, double pos, double length) {
+		double opaque = 0;
+		double remaining = length;
+		int bit = Math.min(lastBit, (int)(pos/unit));
+		double inBit = pos - bit*unit;
+		while(remaining > 0){
+			double step = Math.min(remaining, unit-inBit);
+			if(pattern[bit])
+				opaque += step;
+			remaining -= step;
+			inBit = 0;
+			bit = bit == lastBit ? 0 : bit+1;
+		}
+		return opaque/length;
+	}
+
+}
@@ -0,0 +1,140 @@
+package hageldave.jplotter.renderers;
+
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The LinesBatch class packs the segments of multiple {@link Lines} objects into a single vertex array,
+ * so that the {@link LinesRenderer} can draw them with a single draw call.
+ * The vertex array has the same layout as the one of a {@link Lines} object, i.e. attributes
+ * 0 (coordinates), 1 (colors), 2 (picking colors), 3 (thicknesses) and 4 (path lengths).
+ * Stroke pattern and global multipliers (thickness, alpha, saturation) are uniforms and thus have
+ * to be the same for all items of a batch.
+ * <p>
+ * Path lengths depend on the view transform, which has to be set through {@link #setViewScaling(double, double)}
+ * before {@link #sync(java.util.List, boolean)}. When it changes and the items have a stroke pattern,
+ * all items have to be rewritten.
+ *
+ * @author hageldave
+ */
+public class LinesBatch extends RenderableBatch<Lines> {
+
+	protected float[] segmentCoords = new float[0];
+	protected int[] colors = new int[0];
+	protected int[] pickColors = new int[0];
+	protected float[] thicknesses = new float[0];
+	protected float[] pathLengths = new float[0];
+
+	protected double scaleX = 1;
+	protected double scaleY = 1;
+
+	/**
+	 * Sets the scaling of the current view transform, which is used to compute the
+	 * screen space path lengths of the segments for stroke patterns.
+	 * @param scaleX scaling of the x coordinate of the current view transform
+	 * @param scaleY scaling of the y coordinate of the current view transform
+	 * @return this for chaining
+	 */
+	public LinesBatch setViewScaling(double scaleX, double scaleY) {
+		this.scaleX = scaleX;
+		this.scaleY = scaleY;
+		return this;
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the item is not batchable (see {@link Lines#isBatchable()})
+	 */
+	@Override
+	protected int sizeOf(Lines item) {
+		if(!item.isBatchable())
+			throw new IllegalArgumentException("Lines of type " + item.getClass().getSimpleName() + " cannot be part of a batch");
+		return item.numSegments();
+	}
+
+	@Override
+	protected void allocate(int capacity) {
+		segmentCoords = Arrays.copyOf(segmentCoords, capacity*4);
+		colors = Arrays.copyOf(colors, capacity*2);
+		pickColors = Arrays.copyOf(pickColors, capacity*2);
+		thicknesses = Arrays.copyOf(thicknesses, capacity*2);
+		pathLengths = Arrays.copyOf(pathLengths, capacity*2);
+	}
+
+	@Override
+	protected void write(int index, Lines item, int offset) {
+		item.fillGLBuffers(0, item.numSegments(), segmentCoords, colors, pickColors, thicknesses,
+				item.hasStrokePattern() ? pathLengths:null, offset, scaleX, scaleY);
+		item.clearDirty();
+	}
+
+	@Override
+	@GLContextRequired
+	protected void upload(boolean reallocate, int from, int to) {
+		if(reallocate){
+			va.setBuffer(0, 2, segmentCoords);
+			va.setBuffer(1, 1, false, colors);
+			va.setBuffer(2, 1, false, pickColors);
+			va.setBuffer(3, 1, thicknesses);
+			va.setBuffer(4, 1, pathLengths);
+		} else {
+			va.updateBufferRange(0, from*4, Arrays.copyOfRange(segmentCoords, from*4, to*4));
+			va.updateBufferRange(1, from*2, Arrays.copyOfRange(colors, from*2, to*2));
+			va.updateBufferRange(2, from*2, Arrays.copyOfRange(pickColors, from*2, to*2));
+			va.updateBufferRange(3, from*2, Arrays.copyOfRange(thicknesses, from*2, to*2));
+			va.updateBufferRange(4, from*2, Arrays.copyOfRange(pathLengths, from*2, to*2));
+		}
+	}
+
+	@Override
+	@GLContextRequired
+	public void initGL() {
+		if(Objects.nonNull(va))
+			return;
+		va = new VertexArray(5);
+		for(int i=0; i<5; i++)
+			va.setBufferUsage(i, GL15.GL_DYNAMIC_DRAW);
+		uploadedCapacity = 0;
+	}
+
+	@Override
+	@GLContextRequired
+	public void draw() {
+		if(numElements == 0)
+			return;
+		va.bindAndEnableAttributes(0,1,2,3,4);
+		GL11.glDrawArrays(GL11.GL_LINES, 0, numElements*2);
+		va.releaseAndDisableAttributes(0,1,2,3,4);
+	}
+
+	/**
+	 * Returns the per segment coordinates (x0,y0,x1,y1), only the first {@link #getNumElements()}*4 values are valid.
+	 * @return the coordinate array (not a copy)
+	 */
+	public float[] getSegmentCoords() {
+		return segmentCoords;
+	}
+
+	/**
+	 * Returns the per vertex packed colors, only the first {@link #getNumElements()}*2 values are valid.
+	 * @return the color array (not a copy)
+	 */
+	public int[] getColors() {
+		return colors;
+	}
+
+	/**
+	 * Returns the per vertex screen space path lengths, only the first {@link #getNumElements()}*2 values are valid.
+	 * Values of items without stroke pattern are undefined.
+	 * @return the path length array (not a copy)
+	 */
+	public float[] getPathLengths() {
+		return pathLengths;
+	}
+
+}
@@ -1,15 +1,19 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.imagingkit.core.Img;
 import hageldave.imagingkit.core.Pixel;
 import hageldave.jplotter.color.ColorOperations;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.pdf.PDFUtils;
+import hageldave.jplotter.renderables.DecimatedLineStrip;
 import hageldave.jplotter.renderables.Lines;
 import hageldave.jplotter.renderables.Lines.SegmentDetails;
 import hageldave.jplotter.renderables.Renderable;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.FallbackRaster;
 import hageldave.jplotter.util.GLUtils;
+import hageldave.jplotter.util.GenericKey;
 import hageldave.jplotter.util.ShaderRegistry;
 import hageldave.jplotter.util.Utils;
 import org.apache.batik.ext.awt.geom.Polygon2D;
@@ -29,18 +33,23 @@ import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
 import org.apache.pdfbox.pdmodel.graphics.shading.PDShadingType2;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL40;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
 import java.util.Objects;
 
 import static hageldave.jplotter.util.Utils.hypot;
@@ -54,10 +63,14 @@ import static hageldave.jplotter.util.Utils.hypot;
  * <br>
  * Its fragment shader draws the picking color into the second render buffer
  * alongside the 'visible' color that is drawn into the first render buffer.
+ * <br>
+ * For scenes with many small {@link Lines} objects, batching can be enabled
+ * ({@link #setBatchingEnabled(boolean)}) to draw compatible objects with a single draw call
+ * (see {@link LinesBatch}).
  *
  * @author hageldave
  */
-public class LinesRenderer extends GenericRenderer<Lines> {
+public class LinesRenderer extends GenericRenderer<Lines> implements AnalyticPicking {
 
 	protected static final char NL = '\n';
 	
@@ -245,6 +258,84 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 	protected int preVpW = 0;
 	protected int preVpH = 0;
 	private final int[] strokePattern = new int[16];
+	
+	protected boolean isBatchingEnabled = false;
+	protected int batchingMaxItemSize = 1024;
+	protected HashMap<GenericKey, LinesBatch> batches = new HashMap<>();
+	protected boolean isDirectRasterizationEnabled = true;
+	
+	
+	/**
+	 * Enables or disables batching of small {@link Lines} objects.
+	 * When enabled, all visible items with at most {@link #getBatchingMaxItemSize()} segments that share
+	 * the same stroke pattern, stroke length, vertex rounding and (roughly, i.e. up to 3 decimal places) 
+	 * equal global thickness, alpha and saturation multipliers are packed into a {@link LinesBatch} 
+	 * and drawn with a single draw call instead of one draw call per item.
+	 * A batch is only repacked when its membership (or the number of segments of a member) changes,
+	 * otherwise only the segments of dirty items are rewritten.
+	 * Items that are part of a batch do not keep a vertex array of their own.
+	 * Items that are not batchable (see {@link Lines#isBatchable()}) are always drawn individually.
+	 * <p>
+	 * Individually drawn items are drawn before the batches, and batches are drawn group by group, 
+	 * so the drawing order of overlapping items may differ from the order in {@link #getItemsToRender()}.
+	 * When GL double precision is in use, batching does not apply and every item is drawn individually.
+	 * Batching only affects GL rendering.
+	 * @param enable true when batching should be used
+	 * @return this for chaining
+	 */
+	public LinesRenderer setBatchingEnabled(boolean enable) {
+		this.isBatchingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when batching is enabled, see {@link #setBatchingEnabled(boolean)}
+	 */
+	public boolean isBatchingEnabled() {
+		return isBatchingEnabled;
+	}
+	
+	/**
+	 * Sets the maximum number of segments of an item to be considered for batching.
+	 * Default is 1024.
+	 * @param maxItemSize maximum number of segments
+	 * @return this for chaining
+	 */
+	public LinesRenderer setBatchingMaxItemSize(int maxItemSize) {
+		this.batchingMaxItemSize = maxItemSize;
+		return this;
+	}
+	
+	/**
+	 * @return maximum number of segments of an item to be considered for batching, see {@link #setBatchingMaxItemSize(int)}
+	 */
+	public int getBatchingMaxItemSize() {
+		return batchingMaxItemSize;
+	}
+
+	/**
+	 * Enables or disables direct rasterization for fallback rendering.
+	 * When enabled and the graphics handed to {@link #renderFallback(Graphics2D, Graphics2D, int, int)} expose
+	 * their raster (see {@link FallbackRaster}), antialiased segments of constant thickness up to
+	 * {@link LineRasterizer#MAX_THICKNESS} are rasterized directly into the raster ({@link LineRasterizer})
+	 * instead of being stroked through Java2D.
+	 * The result matches Java2D up to rounding at the segment ends and stroke pattern boundaries.
+	 * Picking colors, thicker lines and lines of varying thickness are always drawn through Java2D.
+	 * Default is true.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public LinesRenderer setDirectRasterizationEnabled(boolean enable) {
+		this.isDirectRasterizationEnabled = enable;
+		return this;
+	}
+
+	/**
+	 * @return true when direct rasterization is enabled, see {@link #setDirectRasterizationEnabled(boolean)}
+	 */
+	public boolean isDirectRasterizationEnabled() {
+		return isDirectRasterizationEnabled;
+	}
 
 
 	/**
@@ -274,7 +365,16 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 		Shader shader = getShader();
 		boolean useDoublePrecision = shader == shaderD;
 		boolean vpHasChanged = w != preVpW || h != preVpH;
-		if(Objects.nonNull(shader) && w>0 && h>0 && !itemsToRender.isEmpty()){
+		if(isBatchingEnabled && !useDoublePrecision){
+			if(Objects.nonNull(shader) && w>0 && h>0){
+				renderBatched(w, h, shader, vpHasChanged);
+			}
+		} else if(Objects.nonNull(shader) && w>0 && h>0 && !itemsToRender.isEmpty()){
+			if(!batches.isEmpty()){
+				batches.values().forEach(LinesBatch::close);
+				batches.clear();
+			}
+			decimateItems(w, h);
 			// initialize all objects first
 			for(Lines item: itemsToRender){
 				item.initGL();
@@ -308,6 +408,105 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 		preVpW = w;
 		preVpH = h;
 	}
+	
+	/**
+	 * Renders items that are not batchable or larger than {@link #getBatchingMaxItemSize()} individually,
+	 * and all other items in batches (see {@link #setBatchingEnabled(boolean)}).
+	 * @param w width of the view port
+	 * @param h height of the view port
+	 * @param shader the single precision shader
+	 * @param vpHasChanged whether the view port size changed since the last frame
+	 */
+	@GLContextRequired
+	protected void renderBatched(int w, int h, Shader shader, boolean vpHasChanged) {
+		decimateItems(w, h);
+		LinkedHashMap<GenericKey, ArrayList<Lines>> groups = new LinkedHashMap<>();
+		ArrayList<Lines> individuals = new ArrayList<>();
+		for(Lines item: itemsToRender){
+			if(item.isHidden() || item.numSegments() < 1)
+				continue;
+			if(!item.isBatchable() || item.numSegments() > batchingMaxItemSize){
+				individuals.add(item);
+			} else {
+				groups.computeIfAbsent(batchingKey(item), k->new ArrayList<>()).add(item);
+			}
+		}
+		// dispose of batches that are no longer in use
+		for(Iterator<Entry<GenericKey, LinesBatch>> it = batches.entrySet().iterator(); it.hasNext();){
+			Entry<GenericKey, LinesBatch> entry = it.next();
+			if(!groups.containsKey(entry.getKey())){
+				entry.getValue().close();
+				it.remove();
+			}
+		}
+		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
+		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
+		boolean viewHasChanged_ = this.viewHasChanged;
+		this.viewHasChanged = false;
+		if(individuals.isEmpty() && groups.isEmpty())
+			return;
+		shader.bind();
+		orthoMX = GLUtils.orthoMX(orthoMX, 0, w, 0, h);
+		renderStart(w, h, shader);
+		for(Lines item: individuals){
+			item.initGL();
+			if(	item.isDirty() 
+				|| item.isGLDoublePrecision()
+				||((viewHasChanged_ || vpHasChanged) && item.hasStrokePattern() )
+			){
+				item.updateGL(false, scaleX, scaleY);
+			}
+			renderItem(item, shader);
+		}
+		for(Entry<GenericKey, ArrayList<Lines>> group: groups.entrySet()){
+			Lines first = group.getValue().get(0);
+			// batched items do not need their own vertex arrays
+			group.getValue().forEach(Lines::close);
+			LinesBatch batch = batches.computeIfAbsent(group.getKey(), k->new LinesBatch());
+			batch.setViewScaling(scaleX, scaleY);
+			batch.sync(group.getValue(), (viewHasChanged_ || vpHasChanged) && first.hasStrokePattern());
+			batch.initGL();
+			batch.updateGL();
+			renderBatch(batch, first, shader);
+		}
+		renderEnd();
+		shader.release();
+	}
+	
+	/**
+	 * Returns the key of the batch the specified item belongs to, i.e. the state that is
+	 * set through uniforms per draw call.
+	 * Global multipliers are compared up to 3 decimal places.
+	 * @param item to be batched
+	 * @return batching key
+	 */
+	protected GenericKey batchingKey(Lines item) {
+		return new GenericKey(
+				item.getStrokePattern(),
+				item.hasStrokePattern() ? item.getStrokeLength():0f,
+				item.isVertexRoundingEnabled(),
+				Math.round(item.getGlobalThicknessMultiplier()*1000.0),
+				Math.round(item.getGlobalAlphaMultiplier()*1000.0),
+				Math.round(item.getGlobalSaturationMultiplier()*1000.0));
+	}
+	
+	/**
+	 * Sets the per draw call uniforms according to the specified representative item of the batch
+	 * and draws the batch.
+	 * @param batch to draw
+	 * @param representative item of the batch
+	 * @param shader the single precision shader
+	 */
+	@GLContextRequired
+	protected void renderBatch(LinesBatch batch, Lines representative, Shader shader) {
+		shader.setUniform1f("linewidthMultiplier", representative.getGlobalThicknessMultiplier());
+		shader.setUniform1f("saturationScaling", representative.getGlobalSaturationMultiplier());
+		shader.setUniform1f("alphaMultiplier", representative.getGlobalAlphaMultiplier());
+		shader.setUniform1i("roundposition", representative.isVertexRoundingEnabled() ? 1:0);
+		shader.setUniform1iv("strokePattern", transferBits(representative.getStrokePattern(), strokePattern));
+		shader.setUniform1f("strokeLength", representative.hasStrokePattern() ? representative.getStrokeLength():0);
+		batch.draw();
+	}
 
 
 	/**
@@ -326,19 +525,16 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 		double translateY = Objects.isNull(view) ? 0:view.getY();
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
-		int loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "viewTransform");
-
 		if (shader == shaderD /* double precision shader */)
 		{
-			GL40.glUniform4d(loc, translateX, translateY, scaleX, scaleY);
+			shader.setUniform4d("viewTransform", translateX, translateY, scaleX, scaleY);
 		}
 		else
 		{
-			GL20.glUniform4f(loc, (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
+			shader.setUniform4f("viewTransform", (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
 		}
 
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "projMX");
-		GL20.glUniformMatrix4fv(loc, false, orthoMX);
+		shader.setUniformMatrix4f("projMX", orthoMX);
 	}
 
 	@Override
@@ -347,22 +543,15 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 		if(lines.numSegments() < 1) {
 			return;
 		}
-		int loc;
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "linewidthMultiplier");
-		GL20.glUniform1f(loc, lines.getGlobalThicknessMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "saturationScaling");
-		GL20.glUniform1f(loc, lines.getGlobalSaturationMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "alphaMultiplier");
-		GL20.glUniform1f(loc, lines.getGlobalAlphaMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "roundposition");
-		GL20.glUniform1i(loc, lines.isVertexRoundingEnabled() ? 1:0);
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "strokePattern");
-		GL20.glUniform1iv(loc, transferBits(lines.getStrokePattern(), strokePattern));
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "strokeLength");
-		GL20.glUniform1f(loc, lines.hasStrokePattern() ? lines.getStrokeLength():0);
+		shader.setUniform1f("linewidthMultiplier", lines.getGlobalThicknessMultiplier());
+		shader.setUniform1f("saturationScaling", lines.getGlobalSaturationMultiplier());
+		shader.setUniform1f("alphaMultiplier", lines.getGlobalAlphaMultiplier());
+		shader.setUniform1i("roundposition", lines.isVertexRoundingEnabled() ? 1:0);
+		shader.setUniform1iv("strokePattern", transferBits(lines.getStrokePattern(), strokePattern));
+		shader.setUniform1f("strokeLength", lines.hasStrokePattern() ? lines.getStrokeLength():0);
 		// draw things
 		lines.bindVertexArray();
-		GL11.glDrawArrays(GL11.GL_LINES, 0, lines.numSegments()*2);
+		GL11.glDrawArrays(GL11.GL_LINES, 0, lines.numGLSegments()*2);
 		lines.releaseVertexArray();
 	}
 
@@ -377,6 +566,21 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 		GL11.glEnable(GL11.GL_DEPTH_TEST);
 	}
 
+	/**
+	 * Computes the segments of all {@link DecimatedLineStrip} items for the current view
+	 * and view port width. This is done before every rendering (GL, fallback, SVG and PDF).
+	 * @param w width of the view port
+	 * @param h height of the view port
+	 */
+	protected void decimateItems(int w, int h) {
+		Rectangle2D viewRect = Objects.isNull(view) ? new Rectangle2D.Double(0, 0, w, h) : view;
+		for(Lines item: itemsToRender){
+			if(item instanceof DecimatedLineStrip){
+				((DecimatedLineStrip)item).decimate(viewRect, w);
+			}
+		}
+	}
+
 	@Override
 	public void setView(Rectangle2D view) {
 		boolean sameView = Objects.equals(view, this.view);
@@ -399,6 +603,8 @@ public class LinesRenderer extends GenericRenderer<Lines> {
 			ShaderRegistry.handbackShader(shaderD);
 		shaderD = null;
 		closeAllItems();
+		batches.values().forEach(LinesBatch::close);
+		batches.clear();
 	}
 
     @Override
@@ -406,6 +612,7 @@ public class LinesRenderer extends GenericRenderer<Lines> {
         if (!isEnabled()) {
             return;
         }
+        decimateItems(w, h);
 
         double translateX = Objects.isNull(view) ? 0 : view.getX();
         double translateY = Objects.isNull(view) ? 0 : view.getY();
@@ -422,9 +629,10 @@ public class LinesRenderer extends GenericRenderer<Lines> {
             }
 
             boolean hasVaryingThickness = false;
-            double thick = lines.getSegments().get(0).thickness0.getAsDouble();
-            for (int i = 0; i < lines.numSegments(); i++) {
-                SegmentDetails seg = lines.getSegments().get(i);
+            List<SegmentDetails> segments = lines.getSegments();
+            double thick = segments.get(0).thickness0.getAsDouble();
+            for (int i = 0; i < segments.size(); i++) {
+                SegmentDetails seg = segments.get(i);
                 if (seg.thickness0.getAsDouble() != thick || seg.thickness1.getAsDouble() != thick) {
                     hasVaryingThickness = true;
                     break;
@@ -454,6 +662,21 @@ public class LinesRenderer extends GenericRenderer<Lines> {
         double prevY = 0;
 
         float[] dash = lines.hasStrokePattern() ? strokePattern2dashPattern(lines.getStrokePattern(), lines.getStrokeLength()) : null;
+        boolean drawPicking = !Utils.isClippedAway(p);
+        Rectangle2D clipRect = Utils.getClipBounds(g, p);
+        if (clipRect != null) {
+            // segments may reach into the clip by half their thickness
+            clipRect = new Rectangle2D.Double(clipRect.getX() - thickness - 1, clipRect.getY() - thickness - 1, clipRect.getWidth() + 2 * thickness + 2, clipRect.getHeight() + 2 * thickness + 2);
+        }
+
+        // raster for direct rasterization of thin antialiased segments, picking colors are drawn through Java2D
+        Img raster = isDirectRasterizationEnabled && thickness > 0 && thickness <= LineRasterizer.MAX_THICKNESS
+                && g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON
+                && g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL) == RenderingHints.VALUE_STROKE_PURE
+                ? FallbackRaster.getRaster(g) : null;
+        Rectangle rasterClip = raster == null ? null : FallbackRaster.getDeviceClip(g, raster);
+        AffineTransform gXform = raster == null ? null : g.getTransform();
+        boolean[] patternLUT = raster != null && dash != null ? LineRasterizer.dashPattern2LUT(dash, lines.getStrokeLength()) : null;
 
         for (SegmentDetails seg : lines.getSegments()) {
             double x1, y1, x2, y2;
@@ -504,6 +727,9 @@ public class LinesRenderer extends GenericRenderer<Lines> {
             if (!viewportRect.intersectsLine(x1, y1, x2, y2)) {
                 continue;
             }
+            if (clipRect != null && !clipRect.intersectsLine(x1, y1, x2, y2)) {
+                continue;
+            }
 
             Paint paint;
 
@@ -513,10 +739,15 @@ public class LinesRenderer extends GenericRenderer<Lines> {
             int c2 = ColorOperations.changeSaturation(seg.color1.getAsInt(), lines.getGlobalSaturationMultiplier());
             c2 = ColorOperations.scaleColorAlpha(c2, lines.getGlobalAlphaMultiplier());
 
-            if (c1 != c2) {
-                paint = new GradientPaint((float) x1, (float) y1, new Color(c1, true), (float) x2, (float) y2, new Color(c2, true));
-            } else paint = new Color(c1, true);
-            g.setPaint(paint);
+            if (raster != null) {
+                LineRasterizer.drawLine(raster, rasterClip,
+                        gXform.getScaleX() * x1 + gXform.getTranslateX(), gXform.getScaleY() * y1 + gXform.getTranslateY(),
+                        gXform.getScaleX() * x2 + gXform.getTranslateX(), gXform.getScaleY() * y2 + gXform.getTranslateY(),
+                        thickness, c1, c2, patternLUT, lines.getStrokeLength(), l1);
+                if (seg.pickColor == 0 || !drawPicking) {
+                    continue;
+                }
+            }
 
             BasicStroke stroke;
             if (lines.hasStrokePattern()) {
@@ -524,12 +755,19 @@ public class LinesRenderer extends GenericRenderer<Lines> {
             } else {
                 stroke = new BasicStroke(thickness, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1f);
             }
-            g.setStroke(stroke);
 
-			// clip segments before here
-            g.draw(Utils.getClippedLine(viewportRect, new Line2D.Double(x1, y1, x2, y2)));
+            if (raster == null) {
+                if (c1 != c2) {
+                    paint = new GradientPaint((float) x1, (float) y1, new Color(c1, true), (float) x2, (float) y2, new Color(c2, true));
+                } else paint = new Color(c1, true);
+                g.setPaint(paint);
+                g.setStroke(stroke);
+
+                // clip segments before here
+                g.draw(Utils.getClippedLine(viewportRect, new Line2D.Double(x1, y1, x2, y2)));
+            }
 
-            if (seg.pickColor != 0) {
+            if (seg.pickColor != 0 && drawPicking) {
                 p.setStroke(stroke);
                 p.setColor(new Color(seg.pickColor));
                 p.draw(new Line2D.Double(x1, y1, x2, y2));
@@ -550,6 +788,8 @@ public class LinesRenderer extends GenericRenderer<Lines> {
         double dist = 0;
         double prevX = 0;
         double prevY = 0;
+        boolean drawPicking = !Utils.isClippedAway(p);
+        Rectangle2D clipRect = Utils.getClipBounds(g, p);
 
         for (SegmentDetails seg : lines.getSegments()) {
             double x1, y1, x2, y2;
@@ -596,6 +836,12 @@ public class LinesRenderer extends GenericRenderer<Lines> {
             double miterY = -dx * normalize * 0.5;
             double t1 = seg.thickness0.getAsDouble() * lines.getGlobalThicknessMultiplier();
             double t2 = seg.thickness1.getAsDouble() * lines.getGlobalThicknessMultiplier();
+            if (clipRect != null) {
+                double margin = Math.max(t1, t2) + 1;
+                if (!clipRect.intersects(Math.min(x1, x2) - margin, Math.min(y1, y2) - margin, Math.abs(dx) + 2 * margin, Math.abs(dy) + 2 * margin)) {
+                    continue;
+                }
+            }
 
 
             Paint paint;
@@ -630,7 +876,7 @@ public class LinesRenderer extends GenericRenderer<Lines> {
                 }
                 // drawing
                 g.fill(new Polygon2D(pc[0], pc[1], 4));
-                if (seg.pickColor != 0) {
+                if (seg.pickColor != 0 && drawPicking) {
                     p.setColor(new Color(seg.pickColor));
                     p.fill(new Polygon2D(pc[0], pc[1], 4));
                 }
@@ -669,7 +915,7 @@ public class LinesRenderer extends GenericRenderer<Lines> {
                     }
                     // drawing
                     g.fill(new Polygon2D(pc[0], pc[1], 4));
-                    if (seg.pickColor != 0) {
+                    if (seg.pickColor != 0 && drawPicking) {
                         p.setColor(new Color(seg.pickColor));
                         p.fill(new Polygon2D(pc[0], pc[1], 4));
                     }
@@ -680,11 +926,71 @@ public class LinesRenderer extends GenericRenderer<Lines> {
         }
     }
 
+    /**
+     * Hit tests the segments as capsules of their (interpolated) thickness in screen space.
+     * Stroke patterns are ignored, i.e. the gaps of dashed lines are pickable as well.
+     */
+    @Override
+    public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+        if (!isEnabled()) {
+            return;
+        }
+        double translateX = Objects.isNull(view) ? 0 : view.getX();
+        double translateY = Objects.isNull(view) ? 0 : view.getY();
+        double scaleX = Objects.isNull(view) ? 1 : w / view.getWidth();
+        double scaleY = Objects.isNull(view) ? 1 : h / view.getHeight();
+
+        for (Lines lines : getItemsToRender()) {
+            if (lines.isHidden() || lines.getStrokePattern() == 0 || lines.numSegments() == 0) {
+                continue;
+            }
+            double thicknessMultiplier = lines.getGlobalThicknessMultiplier();
+            for (SegmentDetails seg : lines.getSegments()) {
+                if (seg.pickColor == 0) {
+                    continue;
+                }
+                double halfT0 = seg.thickness0.getAsDouble() * thicknessMultiplier * 0.5;
+                double halfT1 = seg.thickness1.getAsDouble() * thicknessMultiplier * 0.5;
+                double reach = Math.max(halfT0, halfT1);
+                if (reach <= 0) {
+                    continue;
+                }
+                double x1 = (seg.p0.getX() - translateX) * scaleX;
+                double y1 = (seg.p0.getY() - translateY) * scaleY;
+                double x2 = (seg.p1.getX() - translateX) * scaleX;
+                double y2 = (seg.p1.getY() - translateY) * scaleY;
+                // reject segments whose bounds do not reach the area
+                if (Math.max(x1, x2) + reach < x || Math.min(x1, x2) - reach > x + areaW
+                        || Math.max(y1, y2) + reach < y || Math.min(y1, y2) - reach > y + areaH) {
+                    continue;
+                }
+                double dx = x2 - x1;
+                double dy = y2 - y1;
+                double lenSq = dx * dx + dy * dy;
+                for (int j = 0; j < areaH; j++) {
+                    double py = y + j + 0.5 - y1;
+                    for (int i = 0; i < areaW; i++) {
+                        double px = x + i + 0.5 - x1;
+                        // parameter of the closest point on the segment
+                        double t = lenSq == 0 ? 0 : Math.max(0, Math.min(1, ( px * dx + py * dy ) / lenSq));
+                        double ex = px - t * dx;
+                        double ey = py - t * dy;
+                        double halfT = halfT0 + t * ( halfT1 - halfT0 );
+                        if (ex * ex + ey * ey <= halfT * halfT) {
+                            pickColors[j * areaW + i] = 0xff000000 | seg.pickColor;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     @Override
     public void renderSVG(Document doc, Element parent, int w, int h) {
         if (!isEnabled()) {
             return;
         }
+        decimateItems(w, h);
         Element mainGroup = SVGUtils.createSVGElement(doc, "g");
         parent.appendChild(mainGroup);
 
@@ -909,6 +1215,7 @@ public class LinesRenderer extends GenericRenderer<Lines> {
         if (!isEnabled()) {
             return;
         }
+        decimateItems(w, h);
         double translateX = Objects.isNull(view) ? 0 : view.getX();
         double translateY = Objects.isNull(view) ? 0 : view.getY();
         double scaleX = Objects.isNull(view) ? 1 : w / view.getWidth();
@@ -0,0 +1,153 @@
+package hageldave.jplotter.renderers;
+
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.GlyphRegistry;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The PointsBatch class packs the points of multiple {@link Points} objects that use the same
+ * {@link Glyph} into a single vertex array, so that the {@link PointsRenderer} can draw them with
+ * a single instanced draw call.
+ * The vertex array has the same layout as the one of a {@link Points} object, i.e. the shared glyph
+ * geometry on attribute 0 (see {@link GlyphRegistry}) and the per point attributes
+ * 1 (position), 2 (rotation and scaling) and 3 (color and picking color).
+ * Global multipliers (scaling, alpha, saturation) are uniforms and thus have to be the same for all
+ * items of a batch.
+ *
+ * @author hageldave
+ */
+public class PointsBatch extends RenderableBatch<Points> {
+
+	public final Glyph glyph;
+
+	protected float[] position = new float[0];
+	protected float[] rotAndScale = new float[0];
+	protected int[] colors = new int[0];
+
+	/**
+	 * Creates a new batch for {@link Points} using the specified glyph.
+	 * @param glyph of the batched items
+	 */
+	public PointsBatch(Glyph glyph) {
+		this.glyph = glyph;
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the item uses a different glyph than this batch
+	 */
+	@Override
+	protected int sizeOf(Points item) {
+		if(item.getGlyph() != glyph)
+			throw new IllegalArgumentException("Points with glyph " + item.getGlyph().glyphName() + " cannot be part of a batch for glyph " + glyph.glyphName());
+		return item.numPoints();
+	}
+
+	@Override
+	protected void allocate(int capacity) {
+		position = Arrays.copyOf(position, capacity*2);
+		rotAndScale = Arrays.copyOf(rotAndScale, capacity*2);
+		colors = Arrays.copyOf(colors, capacity*2);
+	}
+
+	@Override
+	protected void write(int index, Points item, int offset) {
+		item.fillGLBuffers(0, item.numPoints(), position, rotAndScale, colors, offset);
+		item.clearDirty();
+	}
+
+	@Override
+	@GLContextRequired
+	protected void upload(boolean reallocate, int from, int to) {
+		if(reallocate){
+			va.setBuffer(1, 2, position);
+			va.setBuffer(2, 2, rotAndScale);
+			va.setBuffer(3, 2, false, colors);
+		} else {
+			va.updateBufferRange(1, from*2, Arrays.copyOfRange(position, from*2, to*2));
+			va.updateBufferRange(2, from*2, Arrays.copyOfRange(rotAndScale, from*2, to*2));
+			va.updateBufferRange(3, from*2, Arrays.copyOfRange(colors, from*2, to*2));
+		}
+	}
+
+	/**
+	 * Creates the vertex array of this batch referencing the glyph geometry of the {@link GlyphRegistry}.
+	 */
+	@Override
+	@GLContextRequired
+	public void initGL() {
+		if(Objects.nonNull(va))
+			return;
+		va = new VertexArray(4);
+		va.setBufferUsage(1, GL15.GL_DYNAMIC_DRAW);
+		va.setBufferUsage(2, GL15.GL_DYNAMIC_DRAW);
+		va.setBufferUsage(3, GL15.GL_DYNAMIC_DRAW);
+		VertexArray geometry = GlyphRegistry.getOrCreateGlyphGeometry(glyph);
+		va.setSharedBuffer(0, geometry, 0);
+		va.setSharedIndices(glyph.useElementsDrawCall() ? geometry:null);
+		uploadedCapacity = 0;
+	}
+
+	@Override
+	@GLContextRequired
+	public void draw() {
+		if(numElements == 0)
+			return;
+		va.bindAndEnableAttributes(0,1,2,3);
+		GL33.glVertexAttribDivisor(1,1);
+		GL33.glVertexAttribDivisor(2,1);
+		GL33.glVertexAttribDivisor(3,1);
+		if(glyph.useElementsDrawCall()){
+			GL31.glDrawElementsInstanced(glyph.primitiveType(), glyph.numVertices(), GL11.GL_UNSIGNED_INT, 0, numElements);
+		} else {
+			GL31.glDrawArraysInstanced(glyph.primitiveType(), 0, glyph.numVertices(), numElements);
+		}
+		va.releaseAndDisableAttributes(0,1,2,3);
+	}
+
+	/**
+	 * Disposes of the GL resources of this batch, i.e. deletes the vertex array
+	 * and hands back the glyph geometry.
+	 */
+	@Override
+	@GLContextRequired
+	public void close() {
+		if(Objects.nonNull(va)){
+			GlyphRegistry.handbackGlyphGeometry(glyph);
+		}
+		super.close();
+	}
+
+	/**
+	 * Returns the per point positions, only the first {@link #getNumElements()}*2 values are valid.
+	 * @return the position array (not a copy)
+	 */
+	public float[] getPositions() {
+		return position;
+	}
+
+	/**
+	 * Returns the per point rotations and scalings, only the first {@link #getNumElements()}*2 values are valid.
+	 * @return the rotation and scaling array (not a copy)
+	 */
+	public float[] getRotAndScales() {
+		return rotAndScale;
+	}
+
+	/**
+	 * Returns the per point packed colors and picking colors, only the first {@link #getNumElements()}*2 values are valid.
+	 * @return the color array (not a copy)
+	 */
+	public int[] getColors() {
+		return colors;
+	}
+
+}
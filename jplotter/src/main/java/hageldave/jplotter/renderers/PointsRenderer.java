@@ -1,5 +1,6 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.imagingkit.core.Img;
 import hageldave.imagingkit.core.Pixel;
 import hageldave.jplotter.color.ColorOperations;
 import hageldave.jplotter.debugging.annotations.DebugGetter;
@@ -8,20 +9,21 @@ import hageldave.jplotter.debugging.panelcreators.control.DecimalSpinnerCreator;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.misc.Glyph;
 import hageldave.jplotter.renderables.Points;
-import hageldave.jplotter.renderables.Points.PointDetails;
 import hageldave.jplotter.renderables.Renderable;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.FallbackRaster;
+import hageldave.jplotter.util.GLUtils;
+import hageldave.jplotter.util.GenericKey;
 import hageldave.jplotter.util.ShaderRegistry;
+import hageldave.jplotter.util.Utils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL31;
-import org.lwjgl.opengl.GL40;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -29,6 +31,11 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
 import java.util.Objects;
 
 /**
@@ -43,10 +50,14 @@ import java.util.Objects;
  * <br>
  * Its fragment shader draws the picking color into the second render buffer
  * alongside the 'visible' color that is drawn into the first render buffer.
+ * <br>
+ * For scenes with many small {@link Points} objects, batching can be enabled
+ * ({@link #setBatchingEnabled(boolean)}) to draw compatible objects with a single draw call
+ * (see {@link PointsBatch}).
  * 
  * @author hageldave
  */
-public class PointsRenderer extends GenericRenderer<Points> {
+public class PointsRenderer extends GenericRenderer<Points> implements AnalyticPicking {
 
 	protected static final char NL = '\n';
 	protected static final String vertexShaderSrcD = ""
@@ -186,6 +197,13 @@ public class PointsRenderer extends GenericRenderer<Points> {
 			;
 
 	protected float glyphScaling = 1f;
+	
+	protected boolean isBatchingEnabled = false;
+	protected int batchingMaxItemSize = 1024;
+	protected HashMap<GenericKey, PointsBatch> batches = new HashMap<>();
+	
+	protected boolean isSpriteStampingEnabled = true;
+	protected final GlyphSpriteCache spriteCache = new GlyphSpriteCache();
 
 	/**
 	 * Sets the renderers glyph scaling value. 
@@ -207,6 +225,79 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		return glyphScaling;
 	}
 	
+	/**
+	 * Enables or disables batching of small {@link Points} objects.
+	 * When enabled, all visible items with at most {@link #getBatchingMaxItemSize()} points that share
+	 * the same glyph, vertex rounding and (roughly, i.e. up to 3 decimal places) equal global scaling, alpha and 
+	 * saturation multipliers are packed into a {@link PointsBatch} and drawn with a single 
+	 * instanced draw call instead of one draw call per item.
+	 * A batch is only repacked when its membership (or the number of points of a member) changes,
+	 * otherwise only the points of dirty items are rewritten.
+	 * Items that are part of a batch do not keep a vertex array of their own.
+	 * <p>
+	 * Larger items are drawn individually before the batches, and batches are drawn group by group, 
+	 * so the drawing order of overlapping items may differ from the order in {@link #getItemsToRender()}.
+	 * When GL double precision is in use, batching does not apply and every item is drawn individually.
+	 * Batching only affects GL rendering.
+	 * @param enable true when batching should be used
+	 * @return this for chaining
+	 */
+	public PointsRenderer setBatchingEnabled(boolean enable) {
+		this.isBatchingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when batching is enabled, see {@link #setBatchingEnabled(boolean)}
+	 */
+	public boolean isBatchingEnabled() {
+		return isBatchingEnabled;
+	}
+	
+	/**
+	 * Sets the maximum number of points of an item to be considered for batching.
+	 * Default is 1024.
+	 * @param maxItemSize maximum number of points
+	 * @return this for chaining
+	 */
+	public PointsRenderer setBatchingMaxItemSize(int maxItemSize) {
+		this.batchingMaxItemSize = maxItemSize;
+		return this;
+	}
+	
+	/**
+	 * @return maximum number of points of an item to be considered for batching, see {@link #setBatchingMaxItemSize(int)}
+	 */
+	public int getBatchingMaxItemSize() {
+		return batchingMaxItemSize;
+	}
+	
+	/**
+	 * Enables or disables sprite stamping for fallback rendering.
+	 * When enabled and the graphics passed to {@link #renderFallback(Graphics2D, Graphics2D, int, int)} expose
+	 * their raster (see {@link FallbackRaster}), glyphs are rasterized once per scaling, rotation and sub pixel
+	 * position into an alpha mask sprite ({@link GlyphSpriteCache}) that is blended into the raster for each point,
+	 * instead of drawing each point through Java2D.
+	 * The result matches Java2D up to rounding, sub pixel position (1/{@value GlyphSpriteCache#SUBPIXEL_STEPS} pixel)
+	 * and rotation ({@value GlyphSpriteCache#ROTATION_STEPS} steps per turn).
+	 * Picking colors are still drawn through Java2D, which is cheap since picking images are rendered
+	 * on demand within small regions.
+	 * Enabled by default.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public PointsRenderer setSpriteStampingEnabled(boolean enable) {
+		this.isSpriteStampingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when sprite stamping is enabled, see {@link #setSpriteStampingEnabled(boolean)}
+	 */
+	public boolean isSpriteStampingEnabled() {
+		return isSpriteStampingEnabled;
+	}
+	
 	/**
 	 * Creates the shader if not already created and 
 	 * calls {@link Renderable#initGL()} for all items 
@@ -240,6 +331,105 @@ public class PointsRenderer extends GenericRenderer<Points> {
 			ShaderRegistry.handbackShader(shaderD);
 		shaderD = null;
 		closeAllItems();
+		batches.values().forEach(PointsBatch::close);
+		batches.clear();
+	}
+	
+	/**
+	 * When batching is disabled (or GL double precision is in use) this renders
+	 * every item individually as implemented by {@link GenericRenderer#render(int, int, int, int)}.
+	 * Otherwise large items are rendered individually and all other items
+	 * are rendered in batches (see {@link #setBatchingEnabled(boolean)}).
+	 */
+	@Override
+	@GLContextRequired
+	public void render(int vpx, int vpy, int w, int h) {
+		Shader shader = getShader();
+		if(!isBatchingEnabled || shader == shaderD){
+			if(!batches.isEmpty()){
+				batches.values().forEach(PointsBatch::close);
+				batches.clear();
+			}
+			super.render(vpx, vpy, w, h);
+			return;
+		}
+		if(!isEnabled() || Objects.isNull(shader) || w <= 0 || h <= 0){
+			return;
+		}
+		LinkedHashMap<GenericKey, ArrayList<Points>> groups = new LinkedHashMap<>();
+		ArrayList<Points> individuals = new ArrayList<>();
+		for(Points item: itemsToRender){
+			if(item.isHidden() || item.numPoints() < 1)
+				continue;
+			if(item.numPoints() > batchingMaxItemSize){
+				individuals.add(item);
+			} else {
+				groups.computeIfAbsent(batchingKey(item), k->new ArrayList<>()).add(item);
+			}
+		}
+		// dispose of batches that are no longer in use
+		for(Iterator<Entry<GenericKey, PointsBatch>> it = batches.entrySet().iterator(); it.hasNext();){
+			Entry<GenericKey, PointsBatch> entry = it.next();
+			if(!groups.containsKey(entry.getKey())){
+				entry.getValue().close();
+				it.remove();
+			}
+		}
+		if(individuals.isEmpty() && groups.isEmpty())
+			return;
+		shader.bind();
+		orthoMX = GLUtils.orthoMX(orthoMX, 0, w, 0, h);
+		renderStart(w, h, shader);
+		for(Points item: individuals){
+			item.initGL();
+			if(item.isDirty() || item.isGLDoublePrecision())
+				item.updateGL(false);
+			renderItem(item, shader);
+		}
+		for(Entry<GenericKey, ArrayList<Points>> group: groups.entrySet()){
+			Points first = group.getValue().get(0);
+			// batched items do not need their own vertex arrays
+			group.getValue().forEach(Points::close);
+			PointsBatch batch = batches.computeIfAbsent(group.getKey(), k->new PointsBatch(first.getGlyph()));
+			batch.sync(group.getValue(), false);
+			batch.initGL();
+			batch.updateGL();
+			renderBatch(batch, first, shader);
+		}
+		renderEnd();
+		shader.release();
+	}
+	
+	/**
+	 * Returns the key of the batch the specified item belongs to, i.e. the state that is
+	 * set through uniforms per draw call.
+	 * Global multipliers are compared up to 3 decimal places.
+	 * @param item to be batched
+	 * @return batching key
+	 */
+	protected GenericKey batchingKey(Points item) {
+		return new GenericKey(
+				item.getGlyph(), 
+				item.isVertexRoundingEnabled(),
+				Math.round(item.getGlobalScaling()*1000.0),
+				Math.round(item.getGlobalAlphaMultiplier()*1000.0),
+				Math.round(item.getGlobalSaturationMultiplier()*1000.0));
+	}
+	
+	/**
+	 * Sets the per draw call uniforms according to the specified representative item of the batch
+	 * and draws the batch.
+	 * @param batch to draw
+	 * @param representative item of the batch
+	 * @param shader the single precision shader
+	 */
+	@GLContextRequired
+	protected void renderBatch(PointsBatch batch, Points representative, Shader shader) {
+		shader.setUniform1f("globalScaling", this.glyphScaling * batch.glyph.pixelSize() * representative.getGlobalScaling());
+		shader.setUniform1f("alphaMultiplier", representative.getGlobalAlphaMultiplier());
+		shader.setUniform1i("roundposition", representative.isVertexRoundingEnabled() ? 1:0);
+		shader.setUniform1f("saturationScaling", representative.getGlobalSaturationMultiplier());
+		batch.draw();
 	}
 
 	/**
@@ -259,21 +449,18 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 		
-		int loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "viewTransform");	
 		if(shader == shaderD /* double precision shader */)
 		{
-			GL40.glUniform4d(loc, translateX, translateY, scaleX, scaleY);
+			shader.setUniform4d("viewTransform", translateX, translateY, scaleX, scaleY);
 		}
 		else
 		{
-			GL20.glUniform4f(loc, (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);		  
+			shader.setUniform4f("viewTransform", (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);		  
 		}		
 
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "modelScaling");
-		GL20.glUniform2f(loc, (float)(1/scaleX), (float)(1/scaleY));
+		shader.setUniform2f("modelScaling", (float)(1/scaleX), (float)(1/scaleY));
 	   
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "projMX");
-		GL20.glUniformMatrix4fv(loc, false, orthoMX);
+		shader.setUniformMatrix4f("projMX", orthoMX);
 	}
 
 	@Override
@@ -282,17 +469,12 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		if(item.numPoints() < 1){
 			return;
 		}
-		int loc;
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "globalScaling");
-		GL20.glUniform1f(loc, this.glyphScaling * item.getGlyph().pixelSize() * item.getGlobalScaling());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "alphaMultiplier");
-		GL20.glUniform1f(loc, item.getGlobalAlphaMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "roundposition");
-		GL20.glUniform1i(loc, item.isVertexRoundingEnabled() ? 1:0);
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "saturationScaling");
-		GL20.glUniform1f(loc, item.getGlobalSaturationMultiplier());
-		// make sure vertex array contains current glyph
-		item.getGlyph().fillVertexArray(item.getVertexArray());
+		shader.setUniform1f("globalScaling", this.glyphScaling * item.getGlyph().pixelSize() * item.getGlobalScaling());
+		shader.setUniform1f("alphaMultiplier", item.getGlobalAlphaMultiplier());
+		shader.setUniform1i("roundposition", item.isVertexRoundingEnabled() ? 1:0);
+		shader.setUniform1f("saturationScaling", item.getGlobalSaturationMultiplier());
+		// make sure vertex array references current glyph
+		item.updateGlyphGeometry();
 		// draw things
 		item.bindVertexArray();
 		if(item.getGlyph().useElementsDrawCall()){
@@ -325,19 +507,31 @@ public class PointsRenderer extends GenericRenderer<Points> {
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 
 		Rectangle2D viewportRect = new Rectangle2D.Double(0, 0, w, h);
+		Rectangle2D clipRect = Utils.getClipBounds(g, p);
 	
 		g.setStroke(new BasicStroke());
 		p.setStroke(new BasicStroke());
+		boolean drawPicking = !Utils.isClippedAway(p);
+		
+		// raster for sprite stamping of antialiased glyphs, picking colors are drawn through Java2D
+		Img raster = isSpriteStampingEnabled 
+				&& g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON
+				&& g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL) == RenderingHints.VALUE_STROKE_PURE
+				? FallbackRaster.getRaster(g) : null;
+		Rectangle rasterClip = raster == null ? null : FallbackRaster.getDeviceClip(g, raster);
+		AffineTransform gXform = g.getTransform();
 		
 		for(Points points : getItemsToRender()){
 			if(points.isHidden()){
 				continue;
 			}
 			Glyph glyph = points.getGlyph();
+			// extent of the largest glyph for testing against the clip
+			double extent = clipRect == null ? 0:glyph.pixelSize()*glyphScaling*points.getGlobalScaling()*points.getMaxPointScaling()+2;
 			
-			for(PointDetails point : points.getPointDetails()){
+			for(int i=0; i<points.numPoints(); i++){
 				double x1,y1;
-				x1=point.location.getX(); y1=point.location.getY();
+				x1=points.getPointX(i); y1=points.getPointY(i);
 				
 				x1-=translateX;
 				y1-=translateY;
@@ -352,32 +546,106 @@ public class PointsRenderer extends GenericRenderer<Points> {
 				{
 					continue;
 				}
+				if(clipRect != null && !clipRect.intersects(x1-extent/2, y1-extent/2, extent, extent)){
+					continue;
+				}
 				
+				double rot = points.getPointRotation(i);
+				double scale = points.getPointScaling(i);
+				int pickColor = points.getPointPickColor(i);
+				float glyphScale = (float)(glyphScaling*points.getGlobalScaling()*scale);
+				int color = ColorOperations.changeSaturation(points.getPointColor(i), points.getGlobalSaturationMultiplier());
+				color = ColorOperations.scaleColorAlpha(color,points.getGlobalAlphaMultiplier());
+				boolean stamp = raster != null && spriteCache.isStampable(glyph, glyphScale);
+				boolean pick = pickColor != 0 && drawPicking;
+				if(stamp){
+					spriteCache.stamp(raster, rasterClip, glyph, glyphScale, rot, 
+							gXform.getScaleX()*x1+gXform.getTranslateX(), gXform.getScaleY()*y1+gXform.getTranslateY(), 
+							gXform.getScaleX() < 0, gXform.getScaleY() < 0, color);
+					if(!pick)
+						continue;
+				}
 				
-				Graphics2D g_ = (Graphics2D) g.create();
 				AffineTransform xform = new AffineTransform();
 				xform.translate(x1, y1);
-				if(point.rot.getAsDouble() != 0.0){
-					xform.rotate(point.rot.getAsDouble());
+				if(rot != 0.0){
+					xform.rotate(rot);
+				}
+				if(!stamp){
+					Graphics2D g_ = (Graphics2D) g.create();
+					g_.transform(xform);
+					g_.setColor(new Color(color, true));
+					glyph.drawFallback(g_, glyphScale);
 				}
-				g_.transform(xform);
-				int color = ColorOperations.changeSaturation(point.color.getAsInt(), points.getGlobalSaturationMultiplier());
-				color = ColorOperations.scaleColorAlpha(color,points.getGlobalAlphaMultiplier());
-
-				g_.setColor(new Color(color, true));
-				glyph.drawFallback(g_, (float)(glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()));
 				
-				if(point.pickColor != 0) {
+				if(pick) {
 					Graphics2D p_ = (Graphics2D) p.create();
 					p_.transform(xform);
-					p_.setColor(new Color(point.pickColor));
-					glyph.drawFallback(p_, (float)(glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()));
+					p_.setColor(new Color(pickColor));
+					glyph.drawFallback(p_, glyphScale);
 				}
 			}
 		}
 		
 	}
 
+	/**
+	 * Hit tests the glyphs of the points through {@link Glyph#contains(double, double)}.
+	 * The candidate points are determined by a rectangle query on the {@link Points}
+	 * which uses the spatial index when enabled ({@link Points#setSpatialIndexEnabled(boolean)}).
+	 */
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		double translateX = Objects.isNull(view) ? 0:view.getX();
+		double translateY = Objects.isNull(view) ? 0:view.getY();
+		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
+		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
+		
+		for(Points points : getItemsToRender()){
+			if(points.isHidden() || points.numPoints() == 0){
+				continue;
+			}
+			Glyph glyph = points.getGlyph();
+			double glyphSize = glyph.pixelSize()*glyphScaling*points.getGlobalScaling();
+			// half diagonal of the largest glyph square bounds the extent around a point
+			double reach = glyphSize*points.getMaxPointScaling()*0.5*Math.sqrt(2);
+			Rectangle2D query = new Rectangle2D.Double(
+					(x-reach)/scaleX+translateX, 
+					(y-reach)/scaleY+translateY, 
+					(areaW+2*reach)/scaleX, 
+					(areaH+2*reach)/scaleY);
+			for(int i : points.getIntersectingPointIndices(query)){
+				int pickColor = points.getPointPickColor(i);
+				if(pickColor == 0){
+					continue;
+				}
+				double px = (points.getPointX(i)-translateX)*scaleX;
+				double py = (points.getPointY(i)-translateY)*scaleY;
+				double size = glyphSize*points.getPointScaling(i);
+				if(size == 0){
+					continue;
+				}
+				double rot = points.getPointRotation(i);
+				double cos = Math.cos(rot), sin = Math.sin(rot);
+				for(int j=0; j<areaH; j++){
+					double dy = y+j+0.5-py;
+					for(int k=0; k<areaW; k++){
+						double dx = x+k+0.5-px;
+						// rotate and scale into glyph space
+						double u = (dx*cos+dy*sin)/size;
+						double v = (dy*cos-dx*sin)/size;
+						if(glyph.contains(u, v)){
+							pickColors[j*areaW+k] = 0xff000000|pickColor;
+						}
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public void renderSVG(Document doc, Element parent, int w, int h) {
 		if(!isEnabled()){
@@ -401,9 +669,9 @@ public class PointsRenderer extends GenericRenderer<Points> {
 			mainGroup.appendChild(pointsGroup);
 			Glyph glyph = points.getGlyph();
 			String symbolID = SVGUtils.createGlyphSymbolDef(doc, glyph, "glyph_"+glyph.glyphName());
-			for(PointDetails point : points.getPointDetails()){
+			for(int i=0; i<points.numPoints(); i++){
 				double x1,y1;
-				x1=point.location.getX(); y1=point.location.getY();
+				x1=points.getPointX(i); y1=points.getPointY(i);
 				
 				x1-=translateX;
 				y1-=translateY;
@@ -419,7 +687,9 @@ public class PointsRenderer extends GenericRenderer<Points> {
 					continue;
 				}
 
-				int color = ColorOperations.changeSaturation(point.color.getAsInt(), points.getGlobalSaturationMultiplier());
+				double rot = points.getPointRotation(i);
+				double scale = points.getPointScaling(i);
+				int color = ColorOperations.changeSaturation(points.getPointColor(i), points.getGlobalSaturationMultiplier());
 
 				Element pointElement = SVGUtils.createSVGElement(doc, "use");
 				pointsGroup.appendChild(pointElement);
@@ -436,11 +706,11 @@ public class PointsRenderer extends GenericRenderer<Points> {
 				}
 				String transform = "";
 				transform += "translate("+SVGUtils.svgNumber(x1)+","+SVGUtils.svgNumber(y1)+")";
-				if(point.rot.getAsDouble() != 0){
-					transform += " rotate("+SVGUtils.svgNumber(point.rot.getAsDouble()*180/Math.PI)+")";
+				if(rot != 0){
+					transform += " rotate("+SVGUtils.svgNumber(rot*180/Math.PI)+")";
 				}
-				if(glyphScaling*point.scale.getAsDouble() != 1){
-					transform += " scale("+SVGUtils.svgPoints(points.getGlobalScaling()*glyphScaling*point.scale.getAsDouble(), points.getGlobalScaling()*glyphScaling*point.scale.getAsDouble())+")";
+				if(glyphScaling*scale != 1){
+					transform += " scale("+SVGUtils.svgPoints(points.getGlobalScaling()*glyphScaling*scale, points.getGlobalScaling()*glyphScaling*scale)+")";
 				}
 				
 				pointElement.setAttributeNS(null, "transform", transform);
@@ -477,10 +747,10 @@ public class PointsRenderer extends GenericRenderer<Points> {
 
 				Glyph glyph = points.getGlyph();
 
-				for (PointDetails point : points.getPointDetails()) {
+				for (int i = 0; i < points.numPoints(); i++) {
 					double x1, y1;
-					x1 = point.location.getX();
-					y1 = point.location.getY();
+					x1 = points.getPointX(i);
+					y1 = points.getPointY(i);
 
 					x1 -= translateX;
 					y1 -= translateY;
@@ -495,23 +765,26 @@ public class PointsRenderer extends GenericRenderer<Points> {
 						continue;
 					}
 
+					double rot = points.getPointRotation(i);
+					double scale = points.getPointScaling(i);
+
 					// save graphics state
 					contentStream.saveGraphicsState();
 					// transform
 					contentStream.transform(new Matrix(1, 0, 0, 1, (float) x1 + x, (float) y1 + y));
-					if(point.rot.getAsDouble() != 0){
+					if(rot != 0){
 						// rotation
-						contentStream.transform(new Matrix((float) Math.cos(-point.rot.getAsDouble()),(float) -Math.sin(-point.rot.getAsDouble()),
-								(float) Math.sin(-point.rot.getAsDouble()),(float) Math.cos(-point.rot.getAsDouble()), 0, 0));
+						contentStream.transform(new Matrix((float) Math.cos(-rot),(float) -Math.sin(-rot),
+								(float) Math.sin(-rot),(float) Math.cos(-rot), 0, 0));
 					}
 					// scale
-					contentStream.transform(new Matrix((float) (glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()), 0, 0,
-						(float) (glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()), 0, 0));
+					contentStream.transform(new Matrix((float) (glyphScaling*points.getGlobalScaling()*scale), 0, 0,
+						(float) (glyphScaling*points.getGlobalScaling()*scale), 0, 0));
 
 					glyph.createPDFElement(contentStream);
 
 					PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
-					int color = ColorOperations.changeSaturation(point.color.getAsInt(), points.getGlobalSaturationMultiplier());
+					int color = ColorOperations.changeSaturation(points.getPointColor(i), points.getGlobalSaturationMultiplier());
 					Color scaledColor = new Color(ColorOperations.scaleColorAlpha(color, points.getGlobalAlphaMultiplier()), true);
 					graphicsState.setStrokingAlphaConstant(scaledColor.getAlpha()/255F);
 					graphicsState.setNonStrokingAlphaConstant(scaledColor.getAlpha()/255F);
@@ -522,8 +795,8 @@ public class PointsRenderer extends GenericRenderer<Points> {
 						contentStream.fill();
 					} else {
 						contentStream.setLineWidth(0);
-						if ((glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble()) != 0) {
-							contentStream.setLineWidth((float) (1/(glyphScaling*points.getGlobalScaling()*point.scale.getAsDouble())));
+						if ((glyphScaling*points.getGlobalScaling()*scale) != 0) {
+							contentStream.setLineWidth((float) (1/(glyphScaling*points.getGlobalScaling()*scale)));
 						}
 						contentStream.setStrokingColor(new Color(color));
 						contentStream.stroke();
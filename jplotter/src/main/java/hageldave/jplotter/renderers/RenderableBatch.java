@@ -0,0 +1,210 @@
+package hageldave.jplotter.renderers;
+
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderables.Renderable;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.DirtyRange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The RenderableBatch class is the base class for packing the contents of multiple small
+ * {@link Renderable}s of compatible state into a single vertex array, so that a renderer can
+ * draw all of them with a single draw call instead of one per item
+ * (see {@link PointsBatch}, {@link LinesBatch} and {@link TextBatch}).
+ * <p>
+ * The items are packed consecutively, each item occupies a slice of elements (e.g. points or segments).
+ * {@link #sync(List, boolean)} repacks all items when the membership (or the number of elements of an item)
+ * changed, and otherwise only rewrites the slices of changed items (see {@link #needsRewrite(int, Renderable)}).
+ * {@link #updateGL()} then uploads the bounding range of the rewritten slices.
+ * Items that are part of a batch do not use their own vertex arrays.
+ *
+ * @param <T> type of the batched items
+ *
+ * @author hageldave
+ */
+public abstract class RenderableBatch<T extends Renderable> implements AutoCloseable {
+
+	protected ArrayList<T> items = new ArrayList<>();
+	protected int[] offsets = new int[0];
+	protected int[] sizes = new int[0];
+	protected int numElements = 0;
+	protected int capacity = 0;
+	protected DirtyRange dirtyElements = new DirtyRange();
+
+	protected VertexArray va;
+	protected int uploadedCapacity = 0;
+
+	/**
+	 * Brings the batch in sync with the specified items.
+	 * When the items are the same (and in the same order) as in the last call and their
+	 * number of elements did not change, only the slices of changed items are rewritten
+	 * (or of all items if requested). Otherwise all items are repacked.
+	 *
+	 * @param members items of the batch in drawing order
+	 * @param rewriteAll true when the slices of all items have to be rewritten regardless of their dirty state
+	 * (e.g. when view dependent attributes changed)
+	 * @return number of items whose slices were rewritten
+	 */
+	public int sync(List<T> members, boolean rewriteAll) {
+		boolean sameMembers = members.size() == items.size();
+		int total = 0;
+		for(int i = 0; i < members.size(); i++){
+			T item = members.get(i);
+			int size = sizeOf(item);
+			if(sameMembers && (items.get(i) != item || sizes[i] != size))
+				sameMembers = false;
+			total += size;
+		}
+
+		if(!sameMembers){
+			items.clear();
+			items.addAll(members);
+			if(offsets.length < members.size()){
+				offsets = Arrays.copyOf(offsets, Math.max(members.size(), offsets.length*2));
+				sizes = Arrays.copyOf(sizes, offsets.length);
+			}
+			if(capacity < total){
+				capacity = Math.max(total, capacity*2);
+				allocate(capacity);
+			}
+			numElements = total;
+			int offset = 0;
+			for(int i = 0; i < members.size(); i++){
+				offsets[i] = offset;
+				sizes[i] = sizeOf(members.get(i));
+				write(i, members.get(i), offset);
+				offset += sizes[i];
+			}
+			dirtyElements.clear().mark(0, numElements);
+			return members.size();
+		}
+
+		int rewritten = 0;
+		for(int i = 0; i < members.size(); i++){
+			T item = members.get(i);
+			if(rewriteAll || needsRewrite(i, item)){
+				write(i, item, offsets[i]);
+				dirtyElements.mark(offsets[i], offsets[i]+sizes[i]);
+				rewritten++;
+			}
+		}
+		return rewritten;
+	}
+
+	/**
+	 * @param item of the batch
+	 * @return number of elements (e.g. points) of the specified item
+	 */
+	protected abstract int sizeOf(T item);
+
+	/**
+	 * Allocates the CPU side arrays for the specified number of elements, keeping
+	 * the current contents.
+	 * @param capacity number of elements
+	 */
+	protected abstract void allocate(int capacity);
+
+	/**
+	 * Writes the elements of the specified item into the CPU side arrays and clears the
+	 * item's dirty state (or otherwise records the state it was written in, see {@link #needsRewrite(int, Renderable)}).
+	 * @param index of the item in the batch
+	 * @param item to write
+	 * @param offset index of the item's first element in the arrays
+	 */
+	protected abstract void write(int index, T item, int offset);
+
+	/**
+	 * Determines whether the slice of the specified item has to be rewritten because the item changed
+	 * since it was last written. By default this is the item's dirty state.
+	 * @param index of the item in the batch
+	 * @param item of the batch
+	 * @return true when the item has to be rewritten
+	 */
+	protected boolean needsRewrite(int index, T item) {
+		return item.isDirty();
+	}
+
+	/**
+	 * Uploads the elements in range [from,to) from the CPU side arrays to the vertex array.
+	 * @param reallocate true when the GL buffers have to be (re)allocated with the full arrays
+	 * @param from index of first element
+	 * @param to index of last element (exclusive)
+	 */
+	@GLContextRequired
+	protected abstract void upload(boolean reallocate, int from, int to);
+
+	/**
+	 * Creates the vertex array of this batch.
+	 * If the vertex array has already been created, nothing happens.
+	 */
+	@GLContextRequired
+	public abstract void initGL();
+
+	/**
+	 * Draws all items of this batch with a single draw call.
+	 * The shader and its uniforms have to be set up by the caller.
+	 * @throws NullPointerException unless {@link #initGL()} was called (and this has not yet been closed)
+	 */
+	@GLContextRequired
+	public abstract void draw();
+
+	/**
+	 * Uploads the changed elements to the GL buffers.
+	 * When the buffers are too small, they are reallocated with the full arrays, otherwise
+	 * only the range of elements that changed is updated.
+	 * If {@link #initGL()} has not been called yet or this object has already been closed, nothing happens.
+	 */
+	@GLContextRequired
+	public void updateGL() {
+		if(Objects.isNull(va))
+			return;
+		if(numElements > uploadedCapacity){
+			upload(true, 0, capacity);
+			uploadedCapacity = capacity;
+		} else if(!dirtyElements.isEmpty()){
+			upload(false, dirtyElements.getFrom(), dirtyElements.getTo());
+		}
+		dirtyElements.clear();
+	}
+
+	/**
+	 * @return the items of this batch (not a copy)
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return number of elements of all items of this batch
+	 */
+	public int getNumElements() {
+		return numElements;
+	}
+
+	/**
+	 * @return the range of elements that changed since the last {@link #updateGL()}
+	 */
+	public DirtyRange getDirtyElements() {
+		return dirtyElements;
+	}
+
+	/**
+	 * Disposes of the GL resources of this batch, i.e. deletes the vertex array.
+	 * The CPU side data is kept.
+	 */
+	@Override
+	@GLContextRequired
+	public void close() {
+		if(Objects.nonNull(va)){
+			va.close();
+			va = null;
+		}
+		uploadedCapacity = 0;
+		dirtyElements.clear().mark(0, numElements);
+	}
+
+}
@@ -0,0 +1,250 @@
+package hageldave.jplotter.renderers;
+
+import hageldave.jplotter.font.CharacterAtlas;
+import hageldave.jplotter.font.SignedDistanceCharacters;
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The TextBatch class packs the characters of many {@link Text} objects that share the
+ * same font (i.e. the same {@link CharacterAtlas}) into a single instanced vertex array,
+ * so that the {@link TextRenderer} can draw all of them with a single draw call
+ * (see {@link TextRenderer#setBatchingEnabled(boolean)}).
+ * <p>
+ * Every character is an instance of a unit quad. The per instance attributes are
+ * the origin and angle of the label (attribute 1, 3 floats) and the index of the character
+ * in the atlas, the column of the character within its label, the packed ARGB color and the
+ * packed picking color (attribute 2, 4 unsigned ints).
+ * The glyph quads and texture coordinates are computed in the vertex shader from uniforms
+ * (see {@link #getGlyphQuad()}, {@link #getCharAdvance()} and {@link #getTexRects()}).
+ * <p>
+ * The instance data is kept in sync with the labels by {@link #sync(List, boolean)} (see {@link RenderableBatch}),
+ * a label occupies one instance per character.
+ * Since the origin of a label is mutable without marking the label dirty, a label is not rewritten
+ * based on its dirty state but when its string, origin, angle, color or picking color differs
+ * from the state it was written in.
+ *
+ * @author hageldave
+ */
+public class TextBatch extends RenderableBatch<Text> {
+
+	/** number of characters in the atlas, i.e. the length of {@link #getTexRects()} divided by 4 */
+	public static final int NUM_ATLAS_CHARS = SignedDistanceCharacters.CHARACTERS.length();
+
+	public final int fontsize;
+	public final int style;
+
+	// per label state at the time its instances were written
+	protected String[] strings = new String[0];
+	protected double[] origins = new double[0];
+	protected float[] angles = new float[0];
+	protected int[] colors = new int[0];
+	protected int[] pickColors = new int[0];
+
+	// per instance (character) data
+	protected float[] placements = new float[0];
+	protected int[] glyphs = new int[0];
+
+	protected int texID;
+	protected float[] glyphQuad;
+	protected float charAdvance;
+	protected float[] texRects;
+
+	/**
+	 * Creates a new batch for labels of the specified font.
+	 * @param fontsize point size of the font
+	 * @param style of the font
+	 */
+	public TextBatch(int fontsize, int style) {
+		this.fontsize = fontsize;
+		this.style = style;
+	}
+
+	/**
+	 * @throws IllegalArgumentException when the label has a different font size or style than this batch
+	 */
+	@Override
+	protected int sizeOf(Text txt) {
+		if(txt.fontsize != fontsize || txt.style != style){
+			throw new IllegalArgumentException(
+					"Text with font size " + txt.fontsize + " and style " + txt.style
+					+ " cannot be part of batch with font size " + fontsize + " and style " + style);
+		}
+		return txt.getTextString().length();
+	}
+
+	@Override
+	protected void allocate(int capacity) {
+		placements = Arrays.copyOf(placements, capacity*3);
+		glyphs = Arrays.copyOf(glyphs, capacity*4);
+	}
+
+	@Override
+	protected boolean needsRewrite(int i, Text txt) {
+		Point2D origin = txt.getOrigin();
+		return !txt.getTextString().equals(strings[i])
+				|| origin.getX() != origins[i*2+0]
+				|| origin.getY() != origins[i*2+1]
+				|| txt.getAngle() != angles[i]
+				|| txt.getColor().getRGB() != colors[i]
+				|| txt.getPickColor() != pickColors[i];
+	}
+
+	@Override
+	protected void write(int i, Text txt, int offset) {
+		ensureLabelCapacity(i+1);
+		String str = txt.getTextString();
+		Point2D origin = txt.getOrigin();
+		strings[i] = str;
+		origins[i*2+0] = origin.getX();
+		origins[i*2+1] = origin.getY();
+		angles[i] = txt.getAngle();
+		colors[i] = txt.getColor().getRGB();
+		pickColors[i] = txt.getPickColor();
+
+		float x = (float)origin.getX();
+		float y = (float)origin.getY();
+		for(int c = 0; c < str.length(); c++){
+			int instance = offset+c;
+			placements[instance*3+0] = x;
+			placements[instance*3+1] = y;
+			placements[instance*3+2] = angles[i];
+			int charIdx = CharacterAtlas.indexForChar(str.charAt(c));
+			glyphs[instance*4+0] = charIdx < 0 ? 0:charIdx;
+			glyphs[instance*4+1] = c;
+			glyphs[instance*4+2] = colors[i];
+			glyphs[instance*4+3] = pickColors[i];
+		}
+	}
+
+	protected void ensureLabelCapacity(int n) {
+		if(strings.length >= n)
+			return;
+		int capacity = Math.max(n, strings.length*2);
+		strings = Arrays.copyOf(strings, capacity);
+		origins = Arrays.copyOf(origins, capacity*2);
+		angles = Arrays.copyOf(angles, capacity);
+		colors = Arrays.copyOf(colors, capacity);
+		pickColors = Arrays.copyOf(pickColors, capacity);
+	}
+
+	@Override
+	@GLContextRequired
+	protected void upload(boolean reallocate, int from, int to) {
+		if(reallocate){
+			va.setBuffer(1, 3, placements);
+			va.setBuffer(2, 4, false, glyphs);
+		} else {
+			va.updateBufferRange(1, from*3, Arrays.copyOfRange(placements, from*3, to*3));
+			va.updateBufferRange(2, from*4, Arrays.copyOfRange(glyphs, from*4, to*4));
+		}
+	}
+
+	/**
+	 * Returns the per instance placement data, i.e. origin x, origin y and angle for each character.
+	 * Only the first {@link #getNumElements()}*3 values are valid.
+	 * @return the placement array (not a copy)
+	 */
+	public float[] getPlacements() {
+		return placements;
+	}
+
+	/**
+	 * Returns the per instance glyph data, i.e. atlas character index, column within the label,
+	 * packed ARGB color and packed picking color for each character.
+	 * Only the first {@link #getNumElements()}*4 values are valid.
+	 * @return the glyph array (not a copy)
+	 */
+	public int[] getGlyphs() {
+		return glyphs;
+	}
+
+	/**
+	 * Allocates GL resources, i.e. creates the vertex array with the unit quad on
+	 * attribute 0 and fetches the glyph metrics and texture coordinates from the
+	 * {@link CharacterAtlas} of this batch's font.
+	 * If the vertex array has already been created, nothing happens.
+	 */
+	@Override
+	@GLContextRequired
+	public void initGL() {
+		if(Objects.nonNull(va))
+			return;
+		CharacterAtlas atlas = CharacterAtlas.get(fontsize, style);
+		texID = atlas.getTexID();
+		charAdvance = atlas.getCharWidth();
+		float[] quad = atlas.vaVerticesForStringLength(1);
+		glyphQuad = new float[]{quad[0],quad[1],quad[6],quad[7]};
+		float[] texCoords = atlas.vaTexCoordsForChars(SignedDistanceCharacters.CHARACTERS.toCharArray());
+		texRects = new float[NUM_ATLAS_CHARS*4];
+		for(int i = 0; i < NUM_ATLAS_CHARS; i++){
+			texRects[i*4+0] = texCoords[i*8+0];
+			texRects[i*4+1] = texCoords[i*8+1];
+			texRects[i*4+2] = texCoords[i*8+6];
+			texRects[i*4+3] = texCoords[i*8+7];
+		}
+		va = new VertexArray(3);
+		va.setBuffer(0, 2, 0f,0f, 0f,1f, 1f,0f, 1f,1f);
+		va.setBufferUsage(1, GL15.GL_DYNAMIC_DRAW);
+		va.setBufferUsage(2, GL15.GL_DYNAMIC_DRAW);
+		uploadedCapacity = 0;
+	}
+
+	/**
+	 * Draws all characters of this batch with a single instanced draw call.
+	 * The shader and its uniforms have to be set up by the caller.
+	 * @throws NullPointerException unless {@link #initGL()} was called (and this has not yet been closed)
+	 */
+	@Override
+	@GLContextRequired
+	public void draw() {
+		if(numElements == 0)
+			return;
+		va.bindAndEnableAttributes(0,1,2);
+		GL33.glVertexAttribDivisor(1,1);
+		GL33.glVertexAttribDivisor(2,1);
+		GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_STRIP, 0, 4, numElements);
+		va.releaseAndDisableAttributes(0,1,2);
+	}
+
+	/**
+	 * @return GL name of the atlas texture, only valid after {@link #initGL()}
+	 */
+	public int getTexID() {
+		return texID;
+	}
+
+	/**
+	 * @return quad of the first character of a label (x0,y0,x1,y1) including padding,
+	 * only valid after {@link #initGL()}
+	 */
+	public float[] getGlyphQuad() {
+		return glyphQuad;
+	}
+
+	/**
+	 * @return horizontal distance between consecutive characters, only valid after {@link #initGL()}
+	 */
+	public float getCharAdvance() {
+		return charAdvance;
+	}
+
+	/**
+	 * @return texture coordinate rectangles (x0,y0,x1,y1) of all atlas characters,
+	 * only valid after {@link #initGL()}
+	 */
+	public float[] getTexRects() {
+		return texRects;
+	}
+
+}
@@ -10,6 +10,8 @@ import hageldave.jplotter.renderables.Renderable;
 import hageldave.jplotter.renderables.Text;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
+import hageldave.jplotter.util.GLUtils;
+import hageldave.jplotter.util.GenericKey;
 import hageldave.jplotter.util.ShaderRegistry;
 import hageldave.jplotter.util.Utils;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -20,8 +22,6 @@ import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL13;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL40;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
@@ -30,6 +30,11 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
 import java.util.Objects;
 
 import static hageldave.jplotter.pdf.PDFUtils.createPDFont;
@@ -43,10 +48,14 @@ import static hageldave.jplotter.pdf.PDFUtils.createPDFont;
  * <br>
  * Its fragment shader draws the picking color into the second render buffer
  * alongside the 'visible' color that is drawn into the first render buffer.
+ * <p>
+ * For large numbers of labels, batching can be enabled ({@link #setBatchingEnabled(boolean)})
+ * in which case all labels of the same font are drawn with a single instanced draw call
+ * (see {@link TextBatch}).
  * 
  * @author hageldave
  */
-public class TextRenderer extends GenericRenderer<Text> {
+public class TextRenderer extends GenericRenderer<Text> implements AnalyticPicking {
 
 	protected static final char NL = '\n';
 	
@@ -142,8 +151,95 @@ public class TextRenderer extends GenericRenderer<Text> {
 	protected static final double[] smoothStepRight = 
 		{0.58, 0.58, 0.58, 0.62, 0.62, 0.63, 0.61, 0.61, 0.61, 0.60, 0.59, 0.58, 0.57, 0.55, 0.55};
 	
+	protected static final String batchVertexShaderSrc = ""
+			+ "" + "#version 330"
+			+ NL + "layout(location = 0) in vec2 in_corner;"
+			+ NL + "layout(location = 1) in vec3 in_placement;"
+			+ NL + "layout(location = 2) in uvec4 in_glyph;"
+			+ NL + "uniform mat4 projMX;"
+			+ NL + "uniform vec4 viewTransform;"
+			+ NL + "uniform vec2 modelScaling;"
+			+ NL + "uniform vec4 glyphQuad;"
+			+ NL + "uniform float charAdvance;"
+			+ NL + "uniform vec4 texRects["+TextBatch.NUM_ATLAS_CHARS+"];"
+			+ NL + "out vec2 tex_Coords;"
+			+ NL + "out vec4 vColor;"
+			+ NL + "out vec4 vPickColor;"
+			
+			+ NL + "vec4 unpackARGB(uint c) {"
+			+ NL + "   uint mask = uint(255);"
+			+ NL + "   return vec4( (c>>16)&mask, (c>>8)&mask, (c)&mask, (c>>24)&mask )/255.0;"
+			+ NL + "}"
+			
+			+ NL + "mat2 rotationMatrix(float angle){"
+			+ NL + "   float s = sin(angle), c = cos(angle);"
+			+ NL + "   return mat2(c,s,-s,c);"
+			+ NL + "}"
+			
+			+ NL + "void main() {"
+			+ NL + "   mat2 rotMX = rotationMatrix(in_placement.z);"
+			+ NL + "   vec2 charPos = mix(glyphQuad.xy, glyphQuad.zw, in_corner) + vec2(float(in_glyph.y)*charAdvance, 0);"
+			+ NL + "   vec3 pos = vec3((rotMX*charPos)*modelScaling+in_placement.xy, 1);"
+			+ NL + "   pos = pos - vec3(viewTransform.xy,0);"
+			+ NL + "   pos = pos * vec3(viewTransform.zw,1);"
+			+ NL + "   gl_Position = projMX*vec4(pos.x, pos.y, pos.z, 1);"
+			+ NL + "   vec4 texRect = texRects[in_glyph.x];"
+			+ NL + "   tex_Coords = mix(texRect.xy, texRect.zw, in_corner);"
+			+ NL + "   vColor = unpackARGB(in_glyph.z);"
+			+ NL + "   vPickColor = unpackARGB(in_glyph.w);"
+			+ NL + "}"
+			+ NL
+			;
+	protected static final String batchFragmentShaderSrc = ""
+			+ "" + "#version 330"
+			+ NL + "layout(location = 0) out vec4 frag_color;"
+			+ NL + "layout(location = 1) out vec4 pick_color;"
+			+ NL + "uniform sampler2D tex;"
+			+ NL + "uniform vec2 stepBounds;"
+			+ NL + "in vec2 tex_Coords;"
+			+ NL + "in vec4 vColor;"
+			+ NL + "in vec4 vPickColor;"
+			+ NL + "void main() {"
+			+ NL + "   float alpha = texture(tex, tex_Coords).r;"
+			+ NL + "   alpha = smoothstep(stepBounds.x,stepBounds.y,alpha);"
+			+ NL + "   frag_color = vColor*vec4(1,1,1,alpha);"
+			+ NL + "   pick_color = vPickColor;"
+			+ NL + "}"
+			;
+	
 	protected VertexArray vaTextBackground;
 	
+	protected boolean isBatchingEnabled = false;
+	protected Shader shaderBatch;
+	protected HashMap<GenericKey, TextBatch> batches = new HashMap<>();
+	
+	
+	/**
+	 * Enables or disables batching of labels.
+	 * When enabled, all visible {@link Text}s without background that share the same font
+	 * (i.e. the same {@link CharacterAtlas}) are packed into a {@link TextBatch} and drawn with a single 
+	 * instanced draw call instead of one draw call per label.
+	 * The batches are only rewritten for labels that changed since the last frame.
+	 * <p>
+	 * Texts with a background color are drawn individually before the batches,
+	 * and labels of different fonts are drawn font by font, so the drawing order of overlapping labels
+	 * may differ from the order in {@link #getItemsToRender()}.
+	 * When GL double precision is in use, batching does not apply and every label is drawn individually.
+	 * Batching only affects GL rendering.
+	 * @param enable true when batching should be used
+	 * @return this for chaining
+	 */
+	public TextRenderer setBatchingEnabled(boolean enable) {
+		this.isBatchingEnabled = enable;
+		return this;
+	}
+	
+	/**
+	 * @return true when batching is enabled, see {@link #setBatchingEnabled(boolean)}
+	 */
+	public boolean isBatchingEnabled() {
+		return isBatchingEnabled;
+	}
 	
 	/**
 	 * Creates the shader if not already created and 
@@ -189,22 +285,104 @@ public class TextRenderer extends GenericRenderer<Text> {
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 		
-		int loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "projMX");
-		GL20.glUniformMatrix4fv(loc, false, orthoMX);
+		shader.setUniformMatrix4f("projMX", orthoMX);
 		if (shader == shaderD /* double precision shader */)
 		{
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "viewTransform");
-			GL40.glUniform4d(loc, translateX, translateY, scaleX, scaleY);
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "modelScaling");
-			GL40.glUniform2d(loc, (1/scaleX), (1/scaleY));
+			shader.setUniform4d("viewTransform", translateX, translateY, scaleX, scaleY);
+			shader.setUniform2d("modelScaling", (1/scaleX), (1/scaleY));
 		}
 		else
 		{
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "viewTransform");
-			GL20.glUniform4f(loc, (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "modelScaling");
-			GL20.glUniform2f(loc, (float)(1/scaleX), (float)(1/scaleY));
+			shader.setUniform4f("viewTransform", (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
+			shader.setUniform2f("modelScaling", (float)(1/scaleX), (float)(1/scaleY));
+		}
+	}
+
+	/**
+	 * When batching is disabled (or GL double precision is in use) this renders
+	 * every item individually as implemented by {@link GenericRenderer#render(int, int, int, int)}.
+	 * Otherwise texts with background are rendered individually and all other texts
+	 * are rendered in batches (see {@link #setBatchingEnabled(boolean)}).
+	 */
+	@Override
+	@GLContextRequired
+	public void render(int vpx, int vpy, int w, int h) {
+		Shader shader = getShader();
+		if(!isBatchingEnabled || shader == shaderD){
+			super.render(vpx, vpy, w, h);
+			return;
+		}
+		if(!isEnabled() || Objects.isNull(shader) || w <= 0 || h <= 0){
+			return;
+		}
+		LinkedHashMap<GenericKey, ArrayList<Text>> fontGroups = new LinkedHashMap<>();
+		ArrayList<Text> individuals = new ArrayList<>();
+		for(Text txt: itemsToRender){
+			if(txt.isHidden() || txt.getTextString().isEmpty())
+				continue;
+			if(txt.getBackground().getRGB() != 0){
+				individuals.add(txt);
+			} else {
+				fontGroups.computeIfAbsent(new GenericKey(txt.fontsize, txt.style), k->new ArrayList<>()).add(txt);
+			}
+		}
+		orthoMX = GLUtils.orthoMX(orthoMX, 0, w, 0, h);
+		if(!individuals.isEmpty()){
+			shader.bind();
+			renderStart(w, h, shader);
+			for(Text txt: individuals){
+				txt.initGL();
+				if(txt.isDirty())
+					txt.updateGL(false);
+				renderItem(txt, shader);
+			}
+			renderEnd();
+			shader.release();
 		}
+		// dispose of batches for fonts that are no longer in use
+		for(Iterator<Entry<GenericKey, TextBatch>> it = batches.entrySet().iterator(); it.hasNext();){
+			Entry<GenericKey, TextBatch> entry = it.next();
+			if(!fontGroups.containsKey(entry.getKey())){
+				entry.getValue().close();
+				it.remove();
+			}
+		}
+		if(fontGroups.isEmpty())
+			return;
+		if(Objects.isNull(shaderBatch)){
+			shaderBatch = ShaderRegistry.getOrCreateShader(TextRenderer.class.getName()+"#batch",()->new Shader(batchVertexShaderSrc, batchFragmentShaderSrc));
+		}
+		shaderBatch.bind();
+		renderStart(w, h, shaderBatch);
+		for(Entry<GenericKey, ArrayList<Text>> group: fontGroups.entrySet()){
+			Text first = group.getValue().get(0);
+			TextBatch batch = batches.computeIfAbsent(group.getKey(), k->new TextBatch(first.fontsize, first.style));
+			batch.sync(group.getValue(), false);
+			batch.initGL();
+			batch.updateGL();
+			renderBatch(batch, shaderBatch);
+		}
+		renderEnd();
+		shaderBatch.release();
+	}
+	
+	/**
+	 * Sets the font specific uniforms of the batch shader and draws the batch.
+	 * @param batch to draw
+	 * @param shader the batch shader
+	 */
+	@GLContextRequired
+	protected void renderBatch(TextBatch batch, Shader shader) {
+		GL13.glBindTexture(GL11.GL_TEXTURE_2D, batch.getTexID());
+		shader.setUniform1i("tex", 0);
+		float[] quad = batch.getGlyphQuad();
+		shader.setUniform4f("glyphQuad", quad[0], quad[1], quad[2], quad[3]);
+		shader.setUniform1f("charAdvance", batch.getCharAdvance());
+		shader.setUniform4fv("texRects", batch.getTexRects());
+		int smoothStepIdx = Utils.clamp(10, batch.fontsize, 9+smoothStepLeft.length)-10;
+		shader.setUniform2f("stepBounds", 	(float)smoothStepLeft[smoothStepIdx], 
+								(float)smoothStepRight[smoothStepIdx]);
+		batch.draw();
 	}
 
 	@Override
@@ -213,7 +391,6 @@ public class TextRenderer extends GenericRenderer<Text> {
 		if(txt.getTextString().isEmpty())
 			return;
 		
-		int loc;
 		boolean useDoublePrecision = shader == shaderD;
 		// draw background if bg color is not 0
 		if(txt.getBackground().getRGB() !=0){
@@ -225,21 +402,16 @@ public class TextRenderer extends GenericRenderer<Text> {
 					(float)bounds.getWidth()+rightpadding, (float)bounds.getHeight(),
 					(float)bounds.getWidth()+rightpadding, 0f);
 			vaTextBackground.bindAndEnableAttributes(0,1);
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "origin");
 			if(useDoublePrecision) 
-				GL40.glUniform2d(loc, txt.getOrigin().getX(), txt.getOrigin().getY());
+				shader.setUniform2d("origin", txt.getOrigin().getX(), txt.getOrigin().getY());
 			else 
-				GL20.glUniform2f(loc, (float)txt.getOrigin().getX(), (float)txt.getOrigin().getY());
+				shader.setUniform2f("origin", (float)txt.getOrigin().getX(), (float)txt.getOrigin().getY());
 			
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "rot");
-			GL20.glUniform1f(loc, txt.getAngle());
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "fragColorToUse");
+			shader.setUniform1f("rot", txt.getAngle());
 			Color bg = txt.getBackground();
-			GL20.glUniform4f(loc, bg.getRed()/255f, bg.getGreen()/255f, bg.getBlue()/255f, bg.getAlpha()/255f);
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "pickColorToUse");
-			GL20.glUniform4f(loc, 0,0,0,0);
-			loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "useTex");
-			GL20.glUniform1i(loc, 0);
+			shader.setUniform4f("fragColorToUse", bg.getRed()/255f, bg.getGreen()/255f, bg.getBlue()/255f, bg.getAlpha()/255f);
+			shader.setUniform4f("pickColorToUse", 0,0,0,0);
+			shader.setUniform1i("useTex", 0);
 			// draw things
 			GL11.glDrawElements(GL11.GL_TRIANGLES, txt.getVertexArray().getNumIndices(), GL11.GL_UNSIGNED_INT, 0);
 			vaTextBackground.releaseAndDisableAttributes(0,1);
@@ -247,24 +419,17 @@ public class TextRenderer extends GenericRenderer<Text> {
 		
 		txt.bindVertexArray();
 		GL13.glBindTexture(GL11.GL_TEXTURE_2D, txt.getTextureID());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "tex");
-		GL20.glUniform1i(loc, 0);
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "origin");
+		shader.setUniform1i("tex", 0);
 		if(useDoublePrecision) 
-			GL40.glUniform2d(loc, txt.getOrigin().getX(), txt.getOrigin().getY());
+			shader.setUniform2d("origin", txt.getOrigin().getX(), txt.getOrigin().getY());
 		else 
-			GL20.glUniform2f(loc, (float)txt.getOrigin().getX(), (float)txt.getOrigin().getY());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "rot");
-		GL20.glUniform1f(loc, txt.getAngle());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "fragColorToUse");
-		GL20.glUniform4f(loc, txt.getColorR(), txt.getColorG(), txt.getColorB(), txt.getColorA());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "pickColorToUse");
-		GL20.glUniform4f(loc, txt.getPickColorR(), txt.getPickColorG(), txt.getPickColorB(), txt.getPickColorA());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "useTex");
-		GL20.glUniform1i(loc, 1);
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "stepBounds");
+			shader.setUniform2f("origin", (float)txt.getOrigin().getX(), (float)txt.getOrigin().getY());
+		shader.setUniform1f("rot", txt.getAngle());
+		shader.setUniform4f("fragColorToUse", txt.getColorR(), txt.getColorG(), txt.getColorB(), txt.getColorA());
+		shader.setUniform4f("pickColorToUse", txt.getPickColorR(), txt.getPickColorG(), txt.getPickColorB(), txt.getPickColorA());
+		shader.setUniform1i("useTex", 1);
 		int smoothStepIdx = Utils.clamp(10, txt.fontsize, 9+smoothStepLeft.length)-10;
-		GL20.glUniform2f(loc, 	(float)smoothStepLeft[smoothStepIdx], 
+		shader.setUniform2f("stepBounds", 	(float)smoothStepLeft[smoothStepIdx], 
 								(float)smoothStepRight[smoothStepIdx]);
 		// draw things
 		GL11.glDrawElements(GL11.GL_TRIANGLES, txt.getVertexArray().getNumIndices(), GL11.GL_UNSIGNED_INT, 0);
@@ -285,7 +450,7 @@ public class TextRenderer extends GenericRenderer<Text> {
 	}
 	
 	/**
-	 * Disposes of GL resources, i.e. closes the shader.
+	 * Disposes of GL resources, i.e. closes the shaders and text batches.
 	 * It also deletes (closes) all {@link Text}s contained in this
 	 * renderer.
 	 */
@@ -301,6 +466,11 @@ public class TextRenderer extends GenericRenderer<Text> {
 		if(Objects.nonNull(vaTextBackground))
 			vaTextBackground.close();
 		vaTextBackground = null;
+		if(Objects.nonNull(shaderBatch))
+			ShaderRegistry.handbackShader(shaderBatch);
+		shaderBatch = null;
+		batches.values().forEach(TextBatch::close);
+		batches.clear();
 		closeAllItems();
 	}
 	
@@ -316,6 +486,7 @@ public class TextRenderer extends GenericRenderer<Text> {
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 		
 		Rectangle vpRect = new Rectangle(w, h);
+		boolean drawPicking = !Utils.isClippedAway(p);
 		
 		for(Text txt: getItemsToRender()){
 			if(txt.isHidden() || txt.getTextString().isEmpty()){
@@ -379,7 +550,7 @@ public class TextRenderer extends GenericRenderer<Text> {
 				g_.setColor(txt.getColor());
 				g_.drawString(txt.getTextString(), 0, -maxDescent);
 				
-				if(txt.getPickColor() != 0) {
+				if(txt.getPickColor() != 0 && drawPicking) {
 					p_.setColor(new Color(txt.getPickColor()));
 					Rectangle2D bounds = txt.getBounds();
 					float rightpadding = 0.4f*((float)bounds.getWidth()/txt.getTextString().length());
@@ -390,6 +561,46 @@ public class TextRenderer extends GenericRenderer<Text> {
 		}
 	}
 	
+	/**
+	 * Hit tests the (rotated) bounding rectangles of the texts, which are the
+	 * rectangles filled with the picking color by {@link #renderFallback(Graphics2D, Graphics2D, int, int)}.
+	 */
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		double translateX = Objects.isNull(view) ? 0:view.getX();
+		double translateY = Objects.isNull(view) ? 0:view.getY();
+		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
+		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
+		
+		for(Text txt: getItemsToRender()){
+			if(txt.isHidden() || txt.getTextString().isEmpty() || txt.getPickColor() == 0){
+				continue;
+			}
+			double x1 = (txt.getOrigin().getX()-translateX)*scaleX;
+			double y1 = (txt.getOrigin().getY()-translateY)*scaleY + 1;
+			Rectangle2D bounds = txt.getBounds();
+			double rightpadding = 0.4*(bounds.getWidth()/txt.getTextString().length());
+			double width = bounds.getWidth()+rightpadding;
+			double height = bounds.getHeight();
+			double cos = Math.cos(txt.getAngle()), sin = Math.sin(txt.getAngle());
+			for(int j=0; j<areaH; j++){
+				double dy = y+j+0.5-y1;
+				for(int i=0; i<areaW; i++){
+					double dx = x+i+0.5-x1;
+					// rotate into text space
+					double u = dx*cos+dy*sin;
+					double v = dy*cos-dx*sin;
+					if(u >= 0 && u <= width && v >= 0 && v <= height){
+						pickColors[j*areaW+i] = 0xff000000|txt.getPickColor();
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public void renderSVG(Document doc, Element parent, int w, int h) {
 		if(!isEnabled()){
@@ -0,0 +1,272 @@
+package hageldave.jplotter.renderers;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.util.BarycentricGradientPaint;
+import hageldave.jplotter.util.FallbackRaster;
+import hageldave.jplotter.util.TriangleShading;
+
+/**
+ * The TriangleRasterizer class fills Gouraud shaded triangles directly into an integer ARGB raster
+ * (see {@link FallbackRaster}), which is used by the {@link TrianglesRenderer} for fallback rendering
+ * instead of filling the bounding box of each triangle with a {@link BarycentricGradientPaint}.
+ * <p>
+ * For each pixel row the horizontal extent of the triangle is determined from its edges (scanline), so that
+ * only pixels within (or, when antialiased, touching) the triangle are visited.
+ * These pixels are then tested and shaded with the same edge functions, barycentric color interpolation
+ * and (when antialiased) 4x rotated grid coverage sampling as {@link BarycentricGradientPaint},
+ * so the result matches the paint up to rounding of the alpha blending.
+ * <p>
+ * Large meshes can be rasterized in parallel by splitting the clip into horizontal bands
+ * on a dedicated {@link ForkJoinPool} ({@link #fillTriangles(Img, Rectangle, float[], int[], int, boolean, ForkJoinPool)}),
+ * each band processes the triangles overlapping its rows in order, so that the blending order is kept.
+ *
+ * @author hageldave
+ */
+public class TriangleRasterizer {
+
+	/** meshes with fewer triangles are not rasterized in parallel */
+	public static final int MIN_TRIANGLES_FOR_PARALLELISM = 256;
+	/** number of row bands per unit of parallelism, for load balancing */
+	public static final int BANDS_PER_THREAD = 4;
+
+	/** same sub pixel samples as the antialiasing of {@link BarycentricGradientPaint} */
+	protected static final float[] MSAA_SAMPLES;
+
+	static {
+		MSAA_SAMPLES = TriangleShading.msaaSamples();
+	}
+
+	private TriangleRasterizer() {}
+
+	/**
+	 * Fills the specified triangles into the raster in order.
+	 * @param raster to draw into
+	 * @param clip device space clip, needs to lie within the raster
+	 * @param coords device coordinates of the triangles, 6 per triangle (x1,y1,x2,y2,x3,y3)
+	 * @param colors ARGB vertex colors of the triangles, 3 per triangle
+	 * @param numTriangles number of triangles
+	 * @param antialiasing whether to antialias the triangle edges
+	 * @param pool to rasterize on, the clip is split into {@link #BANDS_PER_THREAD} row bands per thread of the pool
+	 * when its parallelism is greater than 1 and there are at least {@value #MIN_TRIANGLES_FOR_PARALLELISM} triangles.
+	 * May be null for rasterizing on the calling thread.
+	 */
+	public static void fillTriangles(Img raster, Rectangle clip, float[] coords, int[] colors, int numTriangles,
+			boolean antialiasing, ForkJoinPool pool)
+	{
+		if(pool == null || pool.getParallelism() <= 1 || numTriangles < MIN_TRIANGLES_FOR_PARALLELISM || clip.height < 2){
+			fillTriangles(raster, clip, coords, colors, numTriangles, antialiasing, clip.y, clip.y+clip.height);
+			return;
+		}
+		int numBands = Math.min(clip.height, pool.getParallelism()*BANDS_PER_THREAD);
+		// bin triangles by the bands their rows overlap, so that each band only sets up its own triangles
+		int[] binOffsets = new int[numBands+1];
+		int[] bandRanges = new int[numTriangles*2];
+		for(int i=0; i<numTriangles; i++){
+			int c = i*6;
+			float ymin = Math.min(coords[c+1], Math.min(coords[c+3], coords[c+5]));
+			float ymax = Math.max(coords[c+1], Math.max(coords[c+3], coords[c+5]));
+			// same rows as in fillTriangle, one pixel margin for rounding
+			int row0 = Math.max(clip.y, (int)Math.floor(ymin)-1);
+			int row1 = Math.min(clip.y+clip.height-1, (int)Math.floor(ymax)+1);
+			if(row0 > row1 || Float.isNaN(ymin) || Float.isNaN(ymax)){
+				bandRanges[i*2] = 0; bandRanges[i*2+1] = -1;
+				continue;
+			}
+			int band0 = bandOfRow(clip, numBands, row0), band1 = bandOfRow(clip, numBands, row1);
+			bandRanges[i*2] = band0; bandRanges[i*2+1] = band1;
+			for(int band=band0; band<=band1; band++)
+				binOffsets[band+1]++;
+		}
+		for(int band=0; band<numBands; band++)
+			binOffsets[band+1] += binOffsets[band];
+		int[] bins = new int[binOffsets[numBands]];
+		int[] binFill = Arrays.copyOf(binOffsets, numBands);
+		for(int i=0; i<numTriangles; i++){
+			for(int band=bandRanges[i*2]; band<=bandRanges[i*2+1]; band++)
+				bins[binFill[band]++] = i;
+		}
+		// a parallel stream started from within the pool runs on the pool's threads
+		pool.submit(()->IntStream.range(0, numBands).parallel().forEach(band->{
+			int rowFrom = clip.y + (int)((long)clip.height*band/numBands);
+			int rowTo = clip.y + (int)((long)clip.height*(band+1)/numBands);
+			fillTriangles(raster, clip, coords, colors, bins, binOffsets[band], binOffsets[band+1], antialiasing, rowFrom, rowTo);
+		}))
+		.join();
+	}
+
+	/** index of the row band (as split in fillTriangles) containing the specified row of the clip */
+	private static int bandOfRow(Rectangle clip, int numBands, int row) {
+		int band = (int)((long)(row-clip.y)*numBands/clip.height);
+		// correct rounding of the estimate against the exact band starts
+		while(band > 0 && row < clip.y + (int)((long)clip.height*band/numBands))
+			band--;
+		while(band < numBands-1 && row >= clip.y + (int)((long)clip.height*(band+1)/numBands))
+			band++;
+		return band;
+	}
+
+	protected static void fillTriangles(Img raster, Rectangle clip, float[] coords, int[] colors, int numTriangles,
+			boolean antialiasing, int rowFrom, int rowTo)
+	{
+		for(int i=0; i<numTriangles; i++){
+			fillTriangle(raster, clip, coords, colors, i, antialiasing, rowFrom, rowTo);
+		}
+	}
+
+	protected static void fillTriangles(Img raster, Rectangle clip, float[] coords, int[] colors,
+			int[] triangleIndices, int from, int to, boolean antialiasing, int rowFrom, int rowTo)
+	{
+		for(int j=from; j<to; j++){
+			fillTriangle(raster, clip, coords, colors, triangleIndices[j], antialiasing, rowFrom, rowTo);
+		}
+	}
+
+	private static void fillTriangle(Img raster, Rectangle clip, float[] coords, int[] colors, int i,
+			boolean antialiasing, int rowFrom, int rowTo)
+	{
+		int c = i*6;
+		fillTriangle(raster, clip,
+				coords[c+0], coords[c+1], coords[c+2], coords[c+3], coords[c+4], coords[c+5],
+				colors[i*3+0], colors[i*3+1], colors[i*3+2], antialiasing, rowFrom, rowTo);
+	}
+
+	/**
+	 * Fills the specified triangle into the raster.
+	 * @param raster to draw into
+	 * @param clip device space clip, needs to lie within the raster
+	 * @param x1 x coordinate of the first vertex
+	 * @param y1 y coordinate of the first vertex
+	 * @param x2 x coordinate of the second vertex
+	 * @param y2 y coordinate of the second vertex
+	 * @param x3 x coordinate of the third vertex
+	 * @param y3 y coordinate of the third vertex
+	 * @param c1 ARGB color of the first vertex
+	 * @param c2 ARGB color of the second vertex
+	 * @param c3 ARGB color of the third vertex
+	 * @param antialiasing whether to antialias the triangle edges
+	 */
+	public static void fillTriangle(Img raster, Rectangle clip,
+			float x1, float y1, float x2, float y2, float x3, float y3,
+			int c1, int c2, int c3, boolean antialiasing)
+	{
+		fillTriangle(raster, clip, x1, y1, x2, y2, x3, y3, c1, c2, c3, antialiasing, clip.y, clip.y+clip.height);
+	}
+
+	protected static void fillTriangle(Img raster, Rectangle clip,
+			float x1, float y1, float x2, float y2, float x3, float y3,
+			int c1, int c2, int c3, boolean antialiasing, int rowFrom, int rowTo)
+	{
+		if((c1|c2|c3)>>>24 == 0)
+			// fully transparent
+			return;
+		// constants for barycentric coords (same as BarycentricGradientPaintContext)
+		final float x23=x2-x3, x13=x1-x3, y23=y2-y3, y13=y1-y3;
+		final float area = (y23*x13)-(x23*y13);
+		if(area == 0 || Float.isNaN(area))
+			return;
+		final float denom = 1f/area;
+		final boolean monochrome = c1==c2 && c2==c3;
+
+		double ymin = Math.min(y1, Math.min(y2, y3));
+		double ymax = Math.max(y1, Math.max(y2, y3));
+		// rows touching the triangle, one pixel margin for rounding
+		int row0 = Math.max(Math.max(rowFrom, clip.y), (int)Math.floor(ymin)-1);
+		int row1 = Math.min(Math.min(rowTo, clip.y+clip.height)-1, (int)Math.floor(ymax)+1);
+		int clipX0 = clip.x, clipX1 = clip.x+clip.width-1;
+
+		int[] data = raster.getData();
+		int rw = raster.getWidth();
+		double[] extent = new double[2];
+		for(int row=row0; row<=row1; row++){
+			// horizontal extent of the triangle within the row's slab [row,row+1], one pixel margin for rounding
+			if(!TriangleShading.computeSpan(x1, y1, x2, y2, x3, y3, ymin, ymax, row, extent))
+				continue;
+			double xl = extent[0], xr = extent[1];
+			int col0 = Math.max(clipX0, (int)Math.floor(xl)-1);
+			int col1 = Math.min(clipX1, (int)Math.floor(xr)+1);
+			int idx = row*rw;
+			if(antialiasing)
+				fillSpanMSAA(data, idx, row, col0, col1, x3, y3, x23, x13, y23, y13, denom, c1, c2, c3, monochrome);
+			else
+				fillSpan(data, idx, row, col0, col1, x3, y3, x23, x13, y23, y13, denom, c1, c2, c3, monochrome);
+		}
+	}
+
+	protected static void fillSpan(int[] data, int idx, int row, int col0, int col1,
+			float x3, float y3, float x23, float x13, float y23, float y13, float denom,
+			int c1, int c2, int c3, boolean monochrome)
+	{
+		float y = row+.5f;
+		float ypart11 = -x23*(y-y3);
+		float ypart21 =  x13*(y-y3);
+		for(int col=col0; col<=col1; col++){
+			float x = col+.5f;
+			float l1 = ( y23*(x-x3)+ypart11)*denom;
+			float l2 = (-y13*(x-x3)+ypart21)*denom;
+			float l3 = 1f-l1-l2;
+			if(l1<0||l2<0||l3<0)
+				continue;
+			int color = monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l1, l2, l3);
+			data[idx+col] = FallbackRaster.blendSrcOver(data[idx+col], color&0x00ffffff, color>>>24);
+		}
+	}
+
+	protected static void fillSpanMSAA(int[] data, int idx, int row, int col0, int col1,
+			float x3, float y3, float x23, float x13, float y23, float y13, float denom,
+			int c1, int c2, int c3, boolean monochrome)
+	{
+		final float[] S = MSAA_SAMPLES;
+		float y = row+S[1];
+		float ypart11 = -x23*(y-y3);
+		float ypart21 =  x13*(y-y3);
+		y = row+S[3];
+		float ypart12 = -x23*(y-y3);
+		float ypart22 =  x13*(y-y3);
+		y = row+S[5];
+		float ypart13 = -x23*(y-y3);
+		float ypart23 =  x13*(y-y3);
+		y = row+S[7];
+		float ypart14 = -x23*(y-y3);
+		float ypart24 =  x13*(y-y3);
+
+		for(int col=col0; col<=col1; col++){
+			float x = col+S[0];
+			float l11 = ( y23*(x-x3)+ypart11)*denom;
+			float l21 = (-y13*(x-x3)+ypart21)*denom;
+			float l31 = 1f-l11-l21;
+			x = col+S[2];
+			float l12 = ( y23*(x-x3)+ypart12)*denom;
+			float l22 = (-y13*(x-x3)+ypart22)*denom;
+			float l32 = 1f-l12-l22;
+			x = col+S[4];
+			float l13 = ( y23*(x-x3)+ypart13)*denom;
+			float l23 = (-y13*(x-x3)+ypart23)*denom;
+			float l33 = 1f-l13-l23;
+			x = col+S[6];
+			float l14 = ( y23*(x-x3)+ypart14)*denom;
+			float l24 = (-y13*(x-x3)+ypart24)*denom;
+			float l34 = 1f-l14-l24;
+
+			boolean in1 = !(l11<0||l21<0||l31<0);
+			boolean in2 = !(l12<0||l22<0||l32<0);
+			boolean in3 = !(l13<0||l23<0||l33<0);
+			boolean in4 = !(l14<0||l24<0||l34<0);
+			int numIn = (in1?1:0)+(in2?1:0)+(in3?1:0)+(in4?1:0);
+			if(numIn == 0)
+				continue;
+			int mix1 = !in1 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l11, l21, l31);
+			int mix2 = !in2 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l12, l22, l32);
+			int mix3 = !in3 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l13, l23, l33);
+			int mix4 = !in4 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l14, l24, l34);
+			int color = TriangleShading.mixColor4(mix1, mix2, mix3, mix4, in1?1f:0f, in2?1f:0f, in3?1f:0f, in4?1f:0f);
+			color = TriangleShading.scaleColorAlpha(color, numIn*.25f);
+			data[idx+col] = FallbackRaster.blendSrcOver(data[idx+col], color&0x00ffffff, color>>>24);
+		}
+	}
+
+}
@@ -1,5 +1,6 @@
 package hageldave.jplotter.renderers;
 
+import hageldave.imagingkit.core.Img;
 import hageldave.jplotter.color.ColorOperations;
 import hageldave.jplotter.gl.Shader;
 import hageldave.jplotter.pdf.PDFUtils;
@@ -10,6 +11,7 @@ import hageldave.jplotter.svg.SVGTriangleRendering;
 import hageldave.jplotter.svg.SVGUtils;
 import hageldave.jplotter.util.Annotations.GLContextRequired;
 import hageldave.jplotter.util.BarycentricGradientPaint;
+import hageldave.jplotter.util.FallbackRaster;
 import hageldave.jplotter.util.ShaderRegistry;
 import hageldave.jplotter.util.Utils;
 import org.apache.pdfbox.cos.*;
@@ -25,19 +27,20 @@ import org.apache.pdfbox.pdmodel.graphics.shading.PDShadingType4;
 import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL20;
-import org.lwjgl.opengl.GL40;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import javax.imageio.stream.MemoryCacheImageOutputStream;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The TrianglesRenderer is an implementation of the {@link GenericRenderer}
@@ -48,7 +51,7 @@ import java.util.Objects;
  * 
  * @author hageldave
  */
-public class TrianglesRenderer extends GenericRenderer<Triangles> {
+public class TrianglesRenderer extends GenericRenderer<Triangles> implements AnalyticPicking {
 	
 	protected static final char NL = '\n';
 	protected static final String vertexShaderSrcD = ""
@@ -142,6 +145,63 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 			;
 
 	protected String svgTriangleStrategy=null;
+	protected boolean isDirectRasterizationEnabled = true;
+	protected int rasterizationParallelism = 1;
+	protected ForkJoinPool rasterizationPool;
+
+	/**
+	 * Enables or disables direct rasterization for fallback rendering.
+	 * When enabled and the graphics handed to {@link #renderFallback(Graphics2D, Graphics2D, int, int)} expose
+	 * their raster (see {@link FallbackRaster}), triangles (and their picking colors) are filled directly into
+	 * the raster by the {@link TriangleRasterizer} instead of filling their bounding boxes with a {@link BarycentricGradientPaint}.
+	 * The result matches the paint up to rounding of the alpha blending.
+	 * Default is true.
+	 * @param enable true when enabling
+	 * @return this for chaining
+	 */
+	public TrianglesRenderer setDirectRasterizationEnabled(boolean enable) {
+		this.isDirectRasterizationEnabled = enable;
+		return this;
+	}
+
+	/**
+	 * @return true when direct rasterization is enabled, see {@link #setDirectRasterizationEnabled(boolean)}
+	 */
+	public boolean isDirectRasterizationEnabled() {
+		return isDirectRasterizationEnabled;
+	}
+
+	/**
+	 * Sets the number of threads used for direct rasterization of large meshes 
+	 * (see {@link TriangleRasterizer#fillTriangles(Img, Rectangle, float[], int[], int, boolean, ForkJoinPool)}).
+	 * The viewport is then split into row bands that are rasterized in parallel on a {@link ForkJoinPool}
+	 * of the specified parallelism that is owned by this renderer.
+	 * Default is 1, i.e. no parallelism, since canvases may already render in parallel 
+	 * (see {@link hageldave.jplotter.canvas.BlankCanvasFallback#setTiledRenderingParallelism(int)}).
+	 * @param parallelism number of threads
+	 * @return this for chaining
+	 */
+	public TrianglesRenderer setRasterizationParallelism(int parallelism) {
+		parallelism = Math.max(1, parallelism);
+		if(parallelism == rasterizationParallelism)
+			return this;
+		if(rasterizationPool != null){
+			rasterizationPool.shutdown();
+			rasterizationPool = null;
+		}
+		this.rasterizationParallelism = parallelism;
+		if(parallelism > 1){
+			rasterizationPool = new ForkJoinPool(parallelism);
+		}
+		return this;
+	}
+
+	/**
+	 * @return number of threads used for direct rasterization, see {@link #setRasterizationParallelism(int)}
+	 */
+	public int getRasterizationParallelism() {
+		return rasterizationParallelism;
+	}
 
 	/**
 	 * Creates the shader if not already created and 
@@ -196,17 +256,15 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 		double translateY = Objects.isNull(view) ? 0:view.getY();
 		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
-		int loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "viewTransform");
 		if (shader == shaderD /* double precision shader */)
 		{
-			GL40.glUniform4d(loc, translateX, translateY, scaleX, scaleY);
+			shader.setUniform4d("viewTransform", translateX, translateY, scaleX, scaleY);
 		}
 		else
 		{
-			GL20.glUniform4f(loc, (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
+			shader.setUniform4f("viewTransform", (float)translateX, (float)translateY, (float)scaleX, (float)scaleY);
 		}
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "projMX");
-		GL20.glUniformMatrix4fv(loc, false, orthoMX);
+		shader.setUniformMatrix4f("projMX", orthoMX);
 	}
 
 	@Override
@@ -215,11 +273,8 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 		if(item.numTriangles() < 1){
 			return;
 		}
-		int loc;
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "alphaMultiplier");
-		GL20.glUniform1f(loc, item.getGlobalAlphaMultiplier());
-		loc = GL20.glGetUniformLocation(shader.getShaderProgID(), "saturationScaling");
-		GL20.glUniform1f(loc, item.getGlobalSaturationMultiplier());
+		shader.setUniform1f("alphaMultiplier", item.getGlobalAlphaMultiplier());
+		shader.setUniform1f("saturationScaling", item.getGlobalSaturationMultiplier());
 		// draw things
 		item.bindVertexArray();
 		GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, item.numTriangles()*3);
@@ -251,8 +306,18 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
 		
 		Rectangle2D viewportRect = new Rectangle2D.Double(0, 0, w, h);
+		Rectangle2D clipRect = Utils.getClipBounds(g, p);
 		
 		float[][] tricoords = new float[2][3];
+		boolean drawPicking = !Utils.isClippedAway(p);
+		// rasters for direct rasterization
+		Img raster = isDirectRasterizationEnabled ? FallbackRaster.getRaster(g) : null;
+		Img pickRaster = isDirectRasterizationEnabled && drawPicking ? FallbackRaster.getRaster(p) : null;
+		Rectangle rasterClip = raster == null ? null : FallbackRaster.getDeviceClip(g, raster);
+		Rectangle pickRasterClip = pickRaster == null ? null : FallbackRaster.getDeviceClip(p, pickRaster);
+		AffineTransform gXform = g.getTransform();
+		AffineTransform pXform = p.getTransform();
+		boolean pickAA = p.getRenderingHint(RenderingHints.KEY_ANTIALIASING) == RenderingHints.VALUE_ANTIALIAS_ON;
 		for(Triangles tris : getItemsToRender()){
 			if(tris.isHidden()){
 				continue;
@@ -260,7 +325,14 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 			if(tris.isAAinFallbackEnabled()) g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 			else g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
 			
-			for(TriangleDetails tri : tris.getIntersectingTriangles(view != null ? view:viewportRect)){
+			List<TriangleDetails> intersecting = tris.getIntersectingTriangles(view != null ? view:viewportRect);
+			// device coordinates and colors of triangles for direct rasterization
+			float[] rasterCoords = raster == null ? null : new float[intersecting.size()*6];
+			int[] rasterColors = raster == null ? null : new int[intersecting.size()*3];
+			float[] pickCoords = pickRaster == null ? null : new float[intersecting.size()*6];
+			int[] pickColors = pickRaster == null ? null : new int[intersecting.size()*3];
+			int numRaster = 0, numPick = 0;
+			for(TriangleDetails tri : intersecting){
 				double x0,y0, x1,y1, x2,y2;
 				x0=tri.p0.getX(); y0=tri.p0.getY(); x1=tri.p1.getX(); y1=tri.p1.getY(); x2=tri.p2.getX(); y2=tri.p2.getY();
 				
@@ -272,6 +344,14 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 				tricoords[0][0]=(float)x0; tricoords[0][1]=(float)x1; tricoords[0][2]=(float)x2;
 				tricoords[1][0]=(float)y0; tricoords[1][1]=(float)y1; tricoords[1][2]=(float)y2;
 
+				int minx = (int)Utils.min3(x0, x1, x2);
+				int miny = (int)Utils.min3(y0, y1, y2);
+				double maxx = Utils.max3(x0, x1, x2);
+				double maxy = Utils.max3(y0, y1, y2);
+				if(clipRect != null && !clipRect.intersects(minx-1, miny-1, maxx-minx+2, maxy-miny+2)){
+					continue;
+				}
+
 				int c0 = ColorOperations.changeSaturation(tri.c0.getAsInt(), tris.getGlobalSaturationMultiplier());
 				c0 = ColorOperations.scaleColorAlpha(c0, tris.getGlobalAlphaMultiplier());
 				int c1 = ColorOperations.changeSaturation(tri.c1.getAsInt(), tris.getGlobalSaturationMultiplier());
@@ -279,24 +359,100 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 				int c2 = ColorOperations.changeSaturation(tri.c2.getAsInt(), tris.getGlobalSaturationMultiplier());
 				c2 = ColorOperations.scaleColorAlpha(c2, tris.getGlobalAlphaMultiplier());
 				
-				g.setPaint(new BarycentricGradientPaint(tricoords[0], tricoords[1], new Color(c0, true), new Color(c1, true), new Color(c2, true)));
-
-				int minx = (int)Utils.min3(x0, x1, x2);
-				int miny = (int)Utils.min3(y0, y1, y2);
-				double maxx = Utils.max3(x0, x1, x2);
-				double maxy = Utils.max3(y0, y1, y2);
-				g.fillRect((minx), (miny), (int)Math.ceil(maxx-minx), (int)Math.ceil(maxy-miny));
-				if(tri.pickColor != 0) {
-					Color pick=new Color(tri.pickColor);
-					p.setPaint(new BarycentricGradientPaint(tricoords[0], tricoords[1], pick, pick, pick));
-					p.fillRect((minx), (miny), (int)Math.ceil(maxx-minx), (int)Math.ceil(maxy-miny));
+				if(raster != null){
+					toDeviceCoords(gXform, tricoords, rasterCoords, numRaster*6);
+					rasterColors[numRaster*3+0] = c0; rasterColors[numRaster*3+1] = c1; rasterColors[numRaster*3+2] = c2;
+					numRaster++;
+				} else {
+					g.setPaint(new BarycentricGradientPaint(tricoords[0], tricoords[1], new Color(c0, true), new Color(c1, true), new Color(c2, true)));
+					g.fillRect((minx), (miny), (int)Math.ceil(maxx-minx), (int)Math.ceil(maxy-miny));
+				}
+				if(tri.pickColor != 0 && drawPicking) {
+					if(pickRaster != null){
+						int pick = 0xff000000 | tri.pickColor;
+						toDeviceCoords(pXform, tricoords, pickCoords, numPick*6);
+						pickColors[numPick*3+0] = pick; pickColors[numPick*3+1] = pick; pickColors[numPick*3+2] = pick;
+						numPick++;
+					} else {
+						Color pick=new Color(tri.pickColor);
+						p.setPaint(new BarycentricGradientPaint(tricoords[0], tricoords[1], pick, pick, pick));
+						p.fillRect((minx), (miny), (int)Math.ceil(maxx-minx), (int)Math.ceil(maxy-miny));
+					}
 				}
 			}
+			if(numRaster > 0)
+				TriangleRasterizer.fillTriangles(raster, rasterClip, rasterCoords, rasterColors, numRaster, tris.isAAinFallbackEnabled(), rasterizationPool);
+			if(numPick > 0)
+				TriangleRasterizer.fillTriangles(pickRaster, pickRasterClip, pickCoords, pickColors, numPick, pickAA, rasterizationPool);
 		}
 		
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 	}
 
+	/**
+	 * Transforms the triangle coordinates to device space like {@link BarycentricGradientPaint} does.
+	 */
+	private static void toDeviceCoords(AffineTransform xform, float[][] tricoords, float[] dst, int offset) {
+		for(int i=0; i<3; i++){
+			dst[offset+i*2+0] = (float)(tricoords[0][i]*xform.getScaleX() + xform.getTranslateX());
+			dst[offset+i*2+1] = (float)(tricoords[1][i]*xform.getScaleY() + xform.getTranslateY());
+		}
+	}
+
+	/**
+	 * Hit tests the pixel centers against the triangles using edge functions.
+	 * The candidate triangles are determined by a rectangle query on the {@link Triangles}
+	 * which uses the spatial index when enabled ({@link Triangles#setSpatialIndexEnabled(boolean)}).
+	 */
+	@Override
+	public void pickArea(int x, int y, int areaW, int areaH, int w, int h, int[] pickColors) {
+		if(!isEnabled()){
+			return;
+		}
+		double translateX = Objects.isNull(view) ? 0:view.getX();
+		double translateY = Objects.isNull(view) ? 0:view.getY();
+		double scaleX = Objects.isNull(view) ? 1:w/view.getWidth();
+		double scaleY = Objects.isNull(view) ? 1:h/view.getHeight();
+		
+		Rectangle2D query = new Rectangle2D.Double(
+				x/scaleX+translateX, 
+				y/scaleY+translateY, 
+				areaW/scaleX, 
+				areaH/scaleY);
+		for(Triangles tris : getItemsToRender()){
+			if(tris.isHidden()){
+				continue;
+			}
+			for(TriangleDetails tri : tris.getIntersectingTriangles(query)){
+				if(tri.pickColor == 0){
+					continue;
+				}
+				double x0,y0, x1,y1, x2,y2;
+				x0=(tri.p0.getX()-translateX)*scaleX; y0=(tri.p0.getY()-translateY)*scaleY;
+				x1=(tri.p1.getX()-translateX)*scaleX; y1=(tri.p1.getY()-translateY)*scaleY;
+				x2=(tri.p2.getX()-translateX)*scaleX; y2=(tri.p2.getY()-translateY)*scaleY;
+				// sign of the area accounts for the winding order
+				double area = (x1-x0)*(y2-y0)-(y1-y0)*(x2-x0);
+				if(area == 0){
+					continue;
+				}
+				double sign = Math.signum(area);
+				for(int j=0; j<areaH; j++){
+					double py = y+j+0.5;
+					for(int i=0; i<areaW; i++){
+						double px = x+i+0.5;
+						double e0 = ((x1-x0)*(py-y0)-(y1-y0)*(px-x0))*sign;
+						double e1 = ((x2-x1)*(py-y1)-(y2-y1)*(px-x1))*sign;
+						double e2 = ((x0-x2)*(py-y2)-(y0-y2)*(px-x2))*sign;
+						if(e0 >= 0 && e1 >= 0 && e2 >= 0){
+							pickColors[j*areaW+i] = 0xff000000|tri.pickColor;
+						}
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	public void renderSVG(Document doc, Element parent, int w, int h) {
 		if(!isEnabled()){
@@ -444,6 +600,7 @@ public class TrianglesRenderer extends GenericRenderer<Triangles> {
 				tris.removeAllTriangles();
 				for (TriangleDetails details : list)
 					tris.getTriangleDetails().add(details);
+				tris.setDirty();
 			}
 
 			// calculate the min/max values (the bounds) of all triangles
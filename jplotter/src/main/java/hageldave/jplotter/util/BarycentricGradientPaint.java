@@ -15,6 +15,7 @@ import java.awt.image.DirectColorModel;
 import java.awt.image.Raster;
 import java.awt.image.WritableRaster;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 
 /**
  * The BarycentricGradientPaint class provides a way to fill a {@link Shape}
@@ -152,6 +153,11 @@ public class BarycentricGradientPaint implements Paint {
 	 * <p>
 	 * A cache for raster memory is implemented to avoid costly memory 
 	 * allocations.
+	 * <p>
+	 * Since Java2D requests rasters for the bounding box of the filled shape, 
+	 * barycentric coordinates are only evaluated within the horizontal extent 
+	 * of the triangle in each row ({@link #computeSpan(int, int, int)}), 
+	 * the remaining pixels are cleared.
 	 * 
 	 * @author hageldave
 	 */
@@ -159,13 +165,7 @@ public class BarycentricGradientPaint implements Paint {
 		protected static final float[] MSAA_SAMPLES;
 
 		static {
-			MSAA_SAMPLES = new float[8];
-			AffineTransform xform = new AffineTransform();
-			xform.translate(.5, .5);
-			xform.rotate(Math.PI*0.5*0.2);
-			xform.scale(.5, .5);
-			xform.translate(-.5, -.5);
-			xform.transform(new float[] {0,0, 1,0, 0,1, 1,1}, 0, MSAA_SAMPLES, 0, 4);
+			MSAA_SAMPLES = TriangleShading.msaaSamples();
 		}
 
 		protected final float x1,x2,x3,y1,y2,y3;
@@ -180,6 +180,16 @@ public class BarycentricGradientPaint implements Paint {
 				0xff000000        // Alpha
 				);
 		protected final boolean antialiasing;
+		/** vertical extent of the triangle */
+		protected final float ymin, ymax;
+		/** whether rows are restricted to the columns covered by the triangle (false for degenerate triangles) */
+		protected final boolean spansEnabled;
+		/** columns of the current row that may be covered, see {@link #computeSpan(int, int, int)} */
+		protected int spanFrom, spanTo;
+		/** horizontal extent of the triangle in the current row */
+		protected final double[] spanExtent = new double[2];
+		/** column dependent parts of the barycentric coordinates per sample */
+		protected final float[][] columnParts = new float[4][];
 		protected WritableRaster saved;
 		protected WeakReference<int[]> cache;
 
@@ -199,6 +209,11 @@ public class BarycentricGradientPaint implements Paint {
 			x1=p1.x; x2=p2.x; x3=p3.x; y1=p1.y; y2=p2.y; y3=p3.y;
 			x23=x2-x3; x13=x1-x3; y23=y2-y3; y13=y1-y3; // x12=x1-x2; y12=y1-y2;
 			denom=1f/((y23*x13)-(x23*y13));
+			ymin=Math.min(y1, Math.min(y2, y3));
+			ymax=Math.max(y1, Math.max(y2, y3));
+			// degenerate triangles produce infinite or NaN barycentric coordinates that need to be evaluated everywhere
+			spansEnabled = !Float.isInfinite(denom) && !Float.isNaN(denom) 
+					&& !Float.isInfinite(ymin) && !Float.isNaN(ymin) && !Float.isInfinite(ymax) && !Float.isNaN(ymax);
 			
 			this.antialiasing = antialiasing;
 		}
@@ -242,53 +257,77 @@ public class BarycentricGradientPaint implements Paint {
 			return rast;
 		}
 
+		/**
+		 * Determines the columns of the specified raster row that may be covered by the triangle,
+		 * i.e. the horizontal extent of the triangle within the row's slab [y,y+1] plus a margin of one pixel
+		 * for rounding. The result is stored in {@link #spanFrom} and {@link #spanTo} (inclusive), 
+		 * the span is empty when spanFrom &gt; spanTo.
+		 * Pixels outside the span are transparent, pixels inside still have to be tested.
+		 */
+		protected void computeSpan(int xA, int y, int w) {
+			if(!spansEnabled){
+				spanFrom = 0; spanTo = w-1;
+				return;
+			}
+			if(!(y+1 >= ymin-1 && y <= ymax+1) || !TriangleShading.computeSpan(x1, y1, x2, y2, x3, y3, ymin, ymax, y, spanExtent)){
+				spanFrom = 0; spanTo = -1;
+				return;
+			}
+			double xl = spanExtent[0], xr = spanExtent[1];
+			spanFrom = (int)Math.max(0, Math.min(w, Math.floor(xl)-1-xA));
+			spanTo = (int)Math.max(-1, Math.min(w-1, Math.floor(xr)+1-xA));
+		}
+
+		/**
+		 * Precomputes the column dependent parts of the barycentric coordinates for the specified sample offset.
+		 * Index 0 of the returned array holds y23*(x-x3) of column j at 2*j and -y13*(x-x3) at 2*j+1.
+		 */
+		protected float[] columnParts(int slot, int xA, int w, float sampleOffset) {
+			float[] parts = columnParts[slot];
+			if(parts == null || parts.length < w*2)
+				parts = columnParts[slot] = new float[w*2];
+			for(int j=0; j<w; j++) {
+				float x = xA+j+sampleOffset;
+				parts[j*2+0] =  y23*(x-x3);
+				parts[j*2+1] = -y13*(x-x3);
+			}
+			return parts;
+		}
+
 		protected void fillRaster(int xA, int yA, int w, int h, int[] data) {
-			if(c1==c2&&c2==c3) {
-				// all vertices same color
-				for(int i=0; i<h; i++) {
-					float y = yA+i+.5f;
-					float ypart11 = -x23*(y-y3);
-					float ypart21 =  x13*(y-y3);
-			
-					for(int j=0; j<w; j++) {
-						float x = xA+j+.5f;
-						// calculate barycentric coordinates for (x,y)
-						float l1 = ( y23*(x-x3)+ypart11)*denom;
-						float l2 = (-y13*(x-x3)+ypart21)*denom;
-						float l3 = 1f-l1-l2;
-						// determine color
-						int mix1;
-						if(l1<0||l2<0||l3<0) mix1 = 0;
-						else mix1 = c1;
-						data[i*w+j] = mix1;
-					}
-				}
-			} else {
-				// vertices of different color
-				for(int i=0; i<h; i++) {
-					float y = yA+i+.5f;
-					float ypart11 = -x23*(y-y3);
-					float ypart21 =  x13*(y-y3);
-			
-					for(int j=0; j<w; j++) {
-						float x = xA+j+.5f;
-						// calculate barycentric coordinates for (x,y)
-						float l1 = ( y23*(x-x3)+ypart11)*denom;
-						float l2 = (-y13*(x-x3)+ypart21)*denom;
-						float l3 = 1f-l1-l2;
-						// determine color
-						int mix1;
-						if(l1<0||l2<0||l3<0) mix1 = 0;
-						else mix1 = mixColor3(c1, c2, c3, l1, l2, l3);
-						data[i*w+j] = mix1;
-					}
+			final boolean monochrome = c1==c2&&c2==c3;
+			final float[] xparts = columnParts(0, xA, w, .5f);
+			for(int i=0; i<h; i++) {
+				float y = yA+i+.5f;
+				float ypart11 = -x23*(y-y3);
+				float ypart21 =  x13*(y-y3);
+				
+				computeSpan(xA, yA+i, w);
+				int row = i*w;
+				int j0 = Math.min(w, Math.max(0, spanFrom)), j1 = Math.max(Math.min(w, spanTo+1), j0);
+				Arrays.fill(data, row, row+j0, 0);
+				for(int j=j0; j<j1; j++) {
+					// calculate barycentric coordinates for (x,y)
+					float l1 = (xparts[j*2+0]+ypart11)*denom;
+					float l2 = (xparts[j*2+1]+ypart21)*denom;
+					float l3 = 1f-l1-l2;
+					// determine color
+					int mix1;
+					if(l1<0||l2<0||l3<0) mix1 = 0;
+					else mix1 = monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l1, l2, l3);
+					data[row+j] = mix1;
 				}
+				Arrays.fill(data, row+j1, row+w, 0);
 			}
 		}
 
 
 		protected void fillRasterMSAA(int xA, int yA, int w, int h, int[] data) {
 			final boolean monochrome = c1==c2&&c2==c3;
+			final float[] xparts1 = columnParts(0, xA, w, MSAA_SAMPLES[0]);
+			final float[] xparts2 = columnParts(1, xA, w, MSAA_SAMPLES[2]);
+			final float[] xparts3 = columnParts(2, xA, w, MSAA_SAMPLES[4]);
+			final float[] xparts4 = columnParts(3, xA, w, MSAA_SAMPLES[6]);
 			for(int i=0; i<h; i++) {
 				float y = yA+i+MSAA_SAMPLES[1];
 				float ypart11 = -x23*(y-y3);
@@ -303,56 +342,48 @@ public class BarycentricGradientPaint implements Paint {
 				float ypart14 = -x23*(y-y3);
 				float ypart24 =  x13*(y-y3);
 
-				for(int j=0; j<w; j++) {
-					float x = xA+j+MSAA_SAMPLES[0];
-					float xpart11 =  y23*(x-x3);
-					float xpart21 = -y13*(x-x3);
-					x = xA+j+MSAA_SAMPLES[2];
-					float xpart12 =  y23*(x-x3);
-					float xpart22 = -y13*(x-x3);
-					x = xA+j+MSAA_SAMPLES[4];
-					float xpart13 =  y23*(x-x3);
-					float xpart23 = -y13*(x-x3);
-					x = xA+j+MSAA_SAMPLES[6];
-					float xpart14 =  y23*(x-x3);
-					float xpart24 = -y13*(x-x3);
-
+				computeSpan(xA, yA+i, w);
+				int row = i*w;
+				int j0 = Math.min(w, Math.max(0, spanFrom)), j1 = Math.max(Math.min(w, spanTo+1), j0);
+				Arrays.fill(data, row, row+j0, 0);
+				for(int j=j0; j<j1; j++) {
 					// calculate barycentric coordinates for the 4 sub pixel samples
-					float l11 = (xpart11+ypart11)*denom;
-					float l21 = (xpart21+ypart21)*denom;
+					float l11 = (xparts1[j*2+0]+ypart11)*denom;
+					float l21 = (xparts1[j*2+1]+ypart21)*denom;
 					float l31 = 1f-l11-l21;
 
-					float l12 = (xpart12+ypart12)*denom;
-					float l22 = (xpart22+ypart22)*denom;
+					float l12 = (xparts2[j*2+0]+ypart12)*denom;
+					float l22 = (xparts2[j*2+1]+ypart22)*denom;
 					float l32 = 1f-l12-l22;
 
-					float l13 = (xpart13+ypart13)*denom;
-					float l23 = (xpart23+ypart23)*denom;
+					float l13 = (xparts3[j*2+0]+ypart13)*denom;
+					float l23 = (xparts3[j*2+1]+ypart23)*denom;
 					float l33 = 1f-l13-l23;
 
-					float l14 = (xpart14+ypart14)*denom;
-					float l24 = (xpart24+ypart24)*denom;
+					float l14 = (xparts4[j*2+0]+ypart14)*denom;
+					float l24 = (xparts4[j*2+1]+ypart24)*denom;
 					float l34 = 1f-l14-l24;
 
-					// determine sample colors and weights (out of triangle samples have 0 weight)
-					int mix1,mix2,mix3,mix4;
-					float w1,w2,w3,w4;
-
-					if(l11<0||l21<0||l31<0) { mix1 = 0; w1=0f; }
-					else { mix1 = monochrome ? c1:mixColor3(c1, c2, c3, l11, l21, l31); w1=1f; }
-
-					if(l12<0||l22<0||l32<0) { mix2 = 0; w2=0f; }
-					else { mix2 = monochrome ? c1:mixColor3(c1, c2, c3, l12, l22, l32); w2=1f; }
-
-					if(l13<0||l23<0||l33<0) {mix3 = 0; w3=0f; }
-					else { mix3 = monochrome ? c1:mixColor3(c1, c2, c3, l13, l23, l33); w3=1f; }
-
-					if(l14<0||l24<0||l34<0) { mix4 = 0; w4=0f; }
-					else { mix4 = monochrome ? c1:mixColor3(c1, c2, c3, l14, l24, l34); w4=1f; }
+					boolean in1 = !(l11<0||l21<0||l31<0);
+					boolean in2 = !(l12<0||l22<0||l32<0);
+					boolean in3 = !(l13<0||l23<0||l33<0);
+					boolean in4 = !(l14<0||l24<0||l34<0);
+					if(!(in1||in2||in3||in4)){
+						data[row+j] = 0;
+						continue;
+					}
 
-					int color = mixColor4(mix1, mix2, mix3, mix4, w1,w2,w3,w4);
-					data[i*w+j] = scaleColorAlpha(color,(w1+w2+w3+w4)*.25f);
+					// determine sample colors and weights (out of triangle samples have 0 weight)
+					int mix1 = !in1 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l11, l21, l31);
+					int mix2 = !in2 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l12, l22, l32);
+					int mix3 = !in3 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l13, l23, l33);
+					int mix4 = !in4 ? 0 : monochrome ? c1:TriangleShading.mixColor3(c1, c2, c3, l14, l24, l34);
+					float w1 = in1?1f:0f, w2 = in2?1f:0f, w3 = in3?1f:0f, w4 = in4?1f:0f;
+
+					int color = TriangleShading.mixColor4(mix1, mix2, mix3, mix4, w1,w2,w3,w4);
+					data[row+j] = TriangleShading.scaleColorAlpha(color,(w1+w2+w3+w4)*.25f);
 				}
+				Arrays.fill(data, row+j1, row+w, 0);
 			}
 		}
 
@@ -390,51 +421,6 @@ public class BarycentricGradientPaint implements Paint {
 		private static int[] dataFromRaster(WritableRaster wr) {
 			return ((DataBufferInt)wr.getDataBuffer()).getData();
 		}
-		
-		private static int mixColor3(int c1, int c2, int c3, float m1, float m2, float m3) {
-			float normalize = 1f/(m1+m2+m3);
-			float a = (a(c1)*m1 + a(c2)*m2 + a(c3)*m3)*normalize;
-			float r = (r(c1)*m1 + r(c2)*m2 + r(c3)*m3)*normalize;
-			float g = (g(c1)*m1 + g(c2)*m2 + g(c3)*m3)*normalize;
-			float b = (b(c1)*m1 + b(c2)*m2 + b(c3)*m3)*normalize;
-			return argb((int)a, (int)r, (int)g, (int)b);
-		}
-		
-		private static int mixColor4(int c1, int c2, int c3, int c4, float m1, float m2, float m3, float m4) {
-			float normalize = 1f/(m1+m2+m3+m4);
-			float a = (a(c1)*m1 + a(c2)*m2 + a(c3)*m3 + a(c4)*m4)*normalize;
-			float r = (r(c1)*m1 + r(c2)*m2 + r(c3)*m3 + r(c4)*m4)*normalize;
-			float g = (g(c1)*m1 + g(c2)*m2 + g(c3)*m3 + g(c4)*m4)*normalize;
-			float b = (b(c1)*m1 + b(c2)*m2 + b(c3)*m3 + b(c4)*m4)*normalize;
-			return argb((int)a, (int)r, (int)g, (int)b);
-		}
-		
-		private static int a(int argb) {
-			return (argb >> 24) & 0xff;
-		}
-		
-		private static int r(int argb) {
-			return (argb >> 16) & 0xff;
-		}
-		
-		private static int g(int argb) {
-			return (argb >> 8) & 0xff;
-		}
-		
-		private static int b(int argb) {
-			return (argb) & 0xff;
-		}
-		
-		private static int argb(final int a, final int r, final int g, final int b){
-			return (a<<24)|(r<<16)|(g<<8)|b;
-		}
-		
-		private static int scaleColorAlpha(int color, float m) {
-			float normalize = 1f/255f;
-			float af = a(color)*normalize*m;
-			int a = (((int)(af*255f)) & 0xff) << 24;
-			return (color&0x00ffffff)|a;
-		}
 
 	}
 
@@ -0,0 +1,243 @@
+package hageldave.jplotter.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Bounding volume hierarchy of axis aligned bounding boxes (AABBs) for fast rectangular query of
+ * a static set of 2D primitives that are identified by their index
+ * (e.g. the triangles of a {@link hageldave.jplotter.renderables.Triangles} object).
+ * <p>
+ * The hierarchy is a packed tree built bottom up: the primitives are sorted along a Morton (Z-order) curve
+ * by the centers of their boxes, consecutive runs of {@link #LEAF_SIZE} primitives form the leaves,
+ * and each level above merges pairs of nodes of the level below.
+ * Only primitive arrays are stored, so that millions of primitives can be indexed without per primitive objects.
+ * A query descends into nodes overlapping the query rectangle, so it costs time proportional to the
+ * logarithm of the number of primitives plus the number of reported primitives.
+ * <p>
+ * The hierarchy does not track changes of the primitives, it has to be rebuilt when they change.
+ *
+ * @author hageldave
+ */
+public class BoundingVolumeHierarchy {
+
+	/** number of primitives per leaf */
+	public static final int LEAF_SIZE = 8;
+
+	/**
+	 * Function that writes the bounding box of a primitive into the specified array
+	 * at the specified offset in the order minX, minY, maxX, maxY.
+	 */
+	public static interface BoxExtractor {
+		public void getBox(int index, double[] box, int offset);
+	}
+
+	protected final int numPrimitives;
+	/** primitive indices in leaf order */
+	protected final int[] order;
+	/** node boxes per level (level 0 are leaves), 4 values per node: minX, minY, maxX, maxY */
+	protected final double[][] levels;
+	/** number of primitives with non finite boxes, these are at the end of order and not covered by the tree */
+	protected final int numOutliers;
+
+	/**
+	 * Builds a hierarchy over the primitives [0, numPrimitives).
+	 * @param numPrimitives number of primitives
+	 * @param boxes function providing the bounding box of a primitive
+	 */
+	public BoundingVolumeHierarchy(int numPrimitives, BoxExtractor boxes) {
+		this.numPrimitives = numPrimitives;
+		double[] box = new double[numPrimitives*4];
+		for(int i=0; i<numPrimitives; i++){
+			boxes.getBox(i, box, i*4);
+		}
+		// extent of all finite boxes for quantization of centers
+		double xMin=Double.POSITIVE_INFINITY, yMin=Double.POSITIVE_INFINITY;
+		double xMax=Double.NEGATIVE_INFINITY, yMax=Double.NEGATIVE_INFINITY;
+		int outliers = 0;
+		for(int i=0; i<numPrimitives; i++){
+			if(!isFinite(box, i*4)){
+				outliers++;
+				continue;
+			}
+			xMin = Math.min(xMin, box[i*4+0]); yMin = Math.min(yMin, box[i*4+1]);
+			xMax = Math.max(xMax, box[i*4+2]); yMax = Math.max(yMax, box[i*4+3]);
+		}
+		this.numOutliers = outliers;
+		double sx = xMax > xMin ? 0x7fff/(xMax-xMin) : 0;
+		double sy = yMax > yMin ? 0x7fff/(yMax-yMin) : 0;
+		// sort by morton code of box centers (15 bits per axis), index is kept in the lower 32 bits
+		// outliers get a code larger than any morton code to end up last (keys stay positive)
+		long[] keys = new long[numPrimitives];
+		for(int i=0; i<numPrimitives; i++){
+			long code;
+			if(isFinite(box, i*4)){
+				int qx = (int)(((box[i*4+0]+box[i*4+2])*0.5-xMin)*sx);
+				int qy = (int)(((box[i*4+1]+box[i*4+3])*0.5-yMin)*sy);
+				code = interleave(qx) | (interleave(qy)<<1);
+			} else {
+				code = 0x7fffffffL;
+			}
+			keys[i] = (code<<32) | i;
+		}
+		Arrays.sort(keys);
+		order = new int[numPrimitives];
+		for(int i=0; i<numPrimitives; i++){
+			order[i] = (int)keys[i];
+		}
+		// leaves
+		int numIndexed = numPrimitives-numOutliers;
+		int numLevels = 1;
+		for(int n=(numIndexed+LEAF_SIZE-1)/LEAF_SIZE; n > 1; n = (n+1)/2)
+			numLevels++;
+		levels = new double[numLevels][];
+		int numLeaves = (numIndexed+LEAF_SIZE-1)/LEAF_SIZE;
+		double[] leaves = new double[numLeaves*4];
+		for(int l=0; l<numLeaves; l++){
+			int start = l*LEAF_SIZE, end = Math.min(start+LEAF_SIZE, numIndexed);
+			int b = order[start]*4;
+			double bxMin=box[b+0], byMin=box[b+1], bxMax=box[b+2], byMax=box[b+3];
+			for(int k=start+1; k<end; k++){
+				b = order[k]*4;
+				bxMin = Math.min(bxMin, box[b+0]); byMin = Math.min(byMin, box[b+1]);
+				bxMax = Math.max(bxMax, box[b+2]); byMax = Math.max(byMax, box[b+3]);
+			}
+			leaves[l*4+0]=bxMin; leaves[l*4+1]=byMin; leaves[l*4+2]=bxMax; leaves[l*4+3]=byMax;
+		}
+		levels[0] = leaves;
+		// inner levels merge pairs of nodes
+		for(int lvl=1; lvl<numLevels; lvl++){
+			double[] below = levels[lvl-1];
+			int numBelow = below.length/4;
+			double[] nodes = new double[((numBelow+1)/2)*4];
+			for(int n=0; n<nodes.length/4; n++){
+				int c0 = n*2, c1 = Math.min(n*2+1, numBelow-1);
+				nodes[n*4+0] = Math.min(below[c0*4+0], below[c1*4+0]);
+				nodes[n*4+1] = Math.min(below[c0*4+1], below[c1*4+1]);
+				nodes[n*4+2] = Math.max(below[c0*4+2], below[c1*4+2]);
+				nodes[n*4+3] = Math.max(below[c0*4+3], below[c1*4+3]);
+			}
+			levels[lvl] = nodes;
+		}
+	}
+
+	private static boolean isFinite(double[] box, int offset) {
+		return Double.isFinite(box[offset+0]) && Double.isFinite(box[offset+1])
+				&& Double.isFinite(box[offset+2]) && Double.isFinite(box[offset+3]);
+	}
+
+	/* spreads the lower 15 bits of v to the even bit positions */
+	private static long interleave(int v) {
+		long x = v & 0x7fffL;
+		x = (x | (x << 8)) & 0x00ff00ffL;
+		x = (x | (x << 4)) & 0x0f0f0f0fL;
+		x = (x | (x << 2)) & 0x33333333L;
+		x = (x | (x << 1)) & 0x55555555L;
+		return x;
+	}
+
+	/**
+	 * @return number of primitives this hierarchy was built for
+	 */
+	public int numPrimitives() {
+		return numPrimitives;
+	}
+
+	/**
+	 * Calls the specified action for each primitive that passes the specified test and whose node
+	 * overlaps the specified rectangle. Primitives of nodes that are completely contained in the rectangle
+	 * are reported without calling the test, since the test is expected to check intersection with the rectangle.
+	 * The order in which primitives are reported is unspecified.
+	 * @param rect query rectangle
+	 * @param test exact intersection test for a primitive index
+	 * @param action consumer of primitive indices
+	 * @return true if at least one primitive was reported
+	 */
+	public boolean forEachIntersecting(Rectangle2D rect, IntPredicate test, IntConsumer action) {
+		return query(rect, test, action, false);
+	}
+
+	/**
+	 * @param rect query rectangle
+	 * @param test exact intersection test for a primitive index
+	 * @return true if at least one primitive whose node overlaps the rectangle passes the test
+	 * (or belongs to a node contained in the rectangle)
+	 */
+	public boolean anyIntersecting(Rectangle2D rect, IntPredicate test) {
+		return query(rect, test, i->{}, true);
+	}
+
+	/**
+	 * @param rect query rectangle
+	 * @param test exact intersection test for a primitive index
+	 * @return indices of the intersecting primitives in ascending order
+	 * @see #forEachIntersecting(Rectangle2D, IntPredicate, IntConsumer)
+	 */
+	public int[] getIntersecting(Rectangle2D rect, IntPredicate test) {
+		int[][] result = {new int[64]};
+		int[] size = {0};
+		query(rect, test, i->{
+			if(size[0] == result[0].length)
+				result[0] = Arrays.copyOf(result[0], size[0]*2);
+			result[0][size[0]++] = i;
+		}, false);
+		int[] intersecting = Arrays.copyOf(result[0], size[0]);
+		Arrays.sort(intersecting);
+		return intersecting;
+	}
+
+	protected boolean query(Rectangle2D rect, IntPredicate test, IntConsumer action, boolean stopAtFirst) {
+		double rxMin = rect.getMinX(), ryMin = rect.getMinY();
+		double rxMax = rect.getMaxX(), ryMax = rect.getMaxY();
+		boolean found = false;
+		if(levels[0].length > 0){
+			found = query(levels.length-1, 0, rxMin, ryMin, rxMax, ryMax, test, action, stopAtFirst);
+		}
+		for(int k=numPrimitives-numOutliers; k<numPrimitives && !(found && stopAtFirst); k++){
+			if(test.test(order[k])){
+				action.accept(order[k]);
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	private boolean query(int lvl, int node,
+			double rxMin, double ryMin, double rxMax, double ryMax,
+			IntPredicate test, IntConsumer action, boolean stopAtFirst)
+	{
+		double[] nodes = levels[lvl];
+		double nxMin = nodes[node*4+0], nyMin = nodes[node*4+1];
+		double nxMax = nodes[node*4+2], nyMax = nodes[node*4+3];
+		if(nxMax < rxMin || nxMin > rxMax || nyMax < ryMin || nyMin > ryMax)
+			return false;
+		// strictly inside, so that primitives are guaranteed to intersect
+		boolean contained = nxMin > rxMin && nxMax < rxMax && nyMin > ryMin && nyMax < ryMax;
+		if(lvl == 0){
+			int start = node*LEAF_SIZE, end = Math.min(start+LEAF_SIZE, numPrimitives-numOutliers);
+			boolean found = false;
+			for(int k=start; k<end; k++){
+				int i = order[k];
+				if(contained || test.test(i)){
+					action.accept(i);
+					if(stopAtFirst)
+						return true;
+					found = true;
+				}
+			}
+			return found;
+		}
+		if(contained && stopAtFirst)
+			return true;
+		int numBelow = levels[lvl-1].length/4;
+		boolean found = query(lvl-1, node*2, rxMin, ryMin, rxMax, ryMax, test, action, stopAtFirst);
+		if(found && stopAtFirst)
+			return true;
+		if(node*2+1 < numBelow)
+			found |= query(lvl-1, node*2+1, rxMin, ryMin, rxMax, ryMax, test, action, stopAtFirst);
+		return found;
+	}
+
+}
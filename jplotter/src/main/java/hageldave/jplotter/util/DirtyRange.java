@@ -0,0 +1,99 @@
+package hageldave.jplotter.util;
+
+/**
+ * The DirtyRange class keeps track of the range of elements of a collection
+ * (e.g. the points of a {@link hageldave.jplotter.renderables.Points} object) that changed
+ * since the last synchronization with the GL resources.
+ * It stores a single interval [from, to) which is the bounding interval of all
+ * marked indices, so that a single partial buffer update can be issued for it.
+ *
+ * @author hageldave
+ */
+public class DirtyRange {
+
+	protected int from = Integer.MAX_VALUE;
+	protected int to = Integer.MIN_VALUE;
+
+	/**
+	 * Marks the element at the specified index as dirty.
+	 * @param idx index of element
+	 * @return this for chaining
+	 */
+	public DirtyRange mark(int idx) {
+		return mark(idx, idx+1);
+	}
+
+	/**
+	 * Marks the elements in the specified range as dirty.
+	 * The dirty range will be extended to the bounding interval of the current
+	 * range and the specified range.
+	 * @param from index of the first element (inclusive)
+	 * @param to index of the last element (exclusive)
+	 * @return this for chaining
+	 * @throws IllegalArgumentException when from is negative or to is smaller than from
+	 */
+	public DirtyRange mark(int from, int to) {
+		if(from < 0 || to < from){
+			throw new IllegalArgumentException("invalid range ["+from+","+to+")");
+		}
+		if(from == to){
+			return this;
+		}
+		this.from = Math.min(this.from, from);
+		this.to = Math.max(this.to, to);
+		return this;
+	}
+
+	/**
+	 * @return true when no element is marked dirty
+	 */
+	public boolean isEmpty() {
+		return to <= from;
+	}
+
+	/**
+	 * @return index of the first dirty element (inclusive), only meaningful when not {@link #isEmpty()}
+	 */
+	public int getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return index after the last dirty element (exclusive), only meaningful when not {@link #isEmpty()}
+	 */
+	public int getTo() {
+		return to;
+	}
+
+	/**
+	 * @return number of elements within the dirty range, 0 when {@link #isEmpty()}
+	 */
+	public int length() {
+		return isEmpty() ? 0 : to-from;
+	}
+
+	/**
+	 * Tests whether the dirty range lies within [0, numElements).
+	 * @param numElements number of elements of the collection
+	 * @return true when the range is non empty and within bounds
+	 */
+	public boolean isWithin(int numElements) {
+		return !isEmpty() && to <= numElements;
+	}
+
+	/**
+	 * Resets this range to be empty.
+	 * @return this for chaining
+	 */
+	public DirtyRange clear() {
+		from = Integer.MAX_VALUE;
+		to = Integer.MIN_VALUE;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return isEmpty() ? "DirtyRange[]" : "DirtyRange["+from+","+to+")";
+	}
+
+}
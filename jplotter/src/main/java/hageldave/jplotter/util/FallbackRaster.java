@@ -0,0 +1,123 @@
+package hageldave.jplotter.util;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+import hageldave.imagingkit.core.Img;
+
+/**
+ * The FallbackRaster class gives fallback renderers direct access to the integer ARGB raster
+ * that a {@link Graphics2D} draws to, so that primitives can be rasterized into the pixel array
+ * instead of going through Java2D for every primitive.
+ * <p>
+ * A canvas announces the raster by setting it as rendering hint {@link #KEY_RASTER} on the graphics it hands to
+ * {@link hageldave.jplotter.renderers.Renderer#renderFallback(Graphics2D, Graphics2D, int, int)}
+ * (see {@link hageldave.jplotter.canvas.BlankCanvasFallback}). Rendering hints are inherited by
+ * {@link Graphics2D#create()}, so sub viewport graphics carry the raster as well.
+ * Graphics without the hint (e.g. for SVG or PDF export) are drawn through Java2D as usual.
+ *
+ * @author hageldave
+ */
+public class FallbackRaster {
+
+	/** rendering hint key for the {@link Img} a graphics draws to */
+	public static final RenderingHints.Key KEY_RASTER = new RenderingHints.Key(0x6a706c74) {
+		@Override
+		public boolean isCompatibleValue(Object val) {
+			return val == null || val instanceof Img;
+		}
+	};
+
+	private FallbackRaster() {}
+
+	/**
+	 * Announces the raster the specified graphics draws to.
+	 * The graphics has to be created by the raster's image, i.e. device space is the raster's pixel space.
+	 * @param g graphics
+	 * @param raster image that g draws to
+	 */
+	public static void setRaster(Graphics2D g, Img raster) {
+		g.setRenderingHint(KEY_RASTER, raster);
+	}
+
+	/**
+	 * Returns the raster of the specified graphics when primitives can be rasterized into it directly,
+	 * which is the case when the raster was announced ({@link #setRaster(Graphics2D, Img)}),
+	 * the transform only translates and flips axes, the composite is source over and the clip is rectangular.
+	 * @param g graphics
+	 * @return the raster or null when primitives need to be drawn through Java2D
+	 */
+	public static Img getRaster(Graphics2D g) {
+		Object raster = g.getRenderingHint(KEY_RASTER);
+		if(!(raster instanceof Img))
+			return null;
+		AffineTransform xform = g.getTransform();
+		if(xform.getShearX() != 0 || xform.getShearY() != 0 || Math.abs(xform.getScaleX()) != 1 || Math.abs(xform.getScaleY()) != 1)
+			return null;
+		if(!AlphaComposite.SrcOver.equals(g.getComposite()))
+			return null;
+		Shape clip = g.getClip();
+		if(clip != null && !(clip instanceof Rectangle2D))
+			return null;
+		return (Img)raster;
+	}
+
+	/**
+	 * @param g graphics
+	 * @param raster the raster of g
+	 * @return the clip of g in device space, intersected with the raster bounds
+	 */
+	public static Rectangle getDeviceClip(Graphics2D g, Img raster) {
+		Rectangle bounds = new Rectangle(raster.getWidth(), raster.getHeight());
+		Shape clip = g.getClip();
+		if(clip == null)
+			return bounds;
+		Rectangle2D deviceClip = g.getTransform().createTransformedShape(clip).getBounds2D();
+		// clip of pixel centers
+		int x0 = (int)Math.ceil(deviceClip.getMinX()-0.5);
+		int y0 = (int)Math.ceil(deviceClip.getMinY()-0.5);
+		int x1 = (int)Math.ceil(deviceClip.getMaxX()-0.5);
+		int y1 = (int)Math.ceil(deviceClip.getMaxY()-0.5);
+		return bounds.intersection(new Rectangle(x0, y0, Math.max(0, x1-x0), Math.max(0, y1-y0)));
+	}
+
+	/**
+	 * Blends the specified color over the specified (non premultiplied) ARGB value
+	 * the way {@link AlphaComposite#SrcOver} does.
+	 * @param dst ARGB value of the raster
+	 * @param rgb RGB part of the color
+	 * @param alpha alpha of the color in [0,255], i.e. color alpha times coverage
+	 * @return blended ARGB value
+	 */
+	public static int blendSrcOver(int dst, int rgb, int alpha) {
+		if(alpha >= 255)
+			return 0xff000000 | rgb;
+		if(alpha <= 0)
+			return dst;
+		int sr = (rgb>>16)&0xff, sg = (rgb>>8)&0xff, sb = rgb&0xff;
+		int dA = dst>>>24;
+		int dr = (dst>>16)&0xff, dg = (dst>>8)&0xff, db = dst&0xff;
+		int ia = 255-alpha;
+		if(dA == 255){
+			int r = (sr*alpha + dr*ia + 127)/255;
+			int g = (sg*alpha + dg*ia + 127)/255;
+			int b = (sb*alpha + db*ia + 127)/255;
+			return 0xff000000 | (r<<16) | (g<<8) | b;
+		}
+		// dst weight premultiplied by dst alpha
+		int dw = (dA*ia + 127)/255;
+		int resA = alpha + dw;
+		if(resA == 0)
+			return 0;
+		int r = (sr*alpha + dr*dw + resA/2)/resA;
+		int g = (sg*alpha + dg*dw + resA/2)/resA;
+		int b = (sb*alpha + db*dw + resA/2)/resA;
+		return (resA<<24) | (r<<16) | (g<<8) | b;
+	}
+
+}
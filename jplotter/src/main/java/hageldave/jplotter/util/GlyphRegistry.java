@@ -0,0 +1,106 @@
+package hageldave.jplotter.util;
+
+import java.util.HashMap;
+
+import hageldave.jplotter.canvas.FBOCanvas;
+import hageldave.jplotter.gl.VertexArray;
+import hageldave.jplotter.misc.Glyph;
+import hageldave.jplotter.util.Annotations.GLContextRequired;
+
+/**
+ * The GlyphRegistry class is a statically accessed class for keeping track of the geometry of
+ * {@link Glyph}s on the GPU.
+ * To avoid uploading the same glyph geometry for every object that uses a glyph, this class
+ * holds a single {@link VertexArray} per glyph and GL context that is filled once using
+ * {@link Glyph#fillVertexArray(VertexArray)}. Other vertex arrays can then reference its buffers
+ * (see {@link VertexArray#setSharedBuffer(int, VertexArray, int)} and {@link VertexArray#setSharedIndices(VertexArray)}).
+ * <p>
+ * Glyph geometries are identified by context (canvasID) and glyph, and they are obtained through the
+ * {@link #getOrCreateGlyphGeometry(Glyph)} method.
+ * When the geometry is no longer in use by the object it has to be handed back to this class
+ * through {@link #handbackGlyphGeometry(Glyph)} which will close it if no longer in use by any other object.
+ * <p>
+ * Like the {@link ShaderRegistry}, each geometry in the registry is reference counted.
+ * {@link #getOrCreateGlyphGeometry(Glyph)} increments the reference count, {@link #handbackGlyphGeometry(Glyph)}
+ * decrements the reference count.
+ * 
+ * @author hageldave
+ */
+public final class GlyphRegistry {
+
+	private static final HashMap<Integer,HashMap<Glyph, Pair<VertexArray,int[]>>> context2glyph2geometry = new HashMap<>();
+	
+	
+	private GlyphRegistry(){/* statically accessed singleton */}
+	
+	/**
+	 * Returns the vertex array holding the geometry of the specified glyph in the current GL context.
+	 * If the geometry is already registered, it will be returned and its reference count incremented.
+	 * Otherwise a new vertex array is created and filled by the glyph, and registered.
+	 * 
+	 * @param glyph of which the geometry is requested
+	 * @return vertex array with the glyph's geometry on attribute 0 (and indices if the glyph uses them).
+	 * 
+	 * @throws IllegalStateException when no context is active (FBOCanvas.CURRENTLY_ACTIVE_CANVAS == 0)
+	 */
+	@GLContextRequired
+	public static VertexArray getOrCreateGlyphGeometry(Glyph glyph){
+		int canvasid = FBOCanvas.CURRENTLY_ACTIVE_CANVAS;
+		if(canvasid == 0){
+			throw new IllegalStateException(
+					"No active FBOCanvas, the FBOCanvas.CURRENTLY_ACTIVE_CANVAS field was 0. " +
+					"This indicates that there is likely no active GL context to execute GL methods in."
+			);
+		}
+		
+		HashMap<Glyph, Pair<VertexArray,int[]>> glyph2geometry = context2glyph2geometry.get(canvasid);
+		if(glyph2geometry == null){
+			glyph2geometry = new HashMap<>();
+			context2glyph2geometry.put(canvasid, glyph2geometry);
+		}
+		Pair<VertexArray, int[]> georef = glyph2geometry.get(glyph);
+		if(georef == null){
+			VertexArray va = new VertexArray(1);
+			glyph.fillVertexArray(va);
+			georef = Pair.of(va, new int[1]);
+			glyph2geometry.put(glyph, georef);
+		}
+		// increment ref count
+		georef.second[0]++;
+		return georef.first;
+	}
+	
+	/**
+	 * Hands back the geometry of the specified glyph in the current GL context, signaling it is no longer 
+	 * in use by the caller.
+	 * This decrements the reference count of the geometry in the registry.
+	 * When the reference count drops to 0, the geometry's vertex array is closed (destroyed).
+	 * @param glyph of which the geometry is handed back.
+	 * 
+	 * @throws IllegalStateException when no context is active (FBOCanvas.CURRENTLY_ACTIVE_CANVAS == 0)
+	 */
+	@GLContextRequired
+	public static void handbackGlyphGeometry(Glyph glyph){
+		int canvasid = FBOCanvas.CURRENTLY_ACTIVE_CANVAS;
+		if(canvasid == 0){
+			throw new IllegalStateException(
+					"No active FBOCanvas, the FBOCanvas.CURRENTLY_ACTIVE_CANVAS field was 0. " +
+					"This indicates that there is likely no active GL context to execute GL methods in."
+			);
+		}
+		
+		HashMap<Glyph, Pair<VertexArray,int[]>> glyph2geometry = context2glyph2geometry.get(canvasid);
+		if(glyph2geometry == null)
+			return;
+		Pair<VertexArray, int[]> georef = glyph2geometry.get(glyph);
+		if(georef == null)
+			return;
+		if((--georef.second[0]) == 0){
+			// destroy the geometry
+			georef.first.close();
+			glyph2geometry.remove(glyph);
+		}
+	}
+	
+	
+}
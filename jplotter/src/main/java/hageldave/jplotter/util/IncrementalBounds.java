@@ -0,0 +1,124 @@
+package hageldave.jplotter.util;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * The IncrementalBounds class keeps track of the axis aligned bounding rectangle of
+ * a collection of 2D coordinates (e.g. the points of a {@link hageldave.jplotter.renderables.Points} object).
+ * Adding coordinates extends the bounds in O(1) through {@link #include(double, double)}.
+ * Removing coordinates cannot shrink the bounds incrementally, which is why removals
+ * {@link #invalidate()} the bounds (or {@link #exclude(double, double)} when the removed coordinate
+ * is known), so that the owner recomputes them lazily when they are requested the next time.
+ *
+ * @author hageldave
+ */
+public class IncrementalBounds {
+
+	protected double minX, minY, maxX, maxY;
+	protected boolean isEmpty = true;
+	protected boolean isValid = true;
+	protected int count = 0;
+
+	/**
+	 * Extends the bounds to include the specified coordinate.
+	 * Has no effect when the bounds are invalid.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return this for chaining
+	 */
+	public IncrementalBounds include(double x, double y) {
+		if(!isValid)
+			return this;
+		count++;
+		if(isEmpty){
+			minX = maxX = x;
+			minY = maxY = y;
+			isEmpty = false;
+		} else {
+			if(x < minX) minX = x;
+			if(x > maxX) maxX = x;
+			if(y < minY) minY = y;
+			if(y > maxY) maxY = y;
+		}
+		return this;
+	}
+
+	/**
+	 * Notifies about the removal of the specified coordinate.
+	 * When the coordinate lies on the border of the bounds, the bounds may shrink
+	 * and are thus invalidated, otherwise they remain valid.
+	 * @param x coordinate
+	 * @param y coordinate
+	 * @return this for chaining
+	 */
+	public IncrementalBounds exclude(double x, double y) {
+		count--;
+		if(isValid && !isEmpty && (x <= minX || x >= maxX || y <= minY || y >= maxY)){
+			isValid = false;
+		}
+		return this;
+	}
+
+	/**
+	 * Marks the bounds as invalid, i.e. they need to be recomputed
+	 * (see {@link #reset()} and {@link #include(double, double)}).
+	 * @return this for chaining
+	 */
+	public IncrementalBounds invalidate() {
+		isValid = false;
+		return this;
+	}
+
+	/**
+	 * Resets the bounds to be valid and empty, e.g. when all coordinates were removed
+	 * or to recompute the bounds by subsequently including all coordinates.
+	 * @return this for chaining
+	 */
+	public IncrementalBounds reset() {
+		isEmpty = true;
+		isValid = true;
+		count = 0;
+		return this;
+	}
+
+	/**
+	 * @return true when the bounds are up to date
+	 */
+	public boolean isValid() {
+		return isValid;
+	}
+
+	/**
+	 * Returns the number of included minus the number of excluded coordinates since the last {@link #reset()}.
+	 * Owners can compare this to their number of coordinates to detect changes that bypassed the bounds
+	 * (e.g. elements added directly to a list without notification).
+	 * @return number of coordinates the bounds account for
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * @return true when no coordinate was included since the last {@link #reset()}
+	 */
+	public boolean isEmpty() {
+		return isEmpty;
+	}
+
+	/**
+	 * Returns a newly created rectangle of the bounds, which is an empty rectangle
+	 * at the origin when {@link #isEmpty()}. Only meaningful when {@link #isValid()}.
+	 * @return bounding rectangle
+	 */
+	public Rectangle2D toRect() {
+		if(isEmpty)
+			return new Rectangle2D.Double();
+		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+	}
+
+	@Override
+	public String toString() {
+		return "IncrementalBounds[" + (isValid ? "":"invalid ") + (isEmpty ? "empty" : minX+","+minY+" - "+maxX+","+maxY) + "]";
+	}
+
+}
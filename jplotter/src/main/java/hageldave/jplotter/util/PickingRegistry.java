@@ -1,7 +1,8 @@
 package hageldave.jplotter.util;
 
-import java.util.TreeMap;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
 
 import hageldave.jplotter.canvas.FBOCanvas;
 
@@ -12,44 +13,79 @@ import hageldave.jplotter.canvas.FBOCanvas;
  * When using {@link #register(Object)} a new ID is obtained while memorizing
  * the specified element that will be associated with that ID and can later be
  * looked up using {@link #lookup(int)}.
- * This makes picking color specification and identification of objects by 
+ * This makes picking color specification and identification of objects by
  * picking color an easy task.
  * <p>
+ * For large numbers of elements (e.g. the points of a scatter plot) {@link #registerRange(int, IntFunction)}
+ * allocates a contiguous block of IDs at once, whose elements are not stored but created
+ * from the offset of an ID within the block on lookup.
+ * IDs that are released through {@link #deregister(int)} or {@link #deregisterRange(int)} are
+ * kept in a free list and handed out again by {@link #getNewID()} and {@link #registerRange(int, IntFunction)}.
+ * Single IDs are stored in an open addressing hash map with primitive int keys.
+ * <p>
  * It is recommended to only use a single registry per canvas since multiple
  * would create duplicate IDs within the same draw space.
- * 
+ *
  * @author hageldave
  * @param <T> Element type of the registry
  */
 public class PickingRegistry<T> {
 
+	/** marks an ID of a range that has been deregistered individually */
+	protected static final Object REMOVED = new Object();
+
 	protected AtomicInteger uniqueIDCounter = new AtomicInteger(0xff000000);
-	
-	protected TreeMap<Integer, T> pickID2Element = new TreeMap<>();
-	
+
+	/* open addressing hash map (linear probing), key 0 marks an empty slot since IDs are never 0 */
+	protected int[] keys = new int[16];
+	protected Object[] values = new Object[16];
+	protected int size = 0;
+
+	/* ranges sorted by start ID */
+	protected int[] rangeStarts = new int[4];
+	protected int[] rangeCounts = new int[4];
+	protected IntFunction<?>[] rangeElements = new IntFunction<?>[4];
+	protected int numRanges = 0;
+
+	/* free list of released ID runs (start, count), used as stack */
+	protected int[] freeStarts = new int[4];
+	protected int[] freeCounts = new int[4];
+	protected int numFree = 0;
+
 	/**
 	 * Generates a new ID. IDs range from 0xff000001 to 0xffffffff.
-	 * This increments the ID counter until an unused id is found.
-	 * @return a new ID by incrementing the ID counter
-	 * @throws IllegalStateException when all unique IDs have been generated already. 
+	 * Released IDs are reused first, otherwise this increments the ID counter until an unused id is found.
+	 * @return a new ID by reusing a released ID or incrementing the ID counter
+	 * @throws IllegalStateException when all unique IDs have been generated already.
 	 * The total number of possibles ID's is {@code 0xffffff-1 = 16.777.214}.
 	 */
 	public int getNewID() {
+		while(numFree > 0){
+			int top = numFree-1;
+			int id = freeStarts[top];
+			if(--freeCounts[top] == 0)
+				numFree--;
+			else
+				freeStarts[top]++;
+			// an ID may have been taken by explicit registration in the mean time
+			if(!isRegistered(id))
+				return id;
+		}
 		int id;
-		while( pickID2Element.containsKey(id=uniqueIDCounter.incrementAndGet()) && id != 0 ){ /* try next */ }
+		while( (isRegistered(id=uniqueIDCounter.incrementAndGet())) && id != 0 ){ /* try next */ }
 		if(id == 0){
 			throw new IllegalStateException("All unique Ids are already generated. Cannot create new, limit exceeded.");
 		}
 		return id;
 	}
-	
+
 	/**
 	 * @return the current ID, i.e. the counters current value
 	 */
 	public int getCurrentID() {
 		return uniqueIDCounter.get();
 	}
-	
+
 	/**
 	 * Generates a new ID and associates it with the specified element.
 	 * @param element to associate with generated ID
@@ -60,7 +96,7 @@ public class PickingRegistry<T> {
 		int id = getNewID();
 		return register(element, id);
 	}
-	
+
 	/**
 	 * Associates the specified element with the specified ID.
 	 * @param element to register
@@ -74,23 +110,298 @@ public class PickingRegistry<T> {
 			throw new IllegalArgumentException(
 					"Picking IDs cannot have transparent alpha: " + Integer.toHexString(id));
 		}
-		pickID2Element.put(id, element);
+		put(id, element);
 		return id;
 	}
-	
+
+	/**
+	 * Allocates a block of contiguous IDs {@code [firstID, firstID+count)} and associates
+	 * the ID {@code firstID+i} with the element {@code elements.apply(i)}.
+	 * The elements are not stored but created by the specified function on {@link #lookup(int)}.
+	 * @param count number of IDs
+	 * @param elements function that maps the offset of an ID within the block to its element
+	 * @return the first ID of the block
+	 * @throws IllegalStateException when there are not enough unique IDs left
+	 * @see #deregisterRange(int)
+	 */
+	public int registerRange(int count, IntFunction<? extends T> elements){
+		if(count < 1){
+			throw new IllegalArgumentException("Range needs to contain at least one ID, got " + count);
+		}
+		int start = takeFreeRun(count);
+		if(start == 0){
+			start = uniqueIDCounter.get()+1;
+			// skip explicitly registered IDs
+			int conflict;
+			while(start != 0 && (conflict=lastKeyInBlock(start, count)) != 0){
+				start = conflict+1;
+			}
+			long last = (start & 0xffffffffL)+count-1;
+			if(start == 0 || last > 0xffffffffL){
+				throw new IllegalStateException("Not enough unique Ids left for a range of " + count);
+			}
+			uniqueIDCounter.set((int)last);
+		}
+		// insert range sorted by start
+		if(numRanges == rangeStarts.length){
+			rangeStarts = Arrays.copyOf(rangeStarts, numRanges*2);
+			rangeCounts = Arrays.copyOf(rangeCounts, numRanges*2);
+			rangeElements = Arrays.copyOf(rangeElements, numRanges*2);
+		}
+		int pos = -Arrays.binarySearch(rangeStarts, 0, numRanges, start)-1;
+		System.arraycopy(rangeStarts, pos, rangeStarts, pos+1, numRanges-pos);
+		System.arraycopy(rangeCounts, pos, rangeCounts, pos+1, numRanges-pos);
+		System.arraycopy(rangeElements, pos, rangeElements, pos+1, numRanges-pos);
+		rangeStarts[pos] = start;
+		rangeCounts[pos] = count;
+		rangeElements[pos] = elements;
+		numRanges++;
+		return start;
+	}
+
+	/**
+	 * Removes the association of the specified ID and releases the ID for reuse.
+	 * An ID that belongs to a block of {@link #registerRange(int, IntFunction)} is released
+	 * together with its block by {@link #deregisterRange(int)}.
+	 * @param id to deregister
+	 * @return the element that was associated with the ID or null if the ID was not registered
+	 */
+	public T deregister(int id){
+		int slot = slotOf(id);
+		if(keys[slot] == id){
+			Object old = values[slot];
+			if(old == REMOVED){
+				// already released
+				return null;
+			}
+			if(rangeIndexOf(id) >= 0){
+				// ID stays reserved by its range until the range is deregistered
+				values[slot] = REMOVED;
+			} else {
+				removeSlot(slot);
+				pushFree(id, 1);
+			}
+			return cast(old);
+		}
+		int r = rangeIndexOf(id);
+		if(r < 0){
+			return null;
+		}
+		T old = cast(rangeElements[r].apply(id-rangeStarts[r]));
+		put(id, REMOVED);
+		return old;
+	}
+
+	/**
+	 * Removes the block of IDs that starts with the specified ID (as returned by {@link #registerRange(int, IntFunction)})
+	 * and releases its IDs for reuse.
+	 * IDs of the block that have been registered explicitly in the mean time are left untouched.
+	 * @param firstID first ID of the block
+	 * @return true when there was a block starting with the specified ID
+	 */
+	public boolean deregisterRange(int firstID){
+		int r = Arrays.binarySearch(rangeStarts, 0, numRanges, firstID);
+		if(r < 0){
+			return false;
+		}
+		int count = rangeCounts[r];
+		System.arraycopy(rangeStarts, r+1, rangeStarts, r, numRanges-r-1);
+		System.arraycopy(rangeCounts, r+1, rangeCounts, r, numRanges-r-1);
+		System.arraycopy(rangeElements, r+1, rangeElements, r, numRanges-r-1);
+		numRanges--;
+		rangeElements[numRanges] = null;
+		if(size == 0){
+			pushFree(firstID, count);
+			return true;
+		}
+		// release runs of IDs that are not overridden by map entries
+		int runStart = firstID;
+		for(int i=0; i<count; i++){
+			int id = firstID+i;
+			int slot = slotOf(id);
+			if(keys[slot] == id){
+				if(values[slot] == REMOVED){
+					// individually deregistered, released with the block
+					removeSlot(slot);
+					continue;
+				}
+				if(id > runStart)
+					pushFree(runStart, id-runStart);
+				runStart = id+1;
+			}
+		}
+		int end = firstID+count;
+		if(end > runStart)
+			pushFree(runStart, end-runStart);
+		return true;
+	}
+
 	public static void main(String[] args) {
 		new PickingRegistry<>().register(null, 0xfe004544);
 	}
-	
+
 	/**
 	 * Looks up the element value associated with the specified ID.
 	 * @param id to look up
 	 * @return the associated element or null if the ID is not associated
 	 * with an element.
 	 * @see #register(Object)
+	 * @see #registerRange(int, IntFunction)
 	 */
 	public T lookup(int id){
-		return pickID2Element.get(id);
+		if(size > 0){
+			int slot = slotOf(id);
+			if(keys[slot] == id){
+				Object v = values[slot];
+				return v == REMOVED ? null : cast(v);
+			}
+		}
+		int r = rangeIndexOf(id);
+		return r < 0 ? null : cast(rangeElements[r].apply(id-rangeStarts[r]));
+	}
+
+	/**
+	 * @param id to test
+	 * @return true when the ID is associated (possibly with null through {@link #register(Object, int)}),
+	 * i.e. when it is not free.
+	 */
+	public boolean isRegistered(int id){
+		if(size > 0){
+			int slot = slotOf(id);
+			if(keys[slot] == id)
+				return values[slot] != REMOVED;
+		}
+		return rangeIndexOf(id) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected T cast(Object o){
+		return (T) o;
+	}
+
+	/**
+	 * @param id to find
+	 * @return index of the range containing the ID or -1
+	 */
+	protected int rangeIndexOf(int id){
+		if(numRanges == 0)
+			return -1;
+		int r = Arrays.binarySearch(rangeStarts, 0, numRanges, id);
+		if(r < 0)
+			r = -r-2;
+		if(r < 0)
+			return -1;
+		return (id-rangeStarts[r]) < rangeCounts[r] ? r : -1;
+	}
+
+	protected void pushFree(int start, int count){
+		if(numFree == freeStarts.length){
+			freeStarts = Arrays.copyOf(freeStarts, numFree*2);
+			freeCounts = Arrays.copyOf(freeCounts, numFree*2);
+		}
+		freeStarts[numFree] = start;
+		freeCounts[numFree] = count;
+		numFree++;
 	}
-	
+
+	/**
+	 * Takes the first free run (from the top of the stack) that has at least the specified length.
+	 * @param count number of contiguous IDs
+	 * @return first ID of the taken run or 0 when there is no such run
+	 */
+	protected int takeFreeRun(int count){
+		for(int i=numFree-1; i>=0; i--){
+			if(freeCounts[i] >= count && lastKeyInBlock(freeStarts[i], count) == 0){
+				int start = freeStarts[i];
+				if(freeCounts[i] == count){
+					System.arraycopy(freeStarts, i+1, freeStarts, i, numFree-i-1);
+					System.arraycopy(freeCounts, i+1, freeCounts, i, numFree-i-1);
+					numFree--;
+				} else {
+					freeStarts[i] += count;
+					freeCounts[i] -= count;
+				}
+				return start;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the largest explicitly registered ID within the block or 0 if there is none
+	 */
+	protected int lastKeyInBlock(int start, int count){
+		int last = 0;
+		long lo = start & 0xffffffffL, hi = lo+count;
+		for(int i=0; i<keys.length; i++){
+			long k = keys[i] & 0xffffffffL;
+			if(keys[i] != 0 && values[i] != REMOVED && k >= lo && k < hi && k >= (last & 0xffffffffL))
+				last = keys[i];
+		}
+		return last;
+	}
+
+	/* hash map operations */
+
+	protected static int hash(int id){
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	protected int slotOf(int id){
+		int mask = keys.length-1;
+		int slot = hash(id) & mask;
+		while(keys[slot] != 0 && keys[slot] != id){
+			slot = (slot+1) & mask;
+		}
+		return slot;
+	}
+
+	protected void put(int id, Object value){
+		int slot = slotOf(id);
+		if(keys[slot] == id){
+			values[slot] = value;
+			return;
+		}
+		keys[slot] = id;
+		values[slot] = value;
+		if(++size > keys.length/2){
+			rehash(keys.length*2);
+		}
+	}
+
+	protected void rehash(int capacity){
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		for(int i=0; i<oldKeys.length; i++){
+			if(oldKeys[i] != 0){
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/** removes the entry at the specified slot by shifting back subsequent entries of the probe sequence */
+	protected void removeSlot(int slot){
+		int mask = keys.length-1;
+		int hole = slot;
+		int next = (hole+1) & mask;
+		while(keys[next] != 0){
+			int home = hash(keys[next]) & mask;
+			// move entry into the hole if its home slot is not within (hole, next]
+			if(((next-home) & mask) >= ((next-hole) & mask)){
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+			next = (next+1) & mask;
+		}
+		keys[hole] = 0;
+		values[hole] = null;
+		size--;
+	}
+
 }
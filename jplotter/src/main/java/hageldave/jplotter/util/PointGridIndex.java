@@ -0,0 +1,236 @@
+package hageldave.jplotter.util;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Uniform grid for fast rectangular query of a static set of 2D points that are
+ * identified by their index (e.g. the points of a {@link hageldave.jplotter.renderables.Points} object).
+ * The grid stores only primitive indices (bucket sorted by grid cell) and looks up coordinates
+ * through the provided functions, so it can index millions of points without per point objects.
+ * <p>
+ * A query visits the cells overlapped by the query rectangle. Points in cells that lie
+ * completely inside the rectangle are reported without testing, only points of the border cells are tested.
+ * Since the number of cells is proportional to the number of points, a query costs time proportional
+ * to the number of overlapped cells plus the number of reported points.
+ * <p>
+ * The grid does not track changes of the coordinates, it has to be rebuilt when points change.
+ * Points with non finite coordinates are kept in a separate list that is tested on every query.
+ *
+ * @author hageldave
+ */
+public class PointGridIndex {
+
+	/** targeted average number of points per cell */
+	protected static final int POINTS_PER_CELL = 8;
+	protected static final int MAX_CELLS = 1<<22;
+
+	protected final IntToDoubleFunction xCoord;
+	protected final IntToDoubleFunction yCoord;
+	protected final int numPoints;
+
+	protected double xMin, yMin;
+	protected double xScale, yScale;
+	protected int nx, ny;
+	/** cellStart[c] is the offset of cell c into indices, cellStart[nx*ny] == number of indexed points */
+	protected int[] cellStart;
+	protected int[] indices;
+	/** indices of points with non finite coordinates */
+	protected int[] outliers;
+
+	/**
+	 * Builds a grid over the points [0, numPoints).
+	 * @param numPoints number of points
+	 * @param xCoord function returning the x coordinate of the point with specified index
+	 * @param yCoord function returning the y coordinate of the point with specified index
+	 */
+	public PointGridIndex(int numPoints, IntToDoubleFunction xCoord, IntToDoubleFunction yCoord) {
+		this.numPoints = numPoints;
+		this.xCoord = xCoord;
+		this.yCoord = yCoord;
+		build();
+	}
+
+	protected void build() {
+		// bounds of finite points
+		double xMax, yMax;
+		xMin = yMin = Double.POSITIVE_INFINITY;
+		xMax = yMax = Double.NEGATIVE_INFINITY;
+		int numFinite = 0;
+		for(int i=0; i<numPoints; i++){
+			double x = xCoord.applyAsDouble(i), y = yCoord.applyAsDouble(i);
+			if(Double.isFinite(x) && Double.isFinite(y)){
+				if(x < xMin) xMin = x;
+				if(x > xMax) xMax = x;
+				if(y < yMin) yMin = y;
+				if(y > yMax) yMax = y;
+				numFinite++;
+			}
+		}
+		if(numFinite == 0){
+			xMin = yMin = xMax = yMax = 0;
+		}
+		// grid resolution according to aspect ratio of the bounds
+		double w = xMax-xMin, h = yMax-yMin;
+		int numCells = Math.max(1, Math.min(MAX_CELLS, numFinite/POINTS_PER_CELL));
+		if(w > 0 && h > 0){
+			nx = (int)Math.ceil(Math.sqrt(numCells*w/h));
+			nx = Math.max(1, Math.min(numCells, nx));
+			ny = Math.max(1, numCells/nx);
+		} else if(w > 0){
+			nx = numCells; ny = 1;
+		} else if(h > 0){
+			nx = 1; ny = numCells;
+		} else {
+			nx = ny = 1;
+		}
+		xScale = w > 0 ? nx/w : 0;
+		yScale = h > 0 ? ny/h : 0;
+		// bucket sort point indices by cell
+		int[] cellOf = new int[numPoints];
+		cellStart = new int[nx*ny+1];
+		int numOutliers = 0;
+		for(int i=0; i<numPoints; i++){
+			double x = xCoord.applyAsDouble(i), y = yCoord.applyAsDouble(i);
+			if(Double.isFinite(x) && Double.isFinite(y)){
+				int c = cellY(y)*nx + cellX(x);
+				cellOf[i] = c;
+				cellStart[c+1]++;
+			} else {
+				cellOf[i] = -1;
+				numOutliers++;
+			}
+		}
+		for(int c=0; c<nx*ny; c++){
+			cellStart[c+1] += cellStart[c];
+		}
+		indices = new int[numPoints-numOutliers];
+		outliers = new int[numOutliers];
+		int[] fill = Arrays.copyOf(cellStart, nx*ny);
+		int o = 0;
+		for(int i=0; i<numPoints; i++){
+			int c = cellOf[i];
+			if(c < 0)
+				outliers[o++] = i;
+			else
+				indices[fill[c]++] = i;
+		}
+	}
+
+	/* cell functions are non decreasing, which allows for exact classification of inner cells */
+	protected int cellX(double x) {
+		int c = (int)((x-xMin)*xScale);
+		return c < 0 ? 0 : (c >= nx ? nx-1 : c);
+	}
+
+	protected int cellY(double y) {
+		int c = (int)((y-yMin)*yScale);
+		return c < 0 ? 0 : (c >= ny ? ny-1 : c);
+	}
+
+	/**
+	 * @return number of points this grid was built for
+	 */
+	public int numPoints() {
+		return numPoints;
+	}
+
+	/**
+	 * Calls the specified consumer with the index of each point that is contained in the specified rectangle
+	 * according to {@link Rectangle2D#contains(double, double)}.
+	 * The order in which indices are reported is unspecified.
+	 * @param rect query rectangle
+	 * @param action consumer of point indices
+	 * @return number of reported points
+	 */
+	public int forEachContained(Rectangle2D rect, IntConsumer action) {
+		return query(rect, action, false);
+	}
+
+	/**
+	 * @param rect query rectangle
+	 * @return true when at least one point is contained in the specified rectangle
+	 * according to {@link Rectangle2D#contains(double, double)}.
+	 */
+	public boolean containsAny(Rectangle2D rect) {
+		return query(rect, i->{}, true) > 0;
+	}
+
+	/**
+	 * @param rect query rectangle
+	 * @return indices of the points contained in the specified rectangle in ascending order
+	 */
+	public int[] getContained(Rectangle2D rect) {
+		IntArrayBuilder result = new IntArrayBuilder();
+		query(rect, result, false);
+		int[] contained = result.toArray();
+		Arrays.sort(contained);
+		return contained;
+	}
+
+	protected int query(Rectangle2D rect, IntConsumer action, boolean stopAtFirst) {
+		double rxMin = rect.getMinX(), rxMax = rect.getMaxX();
+		double ryMin = rect.getMinY(), ryMax = rect.getMaxY();
+		int count = 0;
+		// rectangle may cover the grid partially, the clamped cell functions remain non decreasing
+		if(!(rxMax < xMin || ryMax < yMin) && indices.length > 0 && rect.getWidth() > 0 && rect.getHeight() > 0){
+			int cx0 = cellX(rxMin), cx1 = cellX(rxMax);
+			int cy0 = cellY(ryMin), cy1 = cellY(ryMax);
+			for(int cy=cy0; cy<=cy1; cy++){
+				boolean innerY = cy > cy0 && cy < cy1;
+				for(int cx=cx0; cx<=cx1; cx++){
+					int c = cy*nx+cx;
+					int start = cellStart[c], end = cellStart[c+1];
+					if(innerY && cx > cx0 && cx < cx1){
+						// cell index strictly between those of the rectangle borders implies containment
+						for(int k=start; k<end; k++){
+							action.accept(indices[k]);
+						}
+						count += end-start;
+						if(stopAtFirst && count > 0)
+							return count;
+					} else {
+						for(int k=start; k<end; k++){
+							int i = indices[k];
+							if(rect.contains(xCoord.applyAsDouble(i), yCoord.applyAsDouble(i))){
+								action.accept(i);
+								count++;
+								if(stopAtFirst)
+									return count;
+							}
+						}
+					}
+				}
+			}
+		}
+		for(int i : outliers){
+			if(rect.contains(xCoord.applyAsDouble(i), yCoord.applyAsDouble(i))){
+				action.accept(i);
+				count++;
+				if(stopAtFirst)
+					return count;
+			}
+		}
+		return count;
+	}
+
+	/** growable int array used for collecting query results */
+	protected static class IntArrayBuilder implements IntConsumer {
+		int[] array = new int[64];
+		int size = 0;
+
+		@Override
+		public void accept(int value) {
+			if(size == array.length)
+				array = Arrays.copyOf(array, size*2);
+			array[size++] = value;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(array, size);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package hageldave.jplotter.util;
+
+import java.awt.geom.AffineTransform;
+
+/**
+ * The TriangleShading class contains the scanline and color interpolation routines that are
+ * shared by the {@link BarycentricGradientPaint} and the
+ * {@link hageldave.jplotter.renderers.TriangleRasterizer}, so that both shade triangles identically.
+ * Colors are integer packed ARGB (blue on least significant bits).
+ *
+ * @author hageldave
+ */
+public class TriangleShading {
+
+	private TriangleShading() {}
+
+	/**
+	 * Returns the 4 sub pixel sample offsets (x,y pairs) of the rotated grid antialiasing.
+	 * @return new array of 8 sample coordinates within the unit pixel
+	 */
+	public static float[] msaaSamples() {
+		float[] samples = new float[8];
+		AffineTransform xform = new AffineTransform();
+		xform.translate(.5, .5);
+		xform.rotate(Math.PI*0.5*0.2);
+		xform.scale(.5, .5);
+		xform.translate(-.5, -.5);
+		xform.transform(new float[] {0,0, 1,0, 0,1, 1,1}, 0, samples, 0, 4);
+		return samples;
+	}
+
+	/**
+	 * Determines the horizontal extent of the triangle within the slab [y,y+1] of a pixel row,
+	 * i.e. the extent of the vertices inside the slab and of the edges at the slab's boundaries
+	 * (clamped to the vertical extent of the triangle).
+	 * @param x1 x coordinate of the first vertex
+	 * @param y1 y coordinate of the first vertex
+	 * @param x2 x coordinate of the second vertex
+	 * @param y2 y coordinate of the second vertex
+	 * @param x3 x coordinate of the third vertex
+	 * @param y3 y coordinate of the third vertex
+	 * @param ymin minimum y coordinate of the vertices
+	 * @param ymax maximum y coordinate of the vertices
+	 * @param y top of the row's slab
+	 * @param extent array of length 2 to store the left and right x coordinate in
+	 * @return false when the extent is empty, in which case the contents of extent are unspecified
+	 */
+	public static boolean computeSpan(
+			float x1, float y1, float x2, float y2, float x3, float y3,
+			double ymin, double ymax, int y, double[] extent)
+	{
+		double yTop = Math.max(ymin, Math.min(ymax, y));
+		double yBot = Math.max(ymin, Math.min(ymax, y+1));
+		double xl = Double.POSITIVE_INFINITY, xr = Double.NEGATIVE_INFINITY;
+		for(int k=0; k<3; k++){
+			double xa = k==0 ? x1 : k==1 ? x2:x3, ya = k==0 ? y1 : k==1 ? y2:y3;
+			double xb = k==0 ? x2 : k==1 ? x3:x1, yb = k==0 ? y2 : k==1 ? y3:y1;
+			if(ya >= y && ya <= y+1){
+				xl = Math.min(xl, xa); xr = Math.max(xr, xa);
+			}
+			if(ya == yb)
+				continue;
+			for(int s=0; s<2; s++){
+				double ys = s==0 ? yTop:yBot;
+				double t = (ys-ya)/(yb-ya);
+				if(t < 0 || t > 1)
+					continue;
+				double x = xa + t*(xb-xa);
+				xl = Math.min(xl, x); xr = Math.max(xr, x);
+			}
+		}
+		extent[0] = xl; extent[1] = xr;
+		return xl <= xr;
+	}
+
+	/**
+	 * Mixes 3 colors by the specified weights (e.g. barycentric coordinates).
+	 * @return weighted average of the colors
+	 */
+	public static int mixColor3(int c1, int c2, int c3, float m1, float m2, float m3) {
+		float normalize = 1f/(m1+m2+m3);
+		float a = (a(c1)*m1 + a(c2)*m2 + a(c3)*m3)*normalize;
+		float r = (r(c1)*m1 + r(c2)*m2 + r(c3)*m3)*normalize;
+		float g = (g(c1)*m1 + g(c2)*m2 + g(c3)*m3)*normalize;
+		float b = (b(c1)*m1 + b(c2)*m2 + b(c3)*m3)*normalize;
+		return argb((int)a, (int)r, (int)g, (int)b);
+	}
+
+	/**
+	 * Mixes 4 colors by the specified weights (e.g. sub pixel sample coverage).
+	 * @return weighted average of the colors
+	 */
+	public static int mixColor4(int c1, int c2, int c3, int c4, float m1, float m2, float m3, float m4) {
+		float normalize = 1f/(m1+m2+m3+m4);
+		float a = (a(c1)*m1 + a(c2)*m2 + a(c3)*m3 + a(c4)*m4)*normalize;
+		float r = (r(c1)*m1 + r(c2)*m2 + r(c3)*m3 + r(c4)*m4)*normalize;
+		float g = (g(c1)*m1 + g(c2)*m2 + g(c3)*m3 + g(c4)*m4)*normalize;
+		float b = (b(c1)*m1 + b(c2)*m2 + b(c3)*m3 + b(c4)*m4)*normalize;
+		return argb((int)a, (int)r, (int)g, (int)b);
+	}
+
+	/**
+	 * Scales the alpha of the specified color.
+	 * @param color ARGB
+	 * @param m factor in [0,1]
+	 * @return color with scaled alpha
+	 */
+	public static int scaleColorAlpha(int color, float m) {
+		float normalize = 1f/255f;
+		float af = a(color)*normalize*m;
+		int a = (((int)(af*255f)) & 0xff) << 24;
+		return (color&0x00ffffff)|a;
+	}
+
+	private static int a(int argb) {
+		return (argb >> 24) & 0xff;
+	}
+
+	private static int r(int argb) {
+		return (argb >> 16) & 0xff;
+	}
+
+	private static int g(int argb) {
+		return (argb >> 8) & 0xff;
+	}
+
+	private static int b(int argb) {
+		return (argb) & 0xff;
+	}
+
+	private static int argb(final int a, final int r, final int g, final int b){
+		return (a<<24)|(r<<16)|(g<<8)|b;
+	}
+
+}
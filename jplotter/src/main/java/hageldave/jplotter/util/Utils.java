@@ -6,6 +6,8 @@ import hageldave.jplotter.color.ColorMap;
 import hageldave.jplotter.renderables.Triangles;
 
 import javax.swing.*;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
@@ -15,6 +17,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 
 import static java.awt.geom.Rectangle2D.*;
@@ -46,6 +49,24 @@ public class Utils {
 		}
 	}
 	
+	/**
+	 * Rethrows the specified exception on the AWT event dispatch thread (see {@link SwingUtilities#invokeLater(Runnable)}),
+	 * so that it reaches the uncaught exception handler of the thread instead of being lost,
+	 * e.g. when it was captured by a {@link java.util.concurrent.CompletableFuture}.
+	 * A {@link CompletionException} is unwrapped, checked exceptions are wrapped in a {@link RuntimeException}.
+	 * @param t exception to rethrow
+	 */
+	public static void rethrowOnAWTEventDispatch(Throwable t){
+		Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+		SwingUtilities.invokeLater(()->{
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException)cause;
+			if(cause instanceof Error)
+				throw (Error)cause;
+			throw new RuntimeException(cause);
+		});
+	}
+	
 	/**
 	 * Copies the specified {@link Point2D} (calls clone) and
 	 * casts the copy to the class of the original.
@@ -377,6 +398,40 @@ public class Utils {
 		return (image, infoflags, x, y, width, height)->(infoflags & flags)!=flags;
 	}
 
+	/**
+	 * Tests whether the clip of the specified graphics is empty, i.e. nothing drawn to it will be visible.
+	 * Fallback renderers use this to skip the picking graphics when a canvas does not need a picking image
+	 * (see {@link hageldave.jplotter.canvas.BlankCanvasFallback#setAnalyticPickingEnabled(boolean)}).
+	 * @param g graphics to test
+	 * @return true when the clip is empty
+	 */
+	public static boolean isClippedAway(Graphics2D g) {
+		Rectangle clip = g.getClipBounds();
+		return clip != null && clip.isEmpty();
+	}
+
+	/**
+	 * Determines the area in user space that may be affected by drawing to either of the specified graphics,
+	 * i.e. the union of their clip bounds.
+	 * Fallback renderers use this to skip primitives outside of the area that is currently rendered,
+	 * e.g. a tile (see {@link hageldave.jplotter.canvas.BlankCanvasFallback#setTiledRenderingParallelism(int)})
+	 * or the region of a lazily rendered picking image.
+	 * @param g graphics
+	 * @param p picking graphics
+	 * @return union of the clip bounds, or null when one of the graphics is not clipped
+	 */
+	public static Rectangle2D getClipBounds(Graphics2D g, Graphics2D p) {
+		Rectangle gClip = g.getClipBounds();
+		Rectangle pClip = p.getClipBounds();
+		if(gClip == null || pClip == null)
+			return null;
+		if(gClip.isEmpty())
+			return pClip;
+		if(pClip.isEmpty())
+			return gClip;
+		return gClip.union(pClip);
+	}
+
 	/**
 	 * Searches for a specific method in a class (and its superclass &amp; interfaces) using reflections.
 	 * It's also possible to search for the variant with the correct parameters (in case that the method is overloaded)
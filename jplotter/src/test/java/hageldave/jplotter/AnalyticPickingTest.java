@@ -0,0 +1,143 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.renderables.Triangles;
+import hageldave.jplotter.renderers.AnalyticPicking;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class AnalyticPickingTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		testPrimitives();
+		testAgainstPickingImage();
+		testRescaledPoint();
+		System.out.println("AnalyticPickingTest passed");
+	}
+
+	static CompleteRenderer scene() {
+		CompleteRenderer content = new CompleteRenderer();
+		Triangles tris = new Triangles();
+		tris.addTriangle(new Point2D.Double(10, 10), new Point2D.Double(60, 10), new Point2D.Double(10, 60)).setPickColor(1);
+		Lines lines = new Lines();
+		lines.addSegment(new Point2D.Double(0, 80), new Point2D.Double(100, 80)).setThickness(4).setPickColor(2);
+		Points points = new Points(DefaultGlyph.SQUARE_F);
+		points.addPoint(70, 30).setPickColor(3).setScaling(2);
+		// drawn after the triangle, so it wins where both overlap
+		points.addPoint(20, 20).setPickColor(4);
+		Text txt = new Text("pick me", 12, 0);
+		txt.setOrigin(new Point2D.Double(40, 50)).setPickColor(5);
+		content.addItemToRender(tris).addItemToRender(lines).addItemToRender(points).addItemToRender(txt);
+		return content;
+	}
+
+	public static void testPrimitives() {
+		CompleteRenderer content = scene();
+		content.setView(new Rectangle2D.Double(0, 0, 100, 100));
+		int w = 100, h = 100;
+		// AWT coordinates, i.e. y is flipped
+		check(AnalyticPicking.pick(content, 15, h-1-15, 1, w, h) == (0xff000000|1));
+		check(AnalyticPicking.pick(content, 50, h-1-80, 1, w, h) == (0xff000000|2));
+		check(AnalyticPicking.pick(content, 50, h-1-83, 1, w, h) == 0);
+		check(AnalyticPicking.pick(content, 72, h-1-32, 1, w, h) == (0xff000000|3));
+		check(AnalyticPicking.pick(content, 20, h-1-20, 1, w, h) == (0xff000000|4));
+		check(AnalyticPicking.pick(content, 45, h-1-54, 1, w, h) == (0xff000000|5));
+		check(AnalyticPicking.pick(content, 90, h-1-10, 1, w, h) == 0);
+		// area with prominent color
+		check(AnalyticPicking.pick(content, 89, h-1-80, 5, w, h) == (0xff000000|2));
+		// out of viewport
+		check(AnalyticPicking.pick(content, -10, -10, 3, w, h) == 0);
+		// hidden items are not pickable
+		content.triangles.getItemsToRender().get(0).hide(true);
+		check(AnalyticPicking.pick(content, 15, h-1-15, 1, w, h) == 0);
+	}
+
+	public static void testAgainstPickingImage() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene();
+		Random rnd = new Random(7);
+		Points scatter = new Points(DefaultGlyph.CIRCLE_F).setSpatialIndexEnabled(true);
+		for(int i=0; i<200; i++)
+			scatter.addPoint(rnd.nextDouble()*100, rnd.nextDouble()*100).setPickColor(100+i);
+		content.addItemToRender(scatter);
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setCoordinateView(0, 0, 100, 100);
+
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(coordsys);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(400, 300);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+
+		int w = canvas.getWidth(), h = canvas.getHeight();
+		int[] rasterized = new int[w*h];
+		int[] analytic = new int[w*h];
+		for(int y=0; y<h; y++){
+			for(int x=0; x<w; x++){
+				canvas.setAnalyticPickingEnabled(false);
+				rasterized[y*w+x] = canvas.getPixel(x, y, true, 1);
+				canvas.setAnalyticPickingEnabled(true);
+				analytic[y*w+x] = canvas.getPixel(x, y, true, 1);
+			}
+		}
+		int agree=0, differ=0;
+		for(int y=0; y<h; y++){
+			for(int x=0; x<w; x++){
+				int v = analytic[y*w+x];
+				if(v == 0 && rasterized[y*w+x] == 0)
+					continue;
+				// rasterization may deviate by a pixel at the boundaries of primitives
+				boolean inNeighborhood = false;
+				for(int j=Math.max(0, y-1); j<Math.min(h, y+2); j++)
+					for(int i=Math.max(0, x-1); i<Math.min(w, x+2); i++)
+						inNeighborhood |= rasterized[j*w+i] == v;
+				if(inNeighborhood) agree++;
+				else differ++;
+			}
+		}
+		check(agree > 0 && differ < 0.01*(agree+differ));
+	}
+
+	public static void testRescaledPoint() throws InvocationTargetException, InterruptedException {
+		// point at the top of the view, whose glyph only reaches lower tiles when enlarged
+		ColumnarPoints points = new ColumnarPoints(DefaultGlyph.SQUARE_F);
+		points.addPoint(50, 95).setPickColor(7).setColor(0xff000000);
+		CompleteRenderer content = new CompleteRenderer().addItemToRender(points);
+		content.setView(new Rectangle2D.Double(0, 0, 100, 100));
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(content);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(100, 100);
+		// tiles clip the graphics, so that points are culled by the extent of their glyphs
+		canvas.setTiledRenderingParallelism(4);
+		int w = 100, h = 100;
+		// query and render before rescaling so that the maximum point scaling is cached
+		check(AnalyticPicking.pick(content, 50, h-1-75, 1, w, h) == 0);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(canvas.toImg().getValue(50, h-1-75) == 0xffffffff);
+
+		points.setPointScaling(0, 10);
+		check(AnalyticPicking.pick(content, 50, h-1-75, 1, w, h) == (0xff000000|7));
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(canvas.toImg().getValue(50, h-1-75) == 0xff000000);
+		canvas.setTiledRenderingParallelism(0);
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,155 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.renderers.Renderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BackgroundRenderingTest {
+
+	/** fills the viewport with a color, blocks until permitted when gated */
+	static class GatedRenderer implements Renderer {
+		volatile int color = 0xffff0000;
+		volatile boolean gated = false;
+		volatile boolean failing = false;
+		volatile boolean concurrentCalls = false;
+		final Semaphore permits = new Semaphore(0);
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicInteger active = new AtomicInteger();
+		@Override
+		public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
+			if(active.incrementAndGet() > 1)
+				concurrentCalls = true;
+			try {
+				calls.incrementAndGet();
+				if(gated)
+					permits.acquireUninterruptibly();
+				if(failing)
+					throw new IllegalStateException("failing renderer");
+				g.setColor(new Color(color, true));
+				g.fillRect(0, 0, w, h);
+				p.setColor(new Color(0xff000007));
+				p.fillRect(0, 0, w, h);
+			} finally {
+				active.decrementAndGet();
+			}
+		}
+		@Override public void glInit() {}
+		@Override public void render(int vpx, int vpy, int w, int h) {}
+		@Override public void close() {}
+		@Override public void setEnabled(boolean enable) {}
+		@Override public boolean isEnabled() { return true; }
+	}
+
+	static class SwapCountingCanvas extends BlankCanvasFallback {
+		private static final long serialVersionUID = 1L;
+		final AtomicInteger numSwaps = new AtomicInteger();
+		volatile CountDownLatch swapped = new CountDownLatch(1);
+		@Override
+		protected void swapBuffers(Img finished) {
+			super.swapBuffers(finished);
+			numSwaps.incrementAndGet();
+			swapped.countDown();
+		}
+	}
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		GatedRenderer renderer = new GatedRenderer();
+		SwapCountingCanvas canvas = new SwapCountingCanvas();
+		canvas.setRenderer(renderer);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(200, 160);
+		canvas.setBackgroundRenderingEnabled(true);
+		check(canvas.isBackgroundRenderingEnabled());
+
+		// frame is rendered off the EDT and swapped when done
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(canvas.swapped.await(5, TimeUnit.SECONDS));
+		check(canvas.numSwaps.get() == 1);
+		check(canvas.getPixel(100, 80, false, 1) == 0xffff0000);
+
+		// EDT is not blocked by a frame in flight and keeps showing the front buffer
+		renderer.gated = true;
+		renderer.calls.set(0);
+		canvas.swapped = new CountDownLatch(1);
+		renderer.color = 0xff00ff00;
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		while(renderer.calls.get() == 0)
+			Thread.sleep(1);
+		check(canvas.getPixel(100, 80, false, 1) == 0xffff0000);
+		// newer frames cancel the one in flight, queued ones are skipped
+		renderer.color = 0xff0000ff;
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		renderer.gated = false;
+		renderer.permits.release(1000);
+		check(canvas.swapped.await(5, TimeUnit.SECONDS));
+		// wait for remaining frame
+		long deadline = System.currentTimeMillis()+5000;
+		while(canvas.getPixel(100, 80, false, 1) != 0xff0000ff && System.currentTimeMillis() < deadline)
+			Thread.sleep(5);
+		check(canvas.getPixel(100, 80, false, 1) == 0xff0000ff);
+		Thread.sleep(100);
+		// the cancelled frame stopped after its current band, the skipped frame did not render at all
+		check(canvas.numSwaps.get() == 2);
+		check(renderer.calls.get() == 1 + 8);
+
+		// picking waits for the frame in flight instead of using the renderer concurrently
+		renderer.permits.drainPermits();
+		renderer.gated = true;
+		renderer.calls.set(0);
+		canvas.swapped = new CountDownLatch(1);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		while(renderer.calls.get() == 0)
+			Thread.sleep(1);
+		int[] pickColor = {0};
+		Thread picker = new Thread(()->pickColor[0] = canvas.getPixel(100, 80, true, 1));
+		picker.start();
+		picker.join(200);
+		check(picker.isAlive());
+		renderer.gated = false;
+		renderer.permits.release(1000);
+		picker.join(5000);
+		check(!picker.isAlive());
+		check(pickColor[0] == 0xff000007);
+		check(canvas.swapped.await(5, TimeUnit.SECONDS));
+		check(!renderer.concurrentCalls);
+
+		// exceptions of background frames are rethrown on the EDT
+		AtomicReference<Throwable> uncaught = new AtomicReference<>();
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((t,e)->{
+			if(SwingUtilities.isEventDispatchThread())
+				uncaught.set(e);
+		});
+		renderer.failing = true;
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		deadline = System.currentTimeMillis()+5000;
+		while(uncaught.get() == null && System.currentTimeMillis() < deadline)
+			Thread.sleep(5);
+		check(uncaught.get() instanceof IllegalStateException);
+		renderer.failing = false;
+		Thread.setDefaultUncaughtExceptionHandler(handler);
+
+		// synchronous rendering again
+		canvas.setBackgroundRenderingEnabled(false);
+		renderer.color = 0xff000000;
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(canvas.getPixel(100, 80, false, 1) == 0xff000000);
+		System.out.println("BackgroundRenderingTest passed");
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,68 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.util.BarycentricGradientPaint;
+
+import java.awt.Color;
+import java.awt.PaintContext;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.util.Arrays;
+
+/**
+ * Measures {@link PaintContext#getRaster(int, int, int, int)} of the {@link BarycentricGradientPaint}
+ * for 64x64 and 1024x1024 rasters, with and without antialiasing and vertex colors.
+ * The triangle spans the raster diagonally, i.e. covers about half of the raster as is the case when
+ * Java2D fills the bounding box of a triangle.
+ * A checksum of the raster is printed to compare results across implementations.
+ */
+public class BarycentricPaintBenchmark {
+
+	public static void main(String[] args) {
+		System.out.println(String.format("%-34s %12s %12s", "configuration", "[ms, median]", "checksum"));
+		for(int size : new int[]{64, 1024}){
+			for(boolean aa : new boolean[]{false, true}){
+				for(boolean mono : new boolean[]{true, false}){
+					run(size, aa, mono);
+				}
+			}
+		}
+	}
+
+	static void run(int size, boolean aa, boolean mono) {
+		BarycentricGradientPaint paint = new BarycentricGradientPaint(
+				0.3f, 0.7f, size-0.2f, size*0.4f, size*0.6f, size-0.1f,
+				new Color(0xffff8800, true), 
+				mono ? new Color(0xffff8800, true) : new Color(0x8800ff44, true), 
+				mono ? new Color(0xffff8800, true) : new Color(0xcc2244ff, true));
+		RenderingHints hints = new RenderingHints(RenderingHints.KEY_ANTIALIASING, 
+				aa ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+		PaintContext ctx = paint.createContext(new DirectColorModel(32, 0xff0000, 0xff00, 0xff, 0xff000000), 
+				new Rectangle(size, size), new Rectangle(size, size), new AffineTransform(), hints);
+		// Java2D requests the raster in tiles of at most 32 rows
+		int tileH = Math.min(size, 32);
+		int reps = Math.max(5, (1<<22)/(size*size));
+		double[] times = new double[25];
+		long checksum = 0;
+		for(int k=0; k<times.length; k++){
+			long t0 = System.nanoTime();
+			for(int r=0; r<reps; r++){
+				for(int y=0; y<size; y+=tileH){
+					Raster raster = ctx.getRaster(0, y, size, tileH);
+					if(k==0 && r==0)
+						checksum = checksum*31 + Arrays.hashCode(
+								Arrays.copyOf(((DataBufferInt)raster.getDataBuffer()).getData(), size*tileH));
+				}
+			}
+			times[k] = (System.nanoTime()-t0)*1e-6/reps;
+		}
+		ctx.dispose();
+		Arrays.sort(times);
+		String name = String.format("%dx%d %s %s", size, size, aa ? "AA":"noAA", mono ? "monochrome":"gradient");
+		System.out.println(String.format("%-34s %12.4f %12x", name, times[times.length/2], checksum));
+	}
+
+}
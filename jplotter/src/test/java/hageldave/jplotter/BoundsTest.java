@@ -0,0 +1,91 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Points.PointDetails;
+import hageldave.jplotter.renderables.StreamingPoints;
+import hageldave.jplotter.renderables.Triangles;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+public class BoundsTest {
+
+	public static void main(String[] args) {
+		testPoints();
+		testColumnarPoints();
+		testStreamingPoints();
+		testLinesAndTriangles();
+		System.out.println("BoundsTest passed");
+	}
+
+	public static void testPoints() {
+		Points points = new Points();
+		check(points.getBounds().isEmpty());
+		points.addPoint(1, 2);
+		points.addPoints(new double[]{-1, 3}, new double[]{0, 5});
+		check(points.getBounds().equals(new Rectangle2D.Double(-1, 0, 4, 5)));
+		// changing a location and signaling it with setDirty leads to recomputation
+		PointDetails pd = points.getPoint(2);
+		pd.location.setLocation(0, 0);
+		points.setDirty();
+		check(points.getBounds().equals(new Rectangle2D.Double(-1, 0, 2, 2)));
+		points.getPointDetails().remove(0);
+		points.setDirty();
+		check(points.getBounds().equals(new Rectangle2D.Double(-1, 0, 1, 0)));
+		points.removeAllPoints();
+		check(points.getBounds().equals(new Rectangle2D.Double()));
+	}
+
+	public static void testColumnarPoints() {
+		ColumnarPoints points = new ColumnarPoints();
+		points.addPoints(new double[]{0, 1, 2}, new double[]{0, 1, 2});
+		check(points.getBounds().equals(new Rectangle2D.Double(0, 0, 2, 2)));
+		// moving an extreme point shrinks the bounds
+		points.setPointLocation(2, 1, 1);
+		check(points.getBounds().equals(new Rectangle2D.Double(0, 0, 1, 1)));
+		points.getPoint(0).location.setLocation(-4, 3);
+		check(points.getBounds().equals(new Rectangle2D.Double(-4, 1, 5, 2)));
+	}
+
+	public static void testStreamingPoints() {
+		StreamingPoints points = new StreamingPoints(3);
+		for(int i=0; i<10; i++){
+			points.addPoint(i, i%2);
+			double minX = Math.max(0, i-2);
+			Rectangle2D b = points.getBounds();
+			check(b.getMinX() == minX && b.getMaxX() == i);
+		}
+		points.addPoints(new double[]{20, 21, 22, 23}, new double[]{-1, 1, 0, 0});
+		check(points.getBounds().equals(new Rectangle2D.Double(21, 0, 2, 1)));
+	}
+
+	public static void testLinesAndTriangles() {
+		Lines lines = new Lines();
+		lines.addSegment(0, 0, 1, 1);
+		lines.addSegments(new double[]{2, -2, 3, 0}, null);
+		check(lines.getBounds().equals(new Rectangle2D.Double(0, -2, 3, 3)));
+		lines.getSegments().remove(1);
+		lines.setDirty();
+		check(lines.getBounds().equals(new Rectangle2D.Double(0, 0, 1, 1)));
+		// segments added directly to the list are accounted for
+		lines.getSegments().add(new Lines.SegmentDetails(new Point2D.Double(4, 0), new Point2D.Double(5, 2)));
+		check(lines.getBounds().equals(new Rectangle2D.Double(0, 0, 5, 2)));
+
+		Triangles tris = new Triangles();
+		tris.addTriangle(0, 0, 1, 0, 0, 1);
+		tris.addQuad(new Rectangle2D.Double(-1, -1, 0.5, 0.5));
+		check(tris.getBounds().equals(new Rectangle2D.Double(-1, -1, 2, 2)));
+		tris.getTriangleDetails().add(new Triangles.TriangleDetails(0, 0, 3, 0, 0, 1));
+		check(tris.getBounds().equals(new Rectangle2D.Double(-1, -1, 4, 2)));
+		tris.removeAllTriangles();
+		check(tris.getBounds().equals(new Rectangle2D.Double()));
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
@@ -0,0 +1,92 @@
+package hageldave.jplotter;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Triangles;
+
+/**
+ * Compares per item ingestion (addPoint, addSegment, addTriangle) to the
+ * bulk array ingestion methods (addPoints, addSegments, addTriangles).
+ * Only points have array backed storage ({@link ColumnarPoints}), the bulk methods of
+ * lines and triangles still create details objects per item and merely save the per call overhead.
+ * Run with e.g. {@code -Xmx4g}, first argument is the number of items (default 2M).
+ */
+public class BulkIngestionBenchmark {
+
+	static final int WARMUP = 3;
+	static final int RUNS = 5;
+
+	public static void main(String[] args) {
+		final int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		Random rnd = new Random(0xc0ffee);
+		double[] xs = rnd.doubles(n).toArray();
+		double[] ys = rnd.doubles(n).toArray();
+		int[] argb = rnd.ints(n).map(c->c|0xff000000).toArray();
+		float[] scale = new float[n];
+		for(int i=0; i<n; i++)
+			scale[i] = 1f+rnd.nextFloat();
+		double[] segCoords = rnd.doubles(n*4L).toArray();
+		double[] triCoords = rnd.doubles(n*6L).toArray();
+
+		System.out.println("ingestion of " + n + " items, median of " + RUNS + " runs [ms]");
+
+		bench("Points.addPoint (per item)", ()->{
+			Points p = new Points();
+			for(int i=0; i<n; i++)
+				p.addPoint(xs[i], ys[i]).setColor(argb[i]).setScaling(scale[i]);
+			return p.numPoints();
+		});
+		bench("Points.addPoints (bulk)", ()->{
+			return new Points().addPoints(xs, ys, argb, scale).numPoints();
+		});
+		bench("ColumnarPoints.addPoint (per item)", ()->{
+			Points p = new ColumnarPoints();
+			for(int i=0; i<n; i++)
+				p.addPoint(xs[i], ys[i]).setColor(argb[i]).setScaling(scale[i]);
+			return p.numPoints();
+		});
+		bench("ColumnarPoints.addPoints (bulk copy)", ()->{
+			return new ColumnarPoints().addPoints(xs, ys, argb, scale).numPoints();
+		});
+		bench("ColumnarPoints.wrap (bulk no copy)", ()->{
+			return new ColumnarPoints().wrap(xs, ys, argb, scale).numPoints();
+		});
+		bench("Lines.addSegment (per item)", ()->{
+			Lines l = new Lines();
+			for(int i=0; i<n; i++)
+				l.addSegment(segCoords[i*4+0], segCoords[i*4+1], segCoords[i*4+2], segCoords[i*4+3]).setColor(argb[i]);
+			return l.numSegments();
+		});
+		bench("Lines.addSegments (bulk)", ()->{
+			return new Lines().addSegments(segCoords, argb).numSegments();
+		});
+		bench("Triangles.addTriangle (per item)", ()->{
+			Triangles t = new Triangles();
+			for(int i=0; i<n; i++)
+				t.addTriangle(triCoords[i*6+0], triCoords[i*6+1], triCoords[i*6+2], triCoords[i*6+3], triCoords[i*6+4], triCoords[i*6+5]).setColor(argb[i]);
+			return t.numTriangles();
+		});
+		bench("Triangles.addTriangles (bulk)", ()->{
+			return new Triangles().addTriangles(triCoords, argb).numTriangles();
+		});
+	}
+
+	static void bench(String name, IntSupplier task) {
+		for(int i=0; i<WARMUP; i++)
+			task.getAsInt();
+		double[] times = new double[RUNS];
+		for(int i=0; i<RUNS; i++){
+			long t0 = System.nanoTime();
+			task.getAsInt();
+			times[i] = (System.nanoTime()-t0)*1e-6;
+		}
+		Arrays.sort(times);
+		System.out.println(String.format("%-40s %10.2f", name, times[RUNS/2]));
+	}
+
+}
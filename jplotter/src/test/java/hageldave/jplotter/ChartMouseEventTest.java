@@ -0,0 +1,107 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.charts.ScatterPlot;
+import hageldave.jplotter.charts.ScatterPlot.ScatterPlotMouseEventListener;
+
+import javax.swing.SwingUtilities;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.awt.geom.Point2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ChartMouseEventTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		testHoverOrderAndExceptions();
+		System.out.println("ChartMouseEventTest passed");
+	}
+
+	/** canvas whose asynchronous pixel reads are completed by the test */
+	static class DeferredCanvas extends BlankCanvasFallback {
+		LinkedList<CompletableFuture<Integer>> pending = new LinkedList<>();
+		@Override
+		public CompletableFuture<Integer> getPixelAsync(int x, int y, boolean picking, int areaSize) {
+			CompletableFuture<Integer> f = new CompletableFuture<>();
+			pending.add(f);
+			return f;
+		}
+	}
+
+	static class RecordingListener implements ScatterPlotMouseEventListener {
+		List<String> events = new ArrayList<>();
+		boolean failing = false;
+		void record(String mouseEventType) {
+			events.add(mouseEventType);
+			if(failing)
+				throw new IllegalStateException("listener failure");
+		}
+		@Override
+		public void onInsideMouseEventNone(String mouseEventType, MouseEvent e, Point2D coordsysPoint) {
+			record(mouseEventType);
+		}
+		@Override
+		public void onOutsideMouseEventNone(String mouseEventType, MouseEvent e) {
+			record(mouseEventType);
+		}
+	}
+
+	static MouseEvent event(DeferredCanvas canvas, int id) {
+		return new MouseEvent(canvas, id, System.currentTimeMillis(), 0, 200, 200, 1, false);
+	}
+
+	public static void testHoverOrderAndExceptions() throws InvocationTargetException, InterruptedException {
+		DeferredCanvas canvas = new DeferredCanvas();
+		ScatterPlot plot = new ScatterPlot(canvas, "X", "Y");
+		RecordingListener listener = new RecordingListener();
+		plot.addScatterPlotMouseEventListener(listener);
+		canvas.setSize(400, 400);
+		MouseMotionListener motion = canvas.getMouseMotionListeners()[0];
+		MouseListener mouse = canvas.getMouseListeners()[0];
+
+		SwingUtilities.invokeAndWait(()->{
+			// hover result arrives after a click that was delivered synchronously, and is dropped
+			motion.mouseMoved(event(canvas, MouseEvent.MOUSE_MOVED));
+			mouse.mouseClicked(event(canvas, MouseEvent.MOUSE_CLICKED));
+			canvas.pending.removeFirst().complete(0);
+			// hover results are delivered in order, older ones are dropped once a newer one arrived
+			motion.mouseMoved(event(canvas, MouseEvent.MOUSE_MOVED));
+			motion.mouseMoved(event(canvas, MouseEvent.MOUSE_MOVED));
+			CompletableFuture<Integer> older = canvas.pending.removeFirst();
+			canvas.pending.removeFirst().complete(0);
+			older.complete(0);
+		});
+		check(listener.events.size() == 2);
+		check(listener.events.get(0).equals(ScatterPlotMouseEventListener.MOUSE_EVENT_TYPE_CLICKED));
+		check(listener.events.get(1).equals(ScatterPlotMouseEventListener.MOUSE_EVENT_TYPE_MOVED));
+
+		// exceptions of listeners reach the uncaught exception handler of the EDT
+		AtomicReference<Throwable> uncaught = new AtomicReference<>();
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		Thread.setDefaultUncaughtExceptionHandler((t,e)->{
+			if(SwingUtilities.isEventDispatchThread())
+				uncaught.set(e);
+		});
+		listener.failing = true;
+		SwingUtilities.invokeAndWait(()->{
+			motion.mouseMoved(event(canvas, MouseEvent.MOUSE_MOVED));
+			canvas.pending.removeFirst().complete(0);
+		});
+		long deadline = System.currentTimeMillis()+5000;
+		while(uncaught.get() == null && System.currentTimeMillis() < deadline)
+			Thread.sleep(5);
+		check(uncaught.get() instanceof IllegalStateException);
+		Thread.setDefaultUncaughtExceptionHandler(handler);
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,146 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.DecimatedLineStrip;
+import hageldave.jplotter.renderables.Lines.SegmentDetails;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+
+public class DecimationTest {
+
+	public static void main(String[] args) {
+		testColumnExtents();
+		testIncrementalPanAndAppend();
+		testSparseSamples();
+		testLinesAPI();
+		System.out.println("DecimationTest passed");
+	}
+
+	static double[][] randomWalk(Random rnd, int n) {
+		double[] xs = new double[n], ys = new double[n];
+		for(int i=1; i<n; i++){
+			xs[i] = xs[i-1] + rnd.nextDouble()*0.001;
+			ys[i] = ys[i-1] + rnd.nextGaussian();
+		}
+		return new double[][]{xs, ys};
+	}
+
+	public static void testColumnExtents() {
+		double[][] walk = randomWalk(new Random(1), 200_000);
+		double[] xs = walk[0], ys = walk[1];
+		DecimatedLineStrip strip = new DecimatedLineStrip().setSamples(xs, ys, null);
+		int w = 300;
+		Rectangle2D view = new Rectangle2D.Double(10, -1000, 50, 2000);
+		check(strip.decimate(view, w));
+		check(!strip.decimate(view, w));
+		List<SegmentDetails> segments = strip.getSegments();
+		check(segments.size() <= 4*(2*w+1)+2);
+		// vertical extent of each column is preserved
+		double columnWidth = Math.scalb(1.0, Math.getExponent(view.getWidth()/w));
+		check(columnWidth <= view.getWidth()/w);
+		for(double c=Math.floor(view.getMinX()/columnWidth); c*columnWidth <= view.getMaxX(); c++){
+			double x0 = c*columnWidth, x1 = x0+columnWidth;
+			double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+			for(int i=0; i<xs.length; i++){
+				if(xs[i] >= x0 && xs[i] < x1){
+					min = Math.min(min, ys[i]); max = Math.max(max, ys[i]);
+				}
+			}
+			double dMin = Double.POSITIVE_INFINITY, dMax = Double.NEGATIVE_INFINITY;
+			for(SegmentDetails seg : segments){
+				for(Point2D p : new Point2D[]{seg.p0, seg.p1}){
+					if(p.getX() >= x0 && p.getX() < x1){
+						dMin = Math.min(dMin, p.getY()); dMax = Math.max(dMax, p.getY());
+					}
+				}
+			}
+			check(min == dMin && max == dMax);
+		}
+		// the strip extends beyond the view
+		check(segments.get(0).p0.getX() < view.getMinX());
+		check(segments.get(segments.size()-1).p1.getX() > view.getMaxX());
+		// bounds enclose all samples
+		check(strip.getBounds().getMaxX() == xs[xs.length-1]);
+	}
+
+	public static void testIncrementalPanAndAppend() {
+		Random rnd = new Random(2);
+		double[][] walk = randomWalk(rnd, 100_000);
+		DecimatedLineStrip strip = new DecimatedLineStrip().appendSamples(walk[0], walk[1], null);
+		Rectangle2D view = new Rectangle2D.Double(5, 0, 20, 1);
+		strip.decimate(view, 400);
+		for(int step=0; step<20; step++){
+			view = new Rectangle2D.Double(view.getX()+rnd.nextDouble()*3-1, 0, view.getWidth()*(0.9+rnd.nextDouble()*0.2), 1);
+			if(step%5 == 4){
+				double[][] more = randomWalk(rnd, 1000);
+				double last = strip.getSampleX(strip.numSamples()-1);
+				for(int i=0; i<more[0].length; i++)
+					more[0][i] += last;
+				strip.appendSamples(more[0], more[1], null);
+			}
+			strip.decimate(view, 400);
+			// compare to decimation without cache
+			double[] xs = new double[strip.numSamples()], ys = new double[strip.numSamples()];
+			for(int i=0; i<xs.length; i++){
+				xs[i] = strip.getSampleX(i); ys[i] = strip.getSampleY(i);
+			}
+			DecimatedLineStrip fresh = new DecimatedLineStrip().setSamples(xs, ys, null);
+			fresh.decimate(view, 400);
+			check(sameSegments(strip.getSegments(), fresh.getSegments()));
+		}
+	}
+
+	public static void testSparseSamples() {
+		DecimatedLineStrip strip = new DecimatedLineStrip()
+				.setSamples(new double[]{0, 1, 2, 3}, new double[]{0, 1, 0, 1}, new int[]{1, 2, 3, 4});
+		strip.decimate(new Rectangle2D.Double(0, 0, 3, 1), 100);
+		check(strip.numSegments() == 3);
+		check(strip.getSegments().get(2).color1.getAsInt() == 4);
+		strip.decimate(new Rectangle2D.Double(10, 0, 3, 1), 100);
+		check(strip.numSegments() == 0);
+		try {
+			strip.appendSamples(new double[]{2}, new double[]{0}, new int[]{0});
+			check(false);
+		} catch(IllegalArgumentException e){
+			// x coordinates decrease
+		}
+	}
+
+	public static void testLinesAPI() {
+		DecimatedLineStrip strip = new DecimatedLineStrip();
+		strip.addLineStrip(new double[]{0, 1, 2}, new double[]{0, 1, 0});
+		check(strip.numSamples() == 3);
+		// disconnected segment is bridged
+		strip.addSegment(new Point2D.Double(4, 0), new Point2D.Double(5, 1));
+		check(strip.numSamples() == 5 && strip.getSampleX(3) == 4);
+		strip.decimate(new Rectangle2D.Double(0, 0, 5, 1), 100);
+		check(strip.numSegments() == 4);
+		try {
+			strip.addSegment(new Point2D.Double(5, 1), new Point2D.Double(3, 0));
+			check(false);
+		} catch(IllegalArgumentException e){
+			// x coordinates decrease
+		}
+		DecimatedLineStrip colored = new DecimatedLineStrip();
+		colored.addSegments(new double[]{0,0,1,1, 1,1,2,0}, new int[]{1, 2});
+		check(colored.numSamples() == 3 && colored.getSampleColor(0) == 1 && colored.getSampleColor(2) == 2);
+	}
+
+	static boolean sameSegments(List<SegmentDetails> a, List<SegmentDetails> b) {
+		if(a.size() != b.size())
+			return false;
+		for(int i=0; i<a.size(); i++){
+			if(!a.get(i).p0.equals(b.get(i).p0) || !a.get(i).p1.equals(b.get(i).p1))
+				return false;
+		}
+		return true;
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
@@ -0,0 +1,156 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.DensityRenderer;
+import hageldave.jplotter.renderers.DensityRenderer.Normalization;
+import hageldave.jplotter.svg.SVGUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.w3c.dom.Document;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class DensityRendererTest {
+
+	public static void main(String[] args) throws IOException, InvocationTargetException, InterruptedException {
+		testAggregation();
+		testNormalization();
+		testModesAndExport();
+		testFallbackImageCache();
+		System.out.println("DensityRendererTest passed");
+	}
+
+	public static void testAggregation() {
+		Random rnd = new Random(1);
+		int n = 300_000, w = 64, h = 32;
+		double[] xs = rnd.doubles(n).map(x->x*12-1).toArray();
+		double[] ys = rnd.doubles(n).map(y->y*y*6-1).toArray();
+		ColumnarPoints points = new ColumnarPoints();
+		points.addPoints(xs, ys);
+		DensityRenderer renderer = new DensityRenderer();
+		renderer.addItemToRender(points);
+		renderer.addItemToRender(new Points().addPoints(new double[]{Double.NaN}, new double[]{0}));
+		renderer.setView(new Rectangle2D.Double(0, 0, 10, 5));
+		double[] grid = renderer.aggregate(w, h);
+		double[] expected = new double[w*h];
+		for(int i=0; i<n; i++){
+			double x = xs[i]*w/10, y = ys[i]*h/5;
+			if(x >= 0 && x < w && y >= 0 && y < h)
+				expected[(int)y*w+(int)x]++;
+		}
+		for(int k=0; k<grid.length; k++)
+			check(grid[k] == expected[k]);
+		// sum of weights
+		renderer.setPointWeight((p, i)->2);
+		grid = renderer.aggregate(w, h);
+		for(int k=0; k<grid.length; k++)
+			check(grid[k] == 2*expected[k]);
+	}
+
+	public static void testNormalization() {
+		DensityRenderer renderer = new DensityRenderer();
+		double[] grid = {0, 1, 10, 100, 10};
+		double[] lin = renderer.setNormalization(Normalization.LINEAR).normalize(grid);
+		check(lin[0] < 0 && lin[1] == 0.01 && lin[3] == 1);
+		double[] log = renderer.setNormalization(Normalization.LOG).normalize(grid);
+		check(log[0] < 0 && log[3] == 1 && log[1] > lin[1]);
+		double[] eq = renderer.setNormalization(Normalization.EQ_HIST).normalize(grid);
+		check(eq[0] < 0 && eq[1] == 0.25 && eq[2] == 0.75 && eq[4] == 0.75 && eq[3] == 1);
+	}
+
+	public static void testModesAndExport() throws IOException {
+		DensityRenderer renderer = new DensityRenderer();
+		CompleteRenderer complete = new CompleteRenderer(renderer);
+		check(complete.points == renderer);
+		Points sparse = new Points();
+		sparse.addPoint(5, 5);
+		complete.addItemToRender(sparse);
+		complete.setView(new Rectangle2D.Double(0, 0, 10, 10));
+		check(!renderer.isAggregating(100, 100));
+		renderer.setDensityThreshold(0);
+		check(renderer.isAggregating(100, 100));
+
+		Img img = renderer.createDensityImage(100, 100);
+		check(img.getValue(50, 50) != 0 && img.getValue(10, 10) == 0);
+		// fallback draws the image in the vertically flipped coordinate system
+		Img target = new Img(100, 100);
+		Graphics2D g = target.createGraphics();
+		g.translate(0, 100);
+		g.scale(1, -1);
+		complete.renderFallback(g, target.createGraphics(), 100, 100);
+		g.dispose();
+		check(target.getValue(50, 49) == img.getValue(50, 50));
+
+		Document doc = SVGUtils.createSVGDocument(100, 100);
+		complete.renderSVG(doc, doc.getDocumentElement(), 100, 100);
+		check(doc.getElementsByTagName("image").getLength() == 1);
+
+		try(PDDocument pdf = new PDDocument()){
+			PDPage page = new PDPage(new PDRectangle(100, 100));
+			pdf.addPage(page);
+			complete.renderPDF(pdf, page, 0, 0, 100, 100);
+			check(page.getResources().getXObjectNames().iterator().hasNext());
+		}
+	}
+
+	static class CountingDensityRenderer extends DensityRenderer {
+		int numImages = 0;
+		@Override
+		public Img createDensityImage(int w, int h) {
+			numImages++;
+			return super.createDensityImage(w, h);
+		}
+	}
+
+	public static void testFallbackImageCache() throws InvocationTargetException, InterruptedException {
+		CountingDensityRenderer renderer = new CountingDensityRenderer();
+		renderer.setDensityThreshold(0);
+		ColumnarPoints points = new ColumnarPoints();
+		points.addPoints(new double[]{2, 7}, new double[]{2, 7});
+		renderer.addItemToRender(points);
+		renderer.setView(new Rectangle2D.Double(0, 0, 10, 10));
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(renderer);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(100, 100);
+		canvas.setTiledRenderingParallelism(4);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		// bin of the point at (2,2) in the top down image
+		int binPixel = canvas.toImg().getValue(20, 79);
+		check(binPixel != 0xffffffff);
+		// one aggregation for all tiles, the picking pass and repaints of unchanged content
+		check(renderer.numImages == 1);
+		canvas.getPixel(25, 75, true, 1);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(renderer.numImages == 1);
+		// changes of points, settings or view create a new image
+		points.setPointLocation(0, 5, 5);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(renderer.numImages == 2);
+		check(canvas.toImg().getValue(20, 79) == 0xffffffff);
+		renderer.setNormalization(Normalization.LINEAR);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(renderer.numImages == 3);
+		renderer.setView(new Rectangle2D.Double(0, 0, 20, 20));
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(renderer.numImages == 4);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(renderer.numImages == 4);
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
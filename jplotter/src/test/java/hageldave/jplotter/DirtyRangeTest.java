@@ -0,0 +1,87 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.util.DirtyRange;
+
+public class DirtyRangeTest {
+
+	public static void main(String[] args) {
+		testEmpty();
+		testMarking();
+		testWithin();
+		testRenderablesNoGL();
+		System.out.println("DirtyRangeTest passed");
+	}
+
+	public static void testEmpty() {
+		DirtyRange range = new DirtyRange();
+		check(range.isEmpty() && range.length() == 0);
+		range.mark(4, 4);
+		check(range.isEmpty());
+		range.mark(3);
+		check(!range.isEmpty() && range.length() == 1);
+		range.clear();
+		check(range.isEmpty() && range.length() == 0);
+	}
+
+	public static void testMarking() {
+		DirtyRange range = new DirtyRange();
+		range.mark(10).mark(5, 7);
+		check(range.getFrom() == 5 && range.getTo() == 11 && range.length() == 6);
+		range.mark(6, 8);
+		check(range.getFrom() == 5 && range.getTo() == 11);
+		range.mark(100);
+		check(range.getFrom() == 5 && range.getTo() == 101);
+		try {
+			range.mark(-1, 2);
+			throw new RuntimeException("expected exception for negative index");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		try {
+			range.mark(5, 2);
+			throw new RuntimeException("expected exception for reversed range");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public static void testWithin() {
+		DirtyRange range = new DirtyRange();
+		check(!range.isWithin(10));
+		range.mark(2, 10);
+		check(range.isWithin(10));
+		check(!range.isWithin(9));
+	}
+
+	public static void testRenderablesNoGL() {
+		Points points = new Points();
+		points.addPoint(0, 0);
+		points.addPoint(1, 1);
+		check(points.isDirty());
+
+		ColumnarPoints columnar = new ColumnarPoints();
+		check(!columnar.isDirty());
+		columnar.addPoints(new double[]{0,1,2}, new double[]{0,1,2});
+		check(columnar.isDirty());
+		// single point changes are tracked as range
+		ColumnarPoints recolored = new ColumnarPoints();
+		recolored.wrap(new double[]{0,1,2}, new double[]{0,1,2}, null, null);
+		recolored.getPoint(1).setColor(0xffff0000);
+		check(recolored.getPointColor(1) == 0xffff0000);
+		check(recolored.isDirty());
+
+		Lines lines = new Lines();
+		lines.addSegment(0, 0, 1, 1);
+		lines.setDirty(0, 1);
+		check(lines.isDirty());
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
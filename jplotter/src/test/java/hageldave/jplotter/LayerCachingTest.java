@@ -0,0 +1,191 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+import hageldave.jplotter.renderers.LinesRenderer;
+import hageldave.jplotter.renderers.PointsRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class LayerCachingTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		testImageDiff();
+		testInvalidation();
+		testPicking();
+		benchmark();
+		System.out.println("LayerCachingTest passed");
+	}
+
+	static class CountingPointsRenderer extends PointsRenderer {
+		int numRenderings = 0;
+		@Override
+		public void renderFallback(Graphics2D g, Graphics2D p, int w, int h) {
+			numRenderings++;
+			super.renderFallback(g, p, w, h);
+		}
+	}
+
+	static class Scene {
+		CountingPointsRenderer pointsR = new CountingPointsRenderer();
+		CompleteRenderer content = new CompleteRenderer(pointsR);
+		CoordSysRenderer coordsys = TiledRenderingTest.scene();
+		Lines selection = new Lines();
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+
+		Scene(int numPoints, boolean caching, int parallelism) {
+			Random rnd = new Random(7);
+			Points points = new Points(DefaultGlyph.CROSS);
+			for(int i=0; i<numPoints; i++)
+				points.addPoint(rnd.nextDouble()*100, rnd.nextDouble()*100).setColor(0xff00aa44).setPickColor(i+1);
+			content.addItemToRender(points);
+			// reuse the content of the tiled rendering scene
+			CompleteRenderer other = (CompleteRenderer)coordsys.getContent();
+			other.triangles.getItemsToRender().forEach(content::addItemToRender);
+			other.lines.getItemsToRender().forEach(content::addItemToRender);
+			other.text.getItemsToRender().forEach(content::addItemToRender);
+			coordsys.setContent(content);
+			coordsys.setOverlay(new LinesRenderer().addItemToRender(selection));
+			content.setFallbackLayerCachingEnabled(caching);
+			coordsys.setFallbackLayerCachingEnabled(caching);
+			canvas.setRenderer(coordsys);
+			canvas.setBackground(Color.WHITE);
+			canvas.setSize(400, 301);
+			canvas.setTiledRenderingParallelism(parallelism);
+		}
+
+		void dragSelection(int step) {
+			selection.removeAllSegments();
+			double x0 = 10+step%50, y0 = 20, x1 = 40+step%50, y1 = 60;
+			selection.addSegment(x0, y0, x1, y0).setColor(0xff444444);
+			selection.addSegment(x1, y0, x1, y1).setColor(0xff444444);
+			selection.addSegment(x1, y1, x0, y1).setColor(0xff444444);
+			selection.addSegment(x0, y1, x0, y0).setColor(0xff444444);
+		}
+
+		Img repaint() throws InvocationTargetException, InterruptedException {
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			return canvas.toImg();
+		}
+	}
+
+	static int maxDiff(Img a, Img b) {
+		int maxDiff = 0;
+		for(int i=0; i<a.numValues(); i++){
+			int va = a.getData()[i], vb = b.getData()[i];
+			for(int shift=0; shift<32; shift+=8)
+				maxDiff = Math.max(maxDiff, Math.abs(((va>>>shift)&0xff)-((vb>>>shift)&0xff)));
+		}
+		return maxDiff;
+	}
+
+	public static void testImageDiff() throws InvocationTargetException, InterruptedException {
+		for(int parallelism : new int[]{0,3}){
+			Scene direct = new Scene(300, false, parallelism);
+			Scene cached = new Scene(300, true, parallelism);
+			for(int step=0; step<3; step++){
+				direct.dragSelection(step);
+				cached.dragSelection(step);
+				int d = maxDiff(direct.repaint(), cached.repaint());
+				System.out.format("parallelism %d, frame %d: max channel diff %d%n", parallelism, step, d);
+				// layers are blended into the frame, allowing for rounding differences of translucent pixels
+				check(d <= 3);
+			}
+			direct.coordsys.setCoordinateView(20, 20, 80, 80);
+			cached.coordsys.setCoordinateView(20, 20, 80, 80);
+			check(maxDiff(direct.repaint(), cached.repaint()) <= 3);
+		}
+	}
+
+	public static void testInvalidation() throws InvocationTargetException, InterruptedException {
+		Scene scene = new Scene(300, true, 0);
+		scene.repaint();
+		int n = scene.pointsR.numRenderings;
+		check(n == 1);
+		// overlay changes do not render cached layers
+		for(int step=0; step<5; step++){
+			scene.dragSelection(step);
+			scene.repaint();
+		}
+		check(scene.pointsR.numRenderings == n);
+		// view change
+		scene.coordsys.setCoordinateView(10, 10, 90, 90);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == ++n);
+		// size change
+		scene.canvas.setSize(390, 290);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == ++n);
+		// content edits
+		Points points = scene.pointsR.getItemsToRender().getFirst();
+		points.addPoint(50, 50);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == ++n);
+		points.getPointDetails().get(0).setColor(0xffff0000);
+		points.setDirty();
+		scene.repaint();
+		check(scene.pointsR.numRenderings == ++n);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == n);
+		// explicit invalidation
+		scene.content.invalidateFallbackLayer(scene.pointsR);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == ++n);
+		// hiding items
+		scene.pointsR.getItemsToRender().getFirst().hide(true);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == ++n);
+		scene.repaint();
+		check(scene.pointsR.numRenderings == n);
+	}
+
+	public static void testPicking() throws InvocationTargetException, InterruptedException {
+		int w=400, h=301;
+		int[][] picking = new int[2][w*h];
+		for(int k=0; k<2; k++){
+			Scene scene = new Scene(300, k==1, 0);
+			scene.canvas.setPickingRegionMargin(1000);
+			scene.repaint();
+			// second frame is composited from cached layers
+			scene.repaint();
+			for(int y=0; y<h; y++)
+				for(int x=0; x<w; x++)
+					picking[k][y*w+x] = scene.canvas.getPixel(x, y, true, 1);
+		}
+		int differ = 0, covered = 0;
+		for(int i=0; i<w*h; i++){
+			if(picking[0][i] != 0)
+				covered++;
+			if(picking[0][i] != picking[1][i])
+				differ++;
+		}
+		check(covered > 0 && differ == 0);
+	}
+
+	public static void benchmark() throws InvocationTargetException, InterruptedException {
+		for(boolean caching : new boolean[]{false, true}){
+			Scene scene = new Scene(200_000, caching, 0);
+			scene.repaint();
+			long t = System.nanoTime();
+			for(int step=0; step<10; step++){
+				scene.dragSelection(step);
+				scene.repaint();
+			}
+			System.out.format("200k points, selection drag, layer caching %s: %.1fms per frame%n", caching ? "on ":"off", (System.nanoTime()-t)*1e-6/10);
+		}
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,96 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class LazyPickingTest {
+
+	static class CountingCanvas extends BlankCanvasFallback {
+		private static final long serialVersionUID = 1L;
+		int numPickingRenders = 0;
+		@Override
+		protected void renderPicking(Rectangle region) {
+			numPickingRenders++;
+			super.renderPicking(region);
+		}
+	}
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		Random rnd = new Random(3);
+		Points points = new Points(DefaultGlyph.SQUARE_F);
+		for(int i=0; i<2000; i++)
+			points.addPoint(rnd.nextDouble(), rnd.nextDouble()).setPickColor(i+1);
+		CompleteRenderer content = new CompleteRenderer();
+		content.addItemToRender(points);
+		content.setView(new Rectangle2D.Double(0, 0, 1, 1));
+
+		CountingCanvas canvas = new CountingCanvas();
+		canvas.setRenderer(content);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(400, 300);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		// repainting does not render the picking image
+		check(canvas.numPickingRenders == 0);
+
+		canvas.getPixel(100, 100, true, 3);
+		check(canvas.numPickingRenders == 1);
+		// nearby queries are answered from the cached region
+		canvas.getPixel(110, 90, true, 3);
+		canvas.getPixel(100, 100, true, 5);
+		check(canvas.numPickingRenders == 1);
+		// visible colors do not need the picking image
+		canvas.getPixel(300, 250, false, 3);
+		check(canvas.numPickingRenders == 1);
+		// far away query renders another region
+		int v2 = canvas.getPixel(300, 250, true, 3);
+		check(canvas.numPickingRenders == 2);
+		// queries outside of the canvas do not render
+		check(canvas.getPixel(-20, -20, true, 3) == 0);
+		check(canvas.numPickingRenders == 2);
+		// repaint invalidates the cache
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		check(canvas.getPixel(300, 250, true, 3) == v2);
+		check(canvas.numPickingRenders == 3);
+
+		// regions yield the same picking colors as the full picking image
+		canvas.setPickingRegionMargin(1000);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		int[] full = new int[400*300];
+		for(int y=0; y<300; y++)
+			for(int x=0; x<400; x++)
+				full[y*400+x] = canvas.getPixel(x, y, true, 1);
+		check(canvas.numPickingRenders == 4);
+		canvas.setPickingRegionMargin(8);
+		for(int i=0; i<200; i++){
+			int x = rnd.nextInt(400), y = rnd.nextInt(300);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			check(canvas.getPixel(x, y, true, 1) == full[y*400+x]);
+		}
+
+		long t = System.nanoTime();
+		for(int i=0; i<20; i++)
+			SwingUtilities.invokeAndWait(canvas::repaint);
+		System.out.format("frame time %.2fms, ", (System.nanoTime()-t)*1e-6/20);
+		t = System.nanoTime();
+		for(int i=0; i<20; i++){
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			canvas.getPixel(rnd.nextInt(400), rnd.nextInt(300), true, 3);
+		}
+		System.out.format("frame time with picking query %.2fms%n", (System.nanoTime()-t)*1e-6/20);
+		System.out.println("LazyPickingTest passed");
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
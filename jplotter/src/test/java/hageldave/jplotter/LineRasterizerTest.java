@@ -0,0 +1,142 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class LineRasterizerTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		testImageDiff();
+		testPickingDiff();
+		benchmark();
+		System.out.println("LineRasterizerTest passed");
+	}
+
+	static CompleteRenderer scene(int numSegments, double thickness, int strokePattern, boolean gradients) {
+		Random rnd = new Random(7);
+		CompleteRenderer content = new CompleteRenderer();
+		Lines lines = new Lines();
+		lines.setStrokePattern(strokePattern).setStrokeLength(24);
+		double[] strip = new double[2*20];
+		for(int i=0; i<numSegments/(strip.length/2-1); i++){
+			double x = rnd.nextDouble(), y = rnd.nextDouble();
+			for(int j=0; j<strip.length; j+=2){
+				strip[j] = x; strip[j+1] = y;
+				x += (rnd.nextDouble()-0.5)*0.1; y += (rnd.nextDouble()-0.5)*0.1;
+			}
+			int color = (rnd.nextInt(0xcc)+0x33)<<24 | rnd.nextInt(0x1000000);
+			int pick = i+1;
+			lines.addLineStrip(strip).forEach(seg->{
+				seg.setThickness(thickness).setPickColor(pick).setColor(color);
+				if(gradients)
+					seg.setColor1(0xff000000 | rnd.nextInt(0x1000000));
+			});
+		}
+		content.addItemToRender(lines);
+		return content;
+	}
+
+	static BlankCanvasFallback canvas(CompleteRenderer content) {
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setCoordinateView(0, 0, 1, 1);
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(coordsys);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(500, 400);
+		return canvas;
+	}
+
+	static Img render(CompleteRenderer content, boolean rasterize) throws InvocationTargetException, InterruptedException {
+		content.lines.setDirectRasterizationEnabled(rasterize);
+		BlankCanvasFallback canvas = canvas(content);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		return canvas.toImg();
+	}
+
+	/** @return {mean absolute channel difference, fraction of pixels with a channel difference above 64} */
+	static double[] diff(Img a, Img b) {
+		long sum = 0;
+		int large = 0;
+		for(int i=0; i<a.numValues(); i++){
+			int va = a.getData()[i], vb = b.getData()[i];
+			int max = 0;
+			for(int shift=0; shift<32; shift+=8){
+				int d = Math.abs(((va>>>shift)&0xff)-((vb>>>shift)&0xff));
+				sum += d;
+				max = Math.max(max, d);
+			}
+			if(max > 64)
+				large++;
+		}
+		return new double[]{sum/(4.0*a.numValues()), large/(double)a.numValues()};
+	}
+
+	public static void testImageDiff() throws InvocationTargetException, InterruptedException {
+		double[] thicknesses = {1, 1.5, 2};
+		int[] patterns = {0xffff, 0xf0f0, 0xc3ff};
+		for(double thickness : thicknesses){
+			for(int pattern : patterns){
+				for(boolean gradients : new boolean[]{false, true}){
+					CompleteRenderer content = scene(2000, thickness, pattern, gradients);
+					Img java2d = render(content, false);
+					Img rasterized = render(content, true);
+					double[] d = diff(java2d, rasterized);
+					System.out.format("thickness=%.1f pattern=%04x gradients=%b: mean abs diff %.3f, %.3f%% pixels differ by more than 64%n",
+							thickness, pattern, gradients, d[0], d[1]*100);
+					check(d[0] < 1.0);
+					check(d[1] < 0.005);
+				}
+			}
+		}
+	}
+
+	public static void testPickingDiff() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene(1000, 1, 0xf0f0, true);
+		int w=500, h=400;
+		int[][] picking = new int[2][w*h];
+		for(int k=0; k<2; k++){
+			content.lines.setDirectRasterizationEnabled(k==1);
+			BlankCanvasFallback canvas = canvas(content).setPickingRegionMargin(1000);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			for(int y=0; y<h; y++)
+				for(int x=0; x<w; x++)
+					picking[k][y*w+x] = canvas.getPixel(x, y, true, 1);
+		}
+		int differ = 0, covered = 0;
+		for(int i=0; i<w*h; i++){
+			if(picking[0][i] != 0 || picking[1][i] != 0)
+				covered++;
+			if(picking[0][i] != picking[1][i])
+				differ++;
+		}
+		// picking colors are not rasterized directly
+		check(covered > 0 && differ == 0);
+	}
+
+	public static void benchmark() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene(200_000, 1, 0xffff, true);
+		for(boolean rasterize : new boolean[]{false, true}){
+			content.lines.setDirectRasterizationEnabled(rasterize);
+			BlankCanvasFallback canvas = canvas(content);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			long t = System.nanoTime();
+			for(int i=0; i<3; i++)
+				SwingUtilities.invokeAndWait(canvas::repaint);
+			System.out.format("200k segments, direct rasterization %s: %.1fms per frame%n", rasterize ? "on ":"off", (System.nanoTime()-t)*1e-6/3);
+		}
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,95 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.MappedPoints;
+
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MappedPointsTest {
+
+	public static void main(String[] args) throws IOException {
+		testMappedFile(ByteOrder.LITTLE_ENDIAN);
+		testMappedFile(ByteOrder.BIG_ENDIAN);
+		testDirectBuffer();
+		System.out.println("MappedPointsTest passed");
+	}
+
+	public static void testMappedFile(ByteOrder order) throws IOException {
+		Random rnd = new Random(1);
+		int n = 10_000;
+		float[] xy = new float[n*2];
+		int[] argb = new int[n];
+		for(int i=0; i<n; i++){
+			xy[i*2] = rnd.nextFloat(); xy[i*2+1] = rnd.nextFloat();
+			argb[i] = rnd.nextInt();
+		}
+		// file with a header, position column and color column
+		int header = 16;
+		ByteBuffer data = ByteBuffer.allocate(header + n*12).order(order);
+		data.position(header);
+		for(float v : xy) data.putFloat(v);
+		for(int c : argb) data.putInt(c);
+		data.flip();
+		Path file = Files.createTempFile("mappedpoints", ".bin");
+		try {
+			try(FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)){
+				channel.write(data);
+			}
+			MappedPoints mapped = MappedPoints.map(file, header, header+n*8L, n, order);
+			check(mapped.numPoints() == n);
+			ColumnarPoints reference = new ColumnarPoints();
+			for(int i=0; i<n; i++){
+				check(mapped.getPointX(i) == xy[i*2] && mapped.getPointY(i) == xy[i*2+1]);
+				check(mapped.getPointColor(i) == argb[i]);
+				reference.addPoint(xy[i*2], xy[i*2+1]);
+			}
+			check(mapped.getBounds().equals(reference.getBounds()));
+			Rectangle2D rect = new Rectangle2D.Double(0.2, 0.4, 0.3, 0.1);
+			int[] expected = reference.getIntersectingPointIndices(rect);
+			check(Arrays.equals(expected, mapped.getIntersectingPointIndices(rect)));
+			check(mapped.getIntersectingPoints(rect).size() == expected.length);
+			mapped.setSpatialIndexEnabled(true);
+			check(Arrays.equals(expected, mapped.getIntersectingPointIndices(rect)));
+			check(mapped.getPoint(3).color.getAsInt() == argb[3]);
+		} finally {
+			// mapping may still be alive on some platforms, which prevents deletion
+			file.toFile().deleteOnExit();
+		}
+	}
+
+	public static void testDirectBuffer() {
+		ByteBuffer xy = ByteBuffer.allocateDirect(3*8).order(ByteOrder.nativeOrder());
+		xy.asFloatBuffer().put(new float[]{0,0, 1,2, -1,5});
+		MappedPoints points = new MappedPoints(xy, null);
+		check(points.numPoints() == 3);
+		check(points.getBounds().equals(new Rectangle2D.Double(-1, 0, 2, 5)));
+		check(points.intersects(new Rectangle2D.Double(0.5, 1.5, 1, 1)));
+		try {
+			points.addPoint(0, 0);
+			check(false);
+		} catch (UnsupportedOperationException e) {
+			// read only
+		}
+		try {
+			new MappedPoints(xy, ByteBuffer.allocate(8));
+			check(false);
+		} catch (IllegalArgumentException e) {
+			// 2 colors for 3 points
+		}
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
@@ -0,0 +1,140 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.util.PickingRegistry;
+
+import java.util.HashSet;
+
+public class PickingRegistryTest {
+
+	public static void main(String[] args) {
+		testSingleIDs();
+		testRanges();
+		testReuse();
+		testExplicitRegistration();
+		benchmarkRanges();
+		System.out.println("PickingRegistryTest passed");
+	}
+
+	public static void testSingleIDs() {
+		PickingRegistry<String> reg = new PickingRegistry<>();
+		HashSet<Integer> ids = new HashSet<>();
+		for(int i=0; i<1000; i++){
+			int id = reg.register("e"+i);
+			check((id >>> 24) == 0xff);
+			check(ids.add(id));
+		}
+		int i=0;
+		for(int id=0xff000001; i<1000; id++, i++)
+			check(("e"+i).equals(reg.lookup(id)));
+		check(reg.lookup(0xff000000|5000) == null);
+		check(reg.lookup(0) == null);
+		check("e3".equals(reg.deregister(0xff000004)));
+		check(!reg.isRegistered(0xff000004));
+		check(reg.lookup(0xff000004) == null);
+		check(reg.deregister(0xff000004) == null);
+		// remaining entries survive the removal
+		for(int id=0xff000005; id<0xff000005+900; id++)
+			check(reg.isRegistered(id));
+	}
+
+	public static void testRanges() {
+		PickingRegistry<int[]> reg = new PickingRegistry<>();
+		int first = reg.registerRange(100, i->new int[]{0,i});
+		int second = reg.registerRange(50, i->new int[]{1,i});
+		check(second == first+100);
+		int single = reg.register(new int[]{-1,-1});
+		check(single == second+50);
+		check(reg.lookup(first+42)[0] == 0 && reg.lookup(first+42)[1] == 42);
+		check(reg.lookup(second)[0] == 1 && reg.lookup(second)[1] == 0);
+		check(reg.lookup(second+49)[1] == 49);
+		check(reg.lookup(single)[0] == -1);
+		check(reg.lookup(single+1) == null);
+		// individual removal within a range
+		check(reg.deregister(first+10)[1] == 10);
+		check(reg.lookup(first+10) == null);
+		check(reg.lookup(first+11)[1] == 11);
+		// removed ID of a range is not reused before its range is released
+		check(reg.getNewID() != first+10);
+		check(reg.deregisterRange(first));
+		check(!reg.deregisterRange(first));
+		check(reg.lookup(first) == null && reg.lookup(first+99) == null);
+		check(reg.lookup(second+1)[1] == 1);
+		check(!reg.deregisterRange(second+1));
+	}
+
+	public static void testReuse() {
+		PickingRegistry<Object> reg = new PickingRegistry<>();
+		int a = reg.registerRange(1000, i->i);
+		int b = reg.registerRange(10, i->i);
+		int counter = reg.getCurrentID();
+		reg.deregisterRange(a);
+		// fits into freed block
+		int c = reg.registerRange(600, i->i);
+		check(c == a);
+		int d = reg.registerRange(400, i->i);
+		check(d == a+600);
+		check(reg.getCurrentID() == counter);
+		// does not fit anywhere, uses counter
+		int e = reg.registerRange(20, i->i);
+		check(e == counter+1);
+		// single IDs reuse released IDs
+		reg.deregister(reg.register("x"));
+		int id = reg.register("y");
+		check(id == counter+21);
+		check(reg.deregister(id).equals("y"));
+		check(reg.register("z") == id);
+		// released single IDs are used for ranges of size 1
+		reg.deregisterRange(b);
+		HashSet<Integer> seen = new HashSet<>();
+		for(int i=0; i<10; i++)
+			seen.add(reg.registerRange(1, j->j));
+		check(seen.size() == 10);
+		for(int i=0; i<10; i++)
+			check(seen.contains(b+i));
+	}
+
+	public static void testExplicitRegistration() {
+		PickingRegistry<String> reg = new PickingRegistry<>();
+		int counter = reg.getCurrentID();
+		reg.register("explicit", counter+5);
+		// range skips explicitly registered ID
+		int r = reg.registerRange(10, i->"r"+i);
+		check(r == counter+6);
+		check(reg.lookup(counter+5).equals("explicit"));
+		check(reg.getNewID() == r+10);
+		try {
+			reg.register("bad", 0x00123456);
+			check(false);
+		} catch (IllegalArgumentException ex){
+			// expected
+		}
+		// explicit registration overrides an ID of a range and survives its removal
+		reg.register("override", r+3);
+		check(reg.lookup(r+3).equals("override"));
+		reg.deregisterRange(r);
+		check(reg.lookup(r+3).equals("override"));
+		check(reg.lookup(r+4) == null);
+		for(int i=0; i<9; i++)
+			check(reg.getNewID() != r+3);
+	}
+
+	public static void benchmarkRanges() {
+		final int n = 2_000_000;
+		PickingRegistry<int[]> reg = new PickingRegistry<>();
+		long t = System.nanoTime();
+		int first = reg.registerRange(n, i->new int[]{0,i});
+		long tRegister = System.nanoTime()-t;
+		t = System.nanoTime();
+		long sum=0;
+		for(int i=0; i<n; i++)
+			sum += reg.lookup(first+i)[1];
+		long tLookup = System.nanoTime()-t;
+		check(sum == (long)n*(n-1)/2);
+		System.out.format("registered %d IDs as range in %.3fms, %.1fns per lookup%n", n, tRegister*1e-6, tLookup*1.0/n);
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,82 @@
+package hageldave.jplotter;
+
+import java.awt.Dimension;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import hageldave.jplotter.canvas.BlankCanvas;
+import hageldave.jplotter.gl.PixelReadback;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+
+/**
+ * Compares the time spent on the event dispatch thread for synchronous hover picking
+ * ({@link BlankCanvas#getPixel(int, int, boolean, int)}) with the asynchronous variant
+ * ({@link BlankCanvas#getPixelAsync(int, int, boolean, int)}), and reports the readback latency
+ * recorded by the canvas' {@link PixelReadback}.
+ * Each query is followed by a frame, as it is the case for hover highlighting.
+ * Needs a GL capable display, first argument is the number of queries (default 500).
+ */
+public class PixelReadbackBenchmark {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		final int queries = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		Random rnd = new Random(0xc0ffee);
+		CompleteRenderer content = new CompleteRenderer();
+		Points points = new Points(DefaultGlyph.CIRCLE_F);
+		for(int i=0; i<200_000; i++){
+			points.addPoint(rnd.nextDouble()*800, rnd.nextDouble()*600).setColor(0xff4488cc).setPickColor(i+1);
+		}
+		content.addItemToRender(points);
+
+		BlankCanvas canvas = new BlankCanvas();
+		canvas.setRenderer(content);
+		canvas.setPreferredSize(new Dimension(800, 600));
+		JFrame frame = new JFrame();
+		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		frame.getContentPane().add(canvas);
+		SwingUtilities.invokeAndWait(()->{
+			frame.pack();
+			frame.setVisible(true);
+		});
+		Thread.sleep(1000);
+
+		long[] syncTime = new long[1];
+		SwingUtilities.invokeAndWait(()->{
+			for(int i=0; i<queries; i++){
+				canvas.render();
+				long t = System.nanoTime();
+				canvas.getPixel(rnd.nextInt(800), rnd.nextInt(600), true, 3);
+				syncTime[0] += System.nanoTime()-t;
+			}
+		});
+
+		long[] asyncTime = new long[1];
+		List<CompletableFuture<Integer>> results = new ArrayList<>(queries);
+		SwingUtilities.invokeAndWait(()->{
+			canvas.getPixelReadback().resetMetrics();
+			for(int i=0; i<queries; i++){
+				canvas.render();
+				long t = System.nanoTime();
+				results.add(canvas.getPixelAsync(rnd.nextInt(800), rnd.nextInt(600), true, 3));
+				asyncTime[0] += System.nanoTime()-t;
+			}
+		});
+		CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).join();
+
+		PixelReadback readback = canvas.getPixelReadback();
+		System.out.format("getPixel:      %.3fms per query on EDT%n", syncTime[0]*1e-6/queries);
+		System.out.format("getPixelAsync: %.3fms per query on EDT, latency mean %.3fms max %.3fms (%d readbacks)%n",
+				asyncTime[0]*1e-6/queries, readback.getMeanLatencyNanos()*1e-6, readback.getMaxLatencyNanos()*1e-6, readback.getNumCompleted());
+		frame.dispose();
+		System.exit(0);
+	}
+
+}
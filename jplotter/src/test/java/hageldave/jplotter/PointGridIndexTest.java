@@ -0,0 +1,85 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.util.PointGridIndex;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class PointGridIndexTest {
+
+	public static void main(String[] args) {
+		testRandomQueries();
+		testDegenerateDistributions();
+		testPointsIntegration();
+		System.out.println("PointGridIndexTest passed");
+	}
+
+	static int[] linear(double[] xs, double[] ys, Rectangle2D rect) {
+		return IntStream.range(0, xs.length).filter(i->rect.contains(xs[i], ys[i])).toArray();
+	}
+
+	static void compare(double[] xs, double[] ys, Random rnd, int numQueries) {
+		PointGridIndex index = new PointGridIndex(xs.length, i->xs[i], i->ys[i]);
+		for(int q=0; q<numQueries; q++){
+			Rectangle2D rect = new Rectangle2D.Double(rnd.nextDouble()*1.4-0.2, rnd.nextDouble()*1.4-0.2, rnd.nextDouble()*0.6, rnd.nextDouble()*0.6);
+			int[] expected = linear(xs, ys, rect);
+			check(Arrays.equals(expected, index.getContained(rect)));
+			check(index.containsAny(rect) == (expected.length > 0));
+		}
+	}
+
+	public static void testRandomQueries() {
+		Random rnd = new Random(1);
+		double[] xs = rnd.doubles(20_000).toArray();
+		double[] ys = rnd.doubles(20_000).map(y->y*y).toArray();
+		// points exactly on cell borders and outliers
+		xs[0] = 0.5; ys[0] = 0.5;
+		xs[1] = Double.NaN;
+		xs[2] = Double.POSITIVE_INFINITY;
+		compare(xs, ys, rnd, 500);
+		// query exactly at a point (half open rectangle semantics)
+		PointGridIndex index = new PointGridIndex(xs.length, i->xs[i], i->ys[i]);
+		check(Arrays.binarySearch(index.getContained(new Rectangle2D.Double(0.5, 0.5, 0.1, 0.1)), 0) >= 0);
+		check(Arrays.binarySearch(index.getContained(new Rectangle2D.Double(0.4, 0.4, 0.1, 0.1)), 0) < 0);
+	}
+
+	public static void testDegenerateDistributions() {
+		Random rnd = new Random(2);
+		compare(new double[0], new double[0], rnd, 10);
+		double[] same = new double[100];
+		Arrays.fill(same, 0.3);
+		compare(same, same.clone(), rnd, 100);
+		double[] line = rnd.doubles(1000).toArray();
+		compare(line, new double[1000], rnd, 100);
+		compare(new double[1000], line, rnd, 100);
+	}
+
+	public static void testPointsIntegration() {
+		Random rnd = new Random(3);
+		double[] xs = rnd.doubles(5000).toArray();
+		double[] ys = rnd.doubles(5000).toArray();
+		for(Points points : new Points[]{new Points(), new ColumnarPoints()}){
+			points.addPoints(xs, ys);
+			Rectangle2D rect = new Rectangle2D.Double(0.2, 0.3, 0.1, 0.2);
+			int[] expected = points.getIntersectingPointIndices(rect);
+			int expectedSize = points.getIntersectingPoints(rect).size();
+			points.setSpatialIndexEnabled(true);
+			check(Arrays.equals(expected, points.getIntersectingPointIndices(rect)));
+			check(points.getIntersectingPoints(rect).size() == expectedSize);
+			// adding points discards the index
+			points.addPoint(0.25, 0.35);
+			check(points.getIntersectingPointIndices(rect).length == expected.length+1);
+			check(points.intersects(rect));
+		}
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
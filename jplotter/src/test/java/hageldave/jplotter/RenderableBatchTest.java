@@ -0,0 +1,126 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.StreamingLineStrip;
+import hageldave.jplotter.renderables.StreamingPoints;
+import hageldave.jplotter.renderers.LinesBatch;
+import hageldave.jplotter.renderers.PointsBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RenderableBatchTest {
+
+	public static void main(String[] args) {
+		testPointsBatch();
+		testLinesBatch();
+		System.out.println("RenderableBatchTest passed");
+	}
+
+	public static void testPointsBatch() {
+		List<Points> items = new ArrayList<>();
+		for(int i=0; i<10; i++){
+			Points p = new Points(DefaultGlyph.CROSS);
+			for(int j=0; j<3; j++)
+				p.addPoint(i, j).setColor(0xff000000|i).setPickColor(j+1);
+			items.add(p);
+		}
+		PointsBatch batch = new PointsBatch(DefaultGlyph.CROSS);
+		check(batch.sync(items, false) == 10);
+		check(batch.getNumElements() == 30);
+		check(batch.getDirtyElements().getFrom() == 0 && batch.getDirtyElements().getTo() == 30);
+		check(batch.getPositions()[(4*3+2)*2+0] == 4 && batch.getPositions()[(4*3+2)*2+1] == 2);
+		check(batch.getColors()[(4*3+2)*2+0] == (0xff000000|4) && batch.getColors()[(4*3+2)*2+1] == (0xff000000|3));
+		check(items.stream().noneMatch(Points::isDirty));
+		batch.getDirtyElements().clear();
+		// nothing changed
+		check(batch.sync(items, false) == 0);
+		check(batch.getDirtyElements().isEmpty());
+		// changing a point only rewrites its item
+		items.get(6).getPointDetails().get(1).setColor(0xffff0000);
+		items.get(6).setDirty();
+		check(batch.sync(items, false) == 1);
+		check(batch.getDirtyElements().getFrom() == 18 && batch.getDirtyElements().getTo() == 21);
+		check(batch.getColors()[(6*3+1)*2] == 0xffff0000);
+		batch.getDirtyElements().clear();
+		// adding a point changes the layout
+		items.get(0).addPoint(-1, -1);
+		check(batch.sync(items, false) == 10);
+		check(batch.getNumElements() == 31);
+		check(batch.getPositions()[(4*3+2+1)*2+0] == 4);
+		batch.getDirtyElements().clear();
+		// removing an item changes the layout
+		items.remove(0);
+		check(batch.sync(items, false) == 9);
+		check(batch.getNumElements() == 27);
+		check(batch.getPositions()[0] == 1);
+		// streaming points are clean after being written and rewritten only when appended to
+		StreamingPoints stream = new StreamingPoints(DefaultGlyph.CROSS, 4);
+		stream.appendPoint(7, 7, 0xff000000, 1);
+		items.add(stream);
+		batch.getDirtyElements().clear();
+		check(batch.sync(items, false) == 10);
+		check(!stream.isDirty());
+		batch.getDirtyElements().clear();
+		check(batch.sync(items, false) == 0);
+		stream.appendPoint(8, 8, 0xff000000, 1);
+		check(batch.sync(items, false) == 10);
+		check(batch.sync(items, false) == 0);
+		stream.setPointColor(0, 0xff00ff00);
+		check(batch.sync(items, false) == 1);
+		items.remove(stream);
+		// other glyphs cannot be part of the batch
+		items.add(new Points(DefaultGlyph.CIRCLE));
+		try {
+			batch.sync(items, false);
+			check(false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public static void testLinesBatch() {
+		List<Lines> items = new ArrayList<>();
+		for(int i=0; i<5; i++){
+			Lines l = new Lines().setStrokePattern(0xf0f0);
+			l.addSegment(0, i, 1, i);
+			l.addSegment(1, i, 1, i+1);
+			items.add(l);
+		}
+		LinesBatch batch = new LinesBatch().setViewScaling(1, 1);
+		check(batch.sync(items, false) == 5);
+		check(batch.getNumElements() == 10);
+		check(batch.getSegmentCoords()[(2*2+1)*4+3] == 3);
+		// path lengths continue along connected segments within an item
+		check(batch.getPathLengths()[(2*2+1)*2+0] == 1 && batch.getPathLengths()[(2*2+1)*2+1] == 2);
+		// and start at 0 for each item
+		check(batch.getPathLengths()[(3*2)*2] == 0);
+		batch.getDirtyElements().clear();
+		check(batch.sync(items, false) == 0);
+		// view dependent rewrite
+		batch.setViewScaling(2, 2);
+		check(batch.sync(items, true) == 5);
+		check(batch.getPathLengths()[(2*2+1)*2+1] == 4);
+		batch.getDirtyElements().clear();
+		items.get(4).getSegments().get(0).setColor(0xff00ff00);
+		items.get(4).setDirty();
+		check(batch.sync(items, false) == 1);
+		check(batch.getDirtyElements().getFrom() == 8 && batch.getDirtyElements().getTo() == 10);
+		check(batch.getColors()[8*2] == 0xff00ff00);
+		// streaming line strips keep their segments in a ring buffer and cannot be batched
+		items.add(new StreamingLineStrip(8));
+		try {
+			batch.sync(items, false);
+			check(false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
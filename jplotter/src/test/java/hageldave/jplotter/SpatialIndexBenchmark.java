@@ -0,0 +1,66 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.ColumnarPoints;
+import hageldave.jplotter.renderables.Points;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Measures the latency of rectangle queries as issued during a drag selection
+ * (a growing selection rectangle, one query per mouse move) with and without spatial index.
+ * Run with e.g. {@code -Xmx6g}, arguments are the numbers of points (default 1M and 10M).
+ */
+public class SpatialIndexBenchmark {
+
+	static final int DRAG_STEPS = 50;
+
+	public static void main(String[] args) {
+		int[] sizes = args.length > 0 ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray() : new int[]{1_000_000, 10_000_000};
+		for(int n : sizes){
+			Random rnd = new Random(0xc0ffee);
+			double[] xs = rnd.doubles(n).toArray();
+			double[] ys = rnd.doubles(n).map(y->y*y).toArray();
+			ColumnarPoints points = new ColumnarPoints();
+			points.wrap(xs, ys, null, null);
+			System.out.println(n + " points, drag selection of " + DRAG_STEPS + " steps [ms per query, median]");
+
+			points.setSpatialIndexEnabled(false);
+			drag("linear scan", points);
+
+			points.setSpatialIndexEnabled(true);
+			long t0 = System.nanoTime();
+			points.getSpatialIndex();
+			System.out.println(String.format("%-40s %10.2f", "index build (once) [ms]", (System.nanoTime()-t0)*1e-6));
+			drag("grid index", points);
+			System.out.println();
+		}
+	}
+
+	static void drag(String name, Points points) {
+		// warmup
+		for(int i=0; i<3; i++)
+			dragOnce(points);
+		double[] times = dragOnce(points);
+		Arrays.sort(times);
+		System.out.println(String.format("%-40s %10.3f   (max %.3f)", name, times[times.length/2], times[times.length-1]));
+	}
+
+	static double[] dragOnce(Points points) {
+		double[] times = new double[DRAG_STEPS];
+		int selected = 0;
+		for(int s=0; s<DRAG_STEPS; s++){
+			double extent = 0.3*(s+1)/DRAG_STEPS;
+			Rectangle2D rect = new Rectangle2D.Double(0.4, 0.2, extent, extent);
+			long t0 = System.nanoTime();
+			selected += points.getIntersectingPointIndices(rect).length;
+			selected += points.intersects(rect) ? 1:0;
+			times[s] = (System.nanoTime()-t0)*1e-6;
+		}
+		if(selected < 0)
+			System.out.println(selected);
+		return times;
+	}
+
+}
@@ -0,0 +1,130 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class SpriteStampingTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		testImageDiff();
+		testPickingDiff();
+		benchmark();
+		System.out.println("SpriteStampingTest passed");
+	}
+
+	static CompleteRenderer scene(int numPoints, boolean rotateAndScale) {
+		Random rnd = new Random(5);
+		CompleteRenderer content = new CompleteRenderer();
+		DefaultGlyph[] glyphs = DefaultGlyph.values();
+		for(int k=0; k<glyphs.length; k++){
+			Points points = new Points(glyphs[k]);
+			for(int i=0; i<numPoints/glyphs.length; i++){
+				Points.PointDetails pd = points.addPoint(rnd.nextDouble(), rnd.nextDouble())
+						.setColor((rnd.nextInt(0xcc)+0x33)<<24 | rnd.nextInt(0x1000000))
+						.setPickColor(k*numPoints+i+1);
+				if(rotateAndScale)
+					pd.setRotation(rnd.nextDouble()*Math.PI).setScaling(0.5+rnd.nextInt(8)*0.25);
+			}
+			content.addItemToRender(points);
+		}
+		return content;
+	}
+
+	static BlankCanvasFallback canvas(CompleteRenderer content) {
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setCoordinateView(0, 0, 1, 1);
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(coordsys);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(500, 400);
+		return canvas;
+	}
+
+	static Img render(CompleteRenderer content, boolean stamping) throws InvocationTargetException, InterruptedException {
+		content.points.setSpriteStampingEnabled(stamping);
+		BlankCanvasFallback canvas = canvas(content);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		return canvas.toImg();
+	}
+
+	/** @return {mean absolute channel difference, fraction of pixels with a channel difference above 64} */
+	static double[] diff(Img a, Img b) {
+		long sum = 0;
+		int large = 0;
+		for(int i=0; i<a.numValues(); i++){
+			int va = a.getData()[i], vb = b.getData()[i];
+			int max = 0;
+			for(int shift=0; shift<32; shift+=8){
+				int d = Math.abs(((va>>>shift)&0xff)-((vb>>>shift)&0xff));
+				sum += d;
+				max = Math.max(max, d);
+			}
+			if(max > 64)
+				large++;
+		}
+		return new double[]{sum/(4.0*a.numValues()), large/(double)a.numValues()};
+	}
+
+	public static void testImageDiff() throws InvocationTargetException, InterruptedException {
+		for(boolean rotateAndScale : new boolean[]{false, true}){
+			CompleteRenderer content = scene(2000, rotateAndScale);
+			Img java2d = render(content, false);
+			Img stamped = render(content, true);
+			double[] d = diff(java2d, stamped);
+			System.out.format("rotated/scaled=%b: mean abs diff %.3f, %.3f%% pixels differ by more than 64%n", rotateAndScale, d[0], d[1]*100);
+			check(d[0] < 1.0);
+			check(d[1] < 0.001);
+		}
+	}
+
+	public static void testPickingDiff() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene(500, true);
+		int w=500, h=400;
+		int[][] picking = new int[2][w*h];
+		for(int k=0; k<2; k++){
+			content.points.setSpriteStampingEnabled(k==1);
+			BlankCanvasFallback canvas = canvas(content).setPickingRegionMargin(1000);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			for(int y=0; y<h; y++)
+				for(int x=0; x<w; x++)
+					picking[k][y*w+x] = canvas.getPixel(x, y, true, 1);
+		}
+		int differ = 0, covered = 0;
+		for(int i=0; i<w*h; i++){
+			if(picking[0][i] != 0 || picking[1][i] != 0)
+				covered++;
+			if(picking[0][i] != picking[1][i])
+				differ++;
+		}
+		// picking colors are not stamped
+		check(covered > 0 && differ == 0);
+	}
+
+	public static void benchmark() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene(200_000, false);
+		for(boolean stamping : new boolean[]{false, true}){
+			content.points.setSpriteStampingEnabled(stamping);
+			BlankCanvasFallback canvas = canvas(content);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			long t = System.nanoTime();
+			for(int i=0; i<3; i++)
+				SwingUtilities.invokeAndWait(canvas::repaint);
+			System.out.format("200k points, sprite stamping %s: %.1fms per frame%n", stamping ? "on ":"off", (System.nanoTime()-t)*1e-6/3);
+		}
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,107 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.Lines.SegmentDetails;
+import hageldave.jplotter.renderables.StreamingLineStrip;
+import hageldave.jplotter.renderables.StreamingPoints;
+
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+public class StreamingTest {
+
+	public static void main(String[] args) {
+		testPointsEviction();
+		testPointsBulkAppend();
+		testLineStrip();
+		testPointsWrap();
+		System.out.println("StreamingTest passed");
+	}
+
+	public static void testPointsEviction() {
+		StreamingPoints points = new StreamingPoints(4);
+		for(int i=0; i<10; i++)
+			points.addPoint(i, -i).setColor(0xff000000|i);
+		check(points.isFull() && points.numPoints() == 4);
+		for(int i=0; i<4; i++){
+			check(points.getPointX(i) == 6+i);
+			check(points.getPointY(i) == -(6+i));
+			check(points.getPointColor(i) == (0xff000000|(6+i)));
+		}
+		Rectangle2D bounds = points.getBounds();
+		check(bounds.getMinX() == 6 && bounds.getMaxX() == 9);
+		check(points.getIntersectingPoints(new Rectangle2D.Double(7.5, -10, 5, 10)).size() == 2);
+		points.setPointColor(0, 0xffffffff);
+		check(points.getPointColor(0) == 0xffffffff);
+		check(points.isDirty());
+		points.removeAllPoints();
+		check(points.numPoints() == 0);
+	}
+
+	public static void testPointsBulkAppend() {
+		double[] xs = new double[11];
+		double[] ys = new double[11];
+		for(int i=0; i<xs.length; i++){
+			xs[i] = i;
+			ys[i] = i*2;
+		}
+		StreamingPoints single = new StreamingPoints(5);
+		StreamingPoints bulk = new StreamingPoints(5);
+		single.addPoint(-1, -1);
+		bulk.addPoint(-1, -1);
+		for(int i=0; i<3; i++)
+			single.addPoint(xs[i], ys[i]);
+		bulk.addPoints(new double[]{0,1,2}, new double[]{0,2,4});
+		for(int i=0; i<xs.length; i++)
+			single.addPoint(xs[i], ys[i]);
+		bulk.addPoints(xs, ys);
+		check(single.numPoints() == bulk.numPoints());
+		for(int i=0; i<single.numPoints(); i++){
+			check(single.getPointX(i) == bulk.getPointX(i));
+			check(single.getPointY(i) == bulk.getPointY(i));
+		}
+		check(bulk.getPointX(4) == 10);
+	}
+
+	public static void testLineStrip() {
+		StreamingLineStrip strip = new StreamingLineStrip(3);
+		check(strip.numSegments() == 0);
+		strip.appendSample(0, 0);
+		check(strip.numSegments() == 0);
+		strip.appendSample(1, 1);
+		check(strip.numSegments() == 1 && strip.numGLSegments() == 1);
+		strip.appendSample(2, 0).appendSample(3, 1).appendSample(4, 0);
+		check(strip.numSamples() == 3 && strip.numSegments() == 2 && strip.numGLSegments() == 3);
+		List<SegmentDetails> segments = strip.getSegments();
+		check(segments.size() == 2);
+		check(segments.get(0).p0.getX() == 2 && segments.get(0).p1.getX() == 3);
+		check(segments.get(1).p0.getX() == 3 && segments.get(1).p1.getX() == 4);
+		check(strip.intersects(new Rectangle2D.Double(3.4, 0, 0.2, 1)));
+		check(!strip.intersects(new Rectangle2D.Double(0, 0, 1.5, 1)));
+
+		// segments of Lines API are appended as samples
+		StreamingLineStrip lines = new StreamingLineStrip(10);
+		List<SegmentDetails> added = lines.addLineStrip(new double[]{0,1,2,3}, new double[]{0,1,0,1});
+		check(added.size() == 3 && lines.numSamples() == 4 && lines.numSegments() == 3);
+		check(added.get(2).p0.getX() == 2 && added.get(2).p1.getX() == 3);
+		// disconnected segment is bridged
+		lines.addSegment(5, 0, 6, 1);
+		check(lines.numSamples() == 6 && lines.getSampleX(4) == 5 && lines.getSampleX(5) == 6);
+		lines.addSegments(new double[]{6,1,7,0, 7,0,8,1}, new int[]{0xff00ff00, 0xffff0000});
+		check(lines.numSamples() == 8 && lines.getSampleColor(6) == 0xff00ff00 && lines.getSampleColor(7) == 0xffff0000);
+	}
+
+	public static void testPointsWrap() {
+		StreamingPoints points = new StreamingPoints(3);
+		points.addPoint(-1, -1);
+		points.wrap(new double[]{0,1,2,3}, new double[]{0,2,4,6}, null, new float[]{1,2,3,4});
+		check(points.numPoints() == 3);
+		check(points.getPointX(0) == 1 && points.getPointY(2) == 6 && points.getPointScaling(2) == 4);
+		check(points.getMaxPointScaling() == 4);
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
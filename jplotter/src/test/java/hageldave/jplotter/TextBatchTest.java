@@ -0,0 +1,110 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.font.CharacterAtlas;
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.renderers.TextBatch;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TextBatchTest {
+
+	public static void main(String[] args) {
+		testInstanceData();
+		testIncrementalSync();
+		testManyLabels();
+		System.out.println("TextBatchTest passed");
+	}
+
+	public static void testInstanceData() {
+		Text a = new Text("ab", 12, Font.PLAIN, Color.RED).setOrigin(10, 20).setAngle(0.5).setPickColor(0xff000007);
+		Text b = new Text("~", 12, Font.PLAIN, 0x80112233).setOrigin(-3, 4);
+		List<Text> labels = new ArrayList<>();
+		labels.add(a);
+		labels.add(b);
+		TextBatch batch = new TextBatch(12, Font.PLAIN);
+		check(batch.sync(labels, false) == 2);
+		check(batch.getNumElements() == 3);
+		check(batch.getDirtyElements().getFrom() == 0 && batch.getDirtyElements().getTo() == 3);
+		float[] placements = batch.getPlacements();
+		int[] glyphs = batch.getGlyphs();
+		check(placements[0] == 10 && placements[1] == 20 && placements[2] == 0.5f);
+		check(placements[3] == 10 && placements[4] == 20 && placements[5] == 0.5f);
+		check(placements[6] == -3 && placements[7] == 4 && placements[8] == 0);
+		check(glyphs[0] == CharacterAtlas.indexForChar('a') && glyphs[1] == 0);
+		check(glyphs[4] == CharacterAtlas.indexForChar('b') && glyphs[5] == 1);
+		check(glyphs[8] == CharacterAtlas.indexForChar('~') && glyphs[9] == 0);
+		check(glyphs[2] == Color.RED.getRGB() && glyphs[3] == 0xff000007);
+		check(glyphs[10] == 0x80112233 && glyphs[11] == 0);
+		// fonts cannot be mixed within a batch
+		labels.add(new Text("x", 14, Font.PLAIN, Color.BLACK));
+		try {
+			batch.sync(labels, false);
+			check(false);
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public static void testIncrementalSync() {
+		List<Text> labels = new ArrayList<>();
+		for(int i=0; i<10; i++){
+			labels.add(new Text("label"+i, 10, Font.BOLD, Color.BLACK).setOrigin(i, i));
+		}
+		TextBatch batch = new TextBatch(10, Font.BOLD);
+		check(batch.sync(labels, false) == 10);
+		batch.getDirtyElements().clear();
+		// nothing changed
+		check(batch.sync(labels, false) == 0);
+		check(batch.getDirtyElements().isEmpty());
+		// change a few labels without changing the layout
+		labels.get(3).setColor(Color.BLUE);
+		labels.get(5).setOrigin(100, 100);
+		check(batch.sync(labels, false) == 2);
+		check(batch.getDirtyElements().getFrom() == 3*6);
+		check(batch.getDirtyElements().getTo() == 6*6);
+		check(batch.getGlyphs()[(3*6)*4+2] == Color.BLUE.getRGB());
+		check(batch.getPlacements()[(5*6)*3] == 100);
+		batch.getDirtyElements().clear();
+		// same length string only rewrites the label
+		labels.get(9).setTextString("LABEL9");
+		check(batch.sync(labels, false) == 1);
+		check(batch.getGlyphs()[(9*6)*4] == CharacterAtlas.indexForChar('L'));
+		batch.getDirtyElements().clear();
+		// different length changes the layout
+		labels.get(0).setTextString("label_0");
+		check(batch.sync(labels, false) == 10);
+		check(batch.getNumElements() == 61);
+		check(batch.getGlyphs()[7*4+1] == 0);
+		batch.getDirtyElements().clear();
+		// removing a label changes the layout
+		labels.remove(4);
+		check(batch.sync(labels, false) == 9);
+		check(batch.getNumElements() == 55);
+	}
+
+	public static void testManyLabels() {
+		int n = 20_000;
+		List<Text> labels = new ArrayList<>(n);
+		for(int i=0; i<n; i++){
+			labels.add(new Text("#"+(i%1000), 11, Font.PLAIN, Color.DARK_GRAY).setOrigin(i%200, i/200));
+		}
+		TextBatch batch = new TextBatch(11, Font.PLAIN);
+		check(batch.sync(labels, false) == n);
+		batch.getDirtyElements().clear();
+		long t = System.nanoTime();
+		check(batch.sync(labels, false) == 0);
+		long unchanged = System.nanoTime()-t;
+		labels.get(n/2).setColor(Color.RED);
+		check(batch.sync(labels, false) == 1);
+		check(batch.getDirtyElements().length() == labels.get(n/2).getTextString().length());
+		System.out.println("sync of "+n+" unchanged labels: "+(unchanged/1000)+"us");
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
@@ -0,0 +1,74 @@
+package hageldave.jplotter;
+
+import java.awt.Color;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+import javax.swing.SwingUtilities;
+
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+/**
+ * Measures the frame time of {@link BlankCanvasFallback} with tiled rendering
+ * ({@link BlankCanvasFallback#setTiledRenderingParallelism(int)}) for 1, 2, 4, 8 and 16 threads
+ * compared to untiled rendering.
+ * Runs headless, first argument is the number of frames per configuration (default 10).
+ */
+public class TiledRenderingBenchmark {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		Random rnd = new Random(0xc0ffee);
+		CompleteRenderer content = new CompleteRenderer();
+		Points points = new Points(DefaultGlyph.CIRCLE_F);
+		for(int i=0; i<50_000; i++){
+			points.addPoint(rnd.nextDouble(), rnd.nextDouble()).setColor(0x884488cc);
+		}
+		Lines lines = new Lines();
+		double y = 0.5;
+		for(int i=0; i<20_000; i++){
+			double y_ = y+rnd.nextGaussian()*0.01;
+			lines.addSegment(i/20_000.0, y, (i+1)/20_000.0, y_).setColor(0xffcc4422).setThickness(2);
+			y = y_;
+		}
+		content.addItemToRender(points).addItemToRender(lines);
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setCoordinateView(0, 0, 1, 1);
+
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(coordsys);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(1600, 1200);
+
+		System.out.println("available processors: " + Runtime.getRuntime().availableProcessors());
+		double baseline = measure(canvas, 0, frames);
+		System.out.format("untiled:    %8.2fms per frame%n", baseline);
+		for(int threads : new int[]{1,2,4,8,16}){
+			double t = measure(canvas, threads, frames);
+			System.out.format("%2d threads: %8.2fms per frame, speedup %.2fx%n", threads, t, baseline/t);
+		}
+		canvas.setTiledRenderingParallelism(0);
+	}
+
+	static double measure(BlankCanvasFallback canvas, int threads, int frames) throws InvocationTargetException, InterruptedException {
+		canvas.setTiledRenderingParallelism(threads);
+		// warm up
+		for(int i=0; i<3; i++)
+			SwingUtilities.invokeAndWait(canvas::repaint);
+		long[] time = new long[1];
+		SwingUtilities.invokeAndWait(()->{
+			long t = System.nanoTime();
+			for(int i=0; i<frames; i++)
+				canvas.repaint();
+			time[0] = System.nanoTime()-t;
+		});
+		return time[0]*1e-6/frames;
+	}
+
+}
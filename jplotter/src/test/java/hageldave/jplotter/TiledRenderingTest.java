@@ -0,0 +1,99 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.DecimatedLineStrip;
+import hageldave.jplotter.renderables.Legend;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.renderables.Triangles;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.geom.Point2D;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class TiledRenderingTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		Img reference = render(0);
+		for(int parallelism : new int[]{1,2,3,8}){
+			Img tiled = render(parallelism);
+			check(tiled.getWidth() == reference.getWidth() && tiled.getHeight() == reference.getHeight());
+			// gradient paints are evaluated in device space of the tile, allowing for rounding differences
+			int maxDiff = 0;
+			for(int i=0; i<reference.numValues(); i++){
+				int a = reference.getData()[i], b = tiled.getData()[i];
+				for(int shift=0; shift<32; shift+=8)
+					maxDiff = Math.max(maxDiff, Math.abs(((a>>>shift)&0xff)-((b>>>shift)&0xff)));
+			}
+			check(maxDiff <= 1);
+		}
+		System.out.println("TiledRenderingTest passed");
+	}
+
+	static CoordSysRenderer scene() {
+		Random rnd = new Random(3);
+		CompleteRenderer content = new CompleteRenderer();
+		Triangles tris = new Triangles();
+		tris.addTriangle(new Point2D.Double(10, 10), new Point2D.Double(60, 10), new Point2D.Double(10, 60)).setColor0(0xffff0000).setColor1(0xff00ff00);
+		Lines lines = new Lines().setStrokePattern(0xf0f0);
+		Lines thick = new Lines();
+		for(int i=0; i<50; i++){
+			lines.addSegment(rnd.nextDouble()*100, rnd.nextDouble()*100, rnd.nextDouble()*100, rnd.nextDouble()*100).setColor(0xff0044aa);
+			thick.addSegment(rnd.nextDouble()*100, rnd.nextDouble()*100, rnd.nextDouble()*100, rnd.nextDouble()*100)
+				.setThickness(1+rnd.nextDouble()*6, 1+rnd.nextDouble()*6).setColor0(0xffaa4400).setColor1(0xff44aa00);
+		}
+		Points points = new Points(DefaultGlyph.CIRCLE_F);
+		for(int i=0; i<500; i++)
+			points.addPoint(rnd.nextDouble()*100, rnd.nextDouble()*100).setScaling(0.5+rnd.nextDouble()*3).setColor(0x88aa00aa);
+		Text txt = new Text("across tiles", 14, 0);
+		txt.setOrigin(new Point2D.Double(30, 49));
+		// lazily built spatial index and decimation are shared by concurrently rendered tiles
+		Triangles mesh = new Triangles().setSpatialIndexEnabled(true);
+		for(int i=0; i<Triangles.SPATIAL_INDEX_MIN_TRIANGLES*2; i++){
+			double x = rnd.nextDouble()*100, y = rnd.nextDouble()*100;
+			mesh.addTriangle(x, y, x+2, y, x, y+2).setColor(0x4400aa44);
+		}
+		double[] xs = new double[100_000], ys = new double[xs.length];
+		for(int i=0; i<xs.length; i++){
+			xs[i] = i*100.0/xs.length;
+			ys[i] = 50+20*Math.sin(i*0.01)+rnd.nextGaussian()*5;
+		}
+		DecimatedLineStrip strip = new DecimatedLineStrip().setSamples(xs, ys, null).setColor(0xff222222);
+		content.addItemToRender(tris).addItemToRender(lines).addItemToRender(thick).addItemToRender(points).addItemToRender(txt);
+		content.addItemToRender(mesh).addItemToRender(strip);
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setCoordinateView(0, 0, 100, 100);
+		Legend legend = new Legend();
+		legend.addGlyphLabel(DefaultGlyph.CIRCLE_F, 0xffaa00aa, "points");
+		legend.addLineLabel(2, 0xff0044aa, "lines");
+		coordsys.setLegendRight(legend);
+		return coordsys;
+	}
+
+	static Img render(int parallelism) throws InvocationTargetException, InterruptedException {
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(scene());
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(400, 301);
+		canvas.setTiledRenderingParallelism(parallelism);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		// second frame reuses tile buffers
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		Img img = canvas.toImg();
+		canvas.setTiledRenderingParallelism(0);
+		return img;
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
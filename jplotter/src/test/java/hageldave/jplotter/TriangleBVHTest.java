@@ -0,0 +1,94 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.Triangles;
+import hageldave.jplotter.renderables.Triangles.TriangleDetails;
+import hageldave.jplotter.util.BoundingVolumeHierarchy;
+import hageldave.jplotter.util.Utils;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public class TriangleBVHTest {
+
+	public static void main(String[] args) {
+		testRandomQueries();
+		testTrianglesIntegration();
+		System.out.println("TriangleBVHTest passed");
+	}
+
+	static Triangles randomTriangles(Random rnd, int n) {
+		Triangles tris = new Triangles();
+		for(int i=0; i<n; i++){
+			double x = rnd.nextDouble(), y = rnd.nextDouble();
+			double s = rnd.nextDouble()*0.02;
+			tris.addTriangle(x, y, x+rnd.nextDouble()*s, y+s, x-s, y+rnd.nextDouble()*s);
+		}
+		return tris;
+	}
+
+	static boolean intersects(TriangleDetails tri, Rectangle2D rect) {
+		return Utils.rectIntersectsOrIsContainedInTri(rect,
+				tri.p0.getX(), tri.p0.getY(), tri.p1.getX(), tri.p1.getY(), tri.p2.getX(), tri.p2.getY());
+	}
+
+	public static void testRandomQueries() {
+		Random rnd = new Random(1);
+		Triangles tris = randomTriangles(rnd, 10_000);
+		List<TriangleDetails> details = tris.getTriangleDetails();
+		// a huge triangle and one with non finite coordinates
+		details.set(0, new TriangleDetails(-10, -10, 10, -10, 0, 10));
+		details.set(1, new TriangleDetails(Double.NaN, 0, 1, 1, 0, 1));
+		BoundingVolumeHierarchy bvh = new BoundingVolumeHierarchy(details.size(), (i, box, off)->{
+			TriangleDetails tri = details.get(i);
+			box[off+0] = Math.min(tri.p0.getX(), Math.min(tri.p1.getX(), tri.p2.getX()));
+			box[off+1] = Math.min(tri.p0.getY(), Math.min(tri.p1.getY(), tri.p2.getY()));
+			box[off+2] = Math.max(tri.p0.getX(), Math.max(tri.p1.getX(), tri.p2.getX()));
+			box[off+3] = Math.max(tri.p0.getY(), Math.max(tri.p1.getY(), tri.p2.getY()));
+		});
+		check(bvh.numPrimitives() == details.size());
+		for(int q=0; q<500; q++){
+			Rectangle2D rect = new Rectangle2D.Double(rnd.nextDouble()*1.4-0.2, rnd.nextDouble()*1.4-0.2, rnd.nextDouble()*0.5, rnd.nextDouble()*0.5);
+			int[] expected = IntStream.range(0, details.size()).filter(i->intersects(details.get(i), rect)).toArray();
+			check(Arrays.equals(expected, bvh.getIntersecting(rect, i->intersects(details.get(i), rect))));
+			check(bvh.anyIntersecting(rect, i->intersects(details.get(i), rect)) == (expected.length > 0));
+		}
+		// empty hierarchy
+		BoundingVolumeHierarchy empty = new BoundingVolumeHierarchy(0, (i, box, off)->{});
+		check(empty.getIntersecting(new Rectangle2D.Double(0, 0, 1, 1), i->true).length == 0);
+	}
+
+	public static void testTrianglesIntegration() {
+		Random rnd = new Random(2);
+		Triangles tris = randomTriangles(rnd, 5000);
+		Rectangle2D rect = new Rectangle2D.Double(0.2, 0.3, 0.3, 0.2);
+		tris.setSpatialIndexEnabled(false);
+		List<TriangleDetails> expected = tris.getIntersectingTriangles(rect);
+		tris.setSpatialIndexEnabled(true);
+		// repeated queries (the index is built on the second one) keep the order of the collection
+		for(int i=0; i<3; i++){
+			check(expected.equals(tris.getIntersectingTriangles(rect)));
+			check(tris.intersects(rect));
+		}
+		// changes discard the index
+		tris.addTriangle(0.3, 0.4, 0.31, 0.4, 0.3, 0.41);
+		for(int i=0; i<3; i++)
+			check(tris.getIntersectingTriangles(rect).size() == expected.size()+1);
+		TriangleDetails moved = tris.getTriangleDetails().get(tris.numTriangles()-1);
+		moved.p0.setLocation(5, 5); moved.p1.setLocation(6, 5); moved.p2.setLocation(5, 6);
+		tris.setDirty();
+		for(int i=0; i<3; i++)
+			check(expected.equals(tris.getIntersectingTriangles(rect)));
+		// direct modification of the list without notification is detected by the count
+		tris.getTriangleDetails().add(new TriangleDetails(0.3, 0.4, 0.31, 0.4, 0.3, 0.41));
+		check(tris.getIntersectingTriangles(rect).size() == expected.size()+1);
+	}
+
+	static void check(boolean condition) {
+		if(!condition)
+			throw new RuntimeException();
+	}
+
+}
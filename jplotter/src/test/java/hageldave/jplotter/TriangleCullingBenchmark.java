@@ -0,0 +1,65 @@
+package hageldave.jplotter;
+
+import hageldave.jplotter.renderables.Triangles;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Measures the latency of view culling ({@link Triangles#getIntersectingTriangles(Rectangle2D)})
+ * as issued by the fallback rendering of a zoomed in view that is panned over a mesh,
+ * with and without spatial index.
+ * Run with e.g. {@code -Xmx6g}, the argument is the number of triangles (default 2M).
+ */
+public class TriangleCullingBenchmark {
+
+	static final int PAN_STEPS = 50;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		// regular mesh of quads over the unit square
+		int res = (int)Math.sqrt(n/2);
+		Triangles tris = new Triangles();
+		for(int j=0; j<res; j++){
+			for(int i=0; i<res; i++){
+				tris.addQuad(new Rectangle2D.Double(i/(double)res, j/(double)res, 1.0/res, 1.0/res));
+			}
+		}
+		System.out.println(tris.numTriangles() + " triangles, panning of " + PAN_STEPS + " steps [ms per frame, median]");
+
+		tris.setSpatialIndexEnabled(false);
+		pan("linear scan", tris);
+
+		tris.setSpatialIndexEnabled(true);
+		long t0 = System.nanoTime();
+		// index is built on the second query after a change
+		tris.intersects(new Rectangle2D.Double());
+		tris.intersects(new Rectangle2D.Double());
+		System.out.println(String.format("%-40s %10.2f", "index build (once) [ms]", (System.nanoTime()-t0)*1e-6));
+		pan("bounding volume hierarchy", tris);
+	}
+
+	static void pan(String name, Triangles tris) {
+		// warmup
+		for(int i=0; i<3; i++)
+			panOnce(tris);
+		double[] times = panOnce(tris);
+		Arrays.sort(times);
+		System.out.println(String.format("%-40s %10.3f   (max %.3f)", name, times[times.length/2], times[times.length-1]));
+	}
+
+	static double[] panOnce(Triangles tris) {
+		double[] times = new double[PAN_STEPS];
+		int visible = 0;
+		for(int s=0; s<PAN_STEPS; s++){
+			Rectangle2D view = new Rectangle2D.Double(0.8*s/PAN_STEPS, 0.3, 0.1, 0.1);
+			long t0 = System.nanoTime();
+			visible += tris.getIntersectingTriangles(view).size();
+			times[s] = (System.nanoTime()-t0)*1e-6;
+		}
+		if(visible < 0)
+			System.out.println(visible);
+		return times;
+	}
+
+}
@@ -0,0 +1,135 @@
+package hageldave.jplotter;
+
+import hageldave.imagingkit.core.Img;
+import hageldave.jplotter.canvas.BlankCanvasFallback;
+import hageldave.jplotter.renderables.Triangles;
+import hageldave.jplotter.renderers.CompleteRenderer;
+import hageldave.jplotter.renderers.CoordSysRenderer;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Random;
+
+public class TriangleRasterizerTest {
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		testImageDiff();
+		testPickingDiff();
+		testParallelism();
+		benchmark();
+		System.out.println("TriangleRasterizerTest passed");
+	}
+
+	static CompleteRenderer scene(int numTriangles, double size, boolean antialiasing) {
+		Random rnd = new Random(3);
+		CompleteRenderer content = new CompleteRenderer();
+		Triangles tris = new Triangles();
+		tris.enableAAinFallback(antialiasing);
+		for(int i=0; i<numTriangles; i++){
+			double x = rnd.nextDouble(), y = rnd.nextDouble();
+			tris.addTriangle(
+					x+(rnd.nextDouble()-.5)*size, y+(rnd.nextDouble()-.5)*size,
+					x+(rnd.nextDouble()-.5)*size, y+(rnd.nextDouble()-.5)*size,
+					x+(rnd.nextDouble()-.5)*size, y+(rnd.nextDouble()-.5)*size)
+			.setColor0((rnd.nextInt(0xcc)+0x33)<<24 | rnd.nextInt(0x1000000))
+			.setColor1((rnd.nextInt(0xcc)+0x33)<<24 | rnd.nextInt(0x1000000))
+			.setColor2(i%2==0 ? 0xff000000 | rnd.nextInt(0x1000000) : (rnd.nextInt(0xcc)+0x33)<<24 | rnd.nextInt(0x1000000))
+			.setPickColor(i+1);
+		}
+		content.addItemToRender(tris);
+		return content;
+	}
+
+	static BlankCanvasFallback canvas(CompleteRenderer content) {
+		CoordSysRenderer coordsys = new CoordSysRenderer();
+		coordsys.setContent(content);
+		coordsys.setCoordinateView(0, 0, 1, 1);
+		BlankCanvasFallback canvas = new BlankCanvasFallback();
+		canvas.setRenderer(coordsys);
+		canvas.setBackground(Color.WHITE);
+		canvas.setSize(500, 400);
+		return canvas;
+	}
+
+	static Img render(CompleteRenderer content, boolean rasterize, int parallelism) throws InvocationTargetException, InterruptedException {
+		content.triangles.setDirectRasterizationEnabled(rasterize).setRasterizationParallelism(parallelism);
+		BlankCanvasFallback canvas = canvas(content);
+		SwingUtilities.invokeAndWait(canvas::repaint);
+		return canvas.toImg();
+	}
+
+	static int maxDiff(Img a, Img b) {
+		int max = 0;
+		for(int i=0; i<a.numValues(); i++){
+			int va = a.getData()[i], vb = b.getData()[i];
+			for(int shift=0; shift<32; shift+=8)
+				max = Math.max(max, Math.abs(((va>>>shift)&0xff)-((vb>>>shift)&0xff)));
+		}
+		return max;
+	}
+
+	public static void testImageDiff() throws InvocationTargetException, InterruptedException {
+		for(boolean antialiasing : new boolean[]{false, true}){
+			CompleteRenderer content = scene(2000, 0.1, antialiasing);
+			Img paint = render(content, false, 1);
+			Img rasterized = render(content, true, 1);
+			int d = maxDiff(paint, rasterized);
+			System.out.format("antialiasing=%b: max channel diff %d%n", antialiasing, d);
+			// same coverage and colors, alpha blending is rounded slightly differently (accumulates where triangles overlap)
+			check(d <= 4);
+		}
+	}
+
+	public static void testPickingDiff() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene(1000, 0.1, false);
+		int w=500, h=400;
+		int[][] picking = new int[2][w*h];
+		for(int k=0; k<2; k++){
+			content.triangles.setDirectRasterizationEnabled(k==1);
+			BlankCanvasFallback canvas = canvas(content).setPickingRegionMargin(1000);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			for(int y=0; y<h; y++)
+				for(int x=0; x<w; x++)
+					picking[k][y*w+x] = canvas.getPixel(x, y, true, 1);
+		}
+		int differ = 0, covered = 0;
+		for(int i=0; i<w*h; i++){
+			if(picking[0][i] != 0 || picking[1][i] != 0)
+				covered++;
+			if(picking[0][i] != picking[1][i])
+				differ++;
+		}
+		check(covered > 0 && differ == 0);
+	}
+
+	public static void testParallelism() throws InvocationTargetException, InterruptedException {
+		for(boolean antialiasing : new boolean[]{false, true}){
+			CompleteRenderer content = scene(5000, 0.05, antialiasing);
+			Img sequential = render(content, true, 1);
+			Img parallel = render(content, true, 4);
+			// bands process triangles in order, so the result is identical
+			check(maxDiff(sequential, parallel) == 0);
+		}
+	}
+
+	public static void benchmark() throws InvocationTargetException, InterruptedException {
+		CompleteRenderer content = scene(50_000, 0.05, false);
+		for(int mode=0; mode<3; mode++){
+			content.triangles.setDirectRasterizationEnabled(mode > 0).setRasterizationParallelism(mode == 2 ? 4:1);
+			BlankCanvasFallback canvas = canvas(content);
+			SwingUtilities.invokeAndWait(canvas::repaint);
+			long t = System.nanoTime();
+			for(int i=0; i<3; i++)
+				SwingUtilities.invokeAndWait(canvas::repaint);
+			System.out.format("50k triangles, %s: %.1fms per frame%n", 
+					mode == 0 ? "BarycentricGradientPaint" : mode == 1 ? "rasterizer" : "rasterizer (4 threads)",
+					(System.nanoTime()-t)*1e-6/3);
+		}
+	}
+
+	static void check(boolean b) {
+		if(!b) throw new RuntimeException("check failed");
+	}
+
+}
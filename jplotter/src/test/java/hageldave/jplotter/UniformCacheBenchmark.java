@@ -0,0 +1,83 @@
+package hageldave.jplotter;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import org.lwjgl.opengl.GL11;
+
+import hageldave.jplotter.canvas.BlankCanvas;
+import hageldave.jplotter.misc.DefaultGlyph;
+import hageldave.jplotter.renderables.Lines;
+import hageldave.jplotter.renderables.Points;
+import hageldave.jplotter.renderables.Text;
+import hageldave.jplotter.renderables.Triangles;
+import hageldave.jplotter.renderers.CompleteRenderer;
+
+/**
+ * Measures the frame time of a canvas with 1000 small renderables
+ * (250 each of {@link Points}, {@link Lines}, {@link Triangles} and {@link Text}),
+ * i.e. a scene where per item uniform uploads dominate the CPU side of a frame.
+ * Needs a GL capable display, first argument is the number of frames (default 500).
+ */
+public class UniformCacheBenchmark {
+
+	static final int WARMUP = 50;
+
+	public static void main(String[] args) throws InvocationTargetException, InterruptedException {
+		final int frames = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		Random rnd = new Random(0xc0ffee);
+		CompleteRenderer content = new CompleteRenderer();
+		for(int i=0; i<250; i++){
+			Points p = new Points(DefaultGlyph.CIRCLE_F);
+			p.addPoint(rnd.nextDouble()*800, rnd.nextDouble()*600).setColor(0xff4488cc);
+			p.setGlobalAlphaMultiplier(0.5+rnd.nextDouble()*0.5);
+			content.addItemToRender(p);
+			Lines l = new Lines();
+			l.addSegment(rnd.nextDouble()*800, rnd.nextDouble()*600, rnd.nextDouble()*800, rnd.nextDouble()*600).setColor(0xff884422);
+			l.setGlobalThicknessMultiplier(1+rnd.nextInt(3));
+			content.addItemToRender(l);
+			Triangles t = new Triangles();
+			double x = rnd.nextDouble()*800, y = rnd.nextDouble()*600;
+			t.addTriangle(x, y, x+10, y, x, y+10).setColor(0xff22aa44);
+			content.addItemToRender(t);
+			Text txt = new Text("#"+i, 12, Font.PLAIN, Color.BLACK).setOrigin((int)x, (int)y);
+			content.addItemToRender(txt);
+		}
+
+		BlankCanvas canvas = new BlankCanvas();
+		canvas.setRenderer(content);
+		canvas.setPreferredSize(new Dimension(800, 600));
+		JFrame frame = new JFrame();
+		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		frame.getContentPane().add(canvas);
+		SwingUtilities.invokeAndWait(()->{
+			frame.pack();
+			frame.setVisible(true);
+		});
+		Thread.sleep(1000);
+
+		long[] times = new long[frames];
+		SwingUtilities.invokeAndWait(()->{
+			for(int i=-WARMUP; i<frames; i++){
+				long t = System.nanoTime();
+				canvas.render();
+				canvas.runInContext(GL11::glFinish);
+				if(i >= 0)
+					times[i] = System.nanoTime()-t;
+			}
+		});
+		Arrays.sort(times);
+		System.out.format("1000 renderables, %d frames: median %.3fms, 90th percentile %.3fms%n",
+				frames, times[frames/2]*1e-6, times[frames*9/10]*1e-6);
+		frame.dispose();
+		System.exit(0);
+	}
+
+}